@@ -31,6 +31,7 @@ import java.io.InputStream;
 import java.nio.channels.Channels;
 import java.nio.channels.ReadableByteChannel;
 import java.util.Iterator;
+import java.util.function.Consumer;
 
 /**
  * Helpers for reading CommitLog records from a file.
@@ -57,14 +58,30 @@ public final class CommitLogImports {
    */
   public static ImmutableList<ImmutableList<VersionedEntity>> loadEntitiesByTransaction(
       InputStream inputStream) {
+    ImmutableList.Builder<ImmutableList<VersionedEntity>> resultBuilder =
+        new ImmutableList.Builder<>();
+    processEntitiesByTransaction(inputStream, resultBuilder::add);
+    return resultBuilder.build();
+  }
+
+  /**
+   * Reads the entities in an {@code inputStream} (from a single CommitLog file) one transaction at
+   * a time, and passes each transaction to {@code transactionConsumer} as soon as it has been read,
+   * in the order of the file. Upon completion the {@code inputStream} is closed.
+   *
+   * <p>Unlike {@link #loadEntitiesByTransaction}, this only holds one transaction in memory at a
+   * time. Empty transactions are skipped.
+   *
+   * @see #loadEntitiesByTransaction for the format of the file
+   */
+  public static void processEntitiesByTransaction(
+      InputStream inputStream, Consumer<ImmutableList<VersionedEntity>> transactionConsumer) {
     try (AppEngineEnvironment appEngineEnvironment = new AppEngineEnvironment();
         InputStream input = new BufferedInputStream(inputStream)) {
       Iterator<ImmutableObject> commitLogs = createDeserializingIterator(input);
       checkState(commitLogs.hasNext());
       checkState(commitLogs.next() instanceof CommitLogCheckpoint);
 
-      ImmutableList.Builder<ImmutableList<VersionedEntity>> resultBuilder =
-          new ImmutableList.Builder<>();
       ImmutableList.Builder<VersionedEntity> currentTransactionBuilder =
           new ImmutableList.Builder<>();
 
@@ -72,7 +89,7 @@ public final class CommitLogImports {
         ImmutableObject currentObject = commitLogs.next();
         if (currentObject instanceof CommitLogManifest) {
           // CommitLogManifest means we are starting a new transaction
-          addIfNonempty(resultBuilder, currentTransactionBuilder);
+          acceptIfNonempty(transactionConsumer, currentTransactionBuilder);
           currentTransactionBuilder = new ImmutableList.Builder<>();
           VersionedEntity.fromManifest((CommitLogManifest) currentObject)
               .forEach(currentTransactionBuilder::add);
@@ -84,9 +101,8 @@ public final class CommitLogImports {
               String.format("Unknown entity type %s in commit logs", currentObject.getClass()));
         }
       }
-      // Add the last transaction in (if it's not empty)
-      addIfNonempty(resultBuilder, currentTransactionBuilder);
-      return resultBuilder.build();
+      // Pass on the last transaction (if it's not empty)
+      acceptIfNonempty(transactionConsumer, currentTransactionBuilder);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
@@ -128,12 +144,12 @@ public final class CommitLogImports {
     return loadEntities(Channels.newInputStream(channel));
   }
 
-  private static void addIfNonempty(
-      ImmutableList.Builder<ImmutableList<VersionedEntity>> resultBuilder,
+  private static void acceptIfNonempty(
+      Consumer<ImmutableList<VersionedEntity>> transactionConsumer,
       ImmutableList.Builder<VersionedEntity> currentTransactionBuilder) {
     ImmutableList<VersionedEntity> currentTransaction = currentTransactionBuilder.build();
     if (!currentTransaction.isEmpty()) {
-      resultBuilder.add(currentTransaction);
+      transactionConsumer.accept(currentTransaction);
     }
   }
 }
@@ -42,9 +42,15 @@ import google.registry.util.RequestStatusChecker;
 import java.io.IOException;
 import java.io.InputStream;
 import java.nio.channels.Channels;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
 import javax.servlet.http.HttpServletResponse;
+import org.hibernate.Session;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
 
@@ -63,6 +69,10 @@ public class ReplayCommitLogsToSqlAction implements Runnable {
       1024 * 1024; // Buffer 1mb at a time, for no particular reason.
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
   private static final Duration LEASE_LENGTH = standardHours(1);
+  /** The maximum number of entity writes and deletes replayed in each batch. */
+  private static final int MAX_ENTITIES_PER_BATCH = 1000;
+  /** The maximum number of identical statements sent to the database in one JDBC batch. */
+  private static final int JDBC_BATCH_SIZE = 100;
 
   @Inject GcsService gcsService;
   @Inject Response response;
@@ -121,30 +131,90 @@ public class ReplayCommitLogsToSqlAction implements Runnable {
     try (InputStream input =
         Channels.newInputStream(
             gcsService.openPrefetchingReadChannel(metadata.getFilename(), 0, BLOCK_SIZE))) {
-      // Load and process the Datastore transactions one at a time
-      ImmutableList<ImmutableList<VersionedEntity>> allTransactions =
-          CommitLogImports.loadEntitiesByTransaction(input);
-      allTransactions.forEach(this::replayTransaction);
+      // Let Hibernate send the writes of each batch to the database in JDBC batches.
+      jpaTm().getEntityManager().unwrap(Session.class).setJdbcBatchSize(JDBC_BATCH_SIZE);
+      // Stream the Datastore transactions from the file and replay them in batches
+      TransactionBatch batch = new TransactionBatch();
+      CommitLogImports.processEntitiesByTransaction(
+          input,
+          transaction -> {
+            if (!batch.canAdd(transaction)) {
+              batch.replay();
+            }
+            batch.add(transaction);
+          });
+      batch.replay();
       // if we succeeded, set the last-seen time
       DateTime checkpoint =
           DateTime.parse(
               metadata.getFilename().getObjectName().substring(DIFF_FILE_PREFIX.length()));
       SqlReplayCheckpoint.set(checkpoint);
-      logger.atInfo().log("Replayed %d transactions from commit log file.", allTransactions.size());
+      logger.atInfo().log(
+          "Replayed %d transactions from commit log file in %d batches.",
+          batch.numTransactionsReplayed, batch.numBatchesReplayed);
     } catch (IOException e) {
       throw new RuntimeException(e);
     }
   }
 
-  private void replayTransaction(ImmutableList<VersionedEntity> transaction) {
-    transaction.stream()
-        .sorted(ReplayCommitLogsToSqlAction::compareByWeight)
-        .forEach(
-            versionedEntity ->
-                versionedEntity
-                    .getEntity()
-                    .ifPresentOrElse(
-                        this::handleEntityPut, () -> handleEntityDelete(versionedEntity)));
+  /**
+   * Consecutive Datastore transactions of a commit log file that are replayed together.
+   *
+   * <p>The writes of each transaction are sorted by weight (to satisfy foreign keys), but the
+   * transactions themselves are replayed in the order of the file, since a later transaction may
+   * reference an entity written by an earlier one whatever their kinds. Transactions are only put in
+   * the same batch if they don't touch any of the same entities, and a transaction that touches an
+   * entity already in the batch starts a new batch, which keeps the writes to each entity in the
+   * order of the file.
+   *
+   * <p>The writes of each batch are flushed to the database, and then evicted from the persistence
+   * context, before the next one is replayed, so memory use is bounded by the batch size rather
+   * than by the size of the file.
+   */
+  private final class TransactionBatch {
+
+    private final List<VersionedEntity> entities = new ArrayList<>();
+    private final Set<Key> keys = new HashSet<>();
+    private int numTransactions = 0;
+    int numTransactionsReplayed = 0;
+    int numBatchesReplayed = 0;
+
+    /** Returns whether the transaction can be replayed as part of this batch. */
+    boolean canAdd(ImmutableList<VersionedEntity> transaction) {
+      return entities.isEmpty()
+          || (entities.size() + transaction.size() <= MAX_ENTITIES_PER_BATCH
+              && transaction.stream().map(VersionedEntity::key).noneMatch(keys::contains));
+    }
+
+    void add(ImmutableList<VersionedEntity> transaction) {
+      transaction.stream()
+          .sorted(ReplayCommitLogsToSqlAction::compareByWeight)
+          .forEachOrdered(entities::add);
+      transaction.forEach(versionedEntity -> keys.add(versionedEntity.key()));
+      numTransactions++;
+    }
+
+    /** Replays the transactions in this batch, if there are any, and empties it. */
+    void replay() {
+      if (entities.isEmpty()) {
+        return;
+      }
+      entities.forEach(
+          versionedEntity ->
+              versionedEntity
+                  .getEntity()
+                  .ifPresentOrElse(
+                      ReplayCommitLogsToSqlAction.this::handleEntityPut,
+                      () -> handleEntityDelete(versionedEntity)));
+      EntityManager entityManager = jpaTm().getEntityManager();
+      entityManager.flush();
+      entityManager.clear();
+      numTransactionsReplayed += numTransactions;
+      numBatchesReplayed++;
+      entities.clear();
+      keys.clear();
+      numTransactions = 0;
+    }
   }
 
   private void handleEntityPut(Entity entity) {
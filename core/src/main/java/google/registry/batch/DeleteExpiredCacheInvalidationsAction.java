@@ -0,0 +1,66 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.batch;
+
+import static google.registry.persistence.transaction.TransactionManagerFactory.jpaTm;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.flogger.FluentLogger;
+import google.registry.request.Action;
+import google.registry.request.auth.Auth;
+import javax.inject.Inject;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+/**
+ * Deletes the cache invalidations written by {@link google.registry.model.SqlCacheInvalidationBus}
+ * that every serving instance has long since polled.
+ *
+ * <p>Instances only read the invalidations written since their previous poll, so there's no need
+ * to keep them around for long.
+ */
+@Action(
+    service = Action.Service.BACKEND,
+    path = DeleteExpiredCacheInvalidationsAction.PATH,
+    automaticallyPrintOk = true,
+    auth = Auth.AUTH_INTERNAL_OR_ADMIN)
+public class DeleteExpiredCacheInvalidationsAction implements Runnable {
+
+  public static final String PATH = "/_dr/task/deleteExpiredCacheInvalidations"; // See web.xml.
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** How long invalidations are kept in the database before being deleted. */
+  @VisibleForTesting static final Duration RETENTION = Duration.standardDays(1);
+
+  @Inject
+  DeleteExpiredCacheInvalidationsAction() {}
+
+  @Override
+  public void run() {
+    int deleted =
+        jpaTm()
+            .transact(
+                () -> {
+                  DateTime cutoff = jpaTm().getTransactionTime().minus(RETENTION);
+                  return jpaTm()
+                      .getEntityManager()
+                      .createQuery("DELETE FROM CacheInvalidation WHERE invalidationTime < :cutoff")
+                      .setParameter("cutoff", cutoff)
+                      .executeUpdate();
+                });
+    logger.atInfo().log("Deleted %d cache invalidations older than %s.", deleted, RETENTION);
+  }
+}
@@ -29,8 +29,10 @@ import com.google.common.base.Splitter;
 import com.google.common.base.Strings;
 import com.google.common.base.Supplier;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
+import com.google.common.collect.Maps;
 import dagger.Module;
 import dagger.Provides;
 import google.registry.util.TaskQueueUtils;
@@ -297,10 +299,10 @@ public final class RegistryConfig {
     }
 
     /**
-     * The maximum number of domain and host updates to batch together to send to
-     * PublishDnsUpdatesAction, to avoid exceeding AppEngine's limits.
+     * The minimum number of domain and host updates to batch together to send to
+     * PublishDnsUpdatesAction, also used until publish latencies of the TLD have been observed.
      *
-     * @see google.registry.dns.ReadDnsQueueAction
+     * @see google.registry.dns.DnsBatchSizer
      */
     @Provides
     @Config("dnsTldUpdateBatchSize")
@@ -308,12 +310,50 @@ public final class RegistryConfig {
       return 100;
     }
 
+    /**
+     * The maximum number of domain and host updates to batch together to send to
+     * PublishDnsUpdatesAction, to avoid exceeding AppEngine's limits.
+     *
+     * @see google.registry.dns.DnsBatchSizer
+     */
+    @Provides
+    @Config("dnsTldUpdateMaxBatchSize")
+    public static int provideDnsTldUpdateMaxBatchSize() {
+      return 1000;
+    }
+
+    /**
+     * The time we aim for PublishDnsUpdatesAction to take to publish a batch.
+     *
+     * <p>Batches are sized from observed publish latencies to take about this long. This must be
+     * well under {@link #providePublishDnsUpdatesLockDuration}.
+     *
+     * @see google.registry.dns.DnsBatchSizer
+     */
+    @Provides
+    @Config("dnsPublishTargetDuration")
+    public static Duration provideDnsPublishTargetDuration() {
+      return Duration.standardSeconds(30);
+    }
+
+    /**
+     * Age of the oldest pending DNS refresh request beyond which we consider the DNS queue backed
+     * up, and use bigger batches to catch up.
+     *
+     * @see google.registry.dns.DnsBatchSizer
+     */
+    @Provides
+    @Config("dnsBacklogAgeThreshold")
+    public static Duration provideDnsBacklogAgeThreshold() {
+      return Duration.standardMinutes(5);
+    }
+
     /**
      * The maximum time we allow publishDnsUpdates to run.
      *
      * <p>This is the maximum lock duration for publishing the DNS updates, meaning it should allow
      * the various DnsWriters to publish and commit an entire batch (with a maximum number of items
-     * set by provideDnsTldUpdateBatchSize).
+     * set by provideDnsTldUpdateMaxBatchSize).
      *
      * <p>Any update that takes longer than this timeout will be killed and retried from scratch.
      * Hence, a timeout that's too short can result in batches that retry over and over again,
@@ -1359,6 +1399,18 @@ public final class RegistryConfig {
       return config.registryPolicy.rdapTosStaticUrl;
     }
 
+    /**
+     * Whether RDAP loads only the last history entry of each type for events, using the index on
+     * history entry type, rather than scanning all the history entries of a resource.
+     *
+     * @see google.registry.rdap.RdapJsonFormatter
+     */
+    @Provides
+    @Config("rdapUseHistoryEntryTypeIndex")
+    public static boolean provideRdapUseHistoryEntryTypeIndex(RegistryConfigSettings config) {
+      return config.registryPolicy.rdapUseHistoryEntryTypeIndex;
+    }
+
     @Provides
     @Config("maxValidityDaysSchedule")
     public static ImmutableSortedMap<DateTime, Integer> provideValidityDaysMap(
@@ -1391,6 +1443,57 @@ public final class RegistryConfig {
     public static ImmutableSet<String> provideAllowedEcdsaCurves(RegistryConfigSettings config) {
       return ImmutableSet.copyOf(config.sslCertificateValidation.allowedEcdsaCurves);
     }
+
+    /**
+     * Returns the format of the log record written for each inbound EPP command.
+     *
+     * @see google.registry.flows.FlowRunner
+     */
+    @Provides
+    @Config("eppCommandLogFormat")
+    public static EppCommandLogFormat provideEppCommandLogFormat(RegistryConfigSettings config) {
+      return EppCommandLogFormat.valueOf(config.eppLogging.commandLogFormat);
+    }
+
+    /** The format in which {@code FlowRunner} logs inbound EPP commands. */
+    public enum EppCommandLogFormat {
+
+      /** Multi-line log record with the sanitized XML pretty-printed and indented. */
+      PRETTY,
+
+      /** Single-line log record with the sanitized XML stripped of inter-element whitespace. */
+      COMPACT
+    }
+
+    /**
+     * Returns the default fraction of inbound EPP commands whose XML is logged.
+     *
+     * @see google.registry.flows.EppCommandLogSampler
+     */
+    @Provides
+    @Config("eppCommandLogSampleRate")
+    public static double provideEppCommandLogSampleRate(RegistryConfigSettings config) {
+      return config.eppLogging.commandLogSampleRate;
+    }
+
+    /** Returns the per-flow overrides of the EPP command log sample rate, keyed by flow name. */
+    @Provides
+    @Config("eppFlowCommandLogSampleRates")
+    public static ImmutableMap<String, Double> provideEppFlowCommandLogSampleRates(
+        RegistryConfigSettings config) {
+      return ImmutableMap.copyOf(
+          Maps.transformValues(config.eppLogging.flowCommandLogSampleRates, Number::doubleValue));
+    }
+
+    /** Returns the per-registrar overrides of the EPP command log sample rate. */
+    @Provides
+    @Config("eppRegistrarCommandLogSampleRates")
+    public static ImmutableMap<String, Double> provideEppRegistrarCommandLogSampleRates(
+        RegistryConfigSettings config) {
+      return ImmutableMap.copyOf(
+          Maps.transformValues(
+              config.eppLogging.registrarCommandLogSampleRates, Number::doubleValue));
+    }
   }
 
   /** Returns the App Engine project ID, which is based off the environment name. */
@@ -1520,11 +1623,59 @@ public final class RegistryConfig {
     return Duration.standardSeconds(CONFIG_SETTINGS.get().caching.eppResourceCachingSeconds);
   }
 
+  /**
+   * Returns the amount of time after which an EPP resource or key that is still in use is reloaded
+   * ahead of its expiry.
+   */
+  public static Duration getEppResourceCachingRefreshDuration() {
+    return Duration.standardSeconds(
+        CONFIG_SETTINGS.get().caching.eppResourceCachingRefreshSeconds);
+  }
+
+  /**
+   * Returns the amount of time the absence of an EPP resource key should be cached in memory
+   * before expiring.
+   */
+  public static Duration getEppResourceNegativeCachingDuration() {
+    return Duration.standardSeconds(
+        CONFIG_SETTINGS.get().caching.eppResourceNegativeCachingSeconds);
+  }
+
   /** Returns the maximum number of EPP resources and keys to keep in in-memory cache. */
   public static int getEppResourceMaxCachedEntries() {
     return CONFIG_SETTINGS.get().caching.eppResourceMaxCachedEntries;
   }
 
+  /**
+   * Returns the amount of time a rendered WHOIS response should be cached in memory before
+   * expiring, or zero if WHOIS responses shouldn't be cached.
+   *
+   * @see google.registry.whois.WhoisResponseCache
+   */
+  public static Duration getWhoisResponseCachingDuration() {
+    return Duration.standardSeconds(CONFIG_SETTINGS.get().caching.whoisResponseCachingSeconds);
+  }
+
+  /** Returns the maximum number of rendered WHOIS responses to keep in in-memory cache. */
+  public static int getWhoisResponseMaxCachedEntries() {
+    return CONFIG_SETTINGS.get().caching.whoisResponseMaxCachedEntries;
+  }
+
+  /**
+   * Returns how changes to TLDs, premium lists and reserved lists are propagated to in-memory
+   * caches.
+   *
+   * @see google.registry.model.CacheInvalidationBus.Mode
+   */
+  public static String getCacheInvalidationMode() {
+    return CONFIG_SETTINGS.get().caching.cacheInvalidationMode;
+  }
+
+  /** Returns how often each instance checks Cloud SQL for cache invalidations. */
+  public static Duration getCacheInvalidationPollInterval() {
+    return Duration.standardSeconds(CONFIG_SETTINGS.get().caching.cacheInvalidationPollSeconds);
+  }
+
   /** Returns the email address that outgoing emails from the app are sent from. */
   public static InternetAddress getGSuiteOutgoingEmailAddress() {
     return parseEmailAddress(CONFIG_SETTINGS.get().gSuite.outgoingEmailAddress);
@@ -1555,6 +1706,16 @@ public final class RegistryConfig {
     return Duration.millis(CONFIG_SETTINGS.get().datastore.baseOfyRetryMillis);
   }
 
+  /**
+   * Returns the maximum rate, in requests per second, at which an instance leases tasks from the
+   * DNS pull queue.
+   *
+   * @see google.registry.dns.DnsQueue
+   */
+  public static double getDnsLeaseTasksQps() {
+    return CONFIG_SETTINGS.get().misc.dnsLeaseTasksQps;
+  }
+
   /** Returns the default database transaction isolation. */
   public static String getHibernateConnectionIsolation() {
     return CONFIG_SETTINGS.get().hibernate.connectionIsolation;
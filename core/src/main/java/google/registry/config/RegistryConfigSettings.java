@@ -31,6 +31,7 @@ public class RegistryConfigSettings {
   public CloudSql cloudSql;
   public CloudDns cloudDns;
   public Caching caching;
+  public EppLogging eppLogging;
   public IcannReporting icannReporting;
   public Billing billing;
   public Rde rde;
@@ -98,6 +99,7 @@ public class RegistryConfigSettings {
     public String whoisDisclaimer;
     public String rdapTos;
     public String rdapTosStaticUrl;
+    public boolean rdapUseHistoryEntryTypeIndex;
     public String registryName;
     public List<String> spec11WebResources;
     public boolean requireSslCertificates;
@@ -149,7 +151,21 @@ public class RegistryConfigSettings {
     public int staticPremiumListMaxCachedEntries;
     public boolean eppResourceCachingEnabled;
     public int eppResourceCachingSeconds;
+    public int eppResourceCachingRefreshSeconds;
+    public int eppResourceNegativeCachingSeconds;
     public int eppResourceMaxCachedEntries;
+    public int whoisResponseCachingSeconds;
+    public int whoisResponseMaxCachedEntries;
+    public String cacheInvalidationMode;
+    public int cacheInvalidationPollSeconds;
+  }
+
+  /** Configuration for logging of inbound EPP commands. */
+  public static class EppLogging {
+    public String commandLogFormat;
+    public double commandLogSampleRate;
+    public Map<String, Number> flowCommandLogSampleRates;
+    public Map<String, Number> registrarCommandLogSampleRates;
   }
 
   /** Configuration for ICANN monthly reporting. */
@@ -202,6 +218,7 @@ public class RegistryConfigSettings {
     public List<String> spec11BccEmailAddresses;
     public int asyncDeleteDelaySeconds;
     public int transientFailureRetries;
+    public double dnsLeaseTasksQps;
   }
 
   /** Configuration for keyrings (used to store secrets outside of source). */
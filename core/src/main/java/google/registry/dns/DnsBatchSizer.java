@@ -0,0 +1,128 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.dns;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.primitives.Ints;
+import google.registry.config.RegistryConfig.Config;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.inject.Inject;
+import org.joda.time.Duration;
+
+/**
+ * Chooses how many refresh items {@link ReadDnsQueueAction} puts in each publish batch of a TLD.
+ *
+ * <p>Every publish has a fixed cost (taking the lock, loading the writer, committing to the DNS
+ * provider) on top of its per-item cost, so bigger batches get through a backlog faster, but a
+ * batch that takes too long to publish risks running into the publish lock timeout and being
+ * retried over and over. We therefore keep a moving average of the publish time per item of each
+ * TLD, as observed by {@link PublishDnsUpdatesAction}, and size batches so that publishing one
+ * takes about {@code targetPublishDuration}. While the oldest refresh request in the queue is older
+ * than {@code backlogAgeThreshold}, we aim for batches twice as long, trading per-batch latency
+ * for throughput.
+ *
+ * <p>Batch sizes never go below {@code minBatchSize}, which is also used for TLDs we haven't seen
+ * published yet, nor above {@code maxBatchSize}.
+ *
+ * <p>The moving averages are kept in memory, so they only reflect the publishes handled by this App
+ * Engine instance, and a read of the queue on an instance that hasn't published the TLD yet uses
+ * {@code minBatchSize}. That's good enough to follow the trend, and unlike shared state it costs
+ * the publishes nothing: persisting the averages would mean a write to the same entity by every
+ * publish of a TLD.
+ */
+public class DnsBatchSizer {
+
+  /** Weight given to the most recent observation in the moving averages. */
+  private static final double SMOOTHING_FACTOR = 0.2;
+
+  /** Moving averages of publish milliseconds per item, keyed by TLD, shared by all sizers. */
+  private static final ConcurrentHashMap<String, Double> sharedMillisPerItem =
+      new ConcurrentHashMap<>();
+
+  private final int minBatchSize;
+  private final int maxBatchSize;
+  private final Duration targetPublishDuration;
+  private final Duration backlogAgeThreshold;
+  private final ConcurrentHashMap<String, Double> millisPerItem;
+
+  @Inject
+  DnsBatchSizer(
+      @Config("dnsTldUpdateBatchSize") int minBatchSize,
+      @Config("dnsTldUpdateMaxBatchSize") int maxBatchSize,
+      @Config("dnsPublishTargetDuration") Duration targetPublishDuration,
+      @Config("dnsBacklogAgeThreshold") Duration backlogAgeThreshold) {
+    this(
+        minBatchSize,
+        maxBatchSize,
+        targetPublishDuration,
+        backlogAgeThreshold,
+        sharedMillisPerItem);
+  }
+
+  @VisibleForTesting
+  DnsBatchSizer(
+      int minBatchSize,
+      int maxBatchSize,
+      Duration targetPublishDuration,
+      Duration backlogAgeThreshold,
+      ConcurrentHashMap<String, Double> millisPerItem) {
+    checkArgument(minBatchSize > 0, "minBatchSize must be positive");
+    checkArgument(maxBatchSize >= minBatchSize, "maxBatchSize must not be less than minBatchSize");
+    this.minBatchSize = minBatchSize;
+    this.maxBatchSize = maxBatchSize;
+    this.targetPublishDuration = targetPublishDuration;
+    this.backlogAgeThreshold = backlogAgeThreshold;
+    this.millisPerItem = millisPerItem;
+  }
+
+  /** Returns a sizer that always uses the given batch size and keeps its own statistics. */
+  @VisibleForTesting
+  static DnsBatchSizer createFixedForTesting(int batchSize) {
+    return new DnsBatchSizer(
+        batchSize, batchSize, Duration.ZERO, Duration.ZERO, new ConcurrentHashMap<>());
+  }
+
+  /** Records that publishing a batch of {@code numItems} items for the TLD took this long. */
+  void recordPublish(String tld, Duration duration, int numItems) {
+    if (numItems <= 0) {
+      return;
+    }
+    double sample = (double) duration.getMillis() / numItems;
+    millisPerItem.merge(
+        tld, sample, (average, newSample) -> average + SMOOTHING_FACTOR * (newSample - average));
+  }
+
+  /**
+   * Returns the number of items to put in each publish batch of the TLD, given the age of the
+   * oldest refresh request we are about to publish.
+   */
+  int getBatchSize(String tld, Duration backlogAge) {
+    Double averageMillisPerItem = millisPerItem.get(tld);
+    if (averageMillisPerItem == null) {
+      return minBatchSize;
+    }
+    long targetMillis = targetPublishDuration.getMillis();
+    if (backlogAge.isLongerThan(backlogAgeThreshold)) {
+      targetMillis *= 2;
+    }
+    long batchSize =
+        (averageMillisPerItem <= 0)
+            ? maxBatchSize
+            : (long) (targetMillis / averageMillisPerItem);
+    return Ints.constrainToRange(Ints.saturatedCast(batchSize), minBatchSize, maxBatchSize);
+  }
+}
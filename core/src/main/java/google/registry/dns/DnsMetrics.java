@@ -182,9 +182,44 @@ public class DnsMetrics {
               LABEL_DESCRIPTORS_FOR_LATENCY,
               EXPONENTIAL_FITTER);
 
+  private static final ImmutableSet<LabelDescriptor> LABEL_DESCRIPTORS_FOR_QUEUE =
+      ImmutableSet.of(LabelDescriptor.create("tld", "TLD"));
+
+  private static final EventMetric backlogAge =
+      MetricRegistryImpl.getDefault()
+          .newEventMetric(
+              "/dns/queue/backlog_age",
+              "Age of the oldest refresh request in each batch read from the DNS queue",
+              "milliseconds",
+              LABEL_DESCRIPTORS_FOR_QUEUE,
+              EXPONENTIAL_FITTER);
+
+  private static final IncrementableMetric deduplicatedRefreshes =
+      MetricRegistryImpl.getDefault()
+          .newIncrementableMetric(
+              "/dns/queue/deduplicated_refreshes",
+              "Count of DNS refresh requests dropped as already covered by another one",
+              "count",
+              LABEL_DESCRIPTORS_FOR_QUEUE);
+
   @Inject
   DnsMetrics() {}
 
+  /**
+   * Records the age of the oldest refresh request of a TLD in a batch read from the DNS queue,
+   * which is how far behind DNS publishing is for that TLD.
+   */
+  void recordBacklogAge(String tld, Duration age) {
+    backlogAge.record(age.getMillis(), tld);
+  }
+
+  /** Counts refresh requests that were dropped because they were already covered. */
+  void incrementDeduplicatedRefreshes(String tld, long numRefreshes) {
+    if (numRefreshes > 0) {
+      deduplicatedRefreshes.incrementBy(numRefreshes, tld);
+    }
+  }
+
   /**
    * Increment a monotonic counter that tracks calls to {@link
    * google.registry.dns.writer.DnsWriter#publishDomain(String)}, per TLD.
@@ -37,6 +37,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.flogger.FluentLogger;
 import com.google.common.net.InternetDomainName;
 import com.google.common.util.concurrent.RateLimiter;
+import google.registry.config.RegistryConfig;
 import google.registry.dns.DnsConstants.TargetType;
 import google.registry.model.registry.Registries;
 import google.registry.util.Clock;
@@ -52,8 +53,9 @@ import org.joda.time.Duration;
 /**
  * Methods for manipulating the queue used for DNS write tasks.
  *
- * <p>This includes a {@link RateLimiter} to limit the {@link Queue#leaseTasks} call rate to 9 QPS,
- * to stay under the 10 QPS limit for this function.
+ * <p>This includes a {@link RateLimiter} to limit the {@link Queue#leaseTasks} call rate to the
+ * configured {@code dnsLeaseTasksQps} (9 QPS by default), to stay under the 10 QPS limit for this
+ * function.
  *
  * <p>Note that overlapping calls to {@link ReadDnsQueueAction} (the only place where
  * {@link DnsQueue#leaseTasks} is used) will have different rate limiters, so they could exceed the
@@ -75,7 +77,8 @@ public class DnsQueue {
   // https://cloud.google.com/appengine/docs/standard/java/javadoc/com/google/appengine/api/taskqueue/Queue.html
   // "If you generate more than 10 LeaseTasks requests per second, only the first 10 requests will
   // return results. The others will return no results."
-  private static final RateLimiter rateLimiter = RateLimiter.create(9);
+  private static final RateLimiter rateLimiter =
+      RateLimiter.create(RegistryConfig.getDnsLeaseTasksQps());
 
   @Inject
   public DnsQueue(@Named(DNS_PULL_QUEUE_NAME) Queue queue, Clock clock) {
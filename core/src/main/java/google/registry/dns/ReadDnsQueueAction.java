@@ -28,6 +28,8 @@ import static google.registry.dns.DnsModule.PARAM_NUM_PUBLISH_LOCKS;
 import static google.registry.dns.DnsModule.PARAM_PUBLISH_TASK_ENQUEUED;
 import static google.registry.dns.DnsModule.PARAM_REFRESH_REQUEST_CREATED;
 import static google.registry.request.RequestParameters.PARAM_TLD;
+import static google.registry.util.DateTimeUtils.END_OF_TIME;
+import static google.registry.util.DateTimeUtils.earliestOf;
 import static google.registry.util.DomainNameUtils.getSecondLevelDomain;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.util.concurrent.TimeUnit.SECONDS;
@@ -37,11 +39,15 @@ import com.google.appengine.api.taskqueue.TaskHandle;
 import com.google.appengine.api.taskqueue.TaskOptions;
 import com.google.auto.value.AutoValue;
 import com.google.common.collect.ComparisonChain;
+import com.google.common.collect.HashBasedTable;
+import com.google.common.collect.HashMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
 import com.google.common.collect.Iterables;
 import com.google.common.collect.Ordering;
+import com.google.common.collect.SetMultimap;
+import com.google.common.collect.Table;
 import com.google.common.flogger.FluentLogger;
 import com.google.common.hash.HashFunction;
 import com.google.common.hash.Hashing;
@@ -101,7 +107,18 @@ public final class ReadDnsQueueAction implements Runnable {
    */
   private static final Duration LEASE_PADDING = Duration.standardMinutes(1);
 
-  @Inject @Config("dnsTldUpdateBatchSize") int tldUpdateBatchSize;
+  /**
+   * How long before we enqueued a publish of a name a refresh request for it must have been created
+   * to be considered covered by that publish.
+   *
+   * <p>Refresh requests are created inside the transaction that changes the name, so the change
+   * may be committed a little after the request's creation time, and the creation time also comes
+   * from another instance's clock. This margin accounts for both.
+   */
+  private static final Duration REFRESH_COVERAGE_MARGIN = Duration.standardMinutes(2);
+
+  @Inject DnsBatchSizer batchSizer;
+  @Inject DnsMetrics dnsMetrics;
   @Inject @Config("readDnsQueueActionRuntime") Duration requestedMaximumDuration;
   @Inject @Named(DNS_PUBLISH_PUSH_QUEUE_NAME) Queue dnsPublishPushQueue;
   @Inject @Parameter(PARAM_JITTER_SECONDS) Optional<Integer> jitterSeconds;
@@ -139,11 +156,13 @@ public final class ReadDnsQueueAction implements Runnable {
   public void run() {
     DateTime requestedEndTime = clock.nowUtc().plus(requestedMaximumDuration);
     ImmutableSet<String> tlds = Registries.getTlds();
+    // The time at which we last enqueued a publish of each name during this run.
+    Table<TargetType, String, DateTime> publishEnqueuedTimes = HashBasedTable.create();
     while (requestedEndTime.isAfterNow()) {
       List<TaskHandle> tasks = dnsQueue.leaseTasks(requestedMaximumDuration.plus(LEASE_PADDING));
       logger.atInfo().log("Leased %d DNS update tasks.", tasks.size());
       if (!tasks.isEmpty()) {
-        dispatchTasks(ImmutableSet.copyOf(tasks), tlds);
+        dispatchTasks(ImmutableSet.copyOf(tasks), tlds, publishEnqueuedTimes);
       }
       if (tasks.size() < dnsQueue.getLeaseTasksBatchSize()) {
         return;
@@ -224,7 +243,10 @@ public final class ReadDnsQueueAction implements Runnable {
    * <p>Will return "irrelevant" tasks to the queue for future processing. "Irrelevant" tasks are
    * tasks for paused TLDs or tasks for TLDs not part of {@link Registries#getTlds()}.
    */
-  private void dispatchTasks(ImmutableSet<TaskHandle> tasks, ImmutableSet<String> tlds) {
+  private void dispatchTasks(
+      ImmutableSet<TaskHandle> tasks,
+      ImmutableSet<String> tlds,
+      Table<TargetType, String, DateTime> publishEnqueuedTimes) {
     ClassifiedTasks classifiedTasks = classifyTasks(tasks, tlds);
     if (!classifiedTasks.pausedTlds().isEmpty()) {
       logger.atInfo().log(
@@ -234,7 +256,9 @@ public final class ReadDnsQueueAction implements Runnable {
       logger.atWarning().log(
           "The dns-pull queue has unknown TLDs: %s.", classifiedTasks.unknownTlds());
     }
-    bucketRefreshItems(classifiedTasks.refreshItemsByTld());
+    bucketRefreshItems(
+        deduplicateRefreshItems(classifiedTasks.refreshItemsByTld(), publishEnqueuedTimes),
+        publishEnqueuedTimes);
     if (!classifiedTasks.tasksToKeep().isEmpty()) {
       logger.atWarning().log(
           "Keeping %d DNS update tasks in the queue.", classifiedTasks.tasksToKeep().size());
@@ -306,21 +330,75 @@ public final class ReadDnsQueueAction implements Runnable {
     return classifiedTasksBuilder.build();
   }
 
+  /**
+   * Drops the refresh items that are covered by others, and records how far behind each TLD is.
+   *
+   * <p>A name often gets several refresh requests in quick succession, e.g. when many hosts are
+   * renamed at once. Since publishing reads the current state of a name, one refresh per name is
+   * enough in a batch, and we keep the earliest one. A refresh is also redundant if it was created
+   * (well) before we enqueued a publish of the same name earlier in this run, since that publish
+   * will see the change that prompted the refresh.
+   */
+  private ImmutableSetMultimap<String, RefreshItem> deduplicateRefreshItems(
+      ImmutableSetMultimap<String, RefreshItem> refreshItemsByTld,
+      Table<TargetType, String, DateTime> publishEnqueuedTimes) {
+    ImmutableSetMultimap.Builder<String, RefreshItem> deduplicatedItems =
+        new ImmutableSetMultimap.Builder<String, RefreshItem>()
+            .orderKeysBy(Ordering.natural())
+            .orderValuesBy(Ordering.natural());
+    DateTime now = clock.nowUtc();
+    for (Map.Entry<String, Collection<RefreshItem>> tldRefreshItemsEntry
+        : refreshItemsByTld.asMap().entrySet()) {
+      String tld = tldRefreshItemsEntry.getKey();
+      SetMultimap<TargetType, String> seenNames = HashMultimap.create();
+      DateTime oldestCreationTime = END_OF_TIME;
+      int numDuplicates = 0;
+      // Items are sorted by type, name and then creation time, so we see the earliest one first.
+      for (RefreshItem item : tldRefreshItemsEntry.getValue()) {
+        oldestCreationTime = earliestOf(oldestCreationTime, item.creationTime());
+        if (isCoveredByEnqueuedPublish(item, publishEnqueuedTimes)
+            || !seenNames.put(item.type(), item.name())) {
+          numDuplicates++;
+        } else {
+          deduplicatedItems.put(tld, item);
+        }
+      }
+      dnsMetrics.recordBacklogAge(tld, new Duration(oldestCreationTime, now));
+      dnsMetrics.incrementDeduplicatedRefreshes(tld, numDuplicates);
+      if (numDuplicates > 0) {
+        logger.atInfo().log(
+            "Dropped %d duplicate DNS refresh requests for %s.", numDuplicates, tld);
+      }
+    }
+    return deduplicatedItems.build();
+  }
+
+  private static boolean isCoveredByEnqueuedPublish(
+      RefreshItem item, Table<TargetType, String, DateTime> publishEnqueuedTimes) {
+    DateTime publishEnqueuedTime = publishEnqueuedTimes.get(item.type(), item.name());
+    return publishEnqueuedTime != null
+        && item.creationTime().isBefore(publishEnqueuedTime.minus(REFRESH_COVERAGE_MARGIN));
+  }
+
   /**
    * Subdivides the tld to {@link RefreshItem} multimap into buckets by lock index, if applicable.
    *
    * <p>If the tld has numDnsPublishLocks <= 1, we enqueue all updates on the default lock 1 of 1.
    */
-  private void bucketRefreshItems(ImmutableSetMultimap<String, RefreshItem> refreshItemsByTld) {
+  private void bucketRefreshItems(
+      ImmutableSetMultimap<String, RefreshItem> refreshItemsByTld,
+      Table<TargetType, String, DateTime> publishEnqueuedTimes) {
     // Loop through the multimap by TLD and generate refresh tasks for the hosts and domains for
     // each configured DNS writer.
     for (Map.Entry<String, Collection<RefreshItem>> tldRefreshItemsEntry
         : refreshItemsByTld.asMap().entrySet()) {
       String tld = tldRefreshItemsEntry.getKey();
+      int batchSize = getBatchSize(tld, tldRefreshItemsEntry.getValue());
       int numPublishLocks = Registry.get(tld).getNumDnsPublishLocks();
       // 1 lock or less implies no TLD-wide locks, simply enqueue everything under lock 1 of 1
       if (numPublishLocks <= 1) {
-        enqueueUpdates(tld, 1, 1, tldRefreshItemsEntry.getValue());
+        enqueueUpdates(
+            tld, 1, 1, batchSize, tldRefreshItemsEntry.getValue(), publishEnqueuedTimes);
       } else {
         tldRefreshItemsEntry
             .getValue()
@@ -332,11 +410,27 @@ public final class ReadDnsQueueAction implements Runnable {
             .asMap()
             .entrySet()
             .forEach(
-                entry -> enqueueUpdates(tld, entry.getKey(), numPublishLocks, entry.getValue()));
+                entry ->
+                    enqueueUpdates(
+                        tld,
+                        entry.getKey(),
+                        numPublishLocks,
+                        batchSize,
+                        entry.getValue(),
+                        publishEnqueuedTimes));
       }
     }
   }
 
+  /** Returns the publish batch size for the TLD, based on the age of its oldest refresh item. */
+  private int getBatchSize(String tld, Collection<RefreshItem> items) {
+    DateTime oldestCreationTime =
+        items.stream().map(RefreshItem::creationTime).min(Comparator.naturalOrder()).get();
+    int batchSize = batchSizer.getBatchSize(tld, new Duration(oldestCreationTime, clock.nowUtc()));
+    logger.atInfo().log("Publishing DNS updates for %s in batches of %d.", tld, batchSize);
+    return batchSize;
+  }
+
   /**
    * Returns the lock index for a given refreshItem.
    *
@@ -355,8 +449,13 @@ public final class ReadDnsQueueAction implements Runnable {
    * updates into smaller chunks.
    */
   private void enqueueUpdates(
-      String tld, int lockIndex, int numPublishLocks, Collection<RefreshItem> items) {
-    for (List<RefreshItem> chunk : Iterables.partition(items, tldUpdateBatchSize)) {
+      String tld,
+      int lockIndex,
+      int numPublishLocks,
+      int batchSize,
+      Collection<RefreshItem> items,
+      Table<TargetType, String, DateTime> publishEnqueuedTimes) {
+    for (List<RefreshItem> chunk : Iterables.partition(items, batchSize)) {
       DateTime earliestCreateTime =
           chunk.stream().map(RefreshItem::creationTime).min(Comparator.naturalOrder()).get();
       for (String dnsWriter : Registry.get(tld).getDnsWriters()) {
@@ -388,6 +487,8 @@ public final class ReadDnsQueueAction implements Runnable {
                         .map(RefreshItem::name)
                         .collect(Collectors.joining(","))));
       }
+      DateTime enqueuedTime = clock.nowUtc();
+      chunk.forEach(item -> publishEnqueuedTimes.put(item.type(), item.name(), enqueuedTime));
     }
   }
 }
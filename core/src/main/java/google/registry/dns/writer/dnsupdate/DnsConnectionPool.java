@@ -0,0 +1,190 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.dns.writer.dnsupdate;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.flogger.FluentLogger;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingDeque;
+import javax.annotation.concurrent.ThreadSafe;
+import javax.net.SocketFactory;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+/**
+ * A pool of open TCP connections to a DNS server.
+ *
+ * <p>Opening a connection for every UPDATE message means that the TCP handshake dominates the
+ * latency of publishing to a nearby server. The pool keeps up to {@code maxIdleConnections}
+ * connections to each server open between messages, and closes the ones that have been idle longer
+ * than {@code idleTimeout}, which should be shorter than the server's own TCP idle timeout.
+ *
+ * <p>Each caller gets a connection for its exclusive use, so the pool never shares a socket
+ * between concurrent exchanges. Callers that find the pool empty open a new connection.
+ */
+@ThreadSafe
+class DnsConnectionPool {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** Pools shared by all transports, keyed by socket factory, server host name and settings. */
+  private static final ConcurrentHashMap<PoolKey, DnsConnectionPool> pools =
+      new ConcurrentHashMap<>();
+
+  @AutoValue
+  abstract static class PoolKey {
+    abstract SocketFactory factory();
+
+    abstract String host();
+
+    abstract int socketTimeout();
+
+    abstract int maxIdleConnections();
+
+    abstract Duration idleTimeout();
+
+    static PoolKey create(
+        SocketFactory factory,
+        String host,
+        int socketTimeout,
+        int maxIdleConnections,
+        Duration idleTimeout) {
+      return new AutoValue_DnsConnectionPool_PoolKey(
+          factory, host, socketTimeout, maxIdleConnections, idleTimeout);
+    }
+  }
+
+  /** An open connection to the DNS server. */
+  static final class DnsConnection {
+
+    private final Socket socket;
+    private final boolean reused;
+    private DateTime lastUsedTime;
+
+    private DnsConnection(Socket socket, DateTime lastUsedTime, boolean reused) {
+      this.socket = socket;
+      this.lastUsedTime = lastUsedTime;
+      this.reused = reused;
+    }
+
+    Socket getSocket() {
+      return socket;
+    }
+
+    /** Returns whether this connection was already used for a previous exchange. */
+    boolean isReused() {
+      return reused;
+    }
+  }
+
+  private final SocketFactory factory;
+  private final String host;
+  private final int socketTimeout;
+  private final int maxIdleConnections;
+  private final Duration idleTimeout;
+  private final LinkedBlockingDeque<DnsConnection> idle = new LinkedBlockingDeque<>();
+
+  @VisibleForTesting
+  DnsConnectionPool(
+      SocketFactory factory,
+      String host,
+      int socketTimeout,
+      int maxIdleConnections,
+      Duration idleTimeout) {
+    checkArgument(maxIdleConnections >= 0, "maxIdleConnections must not be negative");
+    this.factory = factory;
+    this.host = host;
+    this.socketTimeout = socketTimeout;
+    this.maxIdleConnections = maxIdleConnections;
+    this.idleTimeout = idleTimeout;
+  }
+
+  /**
+   * Returns the pool of connections to the given host made with the given factory and settings,
+   * creating it if there is none yet.
+   *
+   * <p>The pool outlives the transport that created it, so it doesn't keep a clock of its own.
+   * Callers pass in the current time from their own clock instead.
+   */
+  static DnsConnectionPool get(
+      SocketFactory factory,
+      String host,
+      int socketTimeout,
+      int maxIdleConnections,
+      Duration idleTimeout) {
+    return pools.computeIfAbsent(
+        PoolKey.create(factory, host, socketTimeout, maxIdleConnections, idleTimeout),
+        key ->
+            new DnsConnectionPool(factory, host, socketTimeout, maxIdleConnections, idleTimeout));
+  }
+
+  /**
+   * Returns a connection for the exclusive use of the caller, reusing the most recently returned
+   * connection that hasn't been idle for too long, or else opening a new one.
+   */
+  DnsConnection borrow(DateTime now) throws IOException {
+    DnsConnection connection;
+    while ((connection = idle.pollFirst()) != null) {
+      if (connection.lastUsedTime.plus(idleTimeout).isAfter(now)
+          && !connection.socket.isClosed()) {
+        return new DnsConnection(connection.socket, now, true);
+      }
+      close(connection);
+    }
+    return borrowNew(now);
+  }
+
+  /** Returns a newly opened connection for the exclusive use of the caller. */
+  DnsConnection borrowNew(DateTime now) throws IOException {
+    Socket socket = factory.createSocket(InetAddress.getByName(host), DnsMessageTransport.DNS_PORT);
+    socket.setSoTimeout(socketTimeout);
+    return new DnsConnection(socket, now, false);
+  }
+
+  /**
+   * Returns a connection to the pool after a successful exchange, or closes it if the pool already
+   * holds enough idle connections.
+   */
+  void release(DnsConnection connection, DateTime now) {
+    connection.lastUsedTime = now;
+    if (idle.size() >= maxIdleConnections || !idle.offerFirst(connection)) {
+      close(connection);
+    }
+  }
+
+  /** Closes a connection that is in an unknown state, e.g. after a failed exchange. */
+  void discard(DnsConnection connection) {
+    close(connection);
+  }
+
+  @VisibleForTesting
+  int getIdleCount() {
+    return idle.size();
+  }
+
+  private static void close(DnsConnection connection) {
+    try {
+      connection.socket.close();
+    } catch (IOException e) {
+      logger.atInfo().withCause(e).log("Failed to close DNS connection.");
+    }
+  }
+}
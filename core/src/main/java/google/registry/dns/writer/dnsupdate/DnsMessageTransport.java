@@ -17,15 +17,17 @@ package google.registry.dns.writer.dnsupdate;
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Verify.verify;
 
-import com.google.common.annotations.VisibleForTesting;
+import com.google.common.flogger.FluentLogger;
 import com.google.common.primitives.Ints;
 import google.registry.config.RegistryConfig.Config;
+import google.registry.dns.writer.dnsupdate.DnsConnectionPool.DnsConnection;
+import google.registry.util.Clock;
 import java.io.DataInputStream;
+import java.io.EOFException;
 import java.io.IOException;
-import java.io.InputStream;
 import java.io.OutputStream;
-import java.net.InetAddress;
 import java.net.Socket;
+import java.net.SocketException;
 import java.nio.ByteBuffer;
 import javax.inject.Inject;
 import javax.net.SocketFactory;
@@ -38,9 +40,14 @@ import org.xbill.DNS.Opcode;
  * s and the message framing defined in <a href="https://tools.ietf.org/html/rfc1035">RFC 1035</a>.
  * We would like use the dnsjava library's {@link org.xbill.DNS.SimpleResolver} class for this, but
  * it requires {@link java.nio.channels.SocketChannel} which is not supported on AppEngine.
+ *
+ * <p>Connections are kept open between messages in a {@link DnsConnectionPool} shared by all
+ * transports to the same server.
  */
 public class DnsMessageTransport {
 
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
   /**
    * Size of message length field for DNS TCP transport.
    *
@@ -54,11 +61,10 @@ public class DnsMessageTransport {
    *
    * @see <a href="https://tools.ietf.org/html/rfc1035">RFC 1035</a>
    */
-  @VisibleForTesting static final int DNS_PORT = 53;
+  static final int DNS_PORT = 53;
 
-  private final SocketFactory factory;
-  private final String updateHost;
-  private final int updateTimeout;
+  private final DnsConnectionPool connectionPool;
+  private final Clock clock;
 
   /**
    * Class constructor.
@@ -66,33 +72,77 @@ public class DnsMessageTransport {
    * @param factory a factory for TCP sockets
    * @param updateHost host name of the DNS server
    * @param updateTimeout update I/O timeout
+   * @param maxIdleConnections maximum number of connections to keep open between updates
+   * @param connectionIdleTimeout time after which an unused open connection is closed
+   * @param clock a source of time
    */
   @Inject
   public DnsMessageTransport(
       SocketFactory factory,
       @Config("dnsUpdateHost") String updateHost,
-      @Config("dnsUpdateTimeout") Duration updateTimeout) {
-    this.factory = factory;
-    this.updateHost = updateHost;
-    this.updateTimeout = Ints.checkedCast(updateTimeout.getMillis());
+      @Config("dnsUpdateTimeout") Duration updateTimeout,
+      @Config("dnsUpdateMaxIdleConnections") int maxIdleConnections,
+      @Config("dnsUpdateConnectionIdleTimeout") Duration connectionIdleTimeout,
+      Clock clock) {
+    this.connectionPool =
+        DnsConnectionPool.get(
+            factory,
+            updateHost,
+            Ints.checkedCast(updateTimeout.getMillis()),
+            maxIdleConnections,
+            connectionIdleTimeout);
+    this.clock = clock;
   }
 
   /**
    * Sends a DNS "query" message (most likely an UPDATE) and returns the response. The response is
    * checked for matching ID and opcode.
    *
+   * <p>If a pooled connection turns out to have been closed by the server, the message is retried
+   * once on a new connection. This is safe because the UPDATE messages we send are idempotent: they
+   * delete and re-add complete RRsets.
+   *
    * @param query a message to send
    * @return the response received from the server
    * @throws IOException if the Socket input/output streams throws one
    * @throws IllegalArgumentException if the query is too large to be sent (&gt; 65535 bytes)
    */
   public Message send(Message query) throws IOException {
-    try (Socket socket = factory.createSocket(InetAddress.getByName(updateHost), DNS_PORT)) {
-      socket.setSoTimeout(updateTimeout);
-      writeMessage(socket.getOutputStream(), query);
-      Message response = readMessage(socket.getInputStream());
+    byte[] request = toWire(query);
+    DnsConnection connection = connectionPool.borrow(clock.nowUtc());
+    try {
+      return exchange(connection, query, request);
+    } catch (EOFException | SocketException e) {
+      if (!connection.isReused()) {
+        throw e;
+      }
+      logger.atInfo().withCause(e).log("Pooled DNS connection failed, retrying on a new one.");
+      return exchange(connectionPool.borrowNew(clock.nowUtc()), query, request);
+    }
+  }
+
+  /**
+   * Writes the request to the connection and reads its response, returning the connection to the
+   * pool on success and closing it on failure.
+   */
+  private Message exchange(DnsConnection connection, Message query, byte[] request)
+      throws IOException {
+    boolean succeeded = false;
+    try {
+      Socket socket = connection.getSocket();
+      OutputStream outputStream = socket.getOutputStream();
+      outputStream.write(request);
+      outputStream.flush();
+      Message response = readMessage(new DataInputStream(socket.getInputStream()));
       checkValidResponse(query, response);
+      succeeded = true;
       return response;
+    } finally {
+      if (succeeded) {
+        connectionPool.release(connection, clock.nowUtc());
+      } else {
+        connectionPool.discard(connection);
+      }
     }
   }
 
@@ -109,7 +159,8 @@ public class DnsMessageTransport {
         Opcode.string(query.getHeader().getOpcode()));
   }
 
-  private void writeMessage(OutputStream outputStream, Message message) throws IOException {
+  /** Returns the message in wire format, prefixed with its length as required for TCP. */
+  private static byte[] toWire(Message message) {
     byte[] messageData = message.toWire();
     checkArgument(
         messageData.length <= MESSAGE_MAXIMUM_LENGTH,
@@ -119,11 +170,10 @@ public class DnsMessageTransport {
     ByteBuffer buffer = ByteBuffer.allocate(messageData.length + MESSAGE_LENGTH_FIELD_BYTES);
     buffer.putShort((short) messageData.length);
     buffer.put(messageData);
-    outputStream.write(buffer.array());
+    return buffer.array();
   }
 
-  private Message readMessage(InputStream inputStream) throws IOException {
-    DataInputStream stream = new DataInputStream(inputStream);
+  private static Message readMessage(DataInputStream stream) throws IOException {
     int length = stream.readUnsignedShort();
     byte[] messageData = new byte[length];
     stream.readFully(messageData);
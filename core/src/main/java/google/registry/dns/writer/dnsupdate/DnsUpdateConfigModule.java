@@ -41,4 +41,23 @@ public class DnsUpdateConfigModule {
   public static Duration provideDnsUpdateTimeout() {
     return Duration.standardSeconds(30);
   }
+
+  /** Maximum number of open connections to the DNS server to keep around between updates. */
+  @Provides
+  @Config("dnsUpdateMaxIdleConnections")
+  public static int provideDnsUpdateMaxIdleConnections() {
+    return 4;
+  }
+
+  /**
+   * Time after which an unused open connection to the DNS server is closed.
+   *
+   * <p>This should be shorter than the server's own TCP idle timeout (30 seconds by default in
+   * BIND), so that we don't try to send updates over connections the server has already closed.
+   */
+  @Provides
+  @Config("dnsUpdateConnectionIdleTimeout")
+  public static Duration provideDnsUpdateConnectionIdleTimeout() {
+    return Duration.standardSeconds(20);
+  }
 }
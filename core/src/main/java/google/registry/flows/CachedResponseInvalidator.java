@@ -0,0 +1,29 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.flows;
+
+import com.google.common.collect.ImmutableSet;
+
+/**
+ * Drops the responses about domains and hosts that other services (e.g. WHOIS) have cached.
+ *
+ * <p>{@link FlowRunner} calls this with the names of the domain or host that a flow changed, once
+ * the flow has been committed.
+ */
+public interface CachedResponseInvalidator {
+
+  /** Invalidates the cached responses about the given domain or host names. */
+  void invalidate(ImmutableSet<String> names);
+}
@@ -0,0 +1,134 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.flows;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableMap;
+import google.registry.config.RegistryConfig.Config;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.DoubleSupplier;
+import javax.annotation.Nullable;
+import javax.inject.Inject;
+
+/**
+ * Decides whether the XML of an inbound EPP command should be logged.
+ *
+ * <p>The sample rate for a command is taken from the per-registrar overrides if the registrar has
+ * one, otherwise from the per-flow overrides (keyed by the simple name of the flow class) if the
+ * flow has one, and otherwise from the default rate. A rate of 1.0 or more always logs, and a rate
+ * of 0.0 or less never logs.
+ */
+public class EppCommandLogSampler {
+
+  private final double defaultSampleRate;
+  private final ImmutableMap<String, Double> flowSampleRates;
+  private final ImmutableMap<String, Double> registrarSampleRates;
+  private final DoubleSupplier randomSupplier;
+
+  @Inject
+  EppCommandLogSampler(
+      @Config("eppCommandLogSampleRate") double defaultSampleRate,
+      @Config("eppFlowCommandLogSampleRates") ImmutableMap<String, Double> flowSampleRates,
+      @Config("eppRegistrarCommandLogSampleRates")
+          ImmutableMap<String, Double> registrarSampleRates) {
+    this(
+        defaultSampleRate,
+        flowSampleRates,
+        registrarSampleRates,
+        () -> ThreadLocalRandom.current().nextDouble());
+  }
+
+  @VisibleForTesting
+  EppCommandLogSampler(
+      double defaultSampleRate,
+      ImmutableMap<String, Double> flowSampleRates,
+      ImmutableMap<String, Double> registrarSampleRates,
+      DoubleSupplier randomSupplier) {
+    checkSampleRate("default", defaultSampleRate);
+    flowSampleRates.forEach(EppCommandLogSampler::checkSampleRate);
+    registrarSampleRates.forEach(EppCommandLogSampler::checkSampleRate);
+    this.defaultSampleRate = defaultSampleRate;
+    this.flowSampleRates = flowSampleRates;
+    this.registrarSampleRates = registrarSampleRates;
+    this.randomSupplier = randomSupplier;
+  }
+
+  /** Returns a sampler that logs every command, regardless of flow or registrar. */
+  @VisibleForTesting
+  public static EppCommandLogSampler logEverything() {
+    return new EppCommandLogSampler(1.0, ImmutableMap.of(), ImmutableMap.of());
+  }
+
+  /**
+   * Draws the random value that decides whether a single command is logged.
+   *
+   * <p>The same value must be passed to {@link #mayLog} and {@link #shouldLog} for a given command,
+   * so that the decision made before its flow is known agrees with the one made afterwards.
+   */
+  public double drawSample() {
+    return randomSupplier.getAsDouble();
+  }
+
+  /** Returns whether the command for the given flow, sent by the given registrar, is logged. */
+  public boolean shouldLog(
+      Class<? extends Flow> flowClass, @Nullable String clientId, double sample) {
+    return isSampled(getSampleRate(flowClass, clientId), sample);
+  }
+
+  /**
+   * Returns whether the command sent by the given registrar is logged for at least one flow.
+   *
+   * <p>This is used to decide, before the command has been unmarshalled, whether it is worth
+   * capturing a sanitized copy of it. {@link #shouldLog} never returns true for a sample for which
+   * this returns false.
+   */
+  public boolean mayLog(@Nullable String clientId, double sample) {
+    return isSampled(getMaxSampleRate(clientId), sample);
+  }
+
+  @VisibleForTesting
+  double getSampleRate(Class<? extends Flow> flowClass, @Nullable String clientId) {
+    if (clientId != null && registrarSampleRates.containsKey(clientId)) {
+      return registrarSampleRates.get(clientId);
+    }
+    return flowSampleRates.getOrDefault(flowClass.getSimpleName(), defaultSampleRate);
+  }
+
+  private double getMaxSampleRate(@Nullable String clientId) {
+    if (clientId != null && registrarSampleRates.containsKey(clientId)) {
+      return registrarSampleRates.get(clientId);
+    }
+    return flowSampleRates.values().stream().reduce(defaultSampleRate, Double::max);
+  }
+
+  private static boolean isSampled(double sampleRate, double sample) {
+    if (sampleRate >= 1.0) {
+      return true;
+    }
+    if (sampleRate <= 0.0) {
+      return false;
+    }
+    return sample < sampleRate;
+  }
+
+  private static void checkSampleRate(String key, Double sampleRate) {
+    checkArgument(
+        sampleRate != null && !sampleRate.isNaN(),
+        "EPP command log sample rate for %s must be a number",
+        key);
+  }
+}
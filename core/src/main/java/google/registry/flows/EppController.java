@@ -51,6 +51,7 @@ public final class EppController {
   @Inject EppMetric.Builder eppMetricBuilder;
   @Inject EppMetrics eppMetrics;
   @Inject ServerTridProvider serverTridProvider;
+  @Inject EppCommandLogSampler commandLogSampler;
   @Inject EppController() {}
 
   /** Reads EPP XML, executes the matching flow, and returns an {@link EppOutput}. */
@@ -64,8 +65,16 @@ public final class EppController {
     eppMetricBuilder.setClientId(Optional.ofNullable(sessionMetadata.getClientId()));
     try {
       EppInput eppInput;
+      // Decide now whether the command may end up being logged, and if so capture a sanitized copy
+      // of it while it is being unmarshalled, rather than parsing it all over again when the log
+      // record is written. The flow runner makes the final decision with the same sample.
+      double commandLogSample = commandLogSampler.drawSample();
+      EppXmlSanitizer.StreamTee sanitizingTee = EppXmlSanitizer.newStreamTee();
       try {
-        eppInput = unmarshalEpp(EppInput.class, inputXmlBytes);
+        eppInput =
+            commandLogSampler.mayLog(sessionMetadata.getClientId(), commandLogSample)
+                ? unmarshalEpp(EppInput.class, inputXmlBytes, sanitizingTee::wrap)
+                : unmarshalEpp(EppInput.class, inputXmlBytes);
       } catch (EppException e) {
         // Log the unmarshalling error, with the raw bytes (in base64) to help with debugging.
         logger.atInfo().withCause(e).log(
@@ -107,6 +116,8 @@ public final class EppController {
               .setIsDryRun(isDryRun)
               .setIsSuperuser(isSuperuser)
               .setInputXmlBytes(inputXmlBytes)
+              .setSanitizedInputXml(sanitizingTee.getSanitizedXml())
+              .setCommandLogSample(commandLogSample)
               .setEppInput(eppInput)
               .build())
           .build());
@@ -119,6 +130,7 @@ public final class EppController {
         EppMetric metric = eppMetricBuilder.build();
         eppMetrics.incrementEppRequests(metric);
         eppMetrics.recordProcessingTime(metric);
+        eppMetrics.recordBatchLoads(metric);
       }
     }
   }
@@ -22,6 +22,7 @@ import com.google.monitoring.metrics.IncrementableMetric;
 import com.google.monitoring.metrics.LabelDescriptor;
 import com.google.monitoring.metrics.MetricRegistryImpl;
 import google.registry.monitoring.whitebox.EppMetric;
+import google.registry.monitoring.whitebox.EppMetric.BatchLoad;
 import javax.inject.Inject;
 
 /** EPP Instrumentation. */
@@ -71,6 +72,29 @@ public class EppMetrics {
               LABEL_DESCRIPTORS,
               DEFAULT_FITTER);
 
+  private static final ImmutableSet<LabelDescriptor> LABEL_DESCRIPTORS_BY_KIND =
+      ImmutableSet.of(
+          LabelDescriptor.create("command", "The name of the command."),
+          LabelDescriptor.create("kind", "The kind of entity loaded in the batch."));
+
+  private static final EventMetric batchLoadTime =
+      MetricRegistryImpl.getDefault()
+          .newEventMetric(
+              "/epp/batch_load_time",
+              "EPP Batch Load Time",
+              "milliseconds",
+              LABEL_DESCRIPTORS_BY_KIND,
+              DEFAULT_FITTER);
+
+  private static final EventMetric batchLoadSize =
+      MetricRegistryImpl.getDefault()
+          .newEventMetric(
+              "/epp/batch_load_size",
+              "EPP Batch Load Size",
+              "count",
+              LABEL_DESCRIPTORS_BY_KIND,
+              DEFAULT_FITTER);
+
   private enum TrafficType {
     CANARY, PROBER, REAL
   }
@@ -104,6 +128,15 @@ public class EppMetrics {
     requestTime.record(processingTime, commandName, getTrafficType(tld).toString(), eppStatusCode);
   }
 
+  /** Records the latency and size of each batched load that the flow performed. */
+  public void recordBatchLoads(EppMetric metric) {
+    String commandName = metric.getCommandName().orElse("");
+    for (BatchLoad batchLoad : metric.getBatchLoads()) {
+      batchLoadTime.record(batchLoad.getLatency().getMillis(), commandName, batchLoad.getKind());
+      batchLoadSize.record(batchLoad.getSize(), commandName, batchLoad.getKind());
+    }
+  }
+
   private static TrafficType getTrafficType(String tld) {
     if (tld.endsWith("canary.test")) {
       return TrafficType.CANARY;
@@ -14,6 +14,7 @@
 
 package google.registry.flows;
 
+import static com.google.common.flogger.LazyArgs.lazy;
 import static google.registry.flows.FlowUtils.marshalWithLenientRetry;
 import static google.registry.model.eppoutput.Result.Code.SUCCESS_AND_CLOSE;
 import static google.registry.xml.XmlTransformer.prettyPrint;
@@ -57,7 +58,8 @@ public class EppRequestHandler {
       byte[] eppResponseXmlBytes = marshalWithLenientRetry(eppOutput);
       response.setPayload(new String(eppResponseXmlBytes, UTF_8));
       logger.atInfo().log(
-          "EPP response: %s", prettyPrint(EppXmlSanitizer.sanitizeEppXml(eppResponseXmlBytes)));
+          "EPP response: %s",
+          lazy(() -> prettyPrint(EppXmlSanitizer.sanitizeEppXml(eppResponseXmlBytes))));
       // Note that we always return 200 (OK) even if the EppController returns an error response.
       // This is because returning a non-OK HTTP status code will cause the proxy server to
       // silently close the connection without returning any data. The only time we will ever return
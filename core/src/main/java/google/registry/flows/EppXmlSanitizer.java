@@ -15,13 +15,14 @@
 package google.registry.flows;
 
 import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.base.Strings.isNullOrEmpty;
+import static com.google.common.base.Strings.nullToEmpty;
 
 import com.google.common.base.CharMatcher;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.flogger.FluentLogger;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
-import java.io.UnsupportedEncodingException;
+import java.io.StringWriter;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
 import java.util.Locale;
@@ -29,15 +30,13 @@ import java.util.Optional;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import javax.xml.namespace.QName;
-import javax.xml.stream.XMLEventFactory;
-import javax.xml.stream.XMLEventReader;
-import javax.xml.stream.XMLEventWriter;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
 import javax.xml.stream.XMLStreamException;
-import javax.xml.stream.events.Characters;
-import javax.xml.stream.events.StartDocument;
-import javax.xml.stream.events.XMLEvent;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+import javax.xml.stream.util.StreamReaderDelegate;
 
 /**
  * Sanitizes sensitive data in incoming/outgoing EPP XML messages.
@@ -73,7 +72,6 @@ public class EppXmlSanitizer {
 
   private static final XMLInputFactory XML_INPUT_FACTORY = createXmlInputFactory();
   private static final XMLOutputFactory XML_OUTPUT_FACTORY = XMLOutputFactory.newFactory();
-  private static final XMLEventFactory XML_EVENT_FACTORY = XMLEventFactory.newFactory();
 
   /**
    * Returns sanitized EPP XML message. For malformed XML messages, base64-encoded raw bytes will be
@@ -84,62 +82,200 @@ public class EppXmlSanitizer {
    * standard.
    *
    * <p>Also, an empty element will be formatted as {@code <tag></tag>} instead of {@code <tag/>}.
+   *
+   * <p>The message is read through a {@link StreamTee}, so this returns exactly what a tee would
+   * have captured had the message been parsed for some other purpose.
    */
   public static String sanitizeEppXml(byte[] inputXmlBytes) {
+    StreamTee streamTee = newStreamTee();
     try {
-      // Keep exactly one newline at end of sanitized string.
-      return CharMatcher.whitespace().trimTrailingFrom(sanitizeAndEncode(inputXmlBytes)) + "\n";
-    } catch (XMLStreamException | UnsupportedEncodingException e) {
+      XMLStreamReader xmlStreamReader =
+          streamTee.wrap(
+              XML_INPUT_FACTORY.createXMLStreamReader(new ByteArrayInputStream(inputXmlBytes)));
+      while (xmlStreamReader.hasNext()) {
+        xmlStreamReader.next();
+      }
+      xmlStreamReader.close();
+    } catch (XMLStreamException e) {
       logger.atWarning().withCause(e).log("Failed to sanitize EPP XML message.");
       return Base64.getMimeEncoder().encodeToString(inputXmlBytes);
     }
+    return streamTee
+        .getSanitizedXml()
+        .orElseGet(() -> Base64.getMimeEncoder().encodeToString(inputXmlBytes));
   }
 
-  private static String sanitizeAndEncode(byte[] inputXmlBytes)
-      throws XMLStreamException, UnsupportedEncodingException {
-    XMLEventReader xmlEventReader =
-        XML_INPUT_FACTORY.createXMLEventReader(new ByteArrayInputStream(inputXmlBytes));
+  /**
+   * Returns a {@link StreamTee} that captures a sanitized copy of an EPP message while it is being
+   * parsed for some other purpose, so that the message does not have to be parsed a second time
+   * just to be sanitized for logging.
+   */
+  public static StreamTee newStreamTee() {
+    return new StreamTee();
+  }
 
-    if (!xmlEventReader.hasNext()) {
-      return "";
-    }
+  /**
+   * Mirrors the events pulled through an {@link XMLStreamReader} into a sanitized XML string.
+   *
+   * <p>Use {@link #wrap} to decorate the reader handed to the consumer (e.g. a JAXB unmarshaller),
+   * then call {@link #getSanitizedXml} once the consumer is done. Only the events the consumer
+   * actually pulls are captured, so the result is absent if the consumer stopped early or if the
+   * sanitized copy could not be written.
+   */
+  public static class StreamTee {
+
+    private final StringWriter output = new StringWriter();
+    private XMLStreamWriter xmlStreamWriter;
+    private int elementDepth = 0;
+    private int sensitiveDepth = 0;
+    private boolean complete = false;
+    private boolean failed = false;
 
-    XMLEvent firstEvent = xmlEventReader.nextEvent();
-    checkState(firstEvent.isStartDocument(), "Missing StartDocument");
-    // Get input encoding for use in XMLEventWriter creation, so that sanitized XML preserves the
-    // encoding declaration. According to XML spec, UTF-8 is to be used unless input declares
-    // otherwise. Epp officially allows UTF-8 and UTF-16.
-    String inputEncoding =
-        Optional.ofNullable(((StartDocument) firstEvent).getCharacterEncodingScheme())
-            .orElse(StandardCharsets.UTF_8.name());
-
-    ByteArrayOutputStream outputXmlBytes = new ByteArrayOutputStream();
-    XMLEventWriter xmlEventWriter =
-        XML_OUTPUT_FACTORY.createXMLEventWriter(outputXmlBytes, inputEncoding);
-    xmlEventWriter.add(firstEvent);
-
-    while (xmlEventReader.hasNext()) {
-      XMLEvent xmlEvent = xmlEventReader.nextEvent();
-      xmlEventWriter.add(xmlEvent);
-      if (isStartEventForSensitiveData(xmlEvent)) {
-        QName startEventName = xmlEvent.asStartElement().getName();
-        while (xmlEventReader.hasNext()) {
-          XMLEvent event = xmlEventReader.nextEvent();
-          if (event.isCharacters()) {
-            Characters characters = event.asCharacters();
-            event = XML_EVENT_FACTORY.createCharacters(maskSensitiveData(characters.getData()));
+    private StreamTee() {}
+
+    /** Returns a reader that passes through {@code reader} and records everything it reads. */
+    public XMLStreamReader wrap(XMLStreamReader reader) {
+      checkState(xmlStreamWriter == null, "StreamTee already used");
+      try {
+        if (reader.getEventType() == XMLStreamConstants.START_DOCUMENT) {
+          writeXmlDeclaration(reader);
+        }
+        xmlStreamWriter = XML_OUTPUT_FACTORY.createXMLStreamWriter(output);
+      } catch (XMLStreamException e) {
+        failed = true;
+      }
+      return new StreamReaderDelegate(reader) {
+        @Override
+        public int next() throws XMLStreamException {
+          int eventType = super.next();
+          copyEvent(getParent());
+          return eventType;
+        }
+
+        @Override
+        public int nextTag() throws XMLStreamException {
+          // Implemented in terms of next() so that the skipped events are captured as well.
+          int eventType = next();
+          while ((eventType == XMLStreamConstants.CHARACTERS && isWhiteSpace())
+              || eventType == XMLStreamConstants.SPACE
+              || eventType == XMLStreamConstants.COMMENT
+              || eventType == XMLStreamConstants.PROCESSING_INSTRUCTION) {
+            eventType = next();
           }
-          xmlEventWriter.add(event);
-          if (isMatchingEndEvent(event, startEventName)) {
-            // The inner while-loop is guaranteed to break here for any valid XML.
-            // If matching event is missing, xmlEventReader will throw XMLStreamException.
-            break;
+          if (eventType != XMLStreamConstants.START_ELEMENT
+              && eventType != XMLStreamConstants.END_ELEMENT) {
+            throw new XMLStreamException("Expected start or end tag", getLocation());
           }
+          return eventType;
+        }
+      };
+    }
+
+    /** Returns the sanitized XML, if the whole document was read and copied successfully. */
+    public Optional<String> getSanitizedXml() {
+      if (failed || !complete) {
+        return Optional.empty();
+      }
+      // Keep exactly one newline at end of sanitized string.
+      return Optional.of(CharMatcher.whitespace().trimTrailingFrom(output.toString()) + "\n");
+    }
+
+    /**
+     * Writes the XML declaration of the document being read.
+     *
+     * <p>This is written by hand because {@link XMLStreamWriter} cannot write the standalone
+     * declaration, which the sanitized copy should preserve. According to XML spec, UTF-8 is to be
+     * used unless input declares otherwise. Epp officially allows UTF-8 and UTF-16.
+     */
+    private void writeXmlDeclaration(XMLStreamReader reader) {
+      output
+          .append("<?xml version=\"")
+          .append(Optional.ofNullable(reader.getVersion()).orElse("1.0"))
+          .append("\" encoding=\"")
+          .append(
+              Optional.ofNullable(reader.getCharacterEncodingScheme())
+                  .orElse(StandardCharsets.UTF_8.name()))
+          .append('"');
+      if (reader.standaloneSet()) {
+        output.append(" standalone=\"").append(reader.isStandalone() ? "yes" : "no").append('"');
+      }
+      output.append("?>");
+    }
+
+    private void copyEvent(XMLStreamReader reader) {
+      if (failed || complete) {
+        return;
+      }
+      try {
+        switch (reader.getEventType()) {
+          case XMLStreamConstants.START_ELEMENT:
+            copyStartElement(reader);
+            break;
+          case XMLStreamConstants.END_ELEMENT:
+            xmlStreamWriter.writeEndElement();
+            if (sensitiveDepth > 0) {
+              sensitiveDepth--;
+            }
+            // Consumers such as JAXB stop pulling events once the root element is closed, so
+            // treat that as the end of the document.
+            if (--elementDepth == 0) {
+              xmlStreamWriter.writeEndDocument();
+              xmlStreamWriter.flush();
+              complete = true;
+            }
+            break;
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.SPACE:
+          case XMLStreamConstants.CDATA:
+            xmlStreamWriter.writeCharacters(
+                sensitiveDepth > 0 ? maskSensitiveData(reader.getText()) : reader.getText());
+            break;
+          case XMLStreamConstants.COMMENT:
+            xmlStreamWriter.writeComment(reader.getText());
+            break;
+          case XMLStreamConstants.PROCESSING_INSTRUCTION:
+            xmlStreamWriter.writeProcessingInstruction(reader.getPITarget(), reader.getPIData());
+            break;
+          default:
+            // The end of the document was handled with the root element, and entity references and
+            // DTDs are rejected by the EPP parser, so there is nothing else to copy.
+        }
+      } catch (XMLStreamException | RuntimeException e) {
+        logger.atWarning().withCause(e).log("Failed to sanitize EPP XML stream.");
+        failed = true;
+      }
+    }
+
+    private void copyStartElement(XMLStreamReader reader) throws XMLStreamException {
+      QName name = reader.getName();
+      elementDepth++;
+      xmlStreamWriter.writeStartElement(
+          nullToEmpty(name.getPrefix()), name.getLocalPart(), nullToEmpty(name.getNamespaceURI()));
+      for (int i = 0; i < reader.getNamespaceCount(); i++) {
+        String prefix = reader.getNamespacePrefix(i);
+        if (isNullOrEmpty(prefix)) {
+          xmlStreamWriter.writeDefaultNamespace(reader.getNamespaceURI(i));
+        } else {
+          xmlStreamWriter.writeNamespace(prefix, reader.getNamespaceURI(i));
         }
       }
+      for (int i = 0; i < reader.getAttributeCount(); i++) {
+        QName attributeName = reader.getAttributeName(i);
+        if (isNullOrEmpty(attributeName.getPrefix())) {
+          xmlStreamWriter.writeAttribute(attributeName.getLocalPart(), reader.getAttributeValue(i));
+        } else {
+          xmlStreamWriter.writeAttribute(
+              attributeName.getPrefix(),
+              attributeName.getNamespaceURI(),
+              attributeName.getLocalPart(),
+              reader.getAttributeValue(i));
+        }
+      }
+      // Once inside a sensitive element, everything nested under it is masked as well.
+      if (sensitiveDepth > 0 || isSensitiveElementName(name)) {
+        sensitiveDepth++;
+      }
     }
-    xmlEventWriter.flush();
-    return outputXmlBytes.toString(inputEncoding);
   }
 
   private static String maskSensitiveData(String original) {
@@ -149,14 +285,8 @@ public class EppXmlSanitizer {
         .collect(Collectors.joining());
   }
 
-  private static boolean isStartEventForSensitiveData(XMLEvent xmlEvent) {
-    return xmlEvent.isStartElement()
-        && EPP_TAGS_IN_LOWER_CASE.contains(
-            xmlEvent.asStartElement().getName().getLocalPart().toLowerCase(Locale.ROOT));
-  }
-
-  private static boolean isMatchingEndEvent(XMLEvent xmlEvent, QName startEventName) {
-    return xmlEvent.isEndElement() && xmlEvent.asEndElement().getName().equals(startEventName);
+  private static boolean isSensitiveElementName(QName name) {
+    return EPP_TAGS_IN_LOWER_CASE.contains(name.getLocalPart().toLowerCase(Locale.ROOT));
   }
 
   private static XMLInputFactory createXmlInputFactory() {
@@ -41,6 +41,8 @@ public class FlowModule {
 
   private EppInput eppInput;
   private byte[] inputXmlBytes;
+  private Optional<String> sanitizedInputXml = Optional.empty();
+  private double commandLogSample;
   private SessionMetadata sessionMetadata;
   private TransportCredentials credentials;
   private boolean isDryRun;
@@ -63,6 +65,16 @@ public class FlowModule {
       return this;
     }
 
+    Builder setSanitizedInputXml(Optional<String> sanitizedInputXml) {
+      module.sanitizedInputXml = sanitizedInputXml;
+      return this;
+    }
+
+    Builder setCommandLogSample(double commandLogSample) {
+      module.commandLogSample = commandLogSample;
+      return this;
+    }
+
     Builder setSessionMetadata(SessionMetadata sessionMetadata) {
       module.sessionMetadata = sessionMetadata;
       return this;
@@ -105,6 +117,20 @@ public class FlowModule {
     return inputXmlBytes;
   }
 
+  @Provides
+  @FlowScope
+  @SanitizedInputXml
+  Optional<String> provideSanitizedInputXml() {
+    return sanitizedInputXml;
+  }
+
+  @Provides
+  @FlowScope
+  @CommandLogSample
+  double provideCommandLogSample() {
+    return commandLogSample;
+  }
+
   @Provides
   @FlowScope
   EppInput provideEppInput() {
@@ -269,6 +295,22 @@ public class FlowModule {
   @Documented
   public @interface InputXml {}
 
+  /**
+   * Dagger qualifier for the sanitized copy of inputXml, if one was captured while unmarshalling.
+   */
+  @Qualifier
+  @Documented
+  public @interface SanitizedInputXml {}
+
+  /**
+   * Dagger qualifier for the random value that decides whether inputXml is logged.
+   *
+   * @see EppCommandLogSampler#drawSample
+   */
+  @Qualifier
+  @Documented
+  public @interface CommandLogSample {}
+
   /** Dagger qualifier for registrar client id. */
   @Qualifier
   @Documented
@@ -14,20 +14,30 @@
 
 package google.registry.flows;
 
+import static com.google.common.flogger.LazyArgs.lazy;
 import static google.registry.persistence.transaction.TransactionManagerFactory.tm;
 import static google.registry.xml.XmlTransformer.prettyPrint;
 
+import com.google.common.base.CharMatcher;
 import com.google.common.base.Strings;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.flogger.FluentLogger;
+import google.registry.config.RegistryConfig.Config;
+import google.registry.config.RegistryConfig.ConfigModule.EppCommandLogFormat;
 import google.registry.flows.FlowModule.ClientId;
+import google.registry.flows.FlowModule.CommandLogSample;
 import google.registry.flows.FlowModule.DryRun;
 import google.registry.flows.FlowModule.InputXml;
+import google.registry.flows.FlowModule.SanitizedInputXml;
 import google.registry.flows.FlowModule.Superuser;
 import google.registry.flows.FlowModule.Transactional;
 import google.registry.flows.session.LoginFlow;
 import google.registry.model.eppcommon.Trid;
+import google.registry.model.eppinput.EppInput;
 import google.registry.model.eppoutput.EppOutput;
 import google.registry.monitoring.whitebox.EppMetric;
+import java.util.Optional;
+import java.util.regex.Pattern;
 import javax.inject.Inject;
 import javax.inject.Provider;
 
@@ -36,6 +46,12 @@ public class FlowRunner {
 
   private static final String COMMAND_LOG_FORMAT = "EPP Command" + Strings.repeat("\n\t%s", 8);
 
+  private static final String COMPACT_COMMAND_LOG_FORMAT =
+      "EPP Command: serverTrid=%s clientId=%s flow=%s session=%s credentials=%s source=%s"
+          + " mode=%s privileges=%s xml=%s";
+
+  private static final Pattern INTER_ELEMENT_WHITESPACE = Pattern.compile(">\\s+<");
+
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
   @Inject @ClientId String clientId;
@@ -44,28 +60,25 @@ public class FlowRunner {
   @Inject Provider<Flow> flowProvider;
   @Inject Class<? extends Flow> flowClass;
   @Inject @InputXml byte[] inputXmlBytes;
+  @Inject EppInput eppInput;
+  @Inject @SanitizedInputXml Optional<String> sanitizedInputXml;
+  @Inject @CommandLogSample double commandLogSample;
   @Inject @DryRun boolean isDryRun;
   @Inject @Superuser boolean isSuperuser;
   @Inject @Transactional boolean isTransactional;
   @Inject SessionMetadata sessionMetadata;
   @Inject Trid trid;
   @Inject FlowReporter flowReporter;
+  @Inject EppCommandLogSampler commandLogSampler;
+  @Inject @Config("eppCommandLogFormat") EppCommandLogFormat commandLogFormat;
+  @Inject CachedResponseInvalidator cachedResponseInvalidator;
   @Inject FlowRunner() {}
 
   /** Runs the EPP flow, and records metrics on the given builder. */
   public EppOutput run(final EppMetric.Builder eppMetricBuilder) throws EppException {
-    String prettyXml = prettyPrint(EppXmlSanitizer.sanitizeEppXml(inputXmlBytes));
-
-    logger.atInfo().log(
-        COMMAND_LOG_FORMAT,
-        trid.getServerTransactionId(),
-        clientId,
-        sessionMetadata,
-        prettyXml.replace("\n", "\n\t"),
-        credentials,
-        eppRequestSource,
-        isDryRun ? "DRY_RUN" : "LIVE",
-        isSuperuser ? "SUPERUSER" : "NORMAL");
+    if (commandLogSampler.shouldLog(flowClass, clientId, commandLogSample)) {
+      logCommand();
+    }
     // Record flow info to the GAE request logs for reporting purposes if it's not a dry run.
     if (!isDryRun) {
       flowReporter.recordToLogs();
@@ -80,19 +93,21 @@ public class FlowRunner {
       return eppOutput;
     }
     try {
-      return tm()
-          .transact(
-              () -> {
-                try {
-                  EppOutput output = EppOutput.create(flowProvider.get().run());
-                  if (isDryRun) {
-                    throw new DryRunException(output);
-                  }
-                  return output;
-                } catch (EppException e) {
-                  throw new EppRuntimeException(e);
-                }
-              });
+      EppOutput eppOutput =
+          tm().transact(
+                  () -> {
+                    try {
+                      EppOutput output = EppOutput.create(flowProvider.get().run());
+                      if (isDryRun) {
+                        throw new DryRunException(output);
+                      }
+                      return output;
+                    } catch (EppException e) {
+                      throw new EppRuntimeException(e);
+                    }
+                  });
+      invalidateCachedResponses();
+      return eppOutput;
     } catch (DryRunException e) {
       return e.output;
     } catch (EppRuntimeException e) {
@@ -100,6 +115,77 @@ public class FlowRunner {
     }
   }
 
+  /**
+   * Drops the cached responses about the domain or host that the committed flow changed, including
+   * the new name of a renamed host.
+   *
+   * <p>The flow has already been committed by then, so failing to invalidate the responses is only
+   * logged; the cached responses will expire soon anyway.
+   */
+  private void invalidateCachedResponses() {
+    String resourceType = eppInput.getResourceType().orElse("");
+    if (!resourceType.equals("domain") && !resourceType.equals("host")) {
+      return;
+    }
+    ImmutableSet.Builder<String> names = ImmutableSet.builder();
+    eppInput.getSingleTargetId().ifPresent(names::add);
+    eppInput.getNewHostName().ifPresent(names::add);
+    ImmutableSet<String> changedNames = names.build();
+    if (changedNames.isEmpty()) {
+      return;
+    }
+    try {
+      cachedResponseInvalidator.invalidate(changedNames);
+    } catch (RuntimeException e) {
+      logger.atWarning().withCause(e).log(
+          "Failed to invalidate cached responses for %s", changedNames);
+    }
+  }
+
+  /**
+   * Logs the inbound command.
+   *
+   * <p>Sanitizing and formatting the XML each takes a full parse of the command, so both are
+   * deferred until the log record is actually emitted. The sanitized XML is normally captured
+   * while the command was being unmarshalled, in which case it is not parsed again here.
+   */
+  private void logCommand() {
+    if (commandLogFormat == EppCommandLogFormat.COMPACT) {
+      logger.atInfo().log(
+          COMPACT_COMMAND_LOG_FORMAT,
+          trid.getServerTransactionId(),
+          clientId,
+          flowClass.getSimpleName(),
+          sessionMetadata,
+          credentials,
+          eppRequestSource,
+          isDryRun ? "DRY_RUN" : "LIVE",
+          isSuperuser ? "SUPERUSER" : "NORMAL",
+          lazy(() -> compactXml(getSanitizedXml())));
+      return;
+    }
+    logger.atInfo().log(
+        COMMAND_LOG_FORMAT,
+        trid.getServerTransactionId(),
+        clientId,
+        sessionMetadata,
+        lazy(() -> prettyPrint(getSanitizedXml()).replace("\n", "\n\t")),
+        credentials,
+        eppRequestSource,
+        isDryRun ? "DRY_RUN" : "LIVE",
+        isSuperuser ? "SUPERUSER" : "NORMAL");
+  }
+
+  private String getSanitizedXml() {
+    return sanitizedInputXml.orElseGet(() -> EppXmlSanitizer.sanitizeEppXml(inputXmlBytes));
+  }
+
+  /** Collapses sanitized XML onto a single line by removing whitespace between elements. */
+  private static String compactXml(String xml) {
+    return CharMatcher.whitespace()
+        .collapseFrom(INTER_ELEMENT_WHITESPACE.matcher(xml.trim()).replaceAll("><"), ' ');
+  }
+
   /** Exception for canceling a transaction while capturing what the output would have been. */
   private static class DryRunException extends RuntimeException {
     final EppOutput output;
@@ -34,6 +34,8 @@ import google.registry.model.host.InetAddressAdapter.IpVersionMismatchException;
 import google.registry.model.translators.CurrencyUnitAdapter.UnknownCurrencyException;
 import google.registry.xml.XmlException;
 import java.util.List;
+import java.util.function.UnaryOperator;
+import javax.xml.stream.XMLStreamReader;
 
 /** Static utility functions for flows. */
 public final class FlowUtils {
@@ -60,8 +62,20 @@ public final class FlowUtils {
    * byte[])} but with exception-handling logic to throw {@link EppException} instead.
    */
   public static <T> T unmarshalEpp(Class<T> clazz, byte[] bytes) throws EppException {
+    return unmarshalEpp(clazz, bytes, UnaryOperator.identity());
+  }
+
+  /**
+   * Unmarshal bytes into Epp classes, passing the underlying reader through {@code
+   * readerDecorator} so that the caller can observe the same parse. Does the same as {@link
+   * EppXmlTransformer#unmarshal(Class, byte[], UnaryOperator)} but with exception-handling logic to
+   * throw {@link EppException} instead.
+   */
+  public static <T> T unmarshalEpp(
+      Class<T> clazz, byte[] bytes, UnaryOperator<XMLStreamReader> readerDecorator)
+      throws EppException {
     try {
-      return EppXmlTransformer.unmarshal(clazz, bytes);
+      return EppXmlTransformer.unmarshal(clazz, bytes, readerDecorator);
     } catch (XmlException e) {
       // If this XmlException is wrapping a known type find it. If not, it's a syntax error.
       List<Throwable> causalChain = Throwables.getCausalChain(e);
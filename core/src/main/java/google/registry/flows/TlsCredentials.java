@@ -18,19 +18,24 @@ import static com.google.common.base.MoreObjects.toStringHelper;
 import static google.registry.request.RequestParameters.extractOptionalHeader;
 
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.collect.ImmutableList;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.flogger.FluentLogger;
 import com.google.common.net.HostAndPort;
 import com.google.common.net.InetAddresses;
+import com.google.common.util.concurrent.UncheckedExecutionException;
 import dagger.Module;
 import dagger.Provides;
 import google.registry.config.RegistryConfig.Config;
 import google.registry.flows.EppException.AuthenticationErrorException;
+import google.registry.model.CacheMetrics;
 import google.registry.model.registrar.Registrar;
 import google.registry.request.Header;
 import google.registry.util.CidrAddressBlock;
+import google.registry.util.CidrAddressBlockMatcher;
 import java.net.InetAddress;
 import java.util.Optional;
+import java.util.concurrent.ExecutionException;
 import javax.inject.Inject;
 import javax.servlet.http.HttpServletRequest;
 
@@ -56,6 +61,14 @@ public class TlsCredentials implements TransportCredentials {
 
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
+  /** Compiled IP allow lists, keyed by the identity of the registrar entity they belong to. */
+  private static final Cache<Registrar, CidrAddressBlockMatcher> IP_ADDRESS_ALLOW_LIST_CACHE =
+      CacheBuilder.newBuilder().weakKeys().recordStats().build();
+
+  static {
+    CacheMetrics.register("TlsCredentials", IP_ADDRESS_ALLOW_LIST_CACHE);
+  }
+
   private final boolean requireSslCertificates;
   private final Optional<String> clientCertificateHash;
   private final Optional<String> clientCertificate;
@@ -94,7 +107,7 @@ public class TlsCredentials implements TransportCredentials {
    * @throws BadRegistrarIpAddressException If IP address is not in the allow list provided
    */
   private void validateIp(Registrar registrar) throws AuthenticationErrorException {
-    ImmutableList<CidrAddressBlock> ipAddressAllowList = registrar.getIpAddressAllowList();
+    CidrAddressBlockMatcher ipAddressAllowList = getIpAddressAllowList(registrar);
     if (ipAddressAllowList.isEmpty()) {
       logger.atInfo().log(
           "Skipping IP allow list check because %s doesn't have an IP allow list.",
@@ -103,21 +116,32 @@ public class TlsCredentials implements TransportCredentials {
     }
     // In the rare unexpected case that the client inet address wasn't passed along at all, then
     // by default deny access.
-    if (clientInetAddr.isPresent()) {
-      for (CidrAddressBlock cidrAddressBlock : ipAddressAllowList) {
-        if (cidrAddressBlock.contains(clientInetAddr.get())) {
-          // IP address is in allow list; return early.
-          return;
-        }
-      }
+    if (clientInetAddr.isPresent() && ipAddressAllowList.contains(clientInetAddr.get())) {
+      // IP address is in allow list; return early.
+      return;
     }
     logger.atInfo().log(
         "Authentication error: IP address %s is not allow-listed for registrar %s; allow list is:"
             + " %s",
-        clientInetAddr, registrar.getClientId(), ipAddressAllowList);
+        clientInetAddr, registrar.getClientId(), registrar.getIpAddressAllowList());
     throw new BadRegistrarIpAddressException();
   }
 
+  /**
+   * Returns the compiled IP allow list of the registrar.
+   *
+   * <p>Registrar entities are immutable, and the ones EPP flows check come from the registrar
+   * cache, so the allow list is compiled once for every version of a registrar that is loaded.
+   */
+  private static CidrAddressBlockMatcher getIpAddressAllowList(Registrar registrar) {
+    try {
+      return IP_ADDRESS_ALLOW_LIST_CACHE.get(
+          registrar, () -> CidrAddressBlock.matcher(registrar.getIpAddressAllowList()));
+    } catch (ExecutionException e) {
+      throw new UncheckedExecutionException(e.getCause());
+    }
+  }
+
   /**
    * Verifies client SSL certificate is permitted to issue commands as {@code registrar}.
    *
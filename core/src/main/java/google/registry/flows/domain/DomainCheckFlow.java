@@ -16,7 +16,6 @@ package google.registry.flows.domain;
 
 import static com.google.common.base.Strings.emptyToNull;
 import static com.google.common.collect.ImmutableList.toImmutableList;
-import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static google.registry.flows.FlowUtils.validateClientIsLoggedIn;
 import static google.registry.flows.ResourceFlowUtils.verifyTargetIdCount;
 import static google.registry.flows.domain.DomainFlowUtils.checkAllowedAccessToTld;
@@ -28,6 +27,7 @@ import static google.registry.flows.domain.DomainFlowUtils.isValidReservedCreate
 import static google.registry.flows.domain.DomainFlowUtils.validateDomainName;
 import static google.registry.flows.domain.DomainFlowUtils.validateDomainNameWithIdnTables;
 import static google.registry.flows.domain.DomainFlowUtils.verifyNotInPredelegation;
+import static google.registry.model.EppResourceUtils.loadByForeignKeyIndexesCached;
 import static google.registry.model.registry.Registry.TldState.START_DATE_SUNRISE;
 import static google.registry.model.registry.label.ReservationType.getTypeOfHighestSeverity;
 
@@ -49,7 +49,6 @@ import google.registry.flows.custom.DomainCheckFlowCustomLogic.BeforeResponsePar
 import google.registry.flows.custom.DomainCheckFlowCustomLogic.BeforeResponseReturnData;
 import google.registry.flows.domain.token.AllocationTokenDomainCheckResults;
 import google.registry.flows.domain.token.AllocationTokenFlowUtils;
-import google.registry.model.EppResource;
 import google.registry.model.domain.DomainBase;
 import google.registry.model.domain.DomainCommand.Check;
 import google.registry.model.domain.fee.FeeCheckCommandExtension;
@@ -71,13 +70,15 @@ import google.registry.model.registry.Registry;
 import google.registry.model.registry.Registry.TldState;
 import google.registry.model.registry.label.ReservationType;
 import google.registry.model.reporting.IcannReportingTypes.ActivityReportField;
-import google.registry.persistence.VKey;
+import google.registry.monitoring.whitebox.EppMetric;
 import google.registry.util.Clock;
 import java.util.HashSet;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Supplier;
 import javax.inject.Inject;
 import org.joda.time.DateTime;
+import org.joda.time.Duration;
 
 /**
  * An EPP flow that checks whether a domain can be provisioned.
@@ -125,6 +126,7 @@ public final class DomainCheckFlow implements Flow {
   @Inject AllocationTokenFlowUtils allocationTokenFlowUtils;
   @Inject DomainCheckFlowCustomLogic flowCustomLogic;
   @Inject DomainPricingLogic pricingLogic;
+  @Inject EppMetric.Builder eppMetricBuilder;
 
   @Inject
   DomainCheckFlow() {}
@@ -163,7 +165,10 @@ public final class DomainCheckFlow implements Flow {
             .setAsOfDate(now)
             .build());
     ImmutableMap<String, ForeignKeyIndex<DomainBase>> existingDomains =
-        ForeignKeyIndex.load(DomainBase.class, domainNames, now);
+        recordBatchLoad(
+            "ForeignKeyIndex",
+            domainNames.size(),
+            () -> ForeignKeyIndex.load(DomainBase.class, domainNames, now));
     Optional<AllocationTokenExtension> allocationTokenExtension =
         eppInput.getSingleExtension(AllocationTokenExtension.class);
     Optional<AllocationTokenDomainCheckResults> tokenDomainCheckResults =
@@ -257,8 +262,8 @@ public final class DomainCheckFlow implements Flow {
     FeeCheckCommandExtension<?, ?> feeCheck = feeCheckOpt.get();
     ImmutableList.Builder<FeeCheckResponseExtensionItem> responseItems =
         new ImmutableList.Builder<>();
-    ImmutableMap<String, EppResource> domainObjs =
-        loadDomainsForRestoreChecks(feeCheck, domainNames, existingDomains);
+    ImmutableMap<String, DomainBase> domainObjs =
+        loadDomainsForRestoreChecks(feeCheck, domainNames, existingDomains, now);
 
     for (FeeCheckCommandExtensionItem feeCheckItem : feeCheck.getItems()) {
       for (String domainName : getDomainNamesToCheckForFee(feeCheckItem, domainNames.keySet())) {
@@ -267,7 +272,7 @@ public final class DomainCheckFlow implements Flow {
             feeCheckItem,
             builder,
             domainNames.get(domainName),
-            Optional.ofNullable((DomainBase) domainObjs.get(domainName)),
+            Optional.ofNullable(domainObjs.get(domainName)),
             feeCheck.getCurrency(),
             now,
             pricingLogic,
@@ -286,14 +291,15 @@ public final class DomainCheckFlow implements Flow {
    * renewal is part of the cost of a restore.
    *
    * <p>This may be resource-intensive for large checks of many restore fees, but those are
-   * comparatively rare, and we are at least using an in-memory cache. Also this will get a lot
-   * nicer in Cloud SQL when we can SELECT just the fields we want rather than having to load the
-   * entire entity.
+   * comparatively rare, and the domains are loaded in a single batch through the in-memory cache.
+   * Also this will get a lot nicer in Cloud SQL when we can SELECT just the fields we want rather
+   * than having to load the entire entity.
    */
-  private ImmutableMap<String, EppResource> loadDomainsForRestoreChecks(
+  private ImmutableMap<String, DomainBase> loadDomainsForRestoreChecks(
       FeeCheckCommandExtension<?, ?> feeCheck,
       ImmutableMap<String, InternetDomainName> domainNames,
-      ImmutableMap<String, ForeignKeyIndex<DomainBase>> existingDomains) {
+      ImmutableMap<String, ForeignKeyIndex<DomainBase>> existingDomains,
+      DateTime now) {
     ImmutableList<String> restoreCheckDomains;
     if (feeCheck instanceof FeeCheckCommandExtensionV06) {
       // The V06 fee extension supports specifying the command fees to check on a per-domain basis.
@@ -313,15 +319,24 @@ public final class DomainCheckFlow implements Flow {
       restoreCheckDomains = ImmutableList.of();
     }
 
-    // Filter down to just domains we know exist and then use the EppResource cache to load them.
-    ImmutableMap<String, VKey<DomainBase>> existingDomainsToLoad =
-        restoreCheckDomains.stream()
-            .filter(existingDomains::containsKey)
-            .collect(toImmutableMap(d -> d, d -> existingDomains.get(d).getResourceKey()));
-    ImmutableMap<VKey<? extends EppResource>, EppResource> loadedDomains =
-        EppResource.loadCached(ImmutableList.copyOf(existingDomainsToLoad.values()));
-    return ImmutableMap.copyOf(
-        Maps.transformEntries(existingDomainsToLoad, (k, v) -> loadedDomains.get(v)));
+    // Filter down to just domains we know exist and then load them in one batch.
+    ImmutableMap<String, ForeignKeyIndex<DomainBase>> existingDomainsToLoad =
+        ImmutableMap.copyOf(Maps.filterKeys(existingDomains, restoreCheckDomains::contains));
+    if (existingDomainsToLoad.isEmpty()) {
+      return ImmutableMap.of();
+    }
+    return recordBatchLoad(
+        "DomainBase",
+        existingDomainsToLoad.size(),
+        () -> loadByForeignKeyIndexesCached(existingDomainsToLoad, now));
+  }
+
+  /** Runs a batched load and records its size and latency on the EPP metric for this request. */
+  private <T> T recordBatchLoad(String kind, int size, Supplier<T> load) {
+    DateTime start = clock.nowUtc();
+    T result = load.get();
+    eppMetricBuilder.addBatchLoad(kind, size, new Duration(start, clock.nowUtc()));
+    return result;
   }
 
   /**
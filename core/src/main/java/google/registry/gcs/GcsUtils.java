@@ -28,6 +28,7 @@ import com.google.common.collect.ImmutableMap;
 import com.google.common.flogger.FluentLogger;
 import com.google.common.net.MediaType;
 import google.registry.config.RegistryConfig.Config;
+import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
@@ -60,7 +61,17 @@ public class GcsUtils {
   /** Opens a GCS file for reading as an {@link InputStream} with prefetching. */
   @CheckReturnValue
   public InputStream openInputStream(GcsFilename filename) {
-    return Channels.newInputStream(gcsService.openPrefetchingReadChannel(filename, 0, bufferSize));
+    return openInputStream(filename, 0);
+  }
+
+  /**
+   * Opens a GCS file for reading as an {@link InputStream} with prefetching, starting at the given
+   * byte offset.
+   */
+  @CheckReturnValue
+  public InputStream openInputStream(GcsFilename filename, long startPosition) {
+    return Channels.newInputStream(
+        gcsService.openPrefetchingReadChannel(filename, startPosition, bufferSize));
   }
 
   /** Opens a GCS file for writing as an {@link OutputStream}, overwriting existing files. */
@@ -110,6 +121,15 @@ public class GcsUtils {
     return metadata != null && metadata.getLength() > 0;
   }
 
+  /** Returns the length in bytes of a file on Google Cloud Storage. */
+  public long getLength(GcsFilename file) throws IOException {
+    GcsFileMetadata metadata = gcsService.getMetadata(file);
+    if (metadata == null) {
+      throw new FileNotFoundException(file.toString());
+    }
+    return metadata.getLength();
+  }
+
   /** Determines most appropriate {@link GcsFileOptions} based on filename extension. */
   private static GcsFileOptions getOptions(GcsFilename filename) {
     GcsFileOptions.Builder builder = new GcsFileOptions.Builder().cacheControl("no-cache");
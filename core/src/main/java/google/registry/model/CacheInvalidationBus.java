@@ -0,0 +1,53 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package google.registry.model;
+
+import java.util.function.Consumer;
+
+/**
+ * A channel over which in-memory caches learn that some of their entries are stale.
+ *
+ * <p>Caches of configuration loaded from the database (TLDs, premium lists and reserved lists)
+ * subscribe under their name. Code that changes such configuration publishes the key of the changed
+ * entry once the change has been committed, never from within the transaction that makes it, since
+ * other instances could otherwise reload the old value before the commit. Depending on the
+ * implementation, the caches on other serving instances drop the entry too, which is what allows
+ * these caches to have long expiries.
+ *
+ * @see CacheUtils#getCacheInvalidationBus
+ */
+public interface CacheInvalidationBus {
+
+  /** The implementations of the bus that can be selected in the config. */
+  enum Mode {
+    /** Only caches on the publishing instance are invalidated. */
+    IN_PROCESS,
+    /** Invalidations are also written to Cloud SQL, which every instance periodically polls. */
+    SQL_POLLING
+  }
+
+  /** Announces that the entry for {@code key} in the named cache is stale. */
+  void publish(String cacheName, String key);
+
+  /** Registers a listener that is called with each stale key of the named cache. */
+  void subscribe(String cacheName, Consumer<String> listener);
+
+  /**
+   * Starts delivering the invalidations published by other instances in the background.
+   *
+   * <p>This is called once when a serving instance starts up. The caches themselves never wait on
+   * the bus, so reading a cache doesn't touch the database.
+   */
+  void startPolling();
+}
@@ -0,0 +1,104 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.model;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheStats;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.monitoring.metrics.LabelDescriptor;
+import com.google.monitoring.metrics.Metric;
+import com.google.monitoring.metrics.MetricRegistryImpl;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.function.Supplier;
+
+/**
+ * Exports statistics of in-memory caches as metrics.
+ *
+ * <p>Both Guava and Caffeine caches can be registered. They must be built with {@code
+ * recordStats()} for their statistics to be non-zero. Registering a new cache under an existing
+ * name replaces the old one, which is what happens when tests recreate a static cache.
+ */
+public final class CacheMetrics {
+
+  /** The statistics exported for each cache. */
+  enum Stat {
+    HIT,
+    MISS,
+    LOAD_SUCCESS,
+    LOAD_FAILURE,
+    EVICTION
+  }
+
+  private static final ImmutableSet<LabelDescriptor> LABEL_DESCRIPTORS =
+      ImmutableSet.of(
+          LabelDescriptor.create("cache", "Name of the cache."),
+          LabelDescriptor.create(
+              "stat", "The statistic (HIT, MISS, LOAD_SUCCESS, LOAD_FAILURE or EVICTION)."));
+
+  private static final ConcurrentMap<String, Supplier<CacheStats>> caches =
+      new ConcurrentHashMap<>();
+
+  @VisibleForTesting
+  static final Metric<Long> cacheStats =
+      MetricRegistryImpl.getDefault()
+          .newGauge(
+              "/cache/stats",
+              "Cumulative count of in-memory cache events, by cache and statistic.",
+              "count",
+              LABEL_DESCRIPTORS,
+              CacheMetrics::getStats,
+              Long.class);
+
+  private CacheMetrics() {}
+
+  /** Registers a cache whose statistics should be exported under the given name. */
+  public static void register(String name, Cache<?, ?> cache) {
+    caches.put(name, cache::stats);
+  }
+
+  /** Registers a Caffeine cache whose statistics should be exported under the given name. */
+  public static void register(String name, com.github.benmanes.caffeine.cache.Cache<?, ?> cache) {
+    caches.put(
+        name,
+        () -> {
+          com.github.benmanes.caffeine.cache.stats.CacheStats stats = cache.stats();
+          return new CacheStats(
+              stats.hitCount(),
+              stats.missCount(),
+              stats.loadSuccessCount(),
+              stats.loadFailureCount(),
+              stats.totalLoadTime(),
+              stats.evictionCount());
+        });
+  }
+
+  private static ImmutableMap<ImmutableList<String>, Long> getStats() {
+    ImmutableMap.Builder<ImmutableList<String>, Long> values = new ImmutableMap.Builder<>();
+    caches.forEach(
+        (name, statsSupplier) -> {
+          CacheStats stats = statsSupplier.get();
+          values.put(ImmutableList.of(name, Stat.HIT.name()), stats.hitCount());
+          values.put(ImmutableList.of(name, Stat.MISS.name()), stats.missCount());
+          values.put(ImmutableList.of(name, Stat.LOAD_SUCCESS.name()), stats.loadSuccessCount());
+          values.put(ImmutableList.of(name, Stat.LOAD_FAILURE.name()), stats.loadExceptionCount());
+          values.put(ImmutableList.of(name, Stat.EVICTION.name()), stats.evictionCount());
+        });
+    return values.build();
+  }
+}
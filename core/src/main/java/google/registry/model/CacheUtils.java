@@ -14,17 +14,41 @@
 
 package google.registry.model;
 
+import static com.google.appengine.api.ThreadManager.currentRequestThreadFactory;
+import static com.google.common.base.Suppliers.memoize;
 import static com.google.common.base.Suppliers.memoizeWithExpiration;
+import static google.registry.config.RegistryConfig.getCacheInvalidationMode;
+import static google.registry.config.RegistryConfig.getCacheInvalidationPollInterval;
 import static google.registry.config.RegistryConfig.getSingletonCacheRefreshDuration;
 import static java.util.concurrent.TimeUnit.MILLISECONDS;
 import static org.joda.time.Duration.ZERO;
 
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.base.Supplier;
+import google.registry.model.CacheInvalidationBus.Mode;
+import google.registry.util.SystemClock;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
 import org.joda.time.Duration;
 
 /** Utility methods related to caching Datastore entities. */
 public class CacheUtils {
 
+  private static final Supplier<CacheInvalidationBus> cacheInvalidationBus =
+      memoize(CacheUtils::createCacheInvalidationBus);
+
+  /**
+   * Runs every task on a new thread of the current request.
+   *
+   * <p>Request threads carry the namespace and the API environment of the request, and live only as
+   * long as it does, see {@link google.registry.util.AppEngineTimeLimiter}.
+   */
+  private static final Executor NEW_REQUEST_THREAD_EXECUTOR =
+      command -> currentRequestThreadFactory().newThread(command).start();
+
   /**
    * Memoize a supplier, with a short expiration specified in the environment config.
    *
@@ -45,4 +69,83 @@ public class CacheUtils {
         ? original
         : memoizeWithExpiration(original, expiration.getMillis(), MILLISECONDS);
   }
+
+  /**
+   * Creates a size-limited loading cache whose entries expire a fixed time after they are loaded.
+   *
+   * <p>The cache is a Caffeine cache, which evicts by W-TinyLFU rather than LRU: a key that is
+   * read once, e.g. by a domain check for a name nobody wants, doesn't push out the contacts and
+   * hosts that every flow of a busy registrar reads.
+   *
+   * <p>Concurrent misses on the same key share a single load, so a popular key that expires causes
+   * one reload rather than one per request. If {@code refresh} is positive and shorter than {@code
+   * expiry}, entries that are still being read are also reloaded ahead of their expiry: the first
+   * read more than {@code refresh} after the entry was loaded starts a reload and, like all reads
+   * until the reload is done, gets the previous value. The reload runs on a new thread of the
+   * reading request, since App Engine threads that outlive a request can't make Datastore calls. If
+   * the request ends first, the reload is abandoned and a later read starts another one.
+   *
+   * <p>Evictions and other maintenance run on the thread that reads or writes the cache.
+   *
+   * <p>The hit, miss, load and eviction counts of the cache are exported by {@link CacheMetrics}
+   * under the given name.
+   *
+   * <p>The loader must implement {@link CacheLoader#loadAll}, which {@link LoadingCache#getAll}
+   * always calls.
+   */
+  public static <K, V> LoadingCache<K, V> newRefreshAheadCache(
+      String name,
+      Duration expiry,
+      Duration refresh,
+      long maximumSize,
+      CacheLoader<K, V> loader) {
+    Caffeine<Object, Object> builder =
+        Caffeine.newBuilder()
+            .expireAfterWrite(expiry.getMillis(), MILLISECONDS)
+            .maximumSize(maximumSize)
+            .executor(Runnable::run)
+            .recordStats();
+    if (refresh.isLongerThan(ZERO) && refresh.isShorterThan(expiry)) {
+      builder.refreshAfterWrite(refresh.getMillis(), MILLISECONDS);
+    }
+    LoadingCache<K, V> cache = builder.build(reloadingOnRequestThreads(loader));
+    CacheMetrics.register(name, cache);
+    return cache;
+  }
+
+  /** Returns a loader that reloads each entry on a new thread of the current request. */
+  private static <K, V> CacheLoader<K, V> reloadingOnRequestThreads(CacheLoader<K, V> loader) {
+    return new CacheLoader<K, V>() {
+      @Override
+      public V load(K key) throws Exception {
+        return loader.load(key);
+      }
+
+      @Override
+      public Map<K, V> loadAll(Iterable<? extends K> keys) throws Exception {
+        return loader.loadAll(keys);
+      }
+
+      @Override
+      public CompletableFuture<V> asyncReload(K key, V oldValue, Executor executor) {
+        return loader.asyncReload(key, oldValue, NEW_REQUEST_THREAD_EXECUTOR);
+      }
+    };
+  }
+
+  /** Returns the {@link CacheInvalidationBus} selected in the config. */
+  public static CacheInvalidationBus getCacheInvalidationBus() {
+    return cacheInvalidationBus.get();
+  }
+
+  private static CacheInvalidationBus createCacheInvalidationBus() {
+    Mode mode = Mode.valueOf(getCacheInvalidationMode());
+    switch (mode) {
+      case IN_PROCESS:
+        return new InProcessCacheInvalidationBus();
+      case SQL_POLLING:
+        return new SqlCacheInvalidationBus(new SystemClock(), getCacheInvalidationPollInterval());
+    }
+    throw new IllegalStateException("Unknown cache invalidation mode: " + mode);
+  }
 }
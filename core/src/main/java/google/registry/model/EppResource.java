@@ -19,16 +19,17 @@ import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.Sets.difference;
 import static com.google.common.collect.Sets.union;
 import static google.registry.config.RegistryConfig.getEppResourceCachingDuration;
+import static google.registry.config.RegistryConfig.getEppResourceCachingRefreshDuration;
 import static google.registry.config.RegistryConfig.getEppResourceMaxCachedEntries;
+import static google.registry.model.CacheUtils.newRefreshAheadCache;
 import static google.registry.persistence.transaction.TransactionManagerFactory.tm;
 import static google.registry.util.CollectionUtils.nullToEmpty;
 import static google.registry.util.CollectionUtils.nullToEmptyImmutableCopy;
 import static google.registry.util.DateTimeUtils.END_OF_TIME;
 
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSortedMap;
@@ -41,10 +42,10 @@ import google.registry.model.ofy.CommitLogManifest;
 import google.registry.model.transfer.TransferData;
 import google.registry.persistence.VKey;
 import google.registry.util.NonFinalForTesting;
+import java.lang.reflect.Field;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
-import java.util.concurrent.ExecutionException;
 import javax.persistence.Access;
 import javax.persistence.AccessType;
 import javax.persistence.Column;
@@ -341,6 +342,29 @@ public abstract class EppResource extends BackupGroupRoot implements Buildable {
       return thisCastToDerived();
     }
 
+    /**
+     * Copies all fields of the given resource, whose class must be that of the resource being built
+     * or one of its superclasses.
+     *
+     * <p>This is what turns the copy of a resource in a history entry, which is stored as an
+     * instance of the embeddable superclass, back into the resource.
+     */
+    protected B copyFieldsFrom(EppResource source) {
+      checkArgument(
+          source.getClass().isAssignableFrom(getInstance().getClass()),
+          "Can't copy the fields of %s into %s",
+          source.getClass().getSimpleName(),
+          getInstance().getClass().getSimpleName());
+      for (Field field : ModelUtils.getAllFields(source.getClass()).values()) {
+        try {
+          field.set(getInstance(), field.get(source));
+        } catch (IllegalAccessException e) {
+          throw new IllegalStateException(e);
+        }
+      }
+      return thisCastToDerived();
+    }
+
     /** Build the resource, nullifying empty strings and sets and setting defaults. */
     @Override
     public T build() {
@@ -378,23 +402,28 @@ public abstract class EppResource extends BackupGroupRoot implements Buildable {
    * purpose of determining restore fees in domain checks. Any mutating operations directly on EPP
    * resources should of course never use the cache as they always need perfectly up-to-date
    * information.
+   *
+   * <p>Entries that are still in use are refreshed ahead of their expiry, so that frequently used
+   * resources don't all miss at once; see {@link CacheUtils#newRefreshAheadCache}.
    */
   @NonFinalForTesting
   private static LoadingCache<VKey<? extends EppResource>, EppResource> cacheEppResources =
-      createEppResourcesCache(getEppResourceCachingDuration());
+      createEppResourcesCache(
+          getEppResourceCachingDuration(), getEppResourceCachingRefreshDuration());
 
   private static LoadingCache<VKey<? extends EppResource>, EppResource> createEppResourcesCache(
-      Duration expiry) {
-    return CacheBuilder.newBuilder()
-        .expireAfterWrite(java.time.Duration.ofMillis(expiry.getMillis()))
-        .maximumSize(getEppResourceMaxCachedEntries())
-        .build(CACHE_LOADER);
+      Duration expiry, Duration refresh) {
+    return newRefreshAheadCache(
+        "EppResource", expiry, refresh, getEppResourceMaxCachedEntries(), CACHE_LOADER);
   }
 
   @VisibleForTesting
   public static void setCacheForTest(Optional<Duration> expiry) {
-    Duration effectiveExpiry = expiry.orElse(getEppResourceCachingDuration());
-    cacheEppResources = createEppResourcesCache(effectiveExpiry);
+    cacheEppResources =
+        expiry.isPresent()
+            ? createEppResourcesCache(expiry.get(), Duration.ZERO)
+            : createEppResourcesCache(
+                getEppResourceCachingDuration(), getEppResourceCachingRefreshDuration());
   }
 
   /**
@@ -408,11 +437,7 @@ public abstract class EppResource extends BackupGroupRoot implements Buildable {
     if (!RegistryConfig.isEppResourceCachingEnabled()) {
       return tm().loadByKeys(keys);
     }
-    try {
-      return cacheEppResources.getAll(keys);
-    } catch (ExecutionException e) {
-      throw new RuntimeException("Error loading cached EppResources", e.getCause());
-    }
+    return ImmutableMap.copyOf(cacheEppResources.getAll(keys));
   }
 
   /**
@@ -425,13 +450,9 @@ public abstract class EppResource extends BackupGroupRoot implements Buildable {
     if (!RegistryConfig.isEppResourceCachingEnabled()) {
       return tm().loadByKey(key);
     }
-    try {
-      // Safe to cast because loading a Key<T> returns an entity of type T.
-      @SuppressWarnings("unchecked")
-      T resource = (T) cacheEppResources.get(key);
-      return resource;
-    } catch (ExecutionException e) {
-      throw new RuntimeException("Error loading cached EppResources", e.getCause());
-    }
+    // Safe to cast because loading a Key<T> returns an entity of type T.
+    @SuppressWarnings("unchecked")
+    T resource = (T) cacheEppResources.get(key);
+    return resource;
   }
 }
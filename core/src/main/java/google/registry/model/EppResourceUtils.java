@@ -15,6 +15,7 @@
 package google.registry.model;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static google.registry.model.ofy.ObjectifyService.ofy;
 import static google.registry.persistence.transaction.TransactionManagerFactory.jpaTm;
@@ -25,8 +26,10 @@ import static google.registry.util.DateTimeUtils.isBeforeOrAt;
 import static google.registry.util.DateTimeUtils.latestOf;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.flogger.FluentLogger;
+import com.google.common.net.InetAddresses;
 import com.googlecode.objectify.Key;
 import com.googlecode.objectify.Result;
 import com.googlecode.objectify.util.ResultNow;
@@ -34,19 +37,26 @@ import google.registry.config.RegistryConfig;
 import google.registry.model.EppResource.BuilderWithTransferData;
 import google.registry.model.EppResource.ForeignKeyedEppResource;
 import google.registry.model.EppResource.ResourceWithTransferData;
+import google.registry.model.contact.ContactHistory;
 import google.registry.model.contact.ContactResource;
 import google.registry.model.domain.DomainBase;
+import google.registry.model.domain.DomainHistory;
 import google.registry.model.eppcommon.StatusValue;
+import google.registry.model.host.HostHistory;
 import google.registry.model.host.HostResource;
 import google.registry.model.index.ForeignKeyIndex;
 import google.registry.model.ofy.CommitLogManifest;
 import google.registry.model.ofy.CommitLogMutation;
 import google.registry.model.registry.Registry;
+import google.registry.model.reporting.HistoryEntry;
 import google.registry.model.transfer.DomainTransferData;
 import google.registry.model.transfer.TransferData;
 import google.registry.model.transfer.TransferStatus;
 import google.registry.persistence.VKey;
+import java.net.InetAddress;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Optional;
 import java.util.function.Function;
@@ -76,6 +86,11 @@ public final class EppResourceUtils {
           + "WHERE d.deletion_time > :now "
           + "AND dh.host_repo_id = :fkRepoId";
 
+  private static final String HOST_BY_INET_ADDRESS_QUERY =
+      "SELECT h.repo_id FROM \"Host\" h "
+          + "WHERE h.inet_addresses @> ARRAY[CAST(:address AS text)] "
+          + "AND h.deletion_time > :now";
+
   /** Returns the full domain repoId in the format HEX-TLD for the specified long id and tld. */
   public static String createDomainRepoId(long repoId, String tld) {
     return createRepoId(repoId, Registry.get(tld).getRoidSuffix());
@@ -146,6 +161,70 @@ public final class EppResourceUtils {
         clazz, foreignKey, now, RegistryConfig.isEppResourceCachingEnabled());
   }
 
+  /**
+   * Loads the last created versions of multiple {@link EppResource}s by foreign key, using a cache.
+   *
+   * <p>This is the batch version of {@link #loadByForeignKeyCached}: the foreign key indexes and
+   * the resources they point to are each loaded in a single batch, rather than with one round trip
+   * per foreign key. Foreign keys that don't resolve to a resource that exists at time "now" are
+   * omitted from the returned map.
+   *
+   * <p>Do not call this cached version for anything that needs transactional consistency.
+   *
+   * @param clazz the resource type to load
+   * @param foreignKeys ids to match
+   * @param now the current logical time to project resources at
+   */
+  public static <T extends EppResource> ImmutableMap<String, T> loadByForeignKeysCached(
+      Class<T> clazz, Collection<String> foreignKeys, DateTime now) {
+    checkArgument(
+        ForeignKeyedEppResource.class.isAssignableFrom(clazz),
+        "loadByForeignKeys may only be called for foreign keyed EPP resources");
+    return loadByForeignKeyIndexesCached(
+        ForeignKeyIndex.loadCached(clazz, ImmutableSet.copyOf(foreignKeys), now), now);
+  }
+
+  /**
+   * Loads the {@link EppResource}s that already loaded foreign key indexes point to in a single
+   * batch, using a cache, and projects them to time "now" like {@link #loadByForeignKeyCached}.
+   *
+   * <p>Foreign keys whose index or resource was deleted before time "now" are omitted from the
+   * returned map.
+   *
+   * <p>Do not call this cached version for anything that needs transactional consistency.
+   */
+  public static <T extends EppResource> ImmutableMap<String, T> loadByForeignKeyIndexesCached(
+      Map<String, ForeignKeyIndex<T>> foreignKeyIndexes, DateTime now) {
+    // The value of fki.getResourceKey() might be null for hard-deleted prober data.
+    ImmutableMap<String, VKey<T>> resourceKeys =
+        foreignKeyIndexes.entrySet().stream()
+            .filter(e -> !isAtOrAfter(now, e.getValue().getDeletionTime()))
+            .filter(e -> e.getValue().getResourceKey() != null)
+            .collect(toImmutableMap(Entry::getKey, e -> e.getValue().getResourceKey()));
+    if (resourceKeys.isEmpty()) {
+      return ImmutableMap.of();
+    }
+    ImmutableList<VKey<? extends EppResource>> keysToLoad =
+        ImmutableList.copyOf(resourceKeys.values());
+    ImmutableMap<VKey<? extends EppResource>, EppResource> resources =
+        RegistryConfig.isEppResourceCachingEnabled()
+            ? EppResource.loadCached(keysToLoad)
+            : transactIfJpaTm(() -> tm().loadByKeysIfPresent(keysToLoad));
+    ImmutableMap.Builder<String, T> results = new ImmutableMap.Builder<>();
+    resourceKeys.forEach(
+        (foreignKey, key) -> {
+          @SuppressWarnings("unchecked")
+          T resource = (T) resources.get(key);
+          if (resource != null && !isAtOrAfter(now, resource.getDeletionTime())) {
+            results.put(
+                foreignKey,
+                cloneProjectedAtTime(
+                    resource, latestOf(now, resource.getUpdateTimestamp().getTimestamp())));
+          }
+        });
+    return results.build();
+  }
+
   private static <T extends EppResource> Optional<T> loadByForeignKeyHelper(
       Class<T> clazz, String foreignKey, DateTime now, boolean useCache) {
     checkArgument(
@@ -294,7 +373,11 @@ public final class EppResourceUtils {
    * <p><b>Warning:</b> A resource can only be rolled backwards in time, not forwards; therefore
    * {@code resource} should be whatever's currently in Datastore.
    *
-   * <p><b>Warning:</b> Revisions are granular to 24-hour periods. It's recommended that
+   * <p>In Cloud SQL, which doesn't keep the commit log revisions of a resource, the resource is
+   * instead rebuilt from the most recent {@link DomainHistory}, {@link HostHistory} or {@link
+   * ContactHistory} at or before {@code timestamp}. Those are exact to the millisecond.
+   *
+   * <p><b>Warning:</b> Datastore revisions are granular to 24-hour periods. It's recommended that
    * {@code timestamp} be set to midnight. Otherwise you must take into consideration that under
    * certain circumstances, a resource might be restored to a revision on the previous day, even if
    * there were revisions made earlier on the same date as {@code timestamp}; however, a resource
@@ -339,6 +422,9 @@ public final class EppResourceUtils {
    */
   private static <T extends EppResource> Result<T> loadMostRecentRevisionAtTime(
       final T resource, final DateTime timestamp) {
+    if (!tm().isOfy()) {
+      return new ResultNow<>(loadMostRecentRevisionAtTimeFromHistory(resource, timestamp));
+    }
     final Key<T> resourceKey = Key.create(resource);
     final Key<CommitLogManifest> revision = findMostRecentRevisionAtTime(resource, timestamp);
     if (revision == null) {
@@ -360,6 +446,64 @@ public final class EppResourceUtils {
     };
   }
 
+  /**
+   * Returns the most recent revision of a given EppResource before or at the provided timestamp
+   * from the copies of the resource in its history entries, falling back to the resource as-is if
+   * there is no such history entry.
+   *
+   * <p>This must be called in a transaction.
+   *
+   * @see #loadAtPointInTime(EppResource, DateTime)
+   */
+  private static <T extends EppResource> T loadMostRecentRevisionAtTimeFromHistory(
+      final T resource, final DateTime timestamp) {
+    final VKey<? extends EppResource> resourceKey = resource.createVKey();
+    Optional<? extends EppResource> revision;
+    if (resource instanceof DomainBase) {
+      revision =
+          loadMostRecentHistoryAtTime(DomainHistory.class, "domainRepoId", resource, timestamp)
+              .flatMap(DomainHistory::getResourceAtPointInTime);
+    } else if (resource instanceof HostResource) {
+      revision =
+          loadMostRecentHistoryAtTime(HostHistory.class, "hostRepoId", resource, timestamp)
+              .flatMap(HostHistory::getResourceAtPointInTime);
+    } else if (resource instanceof ContactResource) {
+      revision =
+          loadMostRecentHistoryAtTime(ContactHistory.class, "contactRepoId", resource, timestamp)
+              .flatMap(ContactHistory::getResourceAtPointInTime);
+    } else {
+      throw new IllegalArgumentException(
+          "Resources of type " + resource.getClass().getSimpleName() + " have no history");
+    }
+    if (!revision.isPresent()) {
+      logger.atSevere().log(
+          "No history found at %s for %s, falling back to resource.", timestamp, resourceKey);
+      return resource;
+    }
+    // The revision is of the same class as the resource, since it was loaded by its repo ID.
+    @SuppressWarnings("unchecked")
+    T resourceAtTime = (T) revision.get();
+    return resourceAtTime;
+  }
+
+  /** Returns the most recent history entry of a resource before or at the provided timestamp. */
+  private static <H extends HistoryEntry> Optional<H> loadMostRecentHistoryAtTime(
+      Class<H> historyClass, String repoIdField, EppResource resource, DateTime timestamp) {
+    return jpaTm()
+        .getEntityManager()
+        .createQuery(
+            String.format(
+                "FROM %s WHERE %s = :repoId AND modificationTime <= :timestamp"
+                    + " ORDER BY modificationTime DESC, id DESC",
+                historyClass.getSimpleName(), repoIdField),
+            historyClass)
+        .setParameter("repoId", resource.getRepoId())
+        .setParameter("timestamp", timestamp)
+        .setMaxResults(1)
+        .getResultStream()
+        .findFirst();
+  }
+
   @Nullable
   private static <T extends EppResource> Key<CommitLogManifest>
       findMostRecentRevisionAtTime(final T resource, final DateTime timestamp) {
@@ -443,6 +587,50 @@ public final class EppResourceUtils {
     }
   }
 
+  /**
+   * Returns a set of {@link VKey} for hosts that have the specified IP address.
+   *
+   * <p>This reads at most {@code limit} entries of an index of host IP addresses (the composite
+   * index on {@code inetAddresses} and {@code deletionTime} in Datastore, the GIN index on {@code
+   * inet_addresses} in Cloud SQL), so its cost doesn't depend on how many hosts share the address.
+   * The index is maintained by the database as hosts are created, updated and deleted.
+   *
+   * <p>This is an eventually consistent query if used for Datastore.
+   *
+   * @param address the IP address, either IPv4 or IPv6
+   * @param now the logical time of the check
+   * @param limit the maximum number of returned keys
+   */
+  public static ImmutableSet<VKey<HostResource>> getHostKeysByInetAddress(
+      InetAddress address, DateTime now, int limit) {
+    if (tm().isOfy()) {
+      return ofy()
+          .load()
+          .type(HostResource.class)
+          .filter("inetAddresses", address)
+          .filter("deletionTime >", now.toDate())
+          .limit(limit)
+          .keys()
+          .list()
+          .stream()
+          .map(VKey::from)
+          .collect(toImmutableSet());
+    } else {
+      return tm().transact(
+              () ->
+                  (ImmutableSet<VKey<HostResource>>)
+                      jpaTm()
+                          .getEntityManager()
+                          .createNativeQuery(HOST_BY_INET_ADDRESS_QUERY)
+                          .setParameter("address", InetAddresses.toAddrString(address))
+                          .setParameter("now", now.toDate())
+                          .setMaxResults(limit)
+                          .getResultStream()
+                          .map(repoId -> VKey.create(HostResource.class, (String) repoId))
+                          .collect(toImmutableSet()));
+    }
+  }
+
   /**
    * Returns whether the given contact or host is linked to (that is, referenced by) a domain.
    *
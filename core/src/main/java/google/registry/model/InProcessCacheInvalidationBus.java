@@ -0,0 +1,46 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package google.registry.model;
+
+import com.google.common.collect.ImmutableList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/** A {@link CacheInvalidationBus} that only reaches the caches of the current instance. */
+public class InProcessCacheInvalidationBus implements CacheInvalidationBus {
+
+  private final ConcurrentMap<String, List<Consumer<String>>> listeners =
+      new ConcurrentHashMap<>();
+
+  @Override
+  public void publish(String cacheName, String key) {
+    notifyListeners(cacheName, key);
+  }
+
+  @Override
+  public void subscribe(String cacheName, Consumer<String> listener) {
+    listeners.computeIfAbsent(cacheName, name -> new CopyOnWriteArrayList<>()).add(listener);
+  }
+
+  @Override
+  public void startPolling() {}
+
+  /** Calls the listeners of the named cache on this instance. */
+  protected void notifyListeners(String cacheName, String key) {
+    listeners.getOrDefault(cacheName, ImmutableList.of()).forEach(listener -> listener.accept(key));
+  }
+}
@@ -233,6 +233,8 @@ public final class OteAccountBuilder {
   public ImmutableMap<String, String> buildAndPersist() {
     // save all the entitiesl in a single transaction
     tm().transact(this::saveAllEntities);
+    ImmutableList.of(sunriseTld, gaTld, eapTld)
+        .forEach(registry -> Registry.publishCacheInvalidation(registry.getTldStr()));
     return clientIdToTld;
   }
 
@@ -0,0 +1,192 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package google.registry.model;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static google.registry.persistence.transaction.TransactionManagerFactory.jpaTm;
+import static google.registry.persistence.transaction.TransactionManagerFactory.tm;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Maps;
+import com.google.common.flogger.FluentLogger;
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import google.registry.schema.server.CacheInvalidation;
+import google.registry.util.Clock;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+/**
+ * A {@link CacheInvalidationBus} that reaches every serving instance through Cloud SQL.
+ *
+ * <p>Each published invalidation is written to the {@link CacheInvalidation} table, and each
+ * instance reads the rows written since its previous poll once per poll interval, on a daemon
+ * thread of its own, like the {@code MetricReporter} of each instance. App Engine instances can't
+ * keep a connection open to listen for notifications, and polling from the threads reading the
+ * caches would put a query on the path of the requests that read them.
+ *
+ * <p>Once polling has started, published invalidations are written in batches on the same thread,
+ * once per flush interval, so that publishing doesn't add a database write to the requests that
+ * publish them. Before then, e.g. in the command-line tool, they're written right away.
+ *
+ * <p>The caches on the publishing instance are invalidated immediately, and those on other
+ * instances within one flush interval and one poll interval (plus the time for the writes and the
+ * poll themselves). Invalidations older than a day are deleted by {@link
+ * google.registry.batch.DeleteExpiredCacheInvalidationsAction}.
+ */
+public class SqlCacheInvalidationBus extends InProcessCacheInvalidationBus {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** How often the invalidations published on this instance are written to the database. */
+  @VisibleForTesting static final Duration FLUSH_INTERVAL = Duration.standardSeconds(1);
+
+  private final Clock clock;
+  private final Duration pollInterval;
+  private final AtomicBoolean polling = new AtomicBoolean();
+  private final Queue<Map.Entry<String, String>> pendingInvalidations =
+      new ConcurrentLinkedQueue<>();
+  private DateTime lastPollTime;
+
+  public SqlCacheInvalidationBus(Clock clock, Duration pollInterval) {
+    this.clock = clock;
+    this.pollInterval = pollInterval;
+    this.lastPollTime = clock.nowUtc();
+  }
+
+  /**
+   * {@inheritDoc}
+   *
+   * @throws IllegalStateException if called in a transaction, since other instances could then
+   *     reload the old value before it commits
+   */
+  @Override
+  public void publish(String cacheName, String key) {
+    checkState(
+        !tm().inTransaction() && !jpaTm().inTransaction(),
+        "Invalidation of %s in cache %s must be published after the transaction commits",
+        key,
+        cacheName);
+    super.publish(cacheName, key);
+    if (polling.get()) {
+      pendingInvalidations.add(Maps.immutableEntry(cacheName, key));
+    } else {
+      insertInvalidations(ImmutableSet.of(Maps.immutableEntry(cacheName, key)));
+    }
+  }
+
+  @Override
+  public void startPolling() {
+    startPolling(
+        Executors.newSingleThreadScheduledExecutor(
+            new ThreadFactoryBuilder()
+                .setDaemon(true)
+                .setNameFormat("cache-invalidation-poller")
+                .build()));
+  }
+
+  @VisibleForTesting
+  void startPolling(ScheduledExecutorService executor) {
+    if (!polling.compareAndSet(false, true)) {
+      return;
+    }
+    executor.scheduleWithFixedDelay(
+        this::flush, FLUSH_INTERVAL.getMillis(), FLUSH_INTERVAL.getMillis(), MILLISECONDS);
+    executor.scheduleWithFixedDelay(
+        this::poll, pollInterval.getMillis(), pollInterval.getMillis(), MILLISECONDS);
+    logger.atInfo().log("Polling for cache invalidations every %s.", pollInterval);
+  }
+
+  /** Writes the invalidations published since the previous flush to the database. */
+  @VisibleForTesting
+  void flush() {
+    ImmutableSet.Builder<Map.Entry<String, String>> batch = ImmutableSet.builder();
+    for (Map.Entry<String, String> invalidation = pendingInvalidations.poll();
+        invalidation != null;
+        invalidation = pendingInvalidations.poll()) {
+      batch.add(invalidation);
+    }
+    ImmutableSet<Map.Entry<String, String>> invalidations = batch.build();
+    if (invalidations.isEmpty()) {
+      return;
+    }
+    try {
+      insertInvalidations(invalidations);
+    } catch (RuntimeException e) {
+      // As in poll(), the task must not throw, and the caches on other instances still expire.
+      logger.atWarning().withCause(e).log(
+          "Failed to write %d cache invalidations.", invalidations.size());
+    }
+  }
+
+  /** Writes the given (cache name, key) pairs, all with the time of the transaction. */
+  private static void insertInvalidations(ImmutableSet<Map.Entry<String, String>> invalidations) {
+    jpaTm()
+        .transact(
+            () -> {
+              DateTime now = jpaTm().getTransactionTime();
+              jpaTm()
+                  .insertAll(
+                      invalidations.stream()
+                          .map(
+                              invalidation ->
+                                  CacheInvalidation.create(
+                                      invalidation.getKey(), invalidation.getValue(), now))
+                          .collect(toImmutableList()));
+            });
+  }
+
+  /** Delivers the invalidations published since the previous poll to the listeners. */
+  @VisibleForTesting
+  void poll() {
+    DateTime now = clock.nowUtc();
+    // Look back an extra poll interval, so that invalidations committed by transactions that were
+    // still running during the previous poll aren't missed. Seeing one twice is harmless.
+    DateTime since = lastPollTime.minus(pollInterval);
+    try {
+      ImmutableList<CacheInvalidation> invalidations = loadInvalidationsSince(since);
+      lastPollTime = now;
+      invalidations.forEach(
+          invalidation ->
+              notifyListeners(invalidation.getCacheName(), invalidation.getCacheKey()));
+    } catch (RuntimeException e) {
+      // A scheduled task that throws is never run again, and the caches still expire on their own.
+      logger.atWarning().withCause(e).log("Failed to poll for cache invalidations.");
+    }
+  }
+
+  @VisibleForTesting
+  static ImmutableList<CacheInvalidation> loadInvalidationsSince(DateTime since) {
+    return jpaTm()
+        .transact(
+            () ->
+                jpaTm()
+                    .getEntityManager()
+                    .createQuery(
+                        "FROM CacheInvalidation WHERE invalidationTime >= :since",
+                        CacheInvalidation.class)
+                    .setParameter("since", since)
+                    .getResultStream()
+                    .collect(toImmutableList()));
+  }
+}
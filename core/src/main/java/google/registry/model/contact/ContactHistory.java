@@ -88,6 +88,21 @@ public class ContactHistory extends HistoryEntry implements SqlEntity {
     return Optional.ofNullable(contactBase);
   }
 
+  /**
+   * Returns the contact as it was right after the action represented by this history object.
+   *
+   * <p>Will be absent for objects created prior to the Registry 3.0 SQL migration.
+   */
+  public Optional<ContactResource> getResourceAtPointInTime() {
+    return getContactBase()
+        .map(
+            contactBase ->
+                new ContactResource.Builder()
+                    .copyFrom(contactBase)
+                    .setRepoId(getContactRepoId())
+                    .build());
+  }
+
   /** The key to the {@link ContactResource} this is based off of. */
   public VKey<ContactResource> getParentVKey() {
     return VKey.create(ContactResource.class, getContactRepoId());
@@ -79,5 +79,10 @@ public class ContactResource extends ContactBase
     private Builder(ContactResource instance) {
       super(instance);
     }
+
+    /** Copies all fields of the given {@link ContactBase}, e.g. that of a history entry. */
+    public Builder copyFrom(ContactBase contactBase) {
+      return copyFieldsFrom(contactBase);
+    }
   }
 }
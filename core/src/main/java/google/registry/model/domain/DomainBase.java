@@ -59,7 +59,8 @@ import org.joda.time.DateTime;
       @Index(columnList = "deletionTime"),
       @Index(columnList = "domainName"),
       @Index(columnList = "tld"),
-      @Index(columnList = "autorenewEndTime")
+      @Index(columnList = "autorenewEndTime"),
+      @Index(name = "domain_tld_name_deletion_time_idx", columnList = "tld,domainName,deletionTime")
     })
 @WithStringVKey
 @ExternalMessagingName("domain")
@@ -163,5 +164,10 @@ public class DomainBase extends DomainContent
     Builder(DomainBase instance) {
       super(instance);
     }
+
+    /** Copies all fields of the given {@link DomainContent}, e.g. that of a history entry. */
+    public Builder copyFrom(DomainContent domainContent) {
+      return copyFieldsFrom(domainContent);
+    }
   }
 }
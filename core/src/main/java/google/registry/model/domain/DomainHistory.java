@@ -24,6 +24,7 @@ import com.googlecode.objectify.annotation.Ignore;
 import google.registry.model.ImmutableObject;
 import google.registry.model.domain.DomainHistory.DomainHistoryId;
 import google.registry.model.domain.GracePeriod.GracePeriodHistory;
+import google.registry.model.domain.secdns.DelegationSignerData;
 import google.registry.model.domain.secdns.DomainDsDataHistory;
 import google.registry.model.host.HostResource;
 import google.registry.model.reporting.DomainTransactionRecord;
@@ -226,6 +227,36 @@ public class DomainHistory extends HistoryEntry implements SqlEntity {
     return Optional.ofNullable(domainContent);
   }
 
+  /**
+   * Returns the domain as it was right after the action represented by this history object.
+   *
+   * <p>The DS data and grace periods of the domain are restored from their own history tables.
+   * Will be absent for objects created prior to the Registry 3.0 SQL migration.
+   */
+  public Optional<DomainBase> getResourceAtPointInTime() {
+    return getDomainContent()
+        .map(
+            domainContent ->
+                new DomainBase.Builder()
+                    .copyFrom(domainContent)
+                    .setRepoId(getDomainRepoId())
+                    .setDsData(
+                        getDsDataHistories().stream()
+                            .map(
+                                dsData ->
+                                    DelegationSignerData.create(
+                                        dsData.getKeyTag(),
+                                        dsData.getAlgorithm(),
+                                        dsData.getDigestType(),
+                                        dsData.getDigest()))
+                            .collect(toImmutableSet()))
+                    .setGracePeriods(
+                        getGracePeriodHistories().stream()
+                            .map(GracePeriodHistory::toGracePeriod)
+                            .collect(toImmutableSet()))
+                    .build());
+  }
+
   /** The key to the {@link DomainBase} this is based off of. */
   public VKey<DomainBase> getParentVKey() {
     return VKey.create(DomainBase.class, getDomainRepoId());
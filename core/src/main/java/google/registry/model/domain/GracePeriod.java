@@ -221,5 +221,17 @@ public class GracePeriod extends GracePeriodBase implements DatastoreAndSqlEntit
       instance.billingEventRecurring = gracePeriod.billingEventRecurring;
       return instance;
     }
+
+    /** Returns the {@link GracePeriod} that this is a historic copy of. */
+    GracePeriod toGracePeriod() {
+      return createInternal(
+          type,
+          domainRepoId,
+          expirationTime,
+          clientId,
+          getOneTimeBillingEvent(),
+          getRecurringBillingEvent(),
+          gracePeriodId);
+    }
   }
 }
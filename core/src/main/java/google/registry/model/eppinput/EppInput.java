@@ -150,6 +150,18 @@ public class EppInput extends ImmutableObject {
     }
   }
 
+  /**
+   * Returns the new name of the host if this command is a host update that renames it, or absent
+   * otherwise.
+   */
+  public Optional<String> getNewHostName() {
+    ResourceCommand resourceCommand = getResourceCommand();
+    return resourceCommand instanceof HostCommand.Update
+        ? Optional.ofNullable(
+            ((HostCommand.Update) resourceCommand).getInnerChange().getFullyQualifiedHostName())
+        : Optional.empty();
+  }
+
   /** Get the extension based on type, or null. If there are multiple, it chooses the first. */
   public <E extends CommandExtension> Optional<E> getSingleExtension(Class<E> clazz) {
     return getCommandWrapper().getExtensions().stream()
@@ -89,6 +89,21 @@ public class HostHistory extends HistoryEntry implements SqlEntity {
     return Optional.ofNullable(hostBase);
   }
 
+  /**
+   * Returns the host as it was right after the action represented by this history object.
+   *
+   * <p>Will be absent for objects created prior to the Registry 3.0 SQL migration.
+   */
+  public Optional<HostResource> getResourceAtPointInTime() {
+    return getHostBase()
+        .map(
+            hostBase ->
+                new HostResource.Builder()
+                    .copyFrom(hostBase)
+                    .setRepoId(getHostRepoId())
+                    .build());
+  }
+
   /** The key to the {@link google.registry.model.host.HostResource} this is based off of. */
   public VKey<HostResource> getParentVKey() {
     return VKey.create(HostResource.class, getHostRepoId());
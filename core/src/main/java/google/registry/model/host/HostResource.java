@@ -63,5 +63,10 @@ public class HostResource extends HostBase
     private Builder(HostResource instance) {
       super(instance);
     }
+
+    /** Copies all fields of the given {@link HostBase}, e.g. that of a history entry. */
+    public Builder copyFrom(HostBase hostBase) {
+      return copyFieldsFrom(hostBase);
+    }
   }
 }
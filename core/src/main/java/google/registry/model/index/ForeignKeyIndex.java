@@ -17,16 +17,21 @@ package google.registry.model.index;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static google.registry.config.RegistryConfig.getEppResourceCachingDuration;
+import static google.registry.config.RegistryConfig.getEppResourceCachingRefreshDuration;
 import static google.registry.config.RegistryConfig.getEppResourceMaxCachedEntries;
+import static google.registry.config.RegistryConfig.getEppResourceNegativeCachingDuration;
+import static google.registry.model.CacheUtils.newRefreshAheadCache;
 import static google.registry.model.ofy.ObjectifyService.ofy;
 import static google.registry.persistence.transaction.TransactionManagerFactory.jpaTm;
 import static google.registry.persistence.transaction.TransactionManagerFactory.tm;
 import static google.registry.util.TypeUtils.instantiate;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.annotations.VisibleForTesting;
-import com.google.common.cache.CacheBuilder;
-import com.google.common.cache.CacheLoader;
-import com.google.common.cache.LoadingCache;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
@@ -39,6 +44,7 @@ import com.googlecode.objectify.annotation.Id;
 import com.googlecode.objectify.annotation.Index;
 import google.registry.config.RegistryConfig;
 import google.registry.model.BackupGroupRoot;
+import google.registry.model.CacheMetrics;
 import google.registry.model.EppResource;
 import google.registry.model.annotations.ReportedOn;
 import google.registry.model.contact.ContactResource;
@@ -51,7 +57,6 @@ import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
-import java.util.concurrent.ExecutionException;
 import javax.annotation.Nullable;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
@@ -265,23 +270,54 @@ public abstract class ForeignKeyIndex<E extends EppResource> extends BackupGroup
    * actually exist. So we cache the fact that they *don't* exist by using Optional.empty(), and
    * then several layers up the EPP command will fail with an error message like "The contact with
    * given IDs (blah) don't exist."
+   *
+   * <p>Absent foreign keys are only held here until they are moved to {@link
+   * #cacheMissingForeignKeyIndexes}, which has a shorter expiry so that newly created resources
+   * become visible quickly. Entries that are still in use are refreshed ahead of their expiry; see
+   * {@link google.registry.model.CacheUtils#newRefreshAheadCache}.
    */
   @NonFinalForTesting
   private static LoadingCache<Key<ForeignKeyIndex<?>>, Optional<ForeignKeyIndex<?>>>
-      cacheForeignKeyIndexes = createForeignKeyIndexesCache(getEppResourceCachingDuration());
+      cacheForeignKeyIndexes =
+          createForeignKeyIndexesCache(
+              getEppResourceCachingDuration(), getEppResourceCachingRefreshDuration());
+
+  /** A limited size, limited time cache of foreign keys that are known not to exist. */
+  @NonFinalForTesting
+  private static Cache<Key<ForeignKeyIndex<?>>, Boolean> cacheMissingForeignKeyIndexes =
+      createMissingForeignKeyIndexesCache(getEppResourceNegativeCachingDuration());
 
   private static LoadingCache<Key<ForeignKeyIndex<?>>, Optional<ForeignKeyIndex<?>>>
-      createForeignKeyIndexesCache(Duration expiry) {
-    return CacheBuilder.newBuilder()
-        .expireAfterWrite(java.time.Duration.ofMillis(expiry.getMillis()))
-        .maximumSize(getEppResourceMaxCachedEntries())
-        .build(CACHE_LOADER);
+      createForeignKeyIndexesCache(Duration expiry, Duration refresh) {
+    return newRefreshAheadCache(
+        "ForeignKeyIndex", expiry, refresh, getEppResourceMaxCachedEntries(), CACHE_LOADER);
+  }
+
+  private static Cache<Key<ForeignKeyIndex<?>>, Boolean> createMissingForeignKeyIndexesCache(
+      Duration expiry) {
+    Cache<Key<ForeignKeyIndex<?>>, Boolean> cache =
+        Caffeine.newBuilder()
+            .expireAfterWrite(expiry.getMillis(), MILLISECONDS)
+            .maximumSize(getEppResourceMaxCachedEntries())
+            .executor(Runnable::run)
+            .recordStats()
+            .build();
+    CacheMetrics.register("MissingForeignKeyIndex", cache);
+    return cache;
   }
 
   @VisibleForTesting
   public static void setCacheForTest(Optional<Duration> expiry) {
-    Duration effectiveExpiry = expiry.orElse(getEppResourceCachingDuration());
-    cacheForeignKeyIndexes = createForeignKeyIndexesCache(effectiveExpiry);
+    if (expiry.isPresent()) {
+      cacheForeignKeyIndexes = createForeignKeyIndexesCache(expiry.get(), Duration.ZERO);
+      cacheMissingForeignKeyIndexes = createMissingForeignKeyIndexesCache(expiry.get());
+    } else {
+      cacheForeignKeyIndexes =
+          createForeignKeyIndexesCache(
+              getEppResourceCachingDuration(), getEppResourceCachingRefreshDuration());
+      cacheMissingForeignKeyIndexes =
+          createMissingForeignKeyIndexesCache(getEppResourceNegativeCachingDuration());
+    }
   }
 
   /**
@@ -302,22 +338,31 @@ public abstract class ForeignKeyIndex<E extends EppResource> extends BackupGroup
     ImmutableList<Key<ForeignKeyIndex<?>>> fkiKeys =
         Streams.stream(foreignKeys)
             .map(fk -> Key.<ForeignKeyIndex<?>>create(mapToFkiClass(clazz), fk))
+            .filter(key -> cacheMissingForeignKeyIndexes.getIfPresent(key) == null)
             .collect(toImmutableList());
-    try {
-      // This cast is safe because when we loaded ForeignKeyIndexes above we used type clazz, which
-      // is scoped to E.
-      @SuppressWarnings("unchecked")
-      ImmutableMap<String, ForeignKeyIndex<E>> fkisFromCache =
-          cacheForeignKeyIndexes.getAll(fkiKeys).entrySet().stream()
-              .filter(entry -> entry.getValue().isPresent())
-              .filter(entry -> now.isBefore(entry.getValue().get().getDeletionTime()))
-              .collect(
-                  toImmutableMap(
-                      entry -> entry.getKey().getName(),
-                      entry -> (ForeignKeyIndex<E>) entry.getValue().get()));
-      return fkisFromCache;
-    } catch (ExecutionException e) {
-      throw new RuntimeException("Error loading cached ForeignKeyIndexes", e.getCause());
+    Map<Key<ForeignKeyIndex<?>>, Optional<ForeignKeyIndex<?>>> fkisFromCache =
+        cacheForeignKeyIndexes.getAll(fkiKeys);
+    // Move absent foreign keys over to the cache for missing keys, which expires sooner.
+    ImmutableList<Key<ForeignKeyIndex<?>>> missingKeys =
+        fkisFromCache.entrySet().stream()
+            .filter(entry -> !entry.getValue().isPresent())
+            .map(Map.Entry::getKey)
+            .collect(toImmutableList());
+    if (!missingKeys.isEmpty()) {
+      missingKeys.forEach(key -> cacheMissingForeignKeyIndexes.put(key, true));
+      cacheForeignKeyIndexes.invalidateAll(missingKeys);
     }
+    // This cast is safe because when we loaded ForeignKeyIndexes above we used type clazz, which
+    // is scoped to E.
+    @SuppressWarnings("unchecked")
+    ImmutableMap<String, ForeignKeyIndex<E>> existingFkis =
+        fkisFromCache.entrySet().stream()
+            .filter(entry -> entry.getValue().isPresent())
+            .filter(entry -> now.isBefore(entry.getValue().get().getDeletionTime()))
+            .collect(
+                toImmutableMap(
+                    entry -> entry.getKey().getName(),
+                    entry -> (ForeignKeyIndex<E>) entry.getValue().get()));
+    return existingFkis;
   }
 }
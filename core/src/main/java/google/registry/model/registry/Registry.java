@@ -21,6 +21,7 @@ import static com.google.common.base.Predicates.not;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.common.collect.Maps.toMap;
 import static google.registry.config.RegistryConfig.getSingletonCacheRefreshDuration;
+import static google.registry.model.CacheUtils.getCacheInvalidationBus;
 import static google.registry.model.common.EntityGroupRoot.getCrossTldKey;
 import static google.registry.persistence.transaction.TransactionManagerFactory.tm;
 import static google.registry.util.CollectionUtils.nullToEmptyImmutableCopy;
@@ -246,16 +247,30 @@ public class Registry extends ImmutableObject implements Buildable, DatastoreAnd
   }
 
   /**
-   * Invalidates the cache entry.
+   * Invalidates the cache entry on this instance.
    *
-   * <p>This is called automatically when the registry is saved. One should also call it when a
-   * registry is deleted.
+   * <p>This is called automatically when the registry is saved, which is still within the
+   * transaction. So code that saves or deletes a registry should also call {@link
+   * #publishCacheInvalidation} once the transaction has committed.
    */
   @OnSave
   public void invalidateInCache() {
     CACHE.invalidate(tldStr);
   }
 
+  /**
+   * Invalidates the cache entry for the TLD on this instance and, depending on the configured
+   * {@link google.registry.model.CacheInvalidationBus}, on the other instances too.
+   *
+   * <p>This must be called after the transaction that saved or deleted the registry has committed.
+   */
+  public static void publishCacheInvalidation(String tld) {
+    getCacheInvalidationBus().publish(CACHE_NAME, tld);
+  }
+
+  /** The name under which invalidations of the {@link Registry} cache are published. */
+  private static final String CACHE_NAME = "Registry";
+
   /** A cache that loads the {@link Registry} for a given tld. */
   private static final LoadingCache<String, Optional<Registry>> CACHE =
       CacheBuilder.newBuilder()
@@ -281,6 +296,10 @@ public class Registry extends ImmutableObject implements Buildable, DatastoreAnd
                 }
               });
 
+  static {
+    getCacheInvalidationBus().subscribe(CACHE_NAME, CACHE::invalidate);
+  }
+
   public static VKey<Registry> createVKey(String tld) {
     return VKey.create(Registry.class, tld, Key.create(getCrossTldKey(), Registry.class, tld));
   }
@@ -325,7 +344,8 @@ public class Registry extends ImmutableObject implements Buildable, DatastoreAnd
    * <ol>
    *   <li>Pause the DNS queue via {@link google.registry.tools.UpdateTldCommand}
    *   <li>Change this number
-   *   <li>Let the Registry caches expire (currently 5 minutes) and drain the DNS publish queue
+   *   <li>Let the Registry caches expire (currently 5 minutes, or the cache invalidation poll
+   *       interval if SQL_POLLING cache invalidation is enabled) and drain the DNS publish queue
    *   <li>Unpause the DNS queue
    * </ol>
    *
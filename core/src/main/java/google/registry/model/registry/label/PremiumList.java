@@ -21,6 +21,7 @@ import static com.google.common.hash.Funnels.unencodedCharsFunnel;
 import static google.registry.config.RegistryConfig.getDomainLabelListCacheDuration;
 import static google.registry.config.RegistryConfig.getSingletonCachePersistDuration;
 import static google.registry.config.RegistryConfig.getStaticPremiumListMaxCachedEntries;
+import static google.registry.model.CacheUtils.getCacheInvalidationBus;
 import static google.registry.model.common.EntityGroupRoot.getCrossTldKey;
 import static google.registry.model.ofy.ObjectifyService.allocateId;
 import static google.registry.model.ofy.ObjectifyService.ofy;
@@ -181,6 +182,13 @@ public final class PremiumList extends BaseDomainLabelList<Money, PremiumList.Pr
   static LoadingCache<String, PremiumList> cachePremiumLists =
       createCachePremiumLists(getDomainLabelListCacheDuration());
 
+  /** The name under which invalidations of the premium list caches are published. */
+  public static final String CACHE_NAME = "PremiumList";
+
+  static {
+    getCacheInvalidationBus().subscribe(CACHE_NAME, name -> cachePremiumLists.invalidate(name));
+  }
+
   @VisibleForTesting
   public static void setPremiumListCacheForTest(Optional<Duration> expiry) {
     Duration effectiveExpiry = expiry.orElse(getDomainLabelListCacheDuration());
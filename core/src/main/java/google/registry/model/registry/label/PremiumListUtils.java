@@ -17,6 +17,7 @@ package google.registry.model.registry.label;
 import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.common.collect.Iterables.partition;
+import static google.registry.model.CacheUtils.getCacheInvalidationBus;
 import static google.registry.model.common.EntityGroupRoot.getCrossTldKey;
 import static google.registry.model.ofy.ObjectifyService.ofy;
 import static google.registry.model.registry.label.DomainLabelMetrics.PremiumListCheckOutcome.BLOOM_FILTER_NEGATIVE;
@@ -26,7 +27,6 @@ import static google.registry.model.registry.label.DomainLabelMetrics.PremiumLis
 import static google.registry.model.registry.label.DomainLabelMetrics.PremiumListCheckOutcome.UNCACHED_POSITIVE;
 import static google.registry.model.registry.label.PremiumList.cachePremiumListEntries;
 import static google.registry.model.registry.label.PremiumList.cachePremiumListRevisions;
-import static google.registry.model.registry.label.PremiumList.cachePremiumLists;
 import static google.registry.persistence.transaction.TransactionManagerFactory.tm;
 import static org.joda.time.DateTimeZone.UTC;
 
@@ -193,10 +193,10 @@ public final class PremiumListUtils {
       return newList;
     });
 
-    // Invalidate the cache on this premium list so the change will take effect instantly. This only
-    // clears the cache on the same instance that the update was run on, which will typically be the
-    // only tools instance.
-    PremiumList.cachePremiumLists.invalidate(premiumList.getName());
+    // Invalidate the cache on this premium list so the change will take effect instantly. Unless
+    // SQL_POLLING cache invalidation is enabled, this only clears the cache on the same instance
+    // that the update was run on, which will typically be the only tools instance.
+    getCacheInvalidationBus().publish(PremiumList.CACHE_NAME, premiumList.getName());
 
     // TODO(b/79888775): Enqueue the oldPremiumList for deletion after at least
     // RegistryConfig.getDomainLabelListCacheDuration() has elapsed.
@@ -221,7 +221,7 @@ public final class PremiumListUtils {
   public static void deletePremiumList(final PremiumList premiumList) {
     tm().transactNew(() -> ofy().delete().entity(premiumList));
     deleteRevisionAndEntriesOfPremiumList(premiumList);
-    cachePremiumLists.invalidate(premiumList.getName());
+    getCacheInvalidationBus().publish(PremiumList.CACHE_NAME, premiumList.getName());
   }
 
   static void deleteRevisionAndEntriesOfPremiumList(final PremiumList premiumList) {
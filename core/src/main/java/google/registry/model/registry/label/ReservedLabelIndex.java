@@ -0,0 +1,125 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.model.registry.label;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Sets;
+import google.registry.model.registry.label.DomainLabelMetrics.MetricsReservedListMatch;
+import google.registry.model.registry.label.ReservedList.ReservedListEntry;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.annotation.concurrent.Immutable;
+
+/**
+ * An immutable index of the labels reserved by all of the reserved lists of a TLD.
+ *
+ * <p>The entries of every list are merged once, so that a single probe returns all of a label's
+ * reservation types (as an enum set, i.e. a bitset) along with the lists that matched it. An index
+ * remembers the exact {@link ReservedList} instances it was built from, which lets callers detect
+ * that a list was reloaded or that the TLD's set of lists changed, and swap in a rebuilt index.
+ */
+@Immutable
+final class ReservedLabelIndex {
+
+  /** The reservations of a single label across all of a TLD's reserved lists. */
+  @AutoValue
+  abstract static class LabelReservations {
+
+    static final LabelReservations NONE = create(ImmutableSet.of(), ImmutableSet.of());
+
+    private static LabelReservations create(
+        ImmutableSet<ReservationType> types, ImmutableSet<MetricsReservedListMatch> matches) {
+      return new AutoValue_ReservedLabelIndex_LabelReservations(types, matches);
+    }
+
+    /** The reservation types of the label, from all lists that contain it. */
+    abstract ImmutableSet<ReservationType> types();
+
+    /** The lists that contain the label, with the reservation type each of them assigns. */
+    abstract ImmutableSet<MetricsReservedListMatch> matches();
+  }
+
+  /** The lists this index was built from, only ever compared by identity. */
+  private final ImmutableList<ReservedList> sources;
+
+  private final ImmutableMap<String, LabelReservations> reservations;
+
+  private ReservedLabelIndex(
+      ImmutableList<ReservedList> sources, ImmutableMap<String, LabelReservations> reservations) {
+    this.sources = sources;
+    this.reservations = reservations;
+  }
+
+  /** Builds an index of the union of the given reserved lists. */
+  static ReservedLabelIndex create(ImmutableList<ReservedList> reservedLists) {
+    Map<String, EnumSet<ReservationType>> types = new LinkedHashMap<>();
+    Map<String, ImmutableSet.Builder<MetricsReservedListMatch>> matches = new HashMap<>();
+    for (ReservedList reservedList : reservedLists) {
+      for (ReservedListEntry entry : reservedList.getReservedListEntries().values()) {
+        String label = entry.getLabel();
+        types.computeIfAbsent(label, l -> EnumSet.noneOf(ReservationType.class))
+            .add(entry.getValue());
+        matches.computeIfAbsent(label, l -> new ImmutableSet.Builder<>())
+            .add(MetricsReservedListMatch.create(reservedList.getName(), entry.getValue()));
+      }
+    }
+    // Most labels share one of a few combinations of types and lists, so share those instances.
+    Map<LabelReservations, LabelReservations> interned = new HashMap<>();
+    ImmutableMap.Builder<String, LabelReservations> reservations =
+        ImmutableMap.builderWithExpectedSize(types.size());
+    types.forEach(
+        (label, labelTypes) -> {
+          LabelReservations labelReservations =
+              LabelReservations.create(
+                  Sets.immutableEnumSet(labelTypes), matches.get(label).build());
+          reservations.put(
+              label, interned.computeIfAbsent(labelReservations, r -> labelReservations));
+        });
+    return new ReservedLabelIndex(reservedLists, reservations.build());
+  }
+
+  /** Returns the reservations of the given label, or {@link LabelReservations#NONE} if none. */
+  LabelReservations get(String label) {
+    return reservations.getOrDefault(label, LabelReservations.NONE);
+  }
+
+  /** Returns the number of distinct labels reserved by any of the lists. */
+  int size() {
+    return reservations.size();
+  }
+
+  /**
+   * Returns whether this index was built from exactly these reserved list instances, in order.
+   *
+   * <p>Instances are compared by identity rather than equality, which is both cheap and exact: the
+   * reserved list cache hands out the same instance until the list is reloaded.
+   */
+  boolean isBuiltFrom(ImmutableList<ReservedList> reservedLists) {
+    if (reservedLists.size() != sources.size()) {
+      return false;
+    }
+    for (int i = 0; i < sources.size(); i++) {
+      if (reservedLists.get(i) != sources.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+}
@@ -16,8 +16,9 @@ package google.registry.model.registry.label;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
-import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static google.registry.config.RegistryConfig.getDomainLabelListCacheDuration;
+import static google.registry.model.CacheUtils.getCacheInvalidationBus;
 import static google.registry.model.registry.label.ReservationType.FULLY_BLOCKED;
 import static google.registry.persistence.transaction.TransactionManagerFactory.tm;
 import static google.registry.util.CollectionUtils.nullToEmpty;
@@ -27,6 +28,7 @@ import com.google.common.base.Splitter;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.util.concurrent.UncheckedExecutionException;
@@ -37,11 +39,12 @@ import com.googlecode.objectify.annotation.Mapify;
 import com.googlecode.objectify.mapper.Mapper;
 import google.registry.model.Buildable;
 import google.registry.model.registry.Registry;
-import google.registry.model.registry.label.DomainLabelMetrics.MetricsReservedListMatch;
+import google.registry.model.registry.label.ReservedLabelIndex.LabelReservations;
 import google.registry.schema.replay.NonReplicatedEntity;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutionException;
 import javax.annotation.Nullable;
 import javax.persistence.CollectionTable;
@@ -189,39 +192,44 @@ public final class ReservedList
     if (label.length() == 0) {
       return ImmutableSet.of(FULLY_BLOCKED);
     }
-    return getReservedListEntries(label, tld)
-        .stream()
-        .map(ReservedListEntry::getValue)
-        .collect(toImmutableSet());
+    return getLabelReservations(label, tld).types();
   }
 
   /**
-   * Helper function to retrieve the entries associated with this label and TLD, or an empty set if
-   * no such entry exists.
+   * Helper function to retrieve the reservations of this label across all of the TLD's reserved
+   * lists, using a single lookup in the TLD's {@link ReservedLabelIndex}.
    */
-  private static ImmutableSet<ReservedListEntry> getReservedListEntries(String label, String tld) {
+  private static LabelReservations getLabelReservations(String label, String tld) {
     DateTime startTime = DateTime.now(UTC);
     Registry registry = Registry.get(checkNotNull(tld, "tld must not be null"));
-    ImmutableSet.Builder<ReservedListEntry> entriesBuilder = new ImmutableSet.Builder<>();
-    ImmutableSet.Builder<MetricsReservedListMatch> metricMatchesBuilder =
-        new ImmutableSet.Builder<>();
-
-    // Loop through all reservation lists and add each of them.
-    for (ReservedList rl : loadReservedLists(registry.getReservedLists())) {
-      if (rl.getReservedListEntries().containsKey(label)) {
-        ReservedListEntry entry = rl.getReservedListEntries().get(label);
-        entriesBuilder.add(entry);
-        metricMatchesBuilder.add(
-            MetricsReservedListMatch.create(rl.getName(), entry.reservationType));
-      }
-    }
-    ImmutableSet<ReservedListEntry> entries = entriesBuilder.build();
+    LabelReservations reservations = getReservedLabelIndex(registry).get(label);
     DomainLabelMetrics.recordReservedListCheckOutcome(
-        tld, metricMatchesBuilder.build(), DateTime.now(UTC).getMillis() - startTime.getMillis());
-    return entries;
+        tld, reservations.matches(), DateTime.now(UTC).getMillis() - startTime.getMillis());
+    return reservations;
   }
 
-  private static ImmutableSet<ReservedList> loadReservedLists(
+  /**
+   * Returns the index of the union of the TLD's reserved lists, rebuilding it if the TLD's lists
+   * changed or any of them was reloaded since it was built.
+   *
+   * <p>The index is immutable and replaced as a whole, so concurrent callers always see a
+   * consistent view of a single set of list revisions.
+   */
+  private static ReservedLabelIndex getReservedLabelIndex(Registry registry) {
+    ImmutableList<ReservedList> reservedLists = loadReservedLists(registry.getReservedLists());
+    ReservedLabelIndex index = reservedLabelIndexes.get(registry.getTldStr());
+    if (index != null && index.isBuiltFrom(reservedLists)) {
+      return index;
+    }
+    return reservedLabelIndexes.compute(
+        registry.getTldStr(),
+        (tld, current) ->
+            (current != null && current.isBuiltFrom(reservedLists))
+                ? current
+                : ReservedLabelIndex.create(reservedLists));
+  }
+
+  private static ImmutableList<ReservedList> loadReservedLists(
       ImmutableSet<Key<ReservedList>> reservedListKeys) {
     return reservedListKeys
         .stream()
@@ -236,9 +244,13 @@ public final class ReservedList
                     e);
               }
             })
-        .collect(toImmutableSet());
+        .collect(toImmutableList());
   }
 
+  /** Compiled indexes of the reserved lists of each TLD, keyed by TLD string. */
+  private static final ConcurrentHashMap<String, ReservedLabelIndex> reservedLabelIndexes =
+      new ConcurrentHashMap<>();
+
   private static LoadingCache<String, ReservedList> cache =
       CacheBuilder.newBuilder()
           .expireAfterWrite(
@@ -253,6 +265,13 @@ public final class ReservedList
                 }
               });
 
+  /** The name under which invalidations of the {@link ReservedList} cache are published. */
+  static final String CACHE_NAME = "ReservedList";
+
+  static {
+    getCacheInvalidationBus().subscribe(CACHE_NAME, listName -> cache.invalidate(listName));
+  }
+
   /**
    * Gets the {@link ReservationType} of a label in a single ReservedList, or returns an absent
    * Optional if none exists in the list.
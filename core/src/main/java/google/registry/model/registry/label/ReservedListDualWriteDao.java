@@ -15,6 +15,7 @@
 package google.registry.model.registry.label;
 
 import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static google.registry.model.CacheUtils.getCacheInvalidationBus;
 import static google.registry.model.common.EntityGroupRoot.getCrossTldKey;
 import static google.registry.persistence.transaction.TransactionManagerFactory.ofyTm;
 
@@ -53,6 +54,7 @@ public class ReservedListDualWriteDao {
     } catch (Throwable t) {
       logger.atSevere().withCause(t).log("Error saving the reserved list to Cloud SQL.");
     }
+    getCacheInvalidationBus().publish(ReservedList.CACHE_NAME, reservedList.getName());
   }
 
   /**
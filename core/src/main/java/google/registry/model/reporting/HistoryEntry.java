@@ -126,6 +126,7 @@ public class HistoryEntry extends ImmutableObject implements Buildable, Datastor
   @Parent @Transient protected Key<? extends EppResource> parent;
 
   /** The type of history entry. */
+  @Index
   @Column(nullable = false, name = "historyType")
   @Enumerated(EnumType.STRING)
   Type type;
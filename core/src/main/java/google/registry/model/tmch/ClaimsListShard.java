@@ -51,7 +51,6 @@ import google.registry.util.CollectionUtils;
 import google.registry.util.Concurrent;
 import google.registry.util.Retrier;
 import google.registry.util.SystemSleeper;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -128,7 +127,12 @@ public class ClaimsListShard extends ImmutableObject implements NonReplicatedEnt
   @Column(name = "tmdb_generation_time", nullable = false)
   DateTime creationTime;
 
-  /** A map from labels to claims keys. */
+  /**
+   * A map from labels to claims keys.
+   *
+   * <p>This is a {@link PackedClaimsMap} in the claims lists that are parsed or served from the
+   * cache, since those are large and long-lived.
+   */
   @EmbedMap
   @ElementCollection
   @CollectionTable(
@@ -147,7 +151,7 @@ public class ClaimsListShard extends ImmutableObject implements NonReplicatedEnt
     // Find the most recent revision.
     Key<ClaimsListRevision> revisionKey = getCurrentRevision();
 
-    Map<String, String> combinedLabelsToKeys = new HashMap<>();
+    PackedClaimsMap.Builder combinedLabelsToKeys = new PackedClaimsMap.Builder();
     DateTime creationTime = START_OF_TIME;
     if (revisionKey != null) {
       // Grab all of the keys for the shards that belong to the current revision.
@@ -191,7 +195,7 @@ public class ClaimsListShard extends ImmutableObject implements NonReplicatedEnt
       }
     }
 
-    ClaimsListShard datastoreList = create(creationTime, ImmutableMap.copyOf(combinedLabelsToKeys));
+    ClaimsListShard datastoreList = create(creationTime, combinedLabelsToKeys.build());
     // Also load the list from Cloud SQL, compare the two lists, and log if different.
     try {
       loadAndCompareCloudSqlList(datastoreList);
@@ -0,0 +1,214 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.model.tmch;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkNotNull;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.common.collect.Maps;
+import com.google.common.primitives.UnsignedBytes;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable map from claims labels to claim keys, packed into a pair of arrays.
+ *
+ * <p>The claims list has hundreds of thousands of entries and is reloaded every few hours. In a
+ * regular map, each entry costs two {@link String} objects and a map entry, which together take
+ * several times the space of the characters themselves. Here, the UTF-8 bytes of all the labels and
+ * claim keys are stored one after the other in a single array, sorted by label, along with the
+ * offsets at which each of them starts, and lookups are binary searches over the labels.
+ *
+ * <p>Iteration is in the order of the UTF-8 bytes of the labels, which for the ASCII labels of the
+ * claims list is the same as their natural order.
+ */
+public final class PackedClaimsMap extends AbstractMap<String, String> {
+
+  private static final Comparator<byte[]> BYTES_ORDERING =
+      UnsignedBytes.lexicographicalComparator();
+
+  /** The labels and claim keys, i. e. label 0, claim key 0, label 1, claim key 1 and so on. */
+  private final byte[] data;
+
+  /**
+   * The offsets of the labels and claim keys in {@link #data}.
+   *
+   * <p>Label {@code i} spans from {@code offsets[2 * i]} to {@code offsets[2 * i + 1]} and its
+   * claim key from there to {@code offsets[2 * i + 2]}.
+   */
+  private final int[] offsets;
+
+  private PackedClaimsMap(byte[] data, int[] offsets) {
+    this.data = data;
+    this.offsets = offsets;
+  }
+
+  @Override
+  public int size() {
+    return offsets.length / 2;
+  }
+
+  @Override
+  public boolean containsKey(Object label) {
+    return indexOf(label) >= 0;
+  }
+
+  @Override
+  @Nullable
+  public String get(Object label) {
+    int index = indexOf(label);
+    return (index < 0) ? null : claimKey(index);
+  }
+
+  @Override
+  public Set<Entry<String, String>> entrySet() {
+    return new AbstractSet<Entry<String, String>>() {
+      @Override
+      public int size() {
+        return PackedClaimsMap.this.size();
+      }
+
+      @Override
+      public Iterator<Entry<String, String>> iterator() {
+        return IntStream.range(0, size())
+            .mapToObj(index -> Maps.immutableEntry(label(index), claimKey(index)))
+            .iterator();
+      }
+    };
+  }
+
+  private String label(int index) {
+    return decode(offsets[2 * index], offsets[2 * index + 1]);
+  }
+
+  private String claimKey(int index) {
+    return decode(offsets[2 * index + 1], offsets[2 * index + 2]);
+  }
+
+  private String decode(int start, int end) {
+    return new String(data, start, end - start, UTF_8);
+  }
+
+  /** Returns the index of the label in the map, or -1 if it isn't there. */
+  private int indexOf(Object label) {
+    if (!(label instanceof String)) {
+      return -1;
+    }
+    byte[] bytes = ((String) label).getBytes(UTF_8);
+    int low = 0;
+    int high = size() - 1;
+    while (low <= high) {
+      int middle = (low + high) >>> 1;
+      int comparison = compareToLabel(bytes, middle);
+      if (comparison == 0) {
+        return middle;
+      }
+      if (comparison < 0) {
+        high = middle - 1;
+      } else {
+        low = middle + 1;
+      }
+    }
+    return -1;
+  }
+
+  /** Compares the bytes to those of the label at the given index, as unsigned bytes. */
+  private int compareToLabel(byte[] bytes, int index) {
+    int start = offsets[2 * index];
+    int length = offsets[2 * index + 1] - start;
+    for (int i = 0; i < Math.min(bytes.length, length); i++) {
+      int comparison = UnsignedBytes.compare(bytes[i], data[start + i]);
+      if (comparison != 0) {
+        return comparison;
+      }
+    }
+    return bytes.length - length;
+  }
+
+  /**
+   * A builder of {@link PackedClaimsMap}s.
+   *
+   * <p>Entries can be added in any order. Like {@link com.google.common.collect.ImmutableMap}, the
+   * builder fails if a label is added twice.
+   */
+  public static final class Builder {
+
+    private final List<RawEntry> entries = new ArrayList<>();
+
+    public Builder put(String label, String claimKey) {
+      entries.add(
+          new RawEntry(
+              checkNotNull(label, "label").getBytes(UTF_8),
+              checkNotNull(claimKey, "claimKey").getBytes(UTF_8)));
+      return this;
+    }
+
+    public Builder putAll(Map<String, String> labelsToKeys) {
+      labelsToKeys.forEach(this::put);
+      return this;
+    }
+
+    public PackedClaimsMap build() {
+      RawEntry[] sortedEntries = entries.toArray(new RawEntry[0]);
+      Arrays.parallelSort(
+          sortedEntries, Comparator.comparing((RawEntry entry) -> entry.label, BYTES_ORDERING));
+      long dataSize = 0;
+      for (RawEntry entry : sortedEntries) {
+        dataSize += entry.label.length + entry.claimKey.length;
+      }
+      checkArgument(dataSize <= Integer.MAX_VALUE, "Claims list is too big to pack");
+      byte[] data = new byte[(int) dataSize];
+      int[] offsets = new int[2 * sortedEntries.length + 1];
+      int position = 0;
+      for (int i = 0; i < sortedEntries.length; i++) {
+        RawEntry entry = sortedEntries[i];
+        if (i > 0 && Arrays.equals(sortedEntries[i - 1].label, entry.label)) {
+          throw new IllegalArgumentException(
+              "Multiple entries with same label: " + new String(entry.label, UTF_8));
+        }
+        offsets[2 * i] = position;
+        System.arraycopy(entry.label, 0, data, position, entry.label.length);
+        position += entry.label.length;
+        offsets[2 * i + 1] = position;
+        System.arraycopy(entry.claimKey, 0, data, position, entry.claimKey.length);
+        position += entry.claimKey.length;
+      }
+      offsets[2 * sortedEntries.length] = position;
+      return new PackedClaimsMap(data, offsets);
+    }
+  }
+
+  /** The encoded label and claim key of an entry that has yet to be packed. */
+  private static final class RawEntry {
+
+    final byte[] label;
+    final byte[] claimKey;
+
+    RawEntry(byte[] label, byte[] claimKey) {
+      this.label = label;
+      this.claimKey = claimKey;
+    }
+  }
+}
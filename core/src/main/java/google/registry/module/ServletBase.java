@@ -14,6 +14,8 @@
 
 package google.registry.module;
 
+import static google.registry.model.CacheUtils.getCacheInvalidationBus;
+
 import com.google.appengine.api.LifecycleManager;
 import com.google.common.flogger.FluentLogger;
 import com.google.monitoring.metrics.MetricReporter;
@@ -68,6 +70,13 @@ public class ServletBase extends HttpServlet {
     } catch (Exception e) {
       logger.atSevere().withCause(e).log("Failed to initialize MetricReporter.");
     }
+
+    // Same as above: without the poller, cached config only expires, so keep serving regardless.
+    try {
+      getCacheInvalidationBus().startPolling();
+    } catch (Exception e) {
+      logger.atSevere().withCause(e).log("Failed to start polling for cache invalidations.");
+    }
   }
 
   @Override
@@ -22,6 +22,7 @@ import google.registry.backup.DeleteOldCommitLogsAction;
 import google.registry.backup.ExportCommitLogDiffAction;
 import google.registry.batch.BatchModule;
 import google.registry.batch.DeleteContactsAndHostsAction;
+import google.registry.batch.DeleteExpiredCacheInvalidationsAction;
 import google.registry.batch.DeleteLoadTestDataAction;
 import google.registry.batch.DeleteProberDataAction;
 import google.registry.batch.ExpandRecurringBillingEventsAction;
@@ -127,6 +128,8 @@ interface BackendRequestComponent {
 
   DeleteContactsAndHostsAction deleteContactsAndHostsAction();
 
+  DeleteExpiredCacheInvalidationsAction deleteExpiredCacheInvalidationsAction();
+
   DeleteLoadTestDataAction deleteLoadTestDataAction();
 
   DeleteOldCommitLogsAction deleteOldCommitLogsAction();
@@ -37,6 +37,7 @@ import google.registry.request.Modules.UserServiceModule;
 import google.registry.request.auth.AuthModule;
 import google.registry.ui.ConsoleDebug.ConsoleConfigModule;
 import google.registry.util.UtilsModule;
+import google.registry.whois.WhoisResponseCacheModule;
 import javax.inject.Singleton;
 
 /** Dagger component with instance lifetime for "default" App Engine module. */
@@ -62,7 +63,8 @@ import javax.inject.Singleton;
       StackdriverModule.class,
       UrlFetchTransportModule.class,
       UserServiceModule.class,
-      UtilsModule.class
+      UtilsModule.class,
+      WhoisResponseCacheModule.class
     })
 interface FrontendComponent {
   FrontendRequestHandler requestHandler();
@@ -39,6 +39,7 @@ import google.registry.request.Modules.UrlFetchTransportModule;
 import google.registry.request.Modules.UserServiceModule;
 import google.registry.request.auth.AuthModule;
 import google.registry.util.UtilsModule;
+import google.registry.whois.WhoisResponseCacheModule;
 import javax.inject.Singleton;
 
 /** Dagger component with instance lifetime for "tools" App Engine module. */
@@ -66,7 +67,8 @@ import javax.inject.Singleton;
       ToolsRequestComponentModule.class,
       UrlFetchTransportModule.class,
       UserServiceModule.class,
-      UtilsModule.class
+      UtilsModule.class,
+      WhoisResponseCacheModule.class
     })
 interface ToolsComponent {
   ToolsRequestHandler requestHandler();
@@ -32,6 +32,7 @@ import google.registry.request.RequestScope;
 import google.registry.tools.server.CreateGroupsAction;
 import google.registry.tools.server.CreatePremiumListAction;
 import google.registry.tools.server.DeleteEntityAction;
+import google.registry.tools.server.GenerateSqlZoneFileAction;
 import google.registry.tools.server.GenerateZoneFilesAction;
 import google.registry.tools.server.KillAllCommitLogsAction;
 import google.registry.tools.server.KillAllEppResourcesAction;
@@ -66,6 +67,7 @@ interface ToolsRequestComponent {
   DeleteEntityAction deleteEntityAction();
   EppToolAction eppToolAction();
   FlowComponent.Builder flowComponentBuilder();
+  GenerateSqlZoneFileAction generateSqlZoneFileAction();
   GenerateZoneFilesAction generateZoneFilesAction();
   KillAllCommitLogsAction killAllCommitLogsAction();
   KillAllEppResourcesAction killAllEppResourcesAction();
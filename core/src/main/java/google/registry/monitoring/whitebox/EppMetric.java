@@ -17,6 +17,7 @@ package google.registry.monitoring.whitebox;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import com.google.auto.value.AutoValue;
+import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Iterables;
 import google.registry.model.eppoutput.Result.Code;
@@ -24,6 +25,7 @@ import google.registry.model.registry.Registries;
 import google.registry.util.Clock;
 import java.util.Optional;
 import org.joda.time.DateTime;
+import org.joda.time.Duration;
 
 /** A value class for recording attributes of an EPP metric. */
 @AutoValue
@@ -41,6 +43,26 @@ public abstract class EppMetric {
 
   public abstract Optional<Code> getStatus();
 
+  /** Returns the batched datastore loads that the flow performed, in the order they were made. */
+  public abstract ImmutableList<BatchLoad> getBatchLoads();
+
+  /** A value class for recording the size and latency of a single batched load. */
+  @AutoValue
+  public abstract static class BatchLoad {
+
+    /** The kind of entity that was loaded, e.g. "DomainBase". */
+    public abstract String getKind();
+
+    /** The number of keys that were requested in the batch. */
+    public abstract int getSize();
+
+    public abstract Duration getLatency();
+
+    public static BatchLoad create(String kind, int size, Duration latency) {
+      return new AutoValue_EppMetric_BatchLoad(kind, size, latency);
+    }
+  }
+
   /** Create an {@link EppMetric.Builder}. */
   public static Builder builder() {
     return new AutoValue_EppMetric.Builder();
@@ -115,6 +137,14 @@ public abstract class EppMetric {
 
     public abstract Builder setStatus(Code code);
 
+    abstract ImmutableList.Builder<BatchLoad> batchLoadsBuilder();
+
+    /** Records a batched load of {@code size} keys of the given kind that took {@code latency}. */
+    public Builder addBatchLoad(String kind, int size, Duration latency) {
+      batchLoadsBuilder().add(BatchLoad.create(kind, size, latency));
+      return this;
+    }
+
     Builder setClock(Clock clock) {
       this.clock = clock;
       return this;
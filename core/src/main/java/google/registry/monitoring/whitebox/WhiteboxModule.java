@@ -16,6 +16,7 @@ package google.registry.monitoring.whitebox;
 
 import dagger.Module;
 import dagger.Provides;
+import google.registry.request.RequestScope;
 import google.registry.util.Clock;
 
 /**
@@ -24,8 +25,14 @@ import google.registry.util.Clock;
 @Module
 public class WhiteboxModule {
 
-  /** Provides an EppMetric builder with the request ID and startTimestamp already initialized. */
+  /**
+   * Provides an EppMetric builder with the request ID and startTimestamp already initialized.
+   *
+   * <p>The builder is request scoped so that flows can record attributes, such as batch load
+   * latencies, on the same metric that {@code EppController} reports at the end of the request.
+   */
   @Provides
+  @RequestScope
   static EppMetric.Builder provideEppMetricBuilder(Clock clock) {
     return EppMetric.builderForRequest(clock);
   }
@@ -20,12 +20,16 @@ import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static google.registry.util.PreconditionsUtils.checkArgumentNotNull;
 import static java.util.AbstractMap.SimpleEntry;
+import static java.util.stream.Collectors.groupingBy;
 import static java.util.stream.Collectors.joining;
 
+import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Iterables;
 import com.google.common.collect.Streams;
 import com.google.common.flogger.FluentLogger;
 import google.registry.config.RegistryConfig;
@@ -40,6 +44,8 @@ import google.registry.util.Clock;
 import google.registry.util.Retrier;
 import google.registry.util.SystemSleeper;
 import java.lang.reflect.Field;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.NoSuchElementException;
 import java.util.Optional;
@@ -61,6 +67,9 @@ public class JpaTransactionManagerImpl implements JpaTransactionManager {
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
   private static final Retrier retrier = new Retrier(new SystemSleeper(), 3);
 
+  /** The maximum number of keys that {@link #loadByKeysIfPresent} puts in a single query. */
+  @VisibleForTesting static final int MAX_KEYS_PER_QUERY = 1000;
+
   // The entity of classes in this set will be simply ignored when passed to modification
   // operations, i.e. insert, put, update and delete. This is to help maintain a single code path
   // when we switch from ofy() to tm() for the database migration as we don't need have a condition
@@ -368,15 +377,57 @@ public class JpaTransactionManagerImpl implements JpaTransactionManager {
       Iterable<? extends VKey<? extends T>> keys) {
     checkArgumentNotNull(keys, "keys must be specified");
     assertInTransaction();
-    return StreamSupport.stream(keys.spliterator(), false)
+    ImmutableMap.Builder<VKey<? extends T>, T> results = new ImmutableMap.Builder<>();
+    StreamSupport.stream(keys.spliterator(), false)
         // Accept duplicate keys.
         .distinct()
-        .map(
-            key ->
-                new SimpleEntry<VKey<? extends T>, T>(
-                    key, getEntityManager().find(key.getKind(), key.getSqlKey())))
-        .filter(entry -> entry.getValue() != null)
-        .collect(toImmutableMap(Map.Entry::getKey, Map.Entry::getValue));
+        .collect(groupingBy(VKey::getKind, LinkedHashMap::new, toImmutableList()))
+        .forEach((kind, keysOfKind) -> results.putAll(loadByKeysOfKind(kind, keysOfKind)));
+    return results.build();
+  }
+
+  /**
+   * Loads entities of a single kind by their keys, using one query for all of them if possible.
+   *
+   * <p>Single keys and entities with composite ids are loaded individually through {@link
+   * EntityManager#find}, which also gets to use the persistence context.
+   */
+  private <T> ImmutableMap<VKey<? extends T>, T> loadByKeysOfKind(
+      Class<?> kind, ImmutableList<? extends VKey<? extends T>> keys) {
+    EntityType<?> entityType = getEntityType(kind);
+    if (keys.size() == 1 || !entityType.hasSingleIdAttribute()) {
+      return keys.stream()
+          .map(
+              key ->
+                  new SimpleEntry<VKey<? extends T>, T>(
+                      key, getEntityManager().find(key.getKind(), key.getSqlKey())))
+          .filter(entry -> entry.getValue() != null)
+          .collect(toImmutableMap(Map.Entry::getKey, Map.Entry::getValue));
+    }
+    String idName = entityType.getId(entityType.getIdType().getJavaType()).getName();
+    ImmutableListMultimap.Builder<Object, VKey<? extends T>> keysBySqlKeyBuilder =
+        new ImmutableListMultimap.Builder<>();
+    keys.forEach(key -> keysBySqlKeyBuilder.put(key.getSqlKey(), key));
+    ImmutableListMultimap<Object, VKey<? extends T>> keysBySqlKey = keysBySqlKeyBuilder.build();
+    String queryString =
+        String.format(
+            "SELECT entity FROM %s entity WHERE entity.%s IN :ids", entityType.getName(), idName);
+    ImmutableMap.Builder<VKey<? extends T>, T> results = new ImmutableMap.Builder<>();
+    // Bound the size of the IN list, so that a large load doesn't exceed the maximum number of bind
+    // parameters of a statement, nor compile a new query plan for every distinct list size.
+    for (List<Object> ids : Iterables.partition(keysBySqlKey.keySet(), MAX_KEYS_PER_QUERY)) {
+      List<?> entities =
+          getEntityManager().createQuery(queryString).setParameter("ids", ids).getResultList();
+      for (Object entity : entities) {
+        // Safe because the entity was loaded for a key of type T.
+        @SuppressWarnings("unchecked")
+        T typedEntity = (T) entity;
+        keysBySqlKey
+            .get(getFieldValue(entity, idName))
+            .forEach(key -> results.put(key, typedEntity));
+      }
+    }
+    return results.build();
   }
 
   @Override
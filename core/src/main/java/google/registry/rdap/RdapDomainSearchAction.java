@@ -14,14 +14,18 @@
 
 package google.registry.rdap;
 
+import static com.google.common.base.Preconditions.checkState;
 import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static google.registry.model.EppResourceUtils.loadByForeignKey;
 import static google.registry.model.index.ForeignKeyIndex.loadAndGetKey;
 import static google.registry.model.ofy.ObjectifyService.ofy;
+import static google.registry.persistence.transaction.TransactionManagerFactory.jpaTm;
+import static google.registry.persistence.transaction.TransactionManagerFactory.tm;
 import static google.registry.request.Action.Method.GET;
 import static google.registry.request.Action.Method.HEAD;
 import static google.registry.util.DateTimeUtils.START_OF_TIME;
 
+import com.google.common.base.Joiner;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSortedSet;
 import com.google.common.collect.Iterables;
@@ -47,12 +51,16 @@ import google.registry.request.Parameter;
 import google.registry.request.auth.Auth;
 import google.registry.util.NonFinalForTesting;
 import java.net.InetAddress;
+import java.util.ArrayList;
 import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Stream;
 import java.util.stream.StreamSupport;
 import javax.inject.Inject;
+import javax.persistence.TypedQuery;
 
 /**
  * RDAP (new WHOIS) action for domain search requests.
@@ -197,6 +205,10 @@ public class RdapDomainSearchAction extends RdapSearchActionBase {
     // initial string is at least a certain length, which we don't need in this case. Query the
     // domains directly, rather than the foreign keys, because then we have an index on TLD if we
     // need it.
+    if (!tm().isOfy()) {
+      Optional<String> tld = Optional.ofNullable(partialStringQuery.getSuffix());
+      return searchByDomainNameInCloudSql(Optional.of(partialStringQuery), tld);
+    }
     int querySizeLimit = RESULT_SET_SIZE_SCALING_FACTOR * rdapResultSetMaxSize;
     Query<DomainBase> query =
         ofy()
@@ -221,6 +233,9 @@ public class RdapDomainSearchAction extends RdapSearchActionBase {
     // back ordered by name, so we are still in the same boat as
     // searchByDomainNameWithInitialString, unable to perform an inequality query on deletion time.
     // Don't use queryItems, because it doesn't handle pending deletes.
+    if (!tm().isOfy()) {
+      return searchByDomainNameInCloudSql(Optional.empty(), Optional.of(tld));
+    }
     int querySizeLimit = RESULT_SET_SIZE_SCALING_FACTOR * rdapResultSetMaxSize;
     Query<DomainBase> query =
         ofy()
@@ -234,6 +249,67 @@ public class RdapDomainSearchAction extends RdapSearchActionBase {
     return makeSearchResults(getMatchingResources(query, true, querySizeLimit));
   }
 
+  /**
+   * Searches Cloud SQL for domains by name prefix and/or TLD, in name order, starting after the
+   * cursor if there is one.
+   *
+   * <p>Unlike Datastore, Cloud SQL can filter on the deletion time along with a range of names, so
+   * there is no need to over-fetch: the cursor is a name, so each page is a range read of the index
+   * on TLD, domain name and deletion time (or of the index on domain name, if there is no TLD) that
+   * stops after one more row than it returns. Only deleted domains, if they are requested, still
+   * have to be checked for visibility afterwards.
+   *
+   * <p>The results are rendered in the same transaction that loads them, since the nameservers of
+   * a domain are a lazily loaded collection, and the hosts are loaded from the database to render
+   * them.
+   */
+  private DomainSearchResponse searchByDomainNameInCloudSql(
+      Optional<RdapSearchPattern> partialStringQuery, Optional<String> tld) {
+    List<String> conditions = new ArrayList<>();
+    Map<String, Object> parameters = new HashMap<>();
+    if (partialStringQuery.isPresent()) {
+      conditions.add("fullyQualifiedDomainName >= :initialString");
+      conditions.add("fullyQualifiedDomainName < :nextInitialString");
+      parameters.put("initialString", partialStringQuery.get().getInitialString());
+      parameters.put("nextInitialString", partialStringQuery.get().getNextInitialString());
+    }
+    if (tld.isPresent()) {
+      conditions.add("tld = :tld");
+      parameters.put("tld", tld.get());
+    }
+    if (cursorString.isPresent()) {
+      conditions.add("fullyQualifiedDomainName > :cursor");
+      parameters.put("cursor", cursorString.get());
+    }
+    if (!shouldIncludeDeleted()) {
+      conditions.add("deletionTime > :now");
+      parameters.put("now", getRequestTime());
+    }
+    Optional<String> desiredRegistrar = getDesiredRegistrar();
+    if (desiredRegistrar.isPresent()) {
+      conditions.add("currentSponsorClientId = :registrar");
+      parameters.put("registrar", desiredRegistrar.get());
+    }
+    checkState(!conditions.isEmpty(), "Domain name searches require a name prefix or a TLD");
+    String queryString =
+        String.format(
+            "FROM Domain WHERE %s ORDER BY fullyQualifiedDomainName",
+            Joiner.on(" AND ").join(conditions));
+    int querySizeLimit = getStandardQuerySizeLimit();
+    return jpaTm()
+        .transact(
+            () -> {
+              TypedQuery<DomainBase> query =
+                  jpaTm().getEntityManager().createQuery(queryString, DomainBase.class);
+              parameters.forEach(query::setParameter);
+              List<DomainBase> domains = query.setMaxResults(querySizeLimit).getResultList();
+              return makeSearchResults(
+                  shouldIncludeDeleted()
+                      ? filterVisibleResources(domains, querySizeLimit)
+                      : RdapResultSet.create(domains));
+            });
+  }
+
   /**
    * Searches for domains by nameserver name, returning a JSON array of domain info maps.
    *
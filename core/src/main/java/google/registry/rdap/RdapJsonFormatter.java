@@ -35,7 +35,7 @@ import com.google.common.collect.Streams;
 import com.google.common.flogger.FluentLogger;
 import com.google.common.net.InetAddresses;
 import com.google.gson.JsonArray;
-import com.googlecode.objectify.Key;
+import com.googlecode.objectify.LoadResult;
 import google.registry.config.RegistryConfig.Config;
 import google.registry.model.EppResource;
 import google.registry.model.contact.ContactAddress;
@@ -77,6 +77,7 @@ import java.nio.file.Paths;
 import java.util.HashMap;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Stream;
@@ -103,6 +104,7 @@ public class RdapJsonFormatter {
 
   @Inject @Config("rdapTos") ImmutableList<String> rdapTos;
   @Inject @Config("rdapTosStaticUrl") @Nullable String rdapTosStaticUrl;
+  @Inject @Config("rdapUseHistoryEntryTypeIndex") boolean useHistoryEntryTypeIndex;
   @Inject @FullServletPath String fullServletPath;
   @Inject RdapAuthorization rdapAuthorization;
   @Inject Clock clock;
@@ -210,6 +212,31 @@ public class RdapJsonFormatter {
               .put(HistoryEntry.Type.HOST_DELETE, EventAction.DELETION)
               .build();
 
+  /**
+   * The types of history entries in {@link #HISTORY_ENTRY_TYPE_TO_RDAP_EVENT_ACTION_MAP} that apply
+   * to each kind of resource, so that only those are queried for.
+   */
+  private static final ImmutableSetMultimap<Class<? extends EppResource>, HistoryEntry.Type>
+      EVENT_HISTORY_ENTRY_TYPES =
+          new ImmutableSetMultimap.Builder<Class<? extends EppResource>, HistoryEntry.Type>()
+              .putAll(
+                  ContactResource.class,
+                  HistoryEntry.Type.CONTACT_CREATE,
+                  HistoryEntry.Type.CONTACT_DELETE,
+                  HistoryEntry.Type.CONTACT_TRANSFER_APPROVE)
+              .putAll(
+                  DomainBase.class,
+                  HistoryEntry.Type.DOMAIN_AUTORENEW,
+                  HistoryEntry.Type.DOMAIN_DELETE,
+                  HistoryEntry.Type.DOMAIN_RENEW,
+                  HistoryEntry.Type.DOMAIN_RESTORE,
+                  HistoryEntry.Type.DOMAIN_TRANSFER_APPROVE)
+              .putAll(
+                  HostResource.class,
+                  HistoryEntry.Type.HOST_CREATE,
+                  HistoryEntry.Type.HOST_DELETE)
+              .build();
+
   private static final ImmutableList<RdapStatus> STATUS_LIST_ACTIVE =
       ImmutableList.of(RdapStatus.ACTIVE);
   private static final ImmutableList<RdapStatus> STATUS_LIST_INACTIVE =
@@ -344,13 +371,8 @@ public class RdapJsonFormatter {
     ImmutableSet<HostResource> loadedHosts =
         ImmutableSet.copyOf(tm().loadByKeys(domainBase.getNameservers()).values());
     // Load the registrant and other contacts and add them to the data.
-    Map<Key<ContactResource>, ContactResource> loadedContacts =
-        ofy()
-            .load()
-            .keys(
-                domainBase.getReferencedContacts().stream()
-                    .map(VKey::getOfyKey)
-                    .collect(toImmutableSet()));
+    Map<VKey<? extends ContactResource>, ContactResource> loadedContacts =
+        tm().loadByKeys(domainBase.getReferencedContacts());
     // RDAP Response Profile 2.7.3, A domain MUST have the REGISTRANT, ADMIN, TECH roles and MAY
     // have others. We also add the BILLING.
     //
@@ -358,16 +380,16 @@ public class RdapJsonFormatter {
     // fields we don't want to show (as opposed to not having contacts at all) because of GDPR etc.
     //
     // the GDPR redaction is handled in createRdapContactEntity
-    ImmutableSetMultimap<Key<ContactResource>, Type> contactsToRoles =
+    ImmutableSetMultimap<VKey<ContactResource>, Type> contactsToRoles =
         Streams.concat(
                 domainBase.getContacts().stream(),
                 Stream.of(DesignatedContact.create(Type.REGISTRANT, domainBase.getRegistrant())))
             .sorted(DESIGNATED_CONTACT_ORDERING)
             .collect(
                 toImmutableSetMultimap(
-                    contact -> contact.getContactKey().getOfyKey(), DesignatedContact::getType));
+                    DesignatedContact::getContactKey, DesignatedContact::getType));
 
-    for (Key<ContactResource> contactKey : contactsToRoles.keySet()) {
+    for (VKey<ContactResource> contactKey : contactsToRoles.keySet()) {
       Set<RdapEntity.Role> roles =
           contactsToRoles.get(contactKey).stream()
               .map(RdapJsonFormatter::convertContactTypeToRdapRole)
@@ -880,15 +902,14 @@ public class RdapJsonFormatter {
     // 2.3.2.3 An event of *eventAction* type *transfer*, with the last date and time that the
     // domain was transferred. The event of *eventAction* type *transfer* MUST be omitted if the
     // domain name has not been transferred since it was created.
-    for (HistoryEntry historyEntry :
-        ofy().load().type(HistoryEntry.class).ancestor(resource).order("modificationTime")) {
-      EventAction rdapEventAction =
-          HISTORY_ENTRY_TYPE_TO_RDAP_EVENT_ACTION_MAP.get(historyEntry.getType());
-      // Only save the historyEntries if this is a type we care about.
-      if (rdapEventAction == null) {
-        continue;
-      }
-      lastEntryOfType.put(rdapEventAction, historyEntry);
+    for (HistoryEntry historyEntry : loadEventHistoryEntries(resource)) {
+      lastEntryOfType.merge(
+          HISTORY_ENTRY_TYPE_TO_RDAP_EVENT_ACTION_MAP.get(historyEntry.getType()),
+          historyEntry,
+          (entry1, entry2) ->
+              entry1.getModificationTime().isAfter(entry2.getModificationTime())
+                  ? entry1
+                  : entry2);
     }
     ImmutableList.Builder<Event> eventsBuilder = new ImmutableList.Builder<>();
     DateTime creationTime = resource.getCreationTime();
@@ -930,6 +951,41 @@ public class RdapJsonFormatter {
     return eventsBuilder.build();
   }
 
+  /**
+   * Loads the history entries of a resource that its optional RDAP events are made from.
+   *
+   * <p>Old domains can have thousands of history entries, so once {@code HistoryEntry.type} is
+   * indexed, only the last entry of each type that applies to the kind of resource is loaded, and
+   * all the queries are started before waiting on any of them. Until the history entries written
+   * before the index existed have been re-saved by {@code /_dr/task/resaveAllHistoryEntries}, they
+   * would be missing from those queries, so all the history entries of the resource are scanned
+   * instead.
+   */
+  private ImmutableList<HistoryEntry> loadEventHistoryEntries(EppResource resource) {
+    if (!useHistoryEntryTypeIndex) {
+      return Streams.stream(
+              ofy().load().type(HistoryEntry.class).ancestor(resource).order("modificationTime"))
+          .filter(entry -> HISTORY_ENTRY_TYPE_TO_RDAP_EVENT_ACTION_MAP.containsKey(entry.getType()))
+          .collect(toImmutableList());
+    }
+    ImmutableList<LoadResult<HistoryEntry>> lastEntryLoads =
+        EVENT_HISTORY_ENTRY_TYPES.get(resource.getClass()).stream()
+            .map(
+                type ->
+                    ofy()
+                        .load()
+                        .type(HistoryEntry.class)
+                        .ancestor(resource)
+                        .filter("type", type)
+                        .order("-modificationTime")
+                        .first())
+            .collect(toImmutableList());
+    return lastEntryLoads.stream()
+        .map(LoadResult::now)
+        .filter(Objects::nonNull)
+        .collect(toImmutableList());
+  }
+
   /**
    * Creates an RDAP event object as defined by RFC 7483.
    */
@@ -164,11 +164,25 @@ public abstract class RdapSearchActionBase extends RdapActionBase {
     if (!checkForVisibility) {
       return RdapResultSet.create(query.list());
     }
+    return filterVisibleResources(query, querySizeLimit);
+  }
+
+  /**
+   * Checks a list of query results for permissioning, e.g. because they may include deleted
+   * resources.
+   *
+   * @param queryResults the results of a query, which must already have been filtered on
+   *     currentSponsorClientId if appropriate
+   * @param querySizeLimit the maximum number of items the query is expected to return
+   * @return an {@link RdapResultSet} object, as described in {@link #getMatchingResources}
+   */
+  <T extends EppResource> RdapResultSet<T> filterVisibleResources(
+      Iterable<T> queryResults, int querySizeLimit) {
     // If we are including deleted resources, we need to check that we're authorized for each one.
     List<T> resources = new ArrayList<>();
     int numResourcesQueried = 0;
     boolean someExcluded = false;
-    for (T resource : query) {
+    for (T resource : queryResults) {
       if (shouldBeVisible(resource)) {
         resources.add(resource);
       } else {
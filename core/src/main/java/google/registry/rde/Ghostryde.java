@@ -18,6 +18,7 @@ import static com.google.common.base.Preconditions.checkArgument;
 import static com.google.common.base.Preconditions.checkNotNull;
 import static google.registry.rde.RydeCompression.openCompressor;
 import static google.registry.rde.RydeCompression.openDecompressor;
+import static google.registry.rde.RydeCompression.openParallelCompressor;
 import static google.registry.rde.RydeEncryption.GHOSTRYDE_USE_INTEGRITY_PACKET;
 import static google.registry.rde.RydeEncryption.openDecryptor;
 import static google.registry.rde.RydeEncryption.openEncryptor;
@@ -36,6 +37,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
 import javax.annotation.Nullable;
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPPrivateKey;
@@ -167,13 +169,35 @@ public final class Ghostryde {
    */
   public static ImprovedOutputStream encoder(
       OutputStream output, PGPPublicKey encryptionKey, @Nullable OutputStream lengthOutput) {
+    return encoder(output, encryptionKey, lengthOutput, null);
+  }
+
+  /**
+   * Creates a Ghostryde Encoder that compresses blocks of the data in parallel.
+   *
+   * @param output where to write the encrypted data
+   * @param encryptionKey the encryption key to use
+   * @param lengthOutput if not null - will save the total length of the data written to this
+   *     output. See {@link #readLength}.
+   * @param compressionExecutor if not null - the executor on which to compress blocks of the data
+   *     in parallel. See {@link RydeCompression#openParallelCompressor}.
+   */
+  public static ImprovedOutputStream encoder(
+      OutputStream output,
+      PGPPublicKey encryptionKey,
+      @Nullable OutputStream lengthOutput,
+      @Nullable ExecutorService compressionExecutor) {
 
     // We use a Closer to handle the stream .close, to make sure it's done correctly.
     Closer closer = Closer.create();
     OutputStream encryptionLayer =
         closer.register(
             openEncryptor(output, GHOSTRYDE_USE_INTEGRITY_PACKET, ImmutableList.of(encryptionKey)));
-    OutputStream kompressor = closer.register(openCompressor(encryptionLayer));
+    OutputStream kompressor =
+        closer.register(
+            compressionExecutor == null
+                ? openCompressor(encryptionLayer)
+                : openParallelCompressor(encryptionLayer, compressionExecutor));
     OutputStream fileLayer =
         closer.register(openPgpFileWriter(kompressor, INNER_FILENAME, INNER_MODIFICATION_TIME));
 
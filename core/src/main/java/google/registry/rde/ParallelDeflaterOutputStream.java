@@ -0,0 +1,180 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.rde;
+
+import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.base.Preconditions.checkState;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.zip.Deflater;
+import javax.annotation.Nullable;
+import javax.annotation.WillNotClose;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * {@link OutputStream} that writes a raw deflate stream, compressing blocks of the data in
+ * parallel.
+ *
+ * <p>This works like pigz. The data is cut into blocks, which are compressed independently on the
+ * executor, each primed with the last 32 KiB of the block before it as a preset dictionary so that
+ * matches can still reach back across the block boundary. Every block but the last ends with a sync
+ * flush, which leaves the output byte-aligned and not final, and the last one finishes the stream,
+ * so the compressed blocks written one after the other form a single valid deflate stream. Thanks
+ * to the dictionaries, this costs very little in compression ratio.
+ *
+ * <p>The compressed blocks are written in order to the underlying stream on the thread that writes
+ * to this stream. At most {@code maxBlocksInFlight} blocks are being compressed or waiting to be
+ * written at any time, which bounds both the memory used and how far the compression runs ahead of
+ * the next stage.
+ */
+@NotThreadSafe
+final class ParallelDeflaterOutputStream extends OutputStream {
+
+  static final int BLOCK_SIZE = 128 * 1024;
+  private static final int DICTIONARY_SIZE = 32 * 1024;
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private final OutputStream out;
+  private final ExecutorService executor;
+  private final int maxBlocksInFlight;
+  private final Queue<Future<byte[]>> blocksInFlight = new ArrayDeque<>();
+
+  private final byte[] block = new byte[BLOCK_SIZE];
+  private int blockLength = 0;
+  @Nullable private byte[] dictionary = null;
+  private boolean isClosed = false;
+
+  ParallelDeflaterOutputStream(
+      @WillNotClose OutputStream out, ExecutorService executor, int maxBlocksInFlight) {
+    checkArgument(maxBlocksInFlight > 0, "maxBlocksInFlight must be positive");
+    this.out = out;
+    this.executor = executor;
+    this.maxBlocksInFlight = maxBlocksInFlight;
+  }
+
+  @Override
+  public void write(int b) throws IOException {
+    write(new byte[] {(byte) b}, 0, 1);
+  }
+
+  @Override
+  public void write(byte[] b, int off, int len) throws IOException {
+    checkState(!isClosed, "Stream is closed");
+    while (len > 0) {
+      int count = Math.min(len, BLOCK_SIZE - blockLength);
+      System.arraycopy(b, off, block, blockLength, count);
+      blockLength += count;
+      off += count;
+      len -= count;
+      if (blockLength == BLOCK_SIZE) {
+        submitBlock(false);
+      }
+    }
+  }
+
+  /**
+   * Writes the blocks that have been compressed so far to the underlying stream, and flushes it.
+   *
+   * <p>Unlike {@link java.util.zip.DeflaterOutputStream} in sync flush mode, this doesn't cut the
+   * current block short, so data written since the last full block isn't flushed.
+   */
+  @Override
+  public void flush() throws IOException {
+    while (!blocksInFlight.isEmpty() && blocksInFlight.peek().isDone()) {
+      writeNextBlock();
+    }
+    out.flush();
+  }
+
+  /** Finishes the deflate stream, but doesn't close the underlying stream. */
+  @Override
+  public void close() throws IOException {
+    if (isClosed) {
+      return;
+    }
+    isClosed = true;
+    try {
+      submitBlock(true);
+      while (!blocksInFlight.isEmpty()) {
+        writeNextBlock();
+      }
+      out.flush();
+    } finally {
+      // Only non-empty if something failed, in which case there's no point compressing the rest.
+      blocksInFlight.forEach(future -> future.cancel(true));
+      blocksInFlight.clear();
+    }
+  }
+
+  private void submitBlock(boolean isLast) throws IOException {
+    while (blocksInFlight.size() >= maxBlocksInFlight) {
+      writeNextBlock();
+    }
+    byte[] data = Arrays.copyOf(block, blockLength);
+    byte[] blockDictionary = dictionary;
+    blocksInFlight.add(executor.submit(() -> compress(data, blockDictionary, isLast)));
+    // Blocks are full except for the last one, so their tail is always a full dictionary.
+    dictionary = Arrays.copyOfRange(data, Math.max(0, blockLength - DICTIONARY_SIZE), blockLength);
+    blockLength = 0;
+  }
+
+  private void writeNextBlock() throws IOException {
+    try {
+      out.write(blocksInFlight.remove().get());
+    } catch (ExecutionException e) {
+      throw new IOException("Failed to compress block", e.getCause());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new IOException("Interrupted while compressing block", e);
+    }
+  }
+
+  /** Compresses the block to a byte-aligned piece of a raw deflate stream. */
+  private static byte[] compress(byte[] data, @Nullable byte[] dictionary, boolean isLast) {
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    try {
+      if (dictionary != null) {
+        deflater.setDictionary(dictionary);
+      }
+      deflater.setInput(data);
+      ByteArrayOutputStream output = new ByteArrayOutputStream(data.length / 2 + 64);
+      byte[] buffer = new byte[BUFFER_SIZE];
+      if (isLast) {
+        deflater.finish();
+        while (!deflater.finished()) {
+          output.write(buffer, 0, deflater.deflate(buffer));
+        }
+      } else {
+        // A sync flush is complete once it doesn't fill up the buffer.
+        int count;
+        do {
+          count = deflater.deflate(buffer, 0, buffer.length, Deflater.SYNC_FLUSH);
+          output.write(buffer, 0, count);
+        } while (count == buffer.length);
+      }
+      return output.toByteArray();
+    } finally {
+      deflater.end();
+    }
+  }
+}
@@ -157,7 +157,8 @@ public final class RdeMarshaller implements Serializable {
     return marshalOrDie(new XjcRdeIdnElement(bean));
   }
 
-  private DepositFragment marshalResource(
+  /** Turns the XJC element converted from a resource into an XML fragment. */
+  DepositFragment marshalResource(
       RdeResourceType type, ImmutableObject resource, JAXBElement<?> element) {
     String xml = "";
     String error = "";
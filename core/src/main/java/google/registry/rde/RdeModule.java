@@ -14,6 +14,7 @@
 
 package google.registry.rde;
 
+import static com.google.appengine.api.ThreadManager.currentRequestThreadFactory;
 import static com.google.appengine.api.taskqueue.QueueFactory.getQueue;
 import static google.registry.request.RequestParameters.extractBooleanParameter;
 import static google.registry.request.RequestParameters.extractOptionalIntParameter;
@@ -21,6 +22,7 @@ import static google.registry.request.RequestParameters.extractOptionalParameter
 import static google.registry.request.RequestParameters.extractRequiredDatetimeParameter;
 import static google.registry.request.RequestParameters.extractSetOfDatetimeParameters;
 import static google.registry.request.RequestParameters.extractSetOfParameters;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 
 import com.google.appengine.api.taskqueue.Queue;
 import com.google.common.collect.ImmutableSet;
@@ -30,6 +32,7 @@ import dagger.Module;
 import dagger.Provides;
 import google.registry.request.Parameter;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import javax.inject.Named;
 import javax.servlet.http.HttpServletRequest;
 import org.joda.time.DateTime;
@@ -104,6 +107,18 @@ public abstract class RdeModule {
     return getQueue("rde-report");
   }
 
+  /**
+   * Executor on which RyDE deposits are compressed in parallel, with a thread per core.
+   *
+   * <p>Every call returns a new pool of request threads, which the caller must shut down.
+   */
+  @Provides
+  @Named("rdeCompression")
+  static ExecutorService provideCompressionExecutor() {
+    return newFixedThreadPool(
+        Runtime.getRuntime().availableProcessors(), currentRequestThreadFactory());
+  }
+
   @Binds
   abstract SftpProgressMonitor provideSftpProgressMonitor(
       LoggingSftpProgressMonitor loggingSftpProgressMonitor);
@@ -0,0 +1,299 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.rde;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static google.registry.model.EppResourceUtils.loadAtPointInTime;
+import static google.registry.persistence.transaction.TransactionManagerFactory.jpaTm;
+import static google.registry.persistence.transaction.TransactionManagerFactory.tm;
+import static google.registry.rde.RdeStagingMapper.IGNORED_REGISTRAR_TYPES;
+import static google.registry.rde.RdeStagingMapper.isProberData;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.flogger.FluentLogger;
+import google.registry.model.EppResource;
+import google.registry.model.ImmutableObject;
+import google.registry.model.contact.ContactResource;
+import google.registry.model.domain.DomainBase;
+import google.registry.model.host.HostResource;
+import google.registry.model.rde.RdeMode;
+import google.registry.model.registrar.Registrar;
+import google.registry.xml.ValidationMode;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import javax.xml.bind.JAXBElement;
+import org.joda.time.DateTime;
+
+/**
+ * Produces the XML fragments of a deposit from Cloud SQL, for {@link RdeStagingAction}.
+ *
+ * <p>This is the Cloud SQL counterpart of {@link RdeStagingMapper}. Rather than mapping over
+ * every resource and shuffling the fragments to a reducer per deposit, the resources of a deposit
+ * are read in pages ordered by repo ID, all within one read-only, deferrable transaction. Such a
+ * transaction waits for a snapshot of the database that is safe to read at the serializable
+ * isolation level, and then neither takes predicate locks nor risks a serialization failure,
+ * however long it runs. The resources are rewound to the watermark from their history entries and
+ * converted to XJC elements on the calling thread, since both need further reads from the database.
+ * Marshalling the elements to XML, which includes the schema validation and dominates the cost, is
+ * done on the executor, several pages at a time.
+ *
+ * <p>Fragments are passed on in the order in which they were read, grouped by resource type:
+ * contacts, hosts, domains and then registrars. Contacts and hosts are not part of BRDA {@link
+ * RdeMode#THIN thin} deposits. Since there is no shuffle, contacts and hosts are read once for each
+ * deposit that includes them rather than once in total.
+ */
+final class RdeSqlFragmenter {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** The number of resources read from the database in one query. */
+  private static final int PAGE_SIZE = 500;
+
+  /** The number of resources marshalled in one task on the executor. */
+  private static final int CHUNK_SIZE = 50;
+
+  /** Makes the current transaction a read-only, deferrable one; must be its first statement. */
+  private static final String SNAPSHOT_TRANSACTION =
+      "SET TRANSACTION ISOLATION LEVEL SERIALIZABLE, READ ONLY, DEFERRABLE";
+
+  private final ExecutorService executor;
+  private final int maxChunksInFlight;
+  private final ThreadLocal<RdeMarshaller> marshallers;
+
+  /**
+   * Creates a fragmenter that marshals on the given executor.
+   *
+   * @param numThreads the number of threads of the executor, which bounds the number of fragments
+   *     that are held in memory
+   */
+  RdeSqlFragmenter(ExecutorService executor, int numThreads, ValidationMode validationMode) {
+    this.executor = executor;
+    this.maxChunksInFlight = 2 * numThreads;
+    this.marshallers = ThreadLocal.withInitial(() -> new RdeMarshaller(validationMode));
+  }
+
+  /**
+   * Passes the fragments of the deposit to the consumer, which is called on the calling thread.
+   *
+   * <p>This starts a new transaction, and so must not be called in one. The transaction isn't
+   * retried, since the fragments that were already passed on can't be taken back.
+   */
+  void forEachFragment(PendingDeposit pending, Consumer<DepositFragment> consumer) {
+    checkState(!jpaTm().inTransaction(), "RDE fragments must be read in a new transaction");
+    jpaTm()
+        .transactNoRetry(
+            () -> {
+              jpaTm().getEntityManager().createNativeQuery(SNAPSHOT_TRANSACTION).executeUpdate();
+              forEachFragmentInTransaction(pending, consumer);
+            });
+  }
+
+  private void forEachFragmentInTransaction(
+      PendingDeposit pending, Consumer<DepositFragment> consumer) {
+    DateTime watermark = pending.watermark();
+    try (FragmentPipeline pipeline = new FragmentPipeline(consumer)) {
+      if (pending.mode() == RdeMode.FULL) {
+        forEachResourcePage(
+            ContactResource.class,
+            "FROM Contact WHERE deletionTime > :watermark",
+            pending,
+            contact ->
+                new Converted(
+                    RdeResourceType.CONTACT,
+                    contact,
+                    ContactResourceToXjcConverter.convert(contact)),
+            pipeline);
+        forEachResourcePage(
+            HostResource.class,
+            "FROM Host WHERE deletionTime > :watermark",
+            pending,
+            host ->
+                new Converted(
+                    RdeResourceType.HOST,
+                    host,
+                    host.isSubordinate()
+                        ? HostResourceToXjcConverter.convertSubordinate(
+                            host,
+                            // Note that loadAtPointInTime() does cloneProjectedAtTime(watermark)
+                            // for us.
+                            loadAtPointInTime(
+                                    tm().loadByKey(host.getSuperordinateDomain()), watermark)
+                                .now())
+                        : HostResourceToXjcConverter.convertExternal(host)),
+            pipeline);
+      }
+      forEachResourcePage(
+          DomainBase.class,
+          "FROM Domain WHERE deletionTime > :watermark AND tld = :tld",
+          pending,
+          domain ->
+              new Converted(
+                  RdeResourceType.DOMAIN,
+                  domain,
+                  DomainBaseToXjcConverter.convert(domain, pending.mode())),
+          pipeline);
+      List<Converted> registrars = new ArrayList<>();
+      for (Registrar registrar : Registrar.loadAllCached()) {
+        if (!IGNORED_REGISTRAR_TYPES.contains(registrar.getType())) {
+          registrars.add(
+              new Converted(
+                  RdeResourceType.REGISTRAR,
+                  registrar,
+                  RegistrarToXjcConverter.convert(registrar)));
+        }
+      }
+      pipeline.submit(registrars);
+      pipeline.finish();
+    }
+  }
+
+  /**
+   * Reads the resources matched by the query in pages, rewinds them to the watermark and submits
+   * those that go into the deposit to the pipeline.
+   */
+  private <T extends EppResource> void forEachResourcePage(
+      Class<T> clazz,
+      String query,
+      PendingDeposit pending,
+      Function<T, Converted> converter,
+      FragmentPipeline pipeline) {
+    EntityManager entityManager = jpaTm().getEntityManager();
+    boolean hasTld = query.contains(":tld");
+    String lastRepoId = "";
+    int numResources = 0;
+    int numSkipped = 0;
+    while (true) {
+      TypedQuery<T> pageQuery =
+          entityManager
+              .createQuery(query + " AND repoId > :lastRepoId ORDER BY repoId", clazz)
+              .setParameter("watermark", pending.watermark())
+              .setParameter("lastRepoId", lastRepoId)
+              .setMaxResults(PAGE_SIZE);
+      if (hasTld) {
+        pageQuery.setParameter("tld", pending.tld());
+      }
+      List<T> page = pageQuery.getResultList();
+      if (page.isEmpty()) {
+        break;
+      }
+      List<Converted> converted = new ArrayList<>(page.size());
+      for (T resource : page) {
+        // Prober data is skipped, and so are resources that didn't exist at the watermark, for
+        // which loadAtPointInTime() returns null. Resources that changed after the watermark are
+        // rebuilt from their most recent history entry at or before it.
+        T resourceAtWatermark =
+            isProberData(resource) ? null : loadAtPointInTime(resource, pending.watermark()).now();
+        if (resourceAtWatermark == null) {
+          numSkipped++;
+        } else {
+          converted.add(converter.apply(resourceAtWatermark));
+        }
+      }
+      numResources += page.size();
+      lastRepoId = page.get(page.size() - 1).getRepoId();
+      pipeline.submit(converted);
+      // Everything that was read has been converted, so there is no need to keep it around.
+      entityManager.clear();
+    }
+    logger.atInfo().log(
+        "Read %d %s entities for %s, %d of them skipped",
+        numResources, clazz.getSimpleName(), pending, numSkipped);
+  }
+
+  /**
+   * Marshals converted resources on the executor and passes the fragments on in order.
+   *
+   * <p>At most {@link #maxChunksInFlight} chunks are waiting to be marshalled or passed on at any
+   * time, so that reading from the database stays only a little ahead of writing the deposit.
+   */
+  private class FragmentPipeline implements AutoCloseable {
+
+    private final Consumer<DepositFragment> consumer;
+    private final Queue<Future<ImmutableList<DepositFragment>>> chunks = new ArrayDeque<>();
+
+    FragmentPipeline(Consumer<DepositFragment> consumer) {
+      this.consumer = consumer;
+    }
+
+    void submit(List<Converted> resources) {
+      for (int start = 0; start < resources.size(); start += CHUNK_SIZE) {
+        List<Converted> chunk =
+            resources.subList(start, Math.min(start + CHUNK_SIZE, resources.size()));
+        while (chunks.size() >= maxChunksInFlight) {
+          passOn(chunks.remove());
+        }
+        chunks.add(
+            executor.submit(
+                () -> {
+                  RdeMarshaller marshaller = marshallers.get();
+                  return chunk.stream()
+                      .map(
+                          converted ->
+                              marshaller.marshalResource(
+                                  converted.type, converted.resource, converted.element))
+                      .collect(toImmutableList());
+                }));
+      }
+    }
+
+    private void passOn(Future<ImmutableList<DepositFragment>> chunk) {
+      try {
+        chunk.get().forEach(consumer);
+      } catch (ExecutionException e) {
+        throw new RuntimeException("Failed to marshal RDE fragments", e.getCause());
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        throw new RuntimeException("Interrupted while marshalling RDE fragments", e);
+      }
+    }
+
+    /** Waits for the remaining fragments and passes them on. */
+    void finish() {
+      while (!chunks.isEmpty()) {
+        passOn(chunks.remove());
+      }
+    }
+
+    /** Cancels the marshalling of the fragments that weren't passed on, if something failed. */
+    @Override
+    public void close() {
+      chunks.forEach(chunk -> chunk.cancel(true));
+    }
+  }
+
+  /** A resource converted to its XJC element, ready to be marshalled. */
+  private static class Converted {
+
+    final RdeResourceType type;
+    final ImmutableObject resource;
+    final JAXBElement<?> element;
+
+    Converted(RdeResourceType type, ImmutableObject resource, JAXBElement<?> element) {
+      this.type = type;
+      this.resource = resource;
+      this.element = element;
+    }
+  }
+}
@@ -14,13 +14,17 @@
 
 package google.registry.rde;
 
+import static com.google.appengine.api.ThreadManager.currentRequestThreadFactory;
+import static google.registry.persistence.transaction.TransactionManagerFactory.tm;
 import static google.registry.request.Action.Method.GET;
 import static google.registry.request.Action.Method.POST;
 import static google.registry.xml.ValidationMode.LENIENT;
 import static google.registry.xml.ValidationMode.STRICT;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 import static javax.servlet.http.HttpServletResponse.SC_NO_CONTENT;
 
 import com.google.common.base.Ascii;
+import com.google.common.collect.ImmutableCollection;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.ImmutableSetMultimap;
@@ -47,6 +51,7 @@ import google.registry.request.auth.Auth;
 import google.registry.util.Clock;
 import google.registry.xml.ValidationMode;
 import java.util.Optional;
+import java.util.concurrent.ExecutorService;
 import javax.inject.Inject;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
@@ -82,6 +87,15 @@ import org.joda.time.Duration;
  * <p>To generate escrow deposits manually and locally, use the {@code nomulus} tool command {@code
  * GenerateEscrowDepositCommand}.
  *
+ * <h3>Cloud SQL Operation</h3>
+ *
+ * <p>When Cloud SQL is the primary database, no MapReduce is run. Instead, the deposits are staged
+ * one after the other in this request, each of them from a single read-only transaction, which sees
+ * a consistent snapshot of the database. The resources are read in pages by {@link
+ * RdeSqlFragmenter}, which marshals them to XML on all cores of the instance, and the fragments are
+ * streamed straight into the encrypted deposit by {@link RdeStagingReducer#stage}, with the same
+ * locking, cursor and task handling as in the MapReduce.
+ *
  * <h3>Logging</h3>
  *
  * <p>To identify the reduce worker request for a deposit in App Engine's log viewer, you can use
@@ -233,6 +247,10 @@ public final class RdeStagingAction implements Runnable {
       logger.atInfo().log("Pending deposit: %s", pending);
     }
     ValidationMode validationMode = lenient ? LENIENT : STRICT;
+    if (!tm().isOfy()) {
+      stageDepositsFromCloudSql(pendings.values(), validationMode);
+      return;
+    }
     RdeStagingMapper mapper = new RdeStagingMapper(validationMode, pendings);
     RdeStagingReducer reducer = reducerFactory.create(validationMode);
 
@@ -249,6 +267,24 @@ public final class RdeStagingAction implements Runnable {
         .sendLinkToMapreduceConsole(response);
   }
 
+  private void stageDepositsFromCloudSql(
+      ImmutableCollection<PendingDeposit> pendings, ValidationMode validationMode) {
+    RdeStagingReducer stager = reducerFactory.create(validationMode);
+    int numThreads = Runtime.getRuntime().availableProcessors();
+    ExecutorService executor = newFixedThreadPool(numThreads, currentRequestThreadFactory());
+    try {
+      RdeSqlFragmenter fragmenter = new RdeSqlFragmenter(executor, numThreads, validationMode);
+      for (PendingDeposit pending : pendings) {
+        // The fragments are written to the deposit as they are read, in a transaction of their
+        // own that isn't retried.
+        stager.stage(pending, consumer -> fragmenter.forEachFragment(pending, consumer));
+      }
+    } finally {
+      executor.shutdownNow();
+    }
+    response.setPayload(String.format("Staged %d deposits", pendings.size()));
+  }
+
   private ImmutableSetMultimap<String, PendingDeposit> getStandardPendingDeposits() {
     if (directory.isPresent()) {
       throw new BadRequestException("Directory parameter not allowed in standard operation");
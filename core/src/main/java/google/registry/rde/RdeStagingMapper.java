@@ -47,7 +47,7 @@ public final class RdeStagingMapper extends Mapper<EppResource, PendingDeposit,
 
   // Registrars to be excluded from data escrow. Not including the sandbox-only OTE type so that
   // if sneaks into production we would get an extra signal.
-  private static final ImmutableSet<Registrar.Type> IGNORED_REGISTRAR_TYPES =
+  static final ImmutableSet<Registrar.Type> IGNORED_REGISTRAR_TYPES =
       Sets.immutableEnumSet(Registrar.Type.MONITORING, Registrar.Type.TEST);
 
   private final RdeMarshaller marshaller;
@@ -92,9 +92,7 @@ public final class RdeStagingMapper extends Mapper<EppResource, PendingDeposit,
     }
 
     // Skip prober data.
-    if (nullToEmpty(resource.getCreationClientId()).startsWith("prober-")
-        || nullToEmpty(resource.getPersistedCurrentSponsorClientId()).startsWith("prober-")
-        || nullToEmpty(resource.getLastEppUpdateClientId()).startsWith("prober-")) {
+    if (isProberData(resource)) {
       getContext().incrementCounter("prober data skipped");
       return;
     }
@@ -157,6 +155,13 @@ public final class RdeStagingMapper extends Mapper<EppResource, PendingDeposit,
     ofy().clearSessionCache();
   }
 
+  /** Returns whether the resource was created or changed by the prober, and so isn't escrowed. */
+  static boolean isProberData(EppResource resource) {
+    return nullToEmpty(resource.getCreationClientId()).startsWith("prober-")
+        || nullToEmpty(resource.getPersistedCurrentSponsorClientId()).startsWith("prober-")
+        || nullToEmpty(resource.getLastEppUpdateClientId()).startsWith("prober-");
+  }
+
   /** Loading cache that turns a resource into XML for the various points in time and modes. */
   private class Fragmenter {
     private final Map<WatermarkModePair, Optional<DepositFragment>> cache = new HashMap<>();
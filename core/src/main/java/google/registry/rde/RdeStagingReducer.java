@@ -51,11 +51,12 @@ import google.registry.xml.XmlException;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.io.Writer;
 import java.security.Security;
-import java.util.Iterator;
 import java.util.Optional;
 import java.util.concurrent.Callable;
+import java.util.function.Consumer;
 import javax.inject.Inject;
 import org.bouncycastle.jce.provider.BouncyCastleProvider;
 import org.bouncycastle.openpgp.PGPPublicKey;
@@ -96,6 +97,17 @@ public final class RdeStagingReducer extends Reducer<PendingDeposit, DepositFrag
 
   @Override
   public void reduce(final PendingDeposit key, final ReducerInput<DepositFragment> fragments) {
+    stage(key, fragments::forEachRemaining);
+  }
+
+  /**
+   * Writes the deposit from the fragments produced by the source, then rolls its cursor forward and
+   * enqueues the upload, all while holding the lock for the deposit.
+   *
+   * <p>This is how {@link RdeStagingAction} stages deposits when Cloud SQL is the primary database,
+   * with fragments streamed from {@link RdeSqlFragmenter} instead of the mapreduce shuffle.
+   */
+  void stage(final PendingDeposit key, final FragmentSource fragments) {
     Callable<Void> lockRunner =
         () -> {
           reduceWithLock(key, fragments);
@@ -107,7 +119,7 @@ public final class RdeStagingReducer extends Reducer<PendingDeposit, DepositFrag
     }
   }
 
-  private void reduceWithLock(final PendingDeposit key, Iterator<DepositFragment> fragments) {
+  private void reduceWithLock(final PendingDeposit key, FragmentSource fragments) {
     logger.atInfo().log("RdeStagingReducer %s", key);
 
     // Normally this is done by BackendServlet but it's not present in MapReduceServlet.
@@ -156,18 +168,10 @@ public final class RdeStagingReducer extends Reducer<PendingDeposit, DepositFrag
       // Output the top portion of the XML document.
       output.write(marshaller.makeHeader(id, watermark, RdeResourceType.getUris(mode), revision));
 
-      // Output XML fragments emitted to us by RdeStagingMapper while counting them.
-      while (fragments.hasNext()) {
-        DepositFragment fragment = fragments.next();
-        if (!fragment.xml().isEmpty()) {
-          output.write(fragment.xml());
-          counter.increment(fragment.type());
-        }
-        if (!fragment.error().isEmpty()) {
-          failed = true;
-          logger.atSevere().log("Fragment error: %s", fragment.error());
-        }
-      }
+      // Output the XML fragments of the resources while counting them.
+      FragmentWriter fragmentWriter = new FragmentWriter(output, counter);
+      fragments.forEachFragment(fragmentWriter);
+      failed = fragmentWriter.failed;
 
       // Don't write the IDN elements for BRDA.
       if (mode == RdeMode.FULL) {
@@ -245,6 +249,41 @@ public final class RdeStagingReducer extends Reducer<PendingDeposit, DepositFrag
             });
   }
 
+  /** A producer of the XML fragments that go into a deposit, in the order they are written. */
+  @FunctionalInterface
+  interface FragmentSource {
+    void forEachFragment(Consumer<DepositFragment> consumer);
+  }
+
+  /** Writes fragments to the deposit while counting them and logging their errors. */
+  private static class FragmentWriter implements Consumer<DepositFragment> {
+
+    private final Writer output;
+    private final RdeCounter counter;
+    boolean failed = false;
+
+    FragmentWriter(Writer output, RdeCounter counter) {
+      this.output = output;
+      this.counter = counter;
+    }
+
+    @Override
+    public void accept(DepositFragment fragment) {
+      if (!fragment.xml().isEmpty()) {
+        try {
+          output.write(fragment.xml());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+        counter.increment(fragment.type());
+      }
+      if (!fragment.error().isEmpty()) {
+        failed = true;
+        logger.atSevere().log("Fragment error: %s", fragment.error());
+      }
+    }
+  }
+
   /** Injectible factory for creating {@link RdeStagingReducer}. */
   static class Factory {
     @Inject TaskQueueUtils taskQueueUtils;
@@ -17,6 +17,7 @@ package google.registry.rde;
 import static com.google.appengine.api.taskqueue.TaskOptions.Builder.withUrl;
 import static com.google.common.base.Verify.verify;
 import static com.google.common.net.MediaType.PLAIN_TEXT_UTF_8;
+import static com.jcraft.jsch.ChannelSftp.APPEND;
 import static com.jcraft.jsch.ChannelSftp.OVERWRITE;
 import static google.registry.model.common.Cursor.CursorType.RDE_UPLOAD_SFTP;
 import static google.registry.model.common.Cursor.getCursorTimeOrStartOfTime;
@@ -26,15 +27,16 @@ import static google.registry.persistence.transaction.TransactionManagerFactory.
 import static google.registry.request.Action.Method.POST;
 import static google.registry.schema.cursor.CursorDao.loadAndCompare;
 import static google.registry.util.DateTimeUtils.isBeforeOrAt;
-import static java.util.Arrays.asList;
 
 import com.google.appengine.api.taskqueue.Queue;
 import com.google.appengine.tools.cloudstorage.GcsFilename;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.flogger.FluentLogger;
 import com.google.common.io.ByteStreams;
+import com.jcraft.jsch.ChannelSftp;
 import com.jcraft.jsch.JSch;
 import com.jcraft.jsch.JSchException;
+import com.jcraft.jsch.SftpException;
 import com.jcraft.jsch.SftpProgressMonitor;
 import dagger.Lazy;
 import google.registry.config.RegistryConfig.Config;
@@ -57,15 +59,17 @@ import google.registry.schema.cursor.CursorDao;
 import google.registry.util.Clock;
 import google.registry.util.Retrier;
 import google.registry.util.TaskQueueUtils;
-import google.registry.util.TeeOutputStream;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.net.URI;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
 import javax.inject.Inject;
 import javax.inject.Named;
+import javax.inject.Provider;
 import org.bouncycastle.openpgp.PGPKeyPair;
 import org.bouncycastle.openpgp.PGPPrivateKey;
 import org.bouncycastle.openpgp.PGPPublicKey;
@@ -93,6 +97,17 @@ public final class RdeUploadAction implements Runnable, EscrowTask {
 
   private static final FluentLogger logger = FluentLogger.forEnclosingClass();
 
+  /** The number of SFTP write requests that are sent ahead of their acknowledgements. */
+  private static final int SFTP_BULK_REQUESTS = 64;
+
+  /**
+   * An upper bound on the number of bytes in one SFTP write request.
+   *
+   * <p>JSch sizes its writes to fit in one packet of the SSH channel, which is 32 KiB for OpenSSH.
+   * We allow for servers that use bigger packets.
+   */
+  private static final int SFTP_MAX_WRITE_LENGTH = 256 * 1024;
+
   @Inject Clock clock;
   @Inject GcsUtils gcsUtils;
   @Inject EscrowTaskRunner runner;
@@ -116,10 +131,17 @@ public final class RdeUploadAction implements Runnable, EscrowTask {
   @Inject @Config("rdeUploadLockTimeout") Duration timeout;
   @Inject @Config("rdeUploadSftpCooldown") Duration sftpCooldown;
   @Inject @Config("rdeUploadUrl") URI uploadUrl;
+
+  /**
+   * How much of a partly uploaded RyDE file is sent again when resuming, to cover the writes that
+   * may still have been outstanding when the earlier attempt failed.
+   */
+  @VisibleForTesting long sftpResendLength = (long) SFTP_BULK_REQUESTS * SFTP_MAX_WRITE_LENGTH;
   @Inject @Key("rdeReceiverKey") PGPPublicKey receiverKey;
   @Inject @Key("rdeSigningKey") PGPKeyPair signingKey;
   @Inject @Key("rdeStagingDecryptionKey") PGPPrivateKey stagingDecryptionKey;
   @Inject @Named("rde-report") Queue reportQueue;
+  @Inject @Named("rdeCompression") Provider<ExecutorService> compressionExecutorProvider;
   @Inject RdeUploadAction() {}
 
   @Override
@@ -171,8 +193,28 @@ public final class RdeUploadAction implements Runnable, EscrowTask {
     verifyFileExists(reportFilename);
     logger.atInfo().log("Commencing RDE upload for TLD '%s' to '%s'.", tld, uploadUrl);
     final long xmlLength = readXmlLength(xmlLengthFilename);
+    GcsFilename rydeFilename = new GcsFilename(bucket, name + ".ryde");
+    GcsFilename sigFilename = new GcsFilename(bucket, name + ".sig");
+    // The signature is saved after the RyDE file is complete, so if it's there, an earlier attempt
+    // already encoded the deposit and may have uploaded part of it. Encoding it again would produce
+    // a different RyDE file, since the session key is random, so the upload carries on from there.
+    AtomicBoolean resume = new AtomicBoolean(gcsUtils.existsAndNotEmpty(sigFilename));
+    if (resume.get()) {
+      logger.atInfo().log("Reusing RyDE file '%s' from an earlier attempt.", rydeFilename);
+    } else {
+      encode(xmlFilename, xmlLength, watermark, name, rydeFilename, sigFilename);
+    }
     retrier.callWithRetry(
-        () -> upload(xmlFilename, xmlLength, watermark, name), JSchException.class);
+        () -> {
+          try {
+            upload(rydeFilename, sigFilename, resume.get());
+          } finally {
+            // Whatever this attempt got onto the SFTP server is picked up by the next one.
+            resume.set(true);
+          }
+        },
+        JSchException.class,
+        SftpException.class);
     logger.atInfo().log(
         "Updating RDE cursor '%s' for TLD '%s' following successful upload.", RDE_UPLOAD_SFTP, tld);
     tm().transact(
@@ -186,14 +228,13 @@ public final class RdeUploadAction implements Runnable, EscrowTask {
   }
 
   /**
-   * Performs a blocking upload of a cloud storage XML file to escrow provider, converting
-   * it to the RyDE format along the way by applying tar+compress+encrypt+sign, and saving the
-   * created RyDE file on GCS for future reference.
+   * Converts a cloud storage XML file to the RyDE format by applying tar+compress+encrypt+sign, and
+   * saves the RyDE file and its detached signature on GCS, from where they're uploaded.
    *
    * <p>This is done by layering a bunch of {@link java.io.FilterOutputStream FilterOutputStreams}
-   * on top of each other in reverse order that turn XML bytes into a RyDE file while
-   * simultaneously uploading it to the SFTP endpoint, and then using {@link ByteStreams#copy} to
-   * blocking-copy bytes from the cloud storage {@code InputStream} to the RyDE/SFTP pipeline.
+   * on top of each other in reverse order that turn XML bytes into a RyDE file, and then using
+   * {@link ByteStreams#copy} to blocking-copy bytes from the cloud storage {@code InputStream} to
+   * the RyDE pipeline.
    *
    * <p>In pseudo-shell, the whole process looks like the following:
    *
@@ -201,42 +242,126 @@ public final class RdeUploadAction implements Runnable, EscrowTask {
    *   gcs read $xmlFile \                                   # Get GhostRyDE from cloud storage.
    *     | decrypt | decompress \                            # Convert it to XML.
    *     | tar | file | compress | encrypt | sign /tmp/sig \ # Convert it to a RyDE file.
-   *     | tee gs://bucket/$rydeFilename.ryde \              # Save a copy of the RyDE file to GCS.
-   *     | sftp put $dstUrl/$rydeFilename.ryde \             # Upload to SFTP server.
-   *    && sftp put $dstUrl/$rydeFilename.sig </tmp/sig \    # Upload detached signature.
-   *    && cat /tmp/sig > gs://bucket/$rydeFilename.sig      # Save a copy of signature to GCS.
+   *     > gs://bucket/$rydeFilename.ryde \                  # Save the RyDE file to GCS.
+   *    && cat /tmp/sig > gs://bucket/$rydeFilename.sig      # Save the signature to GCS.
+   *   }</pre>
+   */
+  private void encode(
+      GcsFilename xmlFile,
+      long xmlLength,
+      DateTime watermark,
+      String name,
+      GcsFilename rydeFile,
+      GcsFilename sigFile)
+      throws IOException {
+    logger.atInfo().log("Encoding XML file '%s' to RyDE file '%s'.", xmlFile, rydeFile);
+    ByteArrayOutputStream sigOut = new ByteArrayOutputStream();
+    ExecutorService compressionExecutor = compressionExecutorProvider.get();
+    try (InputStream gcsInput = gcsUtils.openInputStream(xmlFile);
+        InputStream ghostrydeDecoder = Ghostryde.decoder(gcsInput, stagingDecryptionKey);
+        OutputStream gcsOutput = gcsUtils.openOutputStream(rydeFile);
+        RydeEncoder rydeEncoder =
+            new RydeEncoder.Builder()
+                .setRydeOutput(gcsOutput, receiverKey)
+                .setSignatureOutput(sigOut, signingKey)
+                .setFileMetadata(name, xmlLength, watermark)
+                .setCompressionExecutor(compressionExecutor)
+                .build()) {
+      long bytesCopied = ByteStreams.copy(ghostrydeDecoder, rydeEncoder);
+      logger.atInfo().log("encoded %,d bytes: %s", bytesCopied, rydeFile);
+    } finally {
+      compressionExecutor.shutdownNow();
+    }
+    gcsUtils.createFromBytes(sigFile, sigOut.toByteArray());
+  }
+
+  /**
+   * Performs a blocking upload of a RyDE file and its signature from cloud storage to the escrow
+   * provider.
+   *
+   * <p>The SFTP channel keeps up to {@link #SFTP_BULK_REQUESTS} write requests outstanding, so that
+   * the upload isn't held up by the round trip to the escrow provider for every 32 KiB packet.
+   *
+   * <p>If {@code resume} is set, the RyDE file may already be partly on the SFTP server from an
+   * earlier attempt, in which case only the rest of it is sent. The SFTP server has no way of
+   * telling us how much of what it has is intact, and since several writes were outstanding when
+   * the earlier attempt failed, the server may have applied a later one but not an earlier one,
+   * leaving a hole before the end of the remote file. Everything before the last {@link
+   * #sftpResendLength} bytes of the remote file was acknowledged before those writes were sent, so
+   * the upload resumes from there, overwriting the rest. If the remote file is longer than the RyDE
+   * file, it's left over from something else and is overwritten.
+   *
+   * <p>In pseudo-shell, the whole process looks like the following:
+   *
+   * <pre>   {@code
+   *   size=$(sftp stat $dstUrl/$rydeFilename.ryde)               # Find what's already there.
+   *   offset=$((size - resendLength))                            # Back up over unsure writes.
+   *   gcs read --offset=$offset gs://bucket/$rydeFilename.ryde \
+   *     | sftp put --offset=$offset $dstUrl/$rydeFilename.ryde \   # Upload the rest.
+   *    && gcs read gs://bucket/$rydeFilename.sig \
+   *     | sftp put $dstUrl/$rydeFilename.sig                     # Upload detached signature.
    *   }</pre>
    */
   @VisibleForTesting
-  protected void upload(GcsFilename xmlFile, long xmlLength, DateTime watermark, String name)
+  protected void upload(GcsFilename rydeFile, GcsFilename sigFile, boolean resume)
       throws Exception {
-    logger.atInfo().log("Uploading XML file '%s' to remote path '%s'.", xmlFile, uploadUrl);
-    try (InputStream gcsInput = gcsUtils.openInputStream(xmlFile);
-        InputStream ghostrydeDecoder = Ghostryde.decoder(gcsInput, stagingDecryptionKey)) {
-      try (JSchSshSession session = jschSshSessionFactory.create(lazyJsch.get(), uploadUrl);
-          JSchSftpChannel ftpChan = session.openSftpChannel()) {
-        ByteArrayOutputStream sigOut = new ByteArrayOutputStream();
-        String rydeFilename = name + ".ryde";
-        GcsFilename rydeGcsFilename = new GcsFilename(bucket, rydeFilename);
-        try (OutputStream ftpOutput =
-                ftpChan.get().put(rydeFilename, sftpProgressMonitor, OVERWRITE);
-            OutputStream gcsOutput = gcsUtils.openOutputStream(rydeGcsFilename);
-            TeeOutputStream teeOutput = new TeeOutputStream(asList(ftpOutput, gcsOutput));
-            RydeEncoder rydeEncoder =
-                new RydeEncoder.Builder()
-                    .setRydeOutput(teeOutput, receiverKey)
-                    .setSignatureOutput(sigOut, signingKey)
-                    .setFileMetadata(name, xmlLength, watermark)
-                    .build()) {
-            long bytesCopied = ByteStreams.copy(ghostrydeDecoder, rydeEncoder);
-            logger.atInfo().log("uploaded %,d bytes: %s", bytesCopied, rydeFilename);
+    logger.atInfo().log("Uploading RyDE file '%s' to remote path '%s'.", rydeFile, uploadUrl);
+    long rydeLength = gcsUtils.getLength(rydeFile);
+    String rydeFilename = rydeFile.getObjectName();
+    String sigFilename = sigFile.getObjectName();
+    try (JSchSshSession session = jschSshSessionFactory.create(lazyJsch.get(), uploadUrl);
+        JSchSftpChannel ftpChan = session.openSftpChannel()) {
+      ChannelSftp channel = ftpChan.get();
+      channel.setBulkRequests(SFTP_BULK_REQUESTS);
+      long remoteLength = resume ? getRemoteLength(channel, rydeFilename) : 0;
+      long offset = 0;
+      if (remoteLength > rydeLength) {
+        logger.atWarning().log(
+            "Remote file '%s' has %,d bytes, more than the %,d of the RyDE file; overwriting it.",
+            rydeFilename, remoteLength, rydeLength);
+      } else if (remoteLength > 0) {
+        offset = Math.max(0, remoteLength - sftpResendLength);
+        logger.atInfo().log(
+            "Resuming upload of '%s' at byte %,d of %,d; the remote file has %,d bytes.",
+            rydeFilename, offset, rydeLength, remoteLength);
+      }
+      try (InputStream gcsInput = gcsUtils.openInputStream(rydeFile, offset)) {
+        if (offset > 0) {
+          // In APPEND mode, JSch writes at the given offset from the end of the remote file.
+          try (OutputStream sftpOutput =
+              channel.put(rydeFilename, sftpProgressMonitor, APPEND, offset - remoteLength)) {
+            ByteStreams.copy(gcsInput, sftpOutput);
           }
-        String sigFilename = name + ".sig";
-        byte[] signature = sigOut.toByteArray();
-        gcsUtils.createFromBytes(new GcsFilename(bucket, sigFilename), signature);
-        ftpChan.get().put(new ByteArrayInputStream(signature), sigFilename);
-        logger.atInfo().log("uploaded %,d bytes: %s", signature.length, sigFilename);
+        } else {
+          channel.put(gcsInput, rydeFilename, sftpProgressMonitor, OVERWRITE);
+        }
+      }
+      long uploadedLength = getRemoteLength(channel, rydeFilename);
+      verify(
+          uploadedLength == rydeLength,
+          "Remote file '%s' has %s bytes after upload, expected %s",
+          rydeFilename,
+          uploadedLength,
+          rydeLength);
+      logger.atInfo().log("uploaded %,d bytes: %s", rydeLength - offset, rydeFilename);
+      byte[] signature;
+      try (InputStream gcsInput = gcsUtils.openInputStream(sigFile)) {
+        signature = ByteStreams.toByteArray(gcsInput);
+      }
+      channel.put(new ByteArrayInputStream(signature), sigFilename);
+      logger.atInfo().log("uploaded %,d bytes: %s", signature.length, sigFilename);
+    }
+  }
+
+  /** Returns the length of a file on the SFTP server, or zero if it doesn't exist. */
+  private static long getRemoteLength(ChannelSftp channel, String filename) throws SftpException {
+    try {
+      return channel.lstat(filename).getSize();
+    } catch (SftpException e) {
+      if (e.id == ChannelSftp.SSH_FX_NO_SUCH_FILE) {
+        return 0;
       }
+      throw e;
     }
   }
 
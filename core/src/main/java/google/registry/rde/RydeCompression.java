@@ -21,8 +21,11 @@ import google.registry.util.ImprovedOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
 import javax.annotation.CheckReturnValue;
 import javax.annotation.WillNotClose;
+import org.bouncycastle.bcpg.BCPGOutputStream;
+import org.bouncycastle.bcpg.PacketTags;
 import org.bouncycastle.openpgp.PGPCompressedData;
 import org.bouncycastle.openpgp.PGPCompressedDataGenerator;
 import org.bouncycastle.openpgp.PGPException;
@@ -36,6 +39,9 @@ final class RydeCompression {
 
   private static final int BUFFER_SIZE = 64 * 1024;
 
+  /** The number of blocks of {@link #openParallelCompressor} that may be in memory at once. */
+  private static final int MAX_BLOCKS_IN_FLIGHT = 64;
+
   /**
    * Compression algorithm to use when creating RyDE files.
    *
@@ -62,6 +68,36 @@ final class RydeCompression {
     }
   }
 
+  /**
+   * Creates an OutputStream that compresses the data like {@link #openCompressor}, but compresses
+   * blocks of the data in parallel on the executor.
+   *
+   * <p>The output is a compressed data packet with the same algorithm, whose contents are put
+   * together from independently compressed blocks by {@link ParallelDeflaterOutputStream}. It can
+   * be read by {@link #openDecompressor} or any other OpenPGP implementation.
+   */
+  @CheckReturnValue
+  static ImprovedOutputStream openParallelCompressor(
+      @WillNotClose OutputStream os, ExecutorService executor) {
+    BCPGOutputStream packetOutput =
+        new BCPGOutputStream(os, PacketTags.COMPRESSED_DATA, new byte[BUFFER_SIZE]);
+    try {
+      packetOutput.write(COMPRESSION_ALGORITHM);
+    } catch (IOException e) {
+      throw new RuntimeException(e);
+    }
+    ParallelDeflaterOutputStream deflater =
+        new ParallelDeflaterOutputStream(packetOutput, executor, MAX_BLOCKS_IN_FLIGHT);
+    return new ImprovedOutputStream("RydeParallelCompressor", deflater, false) {
+      @Override
+      protected void onClose() throws IOException {
+        deflater.close();
+        // Writes the last partial packet, without closing the underlying stream.
+        packetOutput.finish();
+      }
+    };
+  }
+
   /**
    * Creates an InputStream that decompresses the data.
    *
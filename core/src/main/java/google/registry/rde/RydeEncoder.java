@@ -16,6 +16,7 @@ package google.registry.rde;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static google.registry.rde.RydeCompression.openCompressor;
+import static google.registry.rde.RydeCompression.openParallelCompressor;
 import static google.registry.rde.RydeEncryption.RYDE_USE_INTEGRITY_PACKET;
 import static google.registry.rde.RydeEncryption.openEncryptor;
 import static google.registry.rde.RydeFileEncoding.openPgpFileWriter;
@@ -27,6 +28,8 @@ import java.io.FilterOutputStream;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.util.Collection;
+import java.util.concurrent.ExecutorService;
+import javax.annotation.Nullable;
 import javax.annotation.concurrent.NotThreadSafe;
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPKeyPair;
@@ -48,6 +51,9 @@ import org.joda.time.DateTime;
  *
  * <p>Because of the external tar file encoding - the encoder must know the total length of the data
  * from the start. This is a bit annoying, but necessary.
+ *
+ * <p>Compression takes most of the time of the encoding. If a compression executor is set, blocks
+ * of the data are compressed in parallel on it, see {@link RydeCompression#openParallelCompressor}.
  */
 @NotThreadSafe
 public final class RydeEncoder extends FilterOutputStream {
@@ -65,13 +71,18 @@ public final class RydeEncoder extends FilterOutputStream {
       String filenamePrefix,
       DateTime modified,
       PGPKeyPair signingKey,
-      Collection<PGPPublicKey> receiverKeys) {
+      Collection<PGPPublicKey> receiverKeys,
+      @Nullable ExecutorService compressionExecutor) {
     super(null);
     this.sigOutput = sigOutput;
     signer = closer.register(new RydePgpSigningOutputStream(checkNotNull(rydeOutput), signingKey));
     OutputStream encryptLayer =
         closer.register(openEncryptor(signer, RYDE_USE_INTEGRITY_PACKET, receiverKeys));
-    OutputStream kompressor = closer.register(openCompressor(encryptLayer));
+    OutputStream kompressor =
+        closer.register(
+            compressionExecutor == null
+                ? openCompressor(encryptLayer)
+                : openParallelCompressor(encryptLayer, compressionExecutor));
     OutputStream fileLayer =
         closer.register(openPgpFileWriter(kompressor, filenamePrefix + ".tar", modified));
     OutputStream tarLayer =
@@ -114,6 +125,7 @@ public final class RydeEncoder extends FilterOutputStream {
     DateTime modified;
     PGPKeyPair signingKey;
     ImmutableList<PGPPublicKey> receiverKeys;
+    ExecutorService compressionExecutor;
 
     /** Sets the OutputStream for the Ryde-encoded data, and the keys used for the encryption. */
     public Builder setRydeOutput(
@@ -139,6 +151,16 @@ public final class RydeEncoder extends FilterOutputStream {
       return this;
     }
 
+    /**
+     * Sets the executor on which to compress blocks of the data in parallel.
+     *
+     * <p>This is optional. Without it, the data is compressed on the thread that writes it.
+     */
+    public Builder setCompressionExecutor(ExecutorService compressionExecutor) {
+      this.compressionExecutor = compressionExecutor;
+      return this;
+    }
+
     /** Returns the built {@link RydeEncoder}. */
     public RydeEncoder build() {
       return new RydeEncoder(
@@ -148,7 +170,8 @@ public final class RydeEncoder extends FilterOutputStream {
           checkNotNull(filenamePrefix, "Must call 'setFileMetadata'"),
           checkNotNull(modified, "Must call 'setFileMetadata'"),
           checkNotNull(signingKey, "Must call 'setSignatureOutput'"),
-          checkNotNull(receiverKeys, "Must call 'setRydeOutput'"));
+          checkNotNull(receiverKeys, "Must call 'setRydeOutput'"),
+          compressionExecutor);
     }
   }
 }
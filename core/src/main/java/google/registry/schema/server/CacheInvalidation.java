@@ -0,0 +1,85 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.schema.server;
+
+import static google.registry.util.PreconditionsUtils.checkArgumentNotNull;
+
+import google.registry.model.ImmutableObject;
+import google.registry.schema.replay.DatastoreEntity;
+import google.registry.schema.replay.SqlEntity;
+import java.util.Optional;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.Table;
+import org.joda.time.DateTime;
+
+/**
+ * A record that an entry of an in-memory cache became stale on all instances.
+ *
+ * <p>These are written by {@link google.registry.model.SqlCacheInvalidationBus} and read back by
+ * every serving instance, which then drops the entry from its own copy of the cache. They're
+ * deleted after a day by {@link google.registry.batch.DeleteExpiredCacheInvalidationsAction}.
+ */
+@Entity
+@Table(indexes = {@Index(name = "cache_invalidation_time_idx", columnList = "invalidationTime")})
+public class CacheInvalidation extends ImmutableObject implements SqlEntity {
+
+  @Id
+  @GeneratedValue(strategy = GenerationType.IDENTITY)
+  Long id;
+
+  /** The name of the cache, e.g. "Registry". */
+  @Column(nullable = false)
+  String cacheName;
+
+  /** The key of the stale entry within the cache. */
+  @Column(nullable = false)
+  String cacheKey;
+
+  /** When the entry became stale. */
+  @Column(nullable = false)
+  DateTime invalidationTime;
+
+  public String getCacheName() {
+    return cacheName;
+  }
+
+  public String getCacheKey() {
+    return cacheKey;
+  }
+
+  public DateTime getInvalidationTime() {
+    return invalidationTime;
+  }
+
+  public static CacheInvalidation create(
+      String cacheName, String cacheKey, DateTime invalidationTime) {
+    CacheInvalidation instance = new CacheInvalidation();
+    instance.cacheName = checkArgumentNotNull(cacheName, "cacheName cannot be null");
+    instance.cacheKey = checkArgumentNotNull(cacheKey, "cacheKey cannot be null");
+    instance.invalidationTime =
+        checkArgumentNotNull(invalidationTime, "invalidationTime cannot be null");
+    return instance;
+  }
+
+  @Override
+  public Optional<DatastoreEntity> toDatastoreEntity() {
+    return Optional.empty(); // Not persisted in Datastore
+  }
+}
@@ -15,18 +15,15 @@
 package google.registry.schema.tld;
 
 import static google.registry.config.RegistryConfig.getDomainLabelListCacheDuration;
-import static google.registry.config.RegistryConfig.getSingletonCachePersistDuration;
-import static google.registry.config.RegistryConfig.getStaticPremiumListMaxCachedEntries;
-import static google.registry.schema.tld.PremiumListDao.getPriceForLabel;
+import static google.registry.model.CacheUtils.getCacheInvalidationBus;
 
-import com.google.auto.value.AutoValue;
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
 import com.google.common.cache.CacheBuilder;
 import com.google.common.cache.CacheLoader;
 import com.google.common.cache.LoadingCache;
 import google.registry.model.registry.label.PremiumList;
 import google.registry.util.NonFinalForTesting;
-import java.math.BigDecimal;
 import java.util.Optional;
 import org.joda.time.Duration;
 
@@ -43,6 +40,11 @@ class PremiumListCache {
   static LoadingCache<String, Optional<PremiumList>> cachePremiumLists =
       createCachePremiumLists(getDomainLabelListCacheDuration());
 
+  static {
+    getCacheInvalidationBus()
+        .subscribe(PremiumList.CACHE_NAME, name -> cachePremiumLists.invalidate(name));
+  }
+
   @VisibleForTesting
   static LoadingCache<String, Optional<PremiumList>> createCachePremiumLists(
       Duration cachePersistDuration) {
@@ -58,48 +60,22 @@ class PremiumListCache {
   }
 
   /**
-   * In-memory price cache for for a given premium list revision and domain label.
-   *
-   * <p>Note that premium list revision ids are globally unique, so this cache is specific to a
-   * given premium list. Premium list entries might not be present, as indicated by the Optional
-   * wrapper, and we want to cache that as well.
-   *
-   * <p>This is cached for a long duration (essentially indefinitely) because premium list revisions
-   * are immutable and cannot ever be changed once created, so the cache need not ever expire.
+   * In-memory cache of the price tables of premium list revisions, keyed by revision id.
    *
-   * <p>A maximum size is set here on the cache because it can potentially grow too big to fit in
-   * memory if there are a large number of distinct premium list entries being queried (both those
-   * that exist, as well as those that might exist according to the Bloom filter, must be cached).
-   * The entries judged least likely to be accessed again will be evicted first.
+   * <p>Premium list revisions are immutable, so a table never needs to be reloaded. Tables of
+   * revisions that are no longer used, because a newer revision of the list has been published,
+   * expire after not being accessed for a while.
    */
   @NonFinalForTesting
-  static LoadingCache<RevisionIdAndLabel, Optional<BigDecimal>> cachePremiumEntries =
-      createCachePremiumEntries(getSingletonCachePersistDuration());
+  static Cache<Long, PremiumPriceTable> cachePremiumPriceTables =
+      createCachePremiumPriceTables(getDomainLabelListCacheDuration());
 
   @VisibleForTesting
-  static LoadingCache<RevisionIdAndLabel, Optional<BigDecimal>> createCachePremiumEntries(
+  static Cache<Long, PremiumPriceTable> createCachePremiumPriceTables(
       Duration cachePersistDuration) {
     return CacheBuilder.newBuilder()
-        .expireAfterWrite(java.time.Duration.ofMillis(cachePersistDuration.getMillis()))
-        .maximumSize(getStaticPremiumListMaxCachedEntries())
-        .build(
-            new CacheLoader<RevisionIdAndLabel, Optional<BigDecimal>>() {
-              @Override
-              public Optional<BigDecimal> load(RevisionIdAndLabel revisionIdAndLabel) {
-                return getPriceForLabel(revisionIdAndLabel);
-              }
-            });
-  }
-
-  @AutoValue
-  abstract static class RevisionIdAndLabel {
-    abstract long revisionId();
-
-    abstract String label();
-
-    static RevisionIdAndLabel create(long revisionId, String label) {
-      return new AutoValue_PremiumListCache_RevisionIdAndLabel(revisionId, label);
-    }
+        .expireAfterAccess(java.time.Duration.ofMillis(cachePersistDuration.getMillis()))
+        .build();
   }
 
   private PremiumListCache() {}
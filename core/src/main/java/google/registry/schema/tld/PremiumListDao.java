@@ -15,16 +15,18 @@
 package google.registry.schema.tld;
 
 import static com.google.common.base.Preconditions.checkArgument;
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static google.registry.model.CacheUtils.getCacheInvalidationBus;
 import static google.registry.persistence.transaction.TransactionManagerFactory.jpaTm;
 
-import com.google.common.cache.CacheLoader.InvalidCacheLoadException;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.util.concurrent.UncheckedExecutionException;
 import google.registry.model.registry.Registry;
 import google.registry.model.registry.label.PremiumList;
-import google.registry.schema.tld.PremiumListCache.RevisionIdAndLabel;
 import java.math.BigDecimal;
 import java.util.Optional;
 import java.util.concurrent.ExecutionException;
+import org.joda.money.CurrencyUnit;
 import org.joda.money.Money;
 
 /** Data access object class for {@link PremiumList}. */
@@ -60,6 +62,7 @@ public class PremiumListDao {
                   premiumList.getName());
               jpaTm().getEntityManager().persist(premiumList);
             });
+    getCacheInvalidationBus().publish(PremiumList.CACHE_NAME, premiumList.getName());
   }
 
   /** Persist a new revision of an existing premium list to Cloud SQL. */
@@ -78,6 +81,7 @@ public class PremiumListDao {
               //     premiumList.getName());
               jpaTm().getEntityManager().persist(premiumList);
             });
+    getCacheInvalidationBus().publish(PremiumList.CACHE_NAME, premiumList.getName());
   }
 
   /**
@@ -102,21 +106,23 @@ public class PremiumListDao {
                     .findFirst());
   }
 
-  static Optional<BigDecimal> getPriceForLabel(RevisionIdAndLabel revisionIdAndLabel) {
-    return jpaTm()
-        .transact(
-            () ->
-                jpaTm()
-                    .getEntityManager()
-                    .createQuery(
-                        "SELECT pe.price FROM PremiumEntry pe WHERE pe.revisionId = :revisionId"
-                            + " AND pe.domainLabel = :label",
-                        BigDecimal.class)
-                    .setParameter("revisionId", revisionIdAndLabel.revisionId())
-                    .setParameter("label", revisionIdAndLabel.label())
-                    .setMaxResults(1)
-                    .getResultStream()
-                    .findFirst());
+  /** Loads all prices of the given premium list revision into a {@link PremiumPriceTable}. */
+  static PremiumPriceTable loadPriceTable(long revisionId, CurrencyUnit currency) {
+    ImmutableMap<String, BigDecimal> labelsToPrices =
+        jpaTm()
+            .transact(
+                () ->
+                    jpaTm()
+                        .getEntityManager()
+                        .createQuery(
+                            "SELECT pe.domainLabel, pe.price FROM PremiumEntry pe"
+                                + " WHERE pe.revisionId = :revisionId",
+                            Object[].class)
+                        .setParameter("revisionId", revisionId)
+                        .getResultStream()
+                        .collect(
+                            toImmutableMap(row -> (String) row[0], row -> (BigDecimal) row[1])));
+    return PremiumPriceTable.create(currency, labelsToPrices);
   }
 
   /** Returns the most recent revision of the PremiumList with the specified name, from cache. */
@@ -149,24 +155,17 @@ public class PremiumListDao {
   }
 
   private static Optional<Money> getPremiumPriceFromList(String label, PremiumList premiumList) {
-    // Consult the bloom filter and immediately return if the label definitely isn't premium.
-    if (!premiumList.getBloomFilter().mightContain(label)) {
-      return Optional.empty();
-    }
-    RevisionIdAndLabel revisionIdAndLabel =
-        RevisionIdAndLabel.create(premiumList.getRevisionId(), label);
     try {
-      Optional<BigDecimal> price = PremiumListCache.cachePremiumEntries.get(revisionIdAndLabel);
-      return price.map(
-          p ->
-              Money.of(
-                  premiumList.getCurrency(),
-                  p.setScale(premiumList.getCurrency().getDecimalPlaces())));
-    } catch (InvalidCacheLoadException | ExecutionException e) {
+      return PremiumListCache.cachePremiumPriceTables
+          .get(
+              premiumList.getRevisionId(),
+              () -> loadPriceTable(premiumList.getRevisionId(), premiumList.getCurrency()))
+          .getPrice(label);
+    } catch (ExecutionException | UncheckedExecutionException e) {
       throw new RuntimeException(
           String.format(
-              "Could not load premium entry %s for list %s",
-              revisionIdAndLabel, premiumList.getName()),
+              "Could not load premium prices of revision %d of list %s",
+              premiumList.getRevisionId(), premiumList.getName()),
           e);
     }
   }
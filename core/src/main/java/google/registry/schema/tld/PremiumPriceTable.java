@@ -0,0 +1,146 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.schema.tld;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.Optional;
+import javax.annotation.concurrent.Immutable;
+import org.joda.money.CurrencyUnit;
+import org.joda.money.Money;
+
+/**
+ * An immutable, compact table of the prices in a single revision of a premium list.
+ *
+ * <p>All labels are stored back to back in one char array, and all prices (in minor units of the
+ * list's currency) in one long array, so a list with hundreds of thousands of labels is held in a
+ * handful of arrays rather than several objects per label. Labels are found through an
+ * open-addressing hash index with linear probing; the index is kept at most half full, so a lookup
+ * probes under two slots on average, and it doesn't allocate.
+ */
+@Immutable
+final class PremiumPriceTable {
+
+  /** Returned by {@link #getPriceInMinorUnits} for labels that aren't in the table. */
+  static final long NOT_PREMIUM = Long.MIN_VALUE;
+
+  private final CurrencyUnit currency;
+  private final char[] labelChars;
+  /** Offset of each label in {@link #labelChars}, plus a final entry for the end of the last. */
+  private final int[] labelOffsets;
+  private final long[] prices;
+  /** Hash index from slot to entry number plus one, or zero for an empty slot. */
+  private final int[] index;
+
+  private PremiumPriceTable(
+      CurrencyUnit currency, char[] labelChars, int[] labelOffsets, long[] prices, int[] index) {
+    this.currency = currency;
+    this.labelChars = labelChars;
+    this.labelOffsets = labelOffsets;
+    this.prices = prices;
+    this.index = index;
+  }
+
+  /**
+   * Builds a table from the given labels and prices.
+   *
+   * @throws ArithmeticException if a price has more decimal places than the currency allows
+   */
+  static PremiumPriceTable create(CurrencyUnit currency, Map<String, BigDecimal> labelsToPrices) {
+    int size = labelsToPrices.size();
+    int totalLength = labelsToPrices.keySet().stream().mapToInt(String::length).sum();
+    char[] labelChars = new char[totalLength];
+    int[] labelOffsets = new int[size + 1];
+    long[] prices = new long[size];
+    int[] index = new int[indexSizeFor(size)];
+    int entry = 0;
+    int offset = 0;
+    for (Map.Entry<String, BigDecimal> labelAndPrice : labelsToPrices.entrySet()) {
+      String label = labelAndPrice.getKey();
+      label.getChars(0, label.length(), labelChars, offset);
+      labelOffsets[entry] = offset;
+      offset += label.length();
+      prices[entry] =
+          labelAndPrice
+              .getValue()
+              .setScale(currency.getDecimalPlaces())
+              .unscaledValue()
+              .longValueExact();
+      checkArgument(prices[entry] != NOT_PREMIUM, "Invalid price for label %s", label);
+      int mask = index.length - 1;
+      int slot = slotFor(label, mask);
+      while (index[slot] != 0) {
+        slot = (slot + 1) & mask;
+      }
+      index[slot] = entry + 1;
+      entry++;
+    }
+    labelOffsets[size] = offset;
+    return new PremiumPriceTable(currency, labelChars, labelOffsets, prices, index);
+  }
+
+  /** Returns the premium price of the label, or absent if the label is not premium. */
+  Optional<Money> getPrice(String label) {
+    long price = getPriceInMinorUnits(label);
+    return (price == NOT_PREMIUM) ? Optional.empty() : Optional.of(Money.ofMinor(currency, price));
+  }
+
+  /** Returns the premium price of the label in minor units, or {@link #NOT_PREMIUM}. */
+  long getPriceInMinorUnits(String label) {
+    int mask = index.length - 1;
+    for (int slot = slotFor(label, mask); index[slot] != 0; slot = (slot + 1) & mask) {
+      int entry = index[slot] - 1;
+      if (labelEquals(entry, label)) {
+        return prices[entry];
+      }
+    }
+    return NOT_PREMIUM;
+  }
+
+  /** Returns the number of labels in the table. */
+  int size() {
+    return prices.length;
+  }
+
+  /** Returns the first slot to probe for the label, spreading the high bits of its hash code. */
+  private static int slotFor(String label, int mask) {
+    int hash = label.hashCode();
+    return (hash ^ (hash >>> 16)) & mask;
+  }
+
+  private boolean labelEquals(int entry, String label) {
+    int start = labelOffsets[entry];
+    int length = labelOffsets[entry + 1] - start;
+    if (length != label.length()) {
+      return false;
+    }
+    for (int i = 0; i < length; i++) {
+      if (labelChars[start + i] != label.charAt(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /** Returns the smallest power of two that keeps an index of the given size at most half full. */
+  @VisibleForTesting
+  static int indexSizeFor(int size) {
+    checkArgument(size <= (1 << 29), "Too many premium labels: %s", size);
+    return Math.max(2, Integer.highestOneBit(Math.max(1, size * 2 - 1)) << 1);
+  }
+}
@@ -17,8 +17,8 @@ package google.registry.tmch;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import com.google.common.base.Splitter;
-import com.google.common.collect.ImmutableMap;
 import google.registry.model.tmch.ClaimsListShard;
+import google.registry.model.tmch.PackedClaimsMap;
 import java.util.List;
 import org.joda.time.DateTime;
 
@@ -37,9 +37,11 @@ public class ClaimsListParser {
    * Converts the lines from the DNL CSV file into a {@link ClaimsListShard} object.
    *
    * <p>Please note that this does <b>not</b> insert the object into Datastore.
+   *
+   * <p>The entries go straight into a {@link PackedClaimsMap}, without an intermediate map.
    */
   public static ClaimsListShard parse(List<String> lines) {
-    ImmutableMap.Builder<String, String> builder = new ImmutableMap.Builder<>();
+    PackedClaimsMap.Builder builder = new PackedClaimsMap.Builder();
 
     // First line: <version>,<DNL List creation datetime>
     List<String> firstLine = Splitter.on(',').splitToList(lines.get(0));
@@ -21,7 +21,13 @@ import static com.google.common.base.Throwables.throwIfInstanceOf;
 import static google.registry.xml.XmlTransformer.loadXmlSchemas;
 
 import com.google.common.annotations.VisibleForTesting;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
 import com.google.common.collect.ImmutableList;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.Hashing;
+import google.registry.model.CacheMetrics;
+import google.registry.xml.XmlObjectPool;
 import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
@@ -47,6 +53,7 @@ import javax.xml.crypto.dsig.XMLSignatureFactory;
 import javax.xml.crypto.dsig.dom.DOMValidateContext;
 import javax.xml.crypto.dsig.keyinfo.KeyInfo;
 import javax.xml.crypto.dsig.keyinfo.X509Data;
+import javax.xml.parsers.DocumentBuilder;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 import javax.xml.validation.Schema;
@@ -69,6 +76,30 @@ public class TmchXmlSignature {
   private static final Schema SCHEMA =
       loadXmlSchemas(ImmutableList.of("mark.xsd", "dsig.xsd", "smd.xsd"));
 
+  /** Pooled schema-validating document builders, since each one is expensive to create. */
+  private static final XmlObjectPool<DocumentBuilder> DOCUMENT_BUILDER_POOL =
+      new XmlObjectPool<>("TmchXmlSignature.documentBuilder", 16);
+
+  /** The maximum number of signed marks whose verified signatures are cached. */
+  private static final int MAX_CACHED_SIGNATURES = 10000;
+
+  /**
+   * The certificates of signed marks whose XML signatures have been found valid, keyed by the
+   * SHA-256 digest of the signed mark data.
+   *
+   * <p>During sunrise, the same signed mark is sent over and over, e.g. by registrars retrying
+   * their creates. Whether its XML signature is valid and which certificate made it only depends on
+   * its bytes, so the parsing and signature validation can be skipped after the first time. The
+   * certificate itself is still verified every time, since it can expire or be revoked.
+   */
+  @VisibleForTesting
+  static final Cache<HashCode, X509Certificate> VERIFIED_SIGNATURE_CACHE =
+      CacheBuilder.newBuilder().maximumSize(MAX_CACHED_SIGNATURES).recordStats().build();
+
+  static {
+    CacheMetrics.register("TmchXmlSignature", VERIFIED_SIGNATURE_CACHE);
+  }
+
   /**
    * Verifies that signed mark data contains a valid signature.
    *
@@ -82,6 +113,12 @@ public class TmchXmlSignature {
       throws GeneralSecurityException, IOException, MarshalException, ParserConfigurationException,
           SAXException, XMLSignatureException {
     checkArgument(smdXml.length > 0);
+    HashCode digest = Hashing.sha256().hashBytes(smdXml);
+    X509Certificate verifiedCertificate = VERIFIED_SIGNATURE_CACHE.getIfPresent(digest);
+    if (verifiedCertificate != null) {
+      verifyCertificate(tmchCertificateAuthority, verifiedCertificate);
+      return;
+    }
     Document doc = parseSmdDocument(new ByteArrayInputStream(smdXml));
 
     NodeList signatureNodes = doc.getElementsByTagNameNS(XMLSignature.XMLNS, "Signature");
@@ -103,15 +140,39 @@ public class TmchXmlSignature {
     if (!isValid) {
       throw new XMLSignatureException(explainValidationProblem(context, signature));
     }
+    VERIFIED_SIGNATURE_CACHE.put(digest, checkNotNull(selector.selectedCertificate));
+  }
+
+  /**
+   * Checks that the certificate is signed by the TMCH CA and not revoked, throwing a {@link
+   * CertificateSignatureException} if the signature is wrong.
+   */
+  private static void verifyCertificate(
+      TmchCertificateAuthority tmchCertificateAuthority, X509Certificate cert)
+      throws GeneralSecurityException {
+    try {
+      tmchCertificateAuthority.verify(cert);
+    } catch (SignatureException e) {
+      throw new CertificateSignatureException(e.getMessage());
+    }
   }
 
   private static Document parseSmdDocument(InputStream input)
       throws SAXException, IOException, ParserConfigurationException {
+    DocumentBuilder documentBuilder =
+        DOCUMENT_BUILDER_POOL.borrow(TmchXmlSignature::createDocumentBuilder);
+    Document document = documentBuilder.parse(input);
+    documentBuilder.reset();
+    DOCUMENT_BUILDER_POOL.release(documentBuilder);
+    return document;
+  }
+
+  private static DocumentBuilder createDocumentBuilder() throws ParserConfigurationException {
     DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
     dbf.setSchema(SCHEMA);
     dbf.setAttribute("http://apache.org/xml/features/validation/schema/normalized-value", false);
     dbf.setNamespaceAware(true);
-    return dbf.newDocumentBuilder().parse(input);
+    return dbf.newDocumentBuilder();
   }
 
   private static String explainValidationProblem(
@@ -138,6 +199,9 @@ public class TmchXmlSignature {
 
     private final TmchCertificateAuthority tmchCertificateAuthority;
 
+    /** The certificate whose public key was selected, if any. */
+    @Nullable X509Certificate selectedCertificate;
+
     KeyValueKeySelector(TmchCertificateAuthority tmchCertificateAuthority) {
       this.tmchCertificateAuthority = tmchCertificateAuthority;
     }
@@ -160,12 +224,11 @@ public class TmchXmlSignature {
             if (x509DataChild instanceof X509Certificate) {
               X509Certificate cert = (X509Certificate) x509DataChild;
               try {
-                tmchCertificateAuthority.verify(cert);
-              } catch (SignatureException e) {
-                throw new KeySelectorException(new CertificateSignatureException(e.getMessage()));
+                verifyCertificate(tmchCertificateAuthority, cert);
               } catch (GeneralSecurityException e) {
                 throw new KeySelectorException(e);
               }
+              selectedCertificate = cert;
               return new SimpleKeySelectorResult(cert.getPublicKey());
             }
           }
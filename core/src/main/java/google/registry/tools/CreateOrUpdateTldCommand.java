@@ -380,7 +380,10 @@ abstract class CreateOrUpdateTldCommand extends MutatingCommand {
   @Override
   public String execute() throws Exception {
     try {
-      return super.execute();
+      String result = super.execute();
+      // The registries have been committed by now, so the other instances can drop them too.
+      mainParameters.forEach(Registry::publishCacheInvalidation);
+      return result;
     } finally {
       // Manually reset the cache here so that subsequent commands (e.g. in SetupOteCommand) see
       // the latest version of the data.
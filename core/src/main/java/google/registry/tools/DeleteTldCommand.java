@@ -78,7 +78,7 @@ final class DeleteTldCommand extends ConfirmingCommand implements CommandWithRem
   @Override
   protected String execute() {
     tm().transactNew(() -> ofy().delete().entity(registry).now());
-    registry.invalidateInCache();
+    Registry.publishCacheInvalidation(tld);
     return String.format("Deleted TLD '%s'.\n", tld);
   }
 }
@@ -45,6 +45,13 @@ final class GenerateZoneFilesCommand implements CommandWithConnection, CommandWi
       validateWith = DateParameter.class)
   private DateTime exportDate = DateTime.now(UTC).minus(standardMinutes(2)).withTimeAtStartOfDay();
 
+  @Parameter(
+      names = "--previous_export_date",
+      description = "If set, also generate diffs against the zone files of this date (only when "
+          + "running on Cloud SQL).",
+      validateWith = DateParameter.class)
+  private DateTime previousExportDate;
+
   private AppEngineConnection connection;
 
   @Override
@@ -55,16 +62,30 @@ final class GenerateZoneFilesCommand implements CommandWithConnection, CommandWi
   @Override
   public void run() throws IOException {
     assertTldsExist(mainParameters);
-    ImmutableMap<String, Object> params = ImmutableMap.of(
-        "tlds", mainParameters,
-        "exportTime", exportDate.toString());
-    Map<String, Object> response = connection.sendJson(GenerateZoneFilesAction.PATH, params);
-    System.out.println(response.get("mapreduceConsoleLink"));
+    ImmutableMap.Builder<String, Object> params =
+        new ImmutableMap.Builder<String, Object>()
+            .put("tlds", mainParameters)
+            .put("exportTime", exportDate.toString());
+    if (previousExportDate != null) {
+      params.put("previousExportTime", previousExportDate.toString());
+    }
+    Map<String, Object> response =
+        connection.sendJson(GenerateZoneFilesAction.PATH, params.build());
+    if (response.containsKey("mapreduceConsoleLink")) {
+      System.out.println(response.get("mapreduceConsoleLink"));
+    }
     System.out.println("Output files:");
     @SuppressWarnings("unchecked")
     List<String> filenames = (List<String>) response.get("filenames");
     for (String filename : filenames) {
       System.out.println(filename);
     }
+    if (response.containsKey("diffFilenames")) {
+      @SuppressWarnings("unchecked")
+      List<String> diffFilenames = (List<String>) response.get("diffFilenames");
+      for (String filename : diffFilenames) {
+        System.out.println(filename);
+      }
+    }
   }
 }
@@ -16,6 +16,7 @@ package google.registry.tools;
 
 import static com.google.common.base.Preconditions.checkArgument;
 import static google.registry.util.PreconditionsUtils.checkArgumentNotNull;
+import static java.util.concurrent.Executors.newFixedThreadPool;
 
 import com.beust.jcommander.Parameter;
 import com.beust.jcommander.Parameters;
@@ -29,6 +30,7 @@ import java.io.InputStream;
 import java.io.OutputStream;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.util.concurrent.ExecutorService;
 import javax.annotation.Nullable;
 import javax.inject.Inject;
 import javax.inject.Provider;
@@ -90,15 +92,19 @@ final class GhostrydeCommand implements CommandWithRemoteApi {
     boolean isOutputToDir = output.toFile().isDirectory();
     Path outFile = isOutputToDir ? output.resolve(input.getFileName() + ".ghostryde") : output;
     Path lenOutFile = isOutputToDir ? output.resolve(input.getFileName() + ".length") : null;
+    ExecutorService compressionExecutor =
+        newFixedThreadPool(Runtime.getRuntime().availableProcessors());
     try (OutputStream out = Files.asByteSink(outFile.toFile()).openBufferedStream();
         OutputStream lenOut =
             (lenOutFile == null)
                 ? null
                 : Files.asByteSink(lenOutFile.toFile()).openBufferedStream();
         OutputStream ghostrydeEncoder =
-            Ghostryde.encoder(out, rdeStagingEncryptionKey.get(), lenOut);
+            Ghostryde.encoder(out, rdeStagingEncryptionKey.get(), lenOut, compressionExecutor);
         InputStream in = Files.asByteSource(input.toFile()).openBufferedStream()) {
       ByteStreams.copy(in, ghostrydeEncoder);
+    } finally {
+      compressionExecutor.shutdown();
     }
   }
 
@@ -0,0 +1,156 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.tools.server;
+
+import static com.google.appengine.tools.cloudstorage.GcsServiceFactory.createGcsService;
+import static com.google.common.net.MediaType.PLAIN_TEXT_UTF_8;
+import static google.registry.persistence.transaction.TransactionManagerFactory.jpaTm;
+import static google.registry.request.Action.Method.POST;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.appengine.api.taskqueue.TaskOptions;
+import com.google.appengine.tools.cloudstorage.GcsFilename;
+import com.google.appengine.tools.cloudstorage.RetryParams;
+import com.google.common.flogger.FluentLogger;
+import google.registry.config.RegistryConfig.Config;
+import google.registry.gcs.GcsUtils;
+import google.registry.request.Action;
+import google.registry.request.Parameter;
+import google.registry.request.RequestParameters;
+import google.registry.request.Response;
+import google.registry.request.auth.Auth;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.util.Optional;
+import javax.inject.Inject;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+/**
+ * Writes the BIND zone file of a TLD at a given time from Cloud SQL.
+ *
+ * <p>When Cloud SQL is the primary database, {@link GenerateZoneFilesAction} enqueues one task for
+ * this action per requested TLD, so that writing the zone file of a large TLD isn't bound by the
+ * deadline of the request that asked for it.
+ *
+ * <p>If a {@code previousExportTime} is given as well, an IXFR-style diff against the zone file of
+ * that export is written next to the zone file.
+ */
+@Action(
+    service = Action.Service.TOOLS,
+    path = GenerateSqlZoneFileAction.PATH,
+    method = POST,
+    auth = Auth.AUTH_INTERNAL_OR_ADMIN)
+public class GenerateSqlZoneFileAction implements Runnable {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  public static final String PATH = "/_dr/task/generateSqlZoneFile"; // See web.xml.
+  static final String QUEUE = "zone-files"; // See queue.xml.
+
+  static final String EXPORT_TIME_PARAM = "exportTime";
+  static final String PREVIOUS_EXPORT_TIME_PARAM = "previousExportTime";
+
+  /** Format for the zone file name. */
+  private static final String FILENAME_FORMAT = "%s-%s.zone";
+
+  /** Format for the name of the diff between two zone files. */
+  private static final String DIFF_FILENAME_FORMAT = "%s-%s-to-%s.zone.diff";
+
+  @Inject @Parameter(RequestParameters.PARAM_TLD) String tld;
+  @Inject @Parameter(EXPORT_TIME_PARAM) DateTime exportTime;
+  @Inject @Parameter(PREVIOUS_EXPORT_TIME_PARAM) Optional<DateTime> previousExportTime;
+  @Inject @Config("zoneFilesBucket") String bucket;
+  @Inject @Config("gcsBufferSize") int gcsBufferSize;
+  @Inject @Config("dnsDefaultATtl") Duration dnsDefaultATtl;
+  @SuppressWarnings("DurationVariableWithUnits") // false-positive Error Prone check
+  @Inject @Config("dnsDefaultNsTtl") Duration dnsDefaultNsTtl;
+  @Inject @Config("dnsDefaultDsTtl") Duration dnsDefaultDsTtl;
+  @Inject Response response;
+  @Inject GenerateSqlZoneFileAction() {}
+
+  /** Creates a task for writing the zone file of a TLD. */
+  static TaskOptions createTask(
+      String tld, DateTime exportTime, Optional<DateTime> previousExportTime) {
+    TaskOptions task =
+        TaskOptions.Builder.withUrl(PATH)
+            .method(TaskOptions.Method.POST)
+            .param(RequestParameters.PARAM_TLD, tld)
+            .param(EXPORT_TIME_PARAM, exportTime.toString());
+    previousExportTime.ifPresent(
+        previous -> task.param(PREVIOUS_EXPORT_TIME_PARAM, previous.toString()));
+    return task;
+  }
+
+  @Override
+  public void run() {
+    GcsUtils cloudStorage =
+        new GcsUtils(createGcsService(RetryParams.getDefaultInstance()), gcsBufferSize);
+    SqlZoneFileGenerator generator =
+        new SqlZoneFileGenerator(dnsDefaultATtl, dnsDefaultNsTtl, dnsDefaultDsTtl);
+    GcsFilename filename = getZoneFilename(bucket, tld, exportTime);
+    try {
+      try (ZoneFileWriter writer = new ZoneFileWriter(cloudStorage.openOutputStream(filename))) {
+        // The records are written as they are read, so the transaction can't be retried without
+        // writing them again. The task as a whole can be, since it overwrites the zone file.
+        jpaTm()
+            .transactNoRetry(
+                () -> {
+                  try {
+                    generator.writeZoneFile(tld, exportTime, writer);
+                  } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                  }
+                });
+      }
+      if (previousExportTime.isPresent()) {
+        GcsFilename previousFilename = getZoneFilename(bucket, tld, previousExportTime.get());
+        GcsFilename diffFilename =
+            getDiffFilename(bucket, tld, previousExportTime.get(), exportTime);
+        try (BufferedReader previous = openReader(cloudStorage, previousFilename);
+            BufferedReader current = openReader(cloudStorage, filename);
+            Writer diff =
+                new BufferedWriter(
+                    new OutputStreamWriter(cloudStorage.openOutputStream(diffFilename), UTF_8))) {
+          SqlZoneFileGenerator.writeDiff(tld, previous, current, diff);
+        }
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    logger.atInfo().log("Wrote the zone file of %s at %s to %s", tld, exportTime, filename);
+    response.setContentType(PLAIN_TEXT_UTF_8);
+    response.setPayload(String.format("Wrote %s\n", filename.getObjectName()));
+  }
+
+  private static BufferedReader openReader(GcsUtils cloudStorage, GcsFilename filename) {
+    return new BufferedReader(new InputStreamReader(cloudStorage.openInputStream(filename), UTF_8));
+  }
+
+  static GcsFilename getZoneFilename(String bucket, String tld, DateTime exportTime) {
+    return new GcsFilename(bucket, String.format(FILENAME_FORMAT, tld, exportTime));
+  }
+
+  static GcsFilename getDiffFilename(
+      String bucket, String tld, DateTime previousExportTime, DateTime exportTime) {
+    return new GcsFilename(
+        bucket, String.format(DIFF_FILENAME_FORMAT, tld, previousExportTime, exportTime));
+  }
+}
@@ -14,6 +14,7 @@
 
 package google.registry.tools.server;
 
+import static com.google.appengine.api.taskqueue.QueueFactory.getQueue;
 import static com.google.appengine.tools.cloudstorage.GcsServiceFactory.createGcsService;
 import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.collect.Iterators.filter;
@@ -22,9 +23,12 @@ import static google.registry.mapreduce.inputs.EppResourceInputs.createEntityInp
 import static google.registry.model.EppResourceUtils.loadAtPointInTime;
 import static google.registry.persistence.transaction.TransactionManagerFactory.tm;
 import static google.registry.request.Action.Method.POST;
+import static google.registry.tools.server.GenerateSqlZoneFileAction.getDiffFilename;
+import static google.registry.tools.server.GenerateSqlZoneFileAction.getZoneFilename;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.joda.time.DateTimeZone.UTC;
 
+import com.google.appengine.api.taskqueue.Queue;
 import com.google.appengine.tools.cloudstorage.GcsFilename;
 import com.google.appengine.tools.cloudstorage.RetryParams;
 import com.google.appengine.tools.mapreduce.Mapper;
@@ -45,7 +49,9 @@ import google.registry.request.Action;
 import google.registry.request.HttpException.BadRequestException;
 import google.registry.request.JsonActionRunner;
 import google.registry.request.auth.Auth;
+import google.registry.util.AppEngineServiceUtils;
 import google.registry.util.Clock;
+import google.registry.util.TaskQueueUtils;
 import java.io.IOException;
 import java.io.OutputStream;
 import java.io.OutputStreamWriter;
@@ -57,6 +63,7 @@ import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
+import java.util.Optional;
 import javax.inject.Inject;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
@@ -67,6 +74,17 @@ import org.joda.time.Duration;
  * <p>Zone files for each requested TLD are written to GCS. TLDs without entries produce zone files
  * with only a header. The export time must be at least two minutes in the past and no more than 29
  * days in the past, and must be at midnight UTC.
+ *
+ * <h3>Cloud SQL Operation</h3>
+ *
+ * <p>When Cloud SQL is the primary database, there is no mapreduce. Instead, a task for {@link
+ * GenerateSqlZoneFileAction} is enqueued for each requested TLD, which streams its zone file
+ * straight from a snapshot of the database by {@link SqlZoneFileGenerator}, in order of domain
+ * name.
+ *
+ * <p>If a {@code previousExportTime} is given as well, an IXFR-style diff against the zone file of
+ * that export is written next to each zone file. The previous zone files must also have been
+ * generated from Cloud SQL, since the diff relies on their order.
  */
 @Action(
     service = Action.Service.TOOLS,
@@ -105,6 +123,8 @@ public class GenerateZoneFilesAction implements Runnable, JsonActionRunner.JsonA
   @Inject @Config("dnsDefaultNsTtl") Duration dnsDefaultNsTtl;
   @Inject @Config("dnsDefaultDsTtl") Duration dnsDefaultDsTtl;
   @Inject Clock clock;
+  @Inject TaskQueueUtils taskQueueUtils;
+  @Inject AppEngineServiceUtils appEngineServiceUtils;
   @Inject GenerateZoneFilesAction() {}
 
   @Override
@@ -132,6 +152,12 @@ public class GenerateZoneFilesAction implements Runnable, JsonActionRunner.JsonA
     if (!exportTime.equals(exportTime.toDateTime(UTC).withTimeAtStartOfDay())) {
       throw new BadRequestException("Invalid export time: must be midnight UTC");
     }
+    if (!tm().isOfy()) {
+      Optional<DateTime> previousExportTime =
+          Optional.ofNullable(json.get("previousExportTime"))
+              .map(time -> DateTime.parse(time.toString()));
+      return generateZoneFilesFromCloudSql(tlds, exportTime, previousExportTime);
+    }
     String mapreduceConsoleLink =
         mrRunner
             .setJobName("Generate bind file stanzas")
@@ -155,6 +181,53 @@ public class GenerateZoneFilesAction implements Runnable, JsonActionRunner.JsonA
         "filenames", filenames);
   }
 
+  private Map<String, Object> generateZoneFilesFromCloudSql(
+      ImmutableSet<String> tlds, DateTime exportTime, Optional<DateTime> previousExportTime) {
+    if (previousExportTime.isPresent()) {
+      if (!previousExportTime.get().isBefore(exportTime)) {
+        throw new BadRequestException(
+            "Invalid previous export time: must be before the export time");
+      }
+      GcsUtils cloudStorage =
+          new GcsUtils(createGcsService(RetryParams.getDefaultInstance()), gcsBufferSize);
+      for (String tld : tlds) {
+        GcsFilename previousFilename = getZoneFilename(bucket, tld, previousExportTime.get());
+        if (!cloudStorage.existsAndNotEmpty(previousFilename)) {
+          throw new BadRequestException(
+              String.format("Missing previous zone file %s", previousFilename));
+        }
+      }
+    }
+    // Writing the zone file of a large TLD takes longer than the deadline of this request, so it
+    // is done in a task for each TLD.
+    String toolsHostname = appEngineServiceUtils.getServiceHostname("tools");
+    Queue queue = getQueue(GenerateSqlZoneFileAction.QUEUE);
+    for (String tld : tlds) {
+      taskQueueUtils.enqueue(
+          queue,
+          GenerateSqlZoneFileAction.createTask(tld, exportTime, previousExportTime)
+              .header("Host", toolsHostname));
+    }
+    ImmutableMap.Builder<String, Object> response = new ImmutableMap.Builder<>();
+    response.put(
+        "filenames",
+        tlds.stream()
+            .map(tld -> getGcsPath(getZoneFilename(bucket, tld, exportTime)))
+            .collect(toImmutableList()));
+    previousExportTime.ifPresent(
+        previous ->
+            response.put(
+                "diffFilenames",
+                tlds.stream()
+                    .map(tld -> getGcsPath(getDiffFilename(bucket, tld, previous, exportTime)))
+                    .collect(toImmutableList())));
+    return response.build();
+  }
+
+  private static String getGcsPath(GcsFilename filename) {
+    return String.format(GCS_PATH_FORMAT, filename.getBucketName(), filename.getObjectName());
+  }
+
   /** Mapper to find domains that were active at a given time. */
   static class GenerateBindFileMapper extends Mapper<EppResource, String, String> {
 
@@ -341,7 +414,7 @@ public class GenerateZoneFilesAction implements Runnable, JsonActionRunner.JsonA
    * If, for some unforeseen reason, the TLD is not present, indicate an error condition, so that
    * our process for comparing Datastore and DNS data will realize that something is amiss.
    */
-  private static String stripTld(String fullyQualifiedName, String tld) {
+  static String stripTld(String fullyQualifiedName, String tld) {
     return fullyQualifiedName.endsWith(tld)
         ? fullyQualifiedName.substring(0, fullyQualifiedName.length() - tld.length() - 1)
         : (fullyQualifiedName + "***");
@@ -0,0 +1,347 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.tools.server;
+
+import static com.google.common.base.Preconditions.checkState;
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.collect.ImmutableSet.toImmutableSet;
+import static com.google.common.collect.Sets.difference;
+import static google.registry.model.EppResourceUtils.loadAtPointInTime;
+import static google.registry.persistence.transaction.TransactionManagerFactory.jpaTm;
+import static google.registry.persistence.transaction.TransactionManagerFactory.tm;
+import static google.registry.tools.server.GenerateZoneFilesAction.stripTld;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.flogger.FluentLogger;
+import google.registry.model.domain.DomainBase;
+import google.registry.model.domain.secdns.DelegationSignerData;
+import google.registry.model.host.HostResource;
+import google.registry.persistence.VKey;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.sql.Timestamp;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Objects;
+import javax.annotation.Nullable;
+import javax.persistence.EntityManager;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+/**
+ * Generates BIND zone files from Cloud SQL, for {@link GenerateSqlZoneFileAction}.
+ *
+ * <p>This is the Cloud SQL counterpart of the mapreduce in {@link GenerateZoneFilesAction}. The
+ * domains of a TLD are read in pages ordered by domain name, all within the transaction of the
+ * caller, which under the serializable isolation level of the registry sees a consistent snapshot
+ * of the database. The nameservers of a page of domains are loaded in a single query, and the
+ * records are written to the zone file as they are generated.
+ *
+ * <p>Domains and hosts that changed after the export time are rewound to it from their history
+ * entries by {@link google.registry.model.EppResourceUtils#loadAtPointInTime}.
+ *
+ * <p>Each domain's records are followed by the glue records of its subordinate nameservers, and
+ * the domains are ordered by the bytes of their names, independently of the collation of the
+ * database. So the zone files written here can be compared in a single pass, which is what {@link
+ * #writeDiff} does.
+ */
+final class SqlZoneFileGenerator {
+
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** The number of domains read from the database in one query. */
+  private static final int PAGE_SIZE = 1000;
+
+  /**
+   * Query for the next page of domains of a TLD that existed at the export time.
+   *
+   * <p>This is a native query so that the domains can be ordered by the "C" collation, i.e. by the
+   * bytes of their names, rather than by whatever the collation of the database is.
+   */
+  private static final String DOMAIN_PAGE_QUERY =
+      "SELECT repo_id, domain_name FROM \"Domain\" WHERE tld = :tld"
+          + " AND creation_time <= :exportTime AND deletion_time > :exportTime"
+          + " AND domain_name COLLATE \"C\" > :lastDomainName"
+          + " ORDER BY domain_name COLLATE \"C\"";
+
+  /** Format for the header of a zone file diff. */
+  private static final String DIFF_HEADER_FORMAT =
+      "$ORIGIN\t%s.\n; Records removed (-) and added (+) since the previous zone file\n\n";
+
+  private final Duration dnsDefaultATtl;
+  private final Duration dnsDefaultNsTtl;
+  private final Duration dnsDefaultDsTtl;
+
+  SqlZoneFileGenerator(
+      Duration dnsDefaultATtl, Duration dnsDefaultNsTtl, Duration dnsDefaultDsTtl) {
+    this.dnsDefaultATtl = dnsDefaultATtl;
+    this.dnsDefaultNsTtl = dnsDefaultNsTtl;
+    this.dnsDefaultDsTtl = dnsDefaultDsTtl;
+  }
+
+  /** Writes the zone file of the TLD at the export time. This must be called in a transaction. */
+  void writeZoneFile(String tld, DateTime exportTime, ZoneFileWriter writer) throws IOException {
+    jpaTm().assertInTransaction();
+    EntityManager entityManager = jpaTm().getEntityManager();
+    writer.writeHeader(tld);
+    String lastDomainName = "";
+    int numDomains = 0;
+    int numStanzas = 0;
+    while (true) {
+      @SuppressWarnings("unchecked")
+      List<Object[]> page =
+          entityManager
+              .createNativeQuery(DOMAIN_PAGE_QUERY)
+              .setParameter("tld", tld)
+              .setParameter("exportTime", new Timestamp(exportTime.getMillis()))
+              .setParameter("lastDomainName", lastDomainName)
+              .setMaxResults(PAGE_SIZE)
+              .getResultList();
+      if (page.isEmpty()) {
+        break;
+      }
+      ImmutableList<String> repoIds =
+          page.stream().map(row -> (String) row[0]).collect(toImmutableList());
+      lastDomainName = (String) page.get(page.size() - 1)[1];
+      ImmutableList<DomainBase> domains =
+          entityManager
+              .createQuery("FROM Domain WHERE repoId IN (:repoIds)", DomainBase.class)
+              .setParameter("repoIds", repoIds)
+              .getResultList()
+              .stream()
+              // A null means the domain was deleted (or not created) at this time.
+              .map(domain -> loadAtPointInTime(domain, exportTime).now())
+              .filter(domain -> domain != null && domain.shouldPublishToDns())
+              .sorted(Comparator.comparing(DomainBase::getDomainName))
+              .collect(toImmutableList());
+      ImmutableMap<VKey<? extends HostResource>, HostResource> nameservers =
+          tm().loadByKeys(
+                  domains.stream()
+                      .flatMap(domain -> domain.getNameservers().stream())
+                      .collect(toImmutableSet()));
+      for (DomainBase domain : domains) {
+        numStanzas += writeDomainRecords(domain, nameservers, exportTime, writer);
+      }
+      numDomains += page.size();
+      // Everything that was read has been written, so there is no need to keep it around.
+      entityManager.clear();
+    }
+    logger.atInfo().log(
+        "Wrote %d stanzas for %d domains to the zone file of %s", numStanzas, numDomains, tld);
+  }
+
+  /**
+   * Writes the records of a domain, followed by the glue records of its subordinate nameservers.
+   *
+   * <p>We only want to emit host information for in-bailiwick hosts, meaning those that act as
+   * nameservers for their respective superordinate domains, to match the actual DNS glue records.
+   *
+   * @return the number of stanzas written
+   */
+  private int writeDomainRecords(
+      DomainBase domain,
+      ImmutableMap<VKey<? extends HostResource>, HostResource> nameservers,
+      DateTime exportTime,
+      ZoneFileWriter writer)
+      throws IOException {
+    String tld = domain.getTld();
+    String domainLabel = stripTld(domain.getDomainName(), tld);
+    // The nameservers are loaded as they are now, so rewind them to the export time from their
+    // history entries, in case they've been renamed or had their addresses changed since.
+    ImmutableList<HostResource> hosts =
+        domain.getNameservers().stream()
+            .map(nameservers::get)
+            .filter(Objects::nonNull)
+            .map(host -> loadAtPointInTime(host, exportTime).now())
+            .filter(Objects::nonNull)
+            .sorted(Comparator.comparing(HostResource::getHostName))
+            .collect(toImmutableList());
+    ImmutableSet<DelegationSignerData> dsData = domain.getDsData();
+    if (hosts.isEmpty() && dsData.isEmpty()) {
+      return 0;
+    }
+    for (HostResource host : hosts) {
+      writer.writeNsRecord(domainLabel, dnsDefaultNsTtl.getStandardSeconds(), host.getHostName());
+    }
+    for (DelegationSignerData ds : dsData) {
+      writer.writeDsRecord(domainLabel, dnsDefaultDsTtl.getStandardSeconds(), ds);
+    }
+    writer.endStanza();
+    int numStanzas = 1;
+    ImmutableSet<String> subordinateHosts = domain.getSubordinateHosts();
+    for (HostResource host : hosts) {
+      if (subordinateHosts.contains(host.getHostName()) && !host.getInetAddresses().isEmpty()) {
+        String hostLabel = stripTld(host.getHostName(), tld);
+        for (InetAddress address : host.getInetAddresses()) {
+          writer.writeAddressRecord(hostLabel, dnsDefaultATtl.getStandardSeconds(), address);
+        }
+        writer.endStanza();
+        numStanzas++;
+      }
+    }
+    return numStanzas;
+  }
+
+  /**
+   * Writes the records that differ between two zone files written by this class, in the manner of
+   * an incremental zone transfer (IXFR).
+   *
+   * <p>The zone files are read side by side, one domain at a time, and for each domain, the
+   * records that are only in the previous zone file are written prefixed with a {@code -}, and
+   * those that are only in the current one prefixed with a {@code +}. A domain's records include
+   * the glue records of its subordinate nameservers.
+   *
+   * @throws IllegalStateException if either zone file isn't ordered by domain name, e.g. because it
+   *     was generated from Datastore
+   */
+  static void writeDiff(String tld, BufferedReader previous, BufferedReader current, Writer diff)
+      throws IOException {
+    diff.write(String.format(DIFF_HEADER_FORMAT, tld));
+    DomainRecordsReader previousReader = new DomainRecordsReader(previous);
+    DomainRecordsReader currentReader = new DomainRecordsReader(current);
+    DomainRecords previousRecords = previousReader.next();
+    DomainRecords currentRecords = currentReader.next();
+    while (previousRecords != null || currentRecords != null) {
+      int comparison =
+          (previousRecords == null)
+              ? 1
+              : (currentRecords == null)
+                  ? -1
+                  : compareDomainLabels(previousRecords.label, currentRecords.label);
+      if (comparison <= 0) {
+        writeDiffLines(
+            diff,
+            '-',
+            (comparison < 0)
+                ? previousRecords.records
+                : difference(previousRecords.records, currentRecords.records));
+      }
+      if (comparison >= 0) {
+        writeDiffLines(
+            diff,
+            '+',
+            (comparison > 0)
+                ? currentRecords.records
+                : difference(currentRecords.records, previousRecords.records));
+      }
+      if (comparison <= 0) {
+        previousRecords = previousReader.next();
+      }
+      if (comparison >= 0) {
+        currentRecords = currentReader.next();
+      }
+    }
+    diff.flush();
+  }
+
+  private static void writeDiffLines(Writer diff, char prefix, Iterable<String> records)
+      throws IOException {
+    for (String record : records) {
+      diff.write(prefix);
+      diff.write(record);
+      diff.write('\n');
+    }
+  }
+
+  /**
+   * Compares the labels of two domains in the same order as their full names.
+   *
+   * <p>Comparing the labels themselves would put "foo" before "foo-bar", whereas "foo-bar.tld"
+   * comes before "foo.tld".
+   */
+  private static int compareDomainLabels(String label1, String label2) {
+    return (label1 + '.').compareTo(label2 + '.');
+  }
+
+  /** The records of a domain and of its subordinate nameservers in a zone file. */
+  private static final class DomainRecords {
+
+    final String label;
+    final ImmutableSet<String> records;
+
+    DomainRecords(String label, ImmutableSet<String> records) {
+      this.label = label;
+      this.records = records;
+    }
+  }
+
+  /**
+   * Reads the records of a zone file one domain at a time.
+   *
+   * <p>Domain labels never contain a dot, since domains are directly under their TLD, whereas the
+   * labels of glue records always do. So the records of a domain run from its first NS or DS
+   * record up to the next record of another domain.
+   */
+  private static final class DomainRecordsReader {
+
+    private final BufferedReader reader;
+    @Nullable private String nextRecord;
+    @Nullable private String lastLabel;
+
+    DomainRecordsReader(BufferedReader reader) {
+      this.reader = reader;
+    }
+
+    /** Returns the records of the next domain, or null at the end of the zone file. */
+    @Nullable
+    DomainRecords next() throws IOException {
+      String record = (nextRecord != null) ? nextRecord : readRecord();
+      nextRecord = null;
+      if (record == null) {
+        return null;
+      }
+      String label = getLabel(record);
+      checkState(
+          label.indexOf('.') < 0, "Glue record outside of a domain in zone file: %s", record);
+      checkState(
+          lastLabel == null || compareDomainLabels(lastLabel, label) < 0,
+          "Zone file isn't ordered by domain name: %s comes after %s",
+          label,
+          lastLabel);
+      lastLabel = label;
+      ImmutableSet.Builder<String> records = new ImmutableSet.Builder<>();
+      records.add(record);
+      while ((record = readRecord()) != null) {
+        String recordLabel = getLabel(record);
+        if (recordLabel.indexOf('.') < 0 && !recordLabel.equals(label)) {
+          nextRecord = record;
+          break;
+        }
+        records.add(record);
+      }
+      return new DomainRecords(label, records.build());
+    }
+
+    /** Returns the next record, skipping empty lines, directives and comments. */
+    @Nullable
+    private String readRecord() throws IOException {
+      String line;
+      do {
+        line = reader.readLine();
+      } while (line != null
+          && (line.isEmpty() || line.charAt(0) == '$' || line.charAt(0) == ';'));
+      return line;
+    }
+
+    private static String getLabel(String record) {
+      int tab = record.indexOf('\t');
+      return (tab < 0) ? record : record.substring(0, tab);
+    }
+  }
+}
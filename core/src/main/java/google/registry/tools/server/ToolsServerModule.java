@@ -17,7 +17,9 @@ package google.registry.tools.server;
 import static com.google.common.base.Strings.emptyToNull;
 import static google.registry.request.RequestParameters.extractBooleanParameter;
 import static google.registry.request.RequestParameters.extractIntParameter;
+import static google.registry.request.RequestParameters.extractOptionalDatetimeParameter;
 import static google.registry.request.RequestParameters.extractOptionalParameter;
+import static google.registry.request.RequestParameters.extractRequiredDatetimeParameter;
 import static google.registry.request.RequestParameters.extractRequiredParameter;
 import static google.registry.request.RequestParameters.extractSetOfParameters;
 
@@ -28,6 +30,7 @@ import google.registry.request.Parameter;
 import google.registry.request.RequestParameters;
 import java.util.Optional;
 import javax.servlet.http.HttpServletRequest;
+import org.joda.time.DateTime;
 
 /**
  * Dagger module for the tools package.
@@ -114,4 +117,17 @@ public class ToolsServerModule {
   static int provideSmearMinutes(HttpServletRequest req) {
     return extractIntParameter(req, "smearMinutes");
   }
+
+  @Provides
+  @Parameter(GenerateSqlZoneFileAction.EXPORT_TIME_PARAM)
+  static DateTime provideExportTime(HttpServletRequest req) {
+    return extractRequiredDatetimeParameter(req, GenerateSqlZoneFileAction.EXPORT_TIME_PARAM);
+  }
+
+  @Provides
+  @Parameter(GenerateSqlZoneFileAction.PREVIOUS_EXPORT_TIME_PARAM)
+  static Optional<DateTime> providePreviousExportTime(HttpServletRequest req) {
+    return extractOptionalDatetimeParameter(
+        req, GenerateSqlZoneFileAction.PREVIOUS_EXPORT_TIME_PARAM);
+  }
 }
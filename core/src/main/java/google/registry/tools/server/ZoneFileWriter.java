@@ -0,0 +1,161 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.tools.server;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import google.registry.model.domain.secdns.DelegationSignerData;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.Inet4Address;
+import java.net.InetAddress;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Writes the records of a BIND zone file to an {@link OutputStream}.
+ *
+ * <p>The output is the same as that of the format strings in {@link GenerateZoneFilesAction}, but
+ * the records are formatted straight into a buffer that is reused for the whole file, rather than
+ * into a new {@link String} for every record. Names are written as ASCII, which they always are in
+ * their canonical, punycoded form.
+ */
+@NotThreadSafe
+final class ZoneFileWriter implements Closeable {
+
+  private static final int BUFFER_SIZE = 64 * 1024;
+
+  private static final byte[] HEX_DIGITS = "0123456789ABCDEF".getBytes(UTF_8);
+
+  private final OutputStream out;
+  private final byte[] buffer = new byte[BUFFER_SIZE];
+  private final byte[] digits = new byte[20];
+  private int position = 0;
+
+  ZoneFileWriter(OutputStream out) {
+    this.out = out;
+  }
+
+  /** Writes the {@code $ORIGIN} line that starts the zone file. */
+  void writeHeader(String tld) throws IOException {
+    append("$ORIGIN\t");
+    append(tld);
+    append(".\n\n");
+  }
+
+  /** Writes an NS record, e.g. {@code foo 180 IN NS ns.example.com.}. */
+  void writeNsRecord(String label, long ttl, String nameserver) throws IOException {
+    appendRecordStart(label, ttl, "NS");
+    append(nameserver);
+    append(".\n");
+  }
+
+  /** Writes a DS record, e.g. {@code foo 86400 IN DS 1 2 3 000102}. */
+  void writeDsRecord(String label, long ttl, DelegationSignerData dsData) throws IOException {
+    appendRecordStart(label, ttl, "DS");
+    appendDecimal(dsData.getKeyTag());
+    appendByte(' ');
+    appendDecimal(dsData.getAlgorithm());
+    appendByte(' ');
+    appendDecimal(dsData.getDigestType());
+    appendByte(' ');
+    for (byte b : dsData.getDigest()) {
+      appendByte(HEX_DIGITS[(b >> 4) & 0xf]);
+      appendByte(HEX_DIGITS[b & 0xf]);
+    }
+    appendByte('\n');
+  }
+
+  /** Writes an A or AAAA record, e.g. {@code ns.foo 3600 IN A 127.0.0.1}. */
+  void writeAddressRecord(String label, long ttl, InetAddress address) throws IOException {
+    // must be either IPv4 or IPv6
+    if (address instanceof Inet4Address) {
+      appendRecordStart(label, ttl, "A");
+      byte[] octets = address.getAddress();
+      for (int i = 0; i < octets.length; i++) {
+        if (i > 0) {
+          appendByte('.');
+        }
+        appendDecimal(octets[i] & 0xff);
+      }
+    } else {
+      appendRecordStart(label, ttl, "AAAA");
+      append(address.getHostAddress());
+    }
+    appendByte('\n');
+  }
+
+  /** Ends the stanza of records of a domain or host with an empty line. */
+  void endStanza() throws IOException {
+    appendByte('\n');
+  }
+
+  /** Writes out what's left in the buffer and closes the underlying stream. */
+  @Override
+  public void close() throws IOException {
+    try {
+      flushBuffer();
+    } finally {
+      out.close();
+    }
+  }
+
+  private void appendRecordStart(String label, long ttl, String type) throws IOException {
+    append(label);
+    appendByte('\t');
+    appendDecimal(ttl);
+    append("\tIN\t");
+    append(type);
+    appendByte('\t');
+  }
+
+  private void append(String string) throws IOException {
+    for (int i = 0; i < string.length(); i++) {
+      char c = string.charAt(i);
+      if (c >= 0x80) {
+        // Not expected in DNS names, but there's no reason to mangle it if it does happen.
+        for (byte b : string.substring(i).getBytes(UTF_8)) {
+          appendByte(b);
+        }
+        return;
+      }
+      appendByte(c);
+    }
+  }
+
+  /** Appends a non-negative number, which TTLs and the fields of DS records all are. */
+  private void appendDecimal(long value) throws IOException {
+    int count = 0;
+    do {
+      digits[count++] = (byte) ('0' + value % 10);
+      value /= 10;
+    } while (value > 0);
+    while (count > 0) {
+      appendByte(digits[--count]);
+    }
+  }
+
+  private void appendByte(int b) throws IOException {
+    if (position == buffer.length) {
+      flushBuffer();
+    }
+    buffer[position++] = (byte) b;
+  }
+
+  private void flushBuffer() throws IOException {
+    out.write(buffer, 0, position);
+    position = 0;
+  }
+}
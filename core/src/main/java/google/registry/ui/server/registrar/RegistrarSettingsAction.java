@@ -20,6 +20,7 @@ import static com.google.common.collect.ImmutableSet.toImmutableSet;
 import static com.google.common.collect.Sets.difference;
 import static google.registry.config.RegistryEnvironment.PRODUCTION;
 import static google.registry.export.sheet.SyncRegistrarsSheetAction.enqueueRegistrarSheetSync;
+import static google.registry.model.CacheUtils.getCacheInvalidationBus;
 import static google.registry.model.ofy.ObjectifyService.ofy;
 import static google.registry.persistence.transaction.TransactionManagerFactory.tm;
 import static google.registry.security.JsonResponseHelper.Status.ERROR;
@@ -59,6 +60,7 @@ import google.registry.ui.server.SendEmailUtils;
 import google.registry.util.AppEngineServiceUtils;
 import google.registry.util.CollectionUtils;
 import google.registry.util.DiffUtils;
+import google.registry.whois.WhoisResponseCache;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.Map;
@@ -130,7 +132,9 @@ public class RegistrarSettingsAction implements Runnable, JsonActionRunner.JsonA
     try {
       switch (op) {
         case "update":
-          return update(args, clientId).toJsonResponse();
+          RegistrarResult result = update(args, clientId);
+          invalidateWhoisResponses();
+          return result.toJsonResponse();
         case "read":
           return read(clientId).toJsonResponse();
         default:
@@ -242,6 +246,22 @@ public class RegistrarSettingsAction implements Runnable, JsonActionRunner.JsonA
             });
   }
 
+  /**
+   * Drops all cached WHOIS responses, since registrar details also show up in the responses about
+   * the registrar's domains.
+   *
+   * <p>The update has already been committed by then, so failing to publish the invalidation is
+   * only logged; the cached responses will expire soon anyway.
+   */
+  private static void invalidateWhoisResponses() {
+    try {
+      getCacheInvalidationBus()
+          .publish(WhoisResponseCache.CACHE_NAME, WhoisResponseCache.ALL_ENTRIES);
+    } catch (RuntimeException e) {
+      logger.atWarning().withCause(e).log("Failed to invalidate cached WHOIS responses");
+    }
+  }
+
   private Map<String, Object> expandRegistrarWithContacts(
       Iterable<RegistrarContact> contacts, Registrar registrar) {
     ImmutableSet<Map<String, Object>> expandedContacts =
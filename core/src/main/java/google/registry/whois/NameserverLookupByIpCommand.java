@@ -16,16 +16,21 @@ package google.registry.whois;
 
 import static com.google.common.base.Preconditions.checkNotNull;
 import static com.google.common.collect.ImmutableList.toImmutableList;
-import static google.registry.model.EppResourceUtils.queryNotDeleted;
+import static google.registry.model.EppResourceUtils.getHostKeysByInetAddress;
+import static google.registry.persistence.transaction.TransactionManagerUtil.transactIfJpaTm;
 import static javax.servlet.http.HttpServletResponse.SC_NOT_FOUND;
 
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.ImmutableList;
-import com.google.common.collect.Streams;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
 import com.google.common.net.InternetDomainName;
+import google.registry.model.EppResource;
 import google.registry.model.host.HostResource;
 import google.registry.model.registry.Registries;
+import google.registry.persistence.VKey;
 import java.net.InetAddress;
+import java.util.Objects;
 import org.joda.time.DateTime;
 
 /**
@@ -34,10 +39,15 @@ import org.joda.time.DateTime;
  * <p>Both IPv4 and IPv6 addresses are supported. Unlike other WHOIS commands, this is an eventually
  * consistent query.
  *
- * <p><b>Note:</b> There may be multiple nameservers with the same IP.
+ * <p><b>Note:</b> There may be multiple nameservers with the same IP. Only the first {@link
+ * #MAX_HOSTS} of them are read, so that the cost of a query doesn't depend on how many hosts share
+ * an address.
  */
 final class NameserverLookupByIpCommand implements WhoisCommand {
 
+  /** The maximum number of hosts read from the index of IP addresses. */
+  @VisibleForTesting static final int MAX_HOSTS = 100;
+
   @VisibleForTesting
   final InetAddress ipAddress;
 
@@ -47,8 +57,16 @@ final class NameserverLookupByIpCommand implements WhoisCommand {
 
   @Override
   public WhoisResponse executeQuery(DateTime now) throws WhoisException {
+    ImmutableSet<VKey<? extends EppResource>> hostKeys =
+        ImmutableSet.copyOf(getHostKeysByInetAddress(ipAddress, now, MAX_HOSTS));
+    ImmutableMap<VKey<? extends EppResource>, EppResource> hostsByKey =
+        transactIfJpaTm(() -> EppResource.loadCached(hostKeys));
     ImmutableList<HostResource> hosts =
-        Streams.stream(queryNotDeleted(HostResource.class, now, "inetAddresses", ipAddress))
+        hostKeys.stream()
+            .map(hostsByKey::get)
+            .filter(Objects::nonNull)
+            .map(host -> (HostResource) host.cloneProjectedAtTime(now))
+            .filter(host -> host.getDeletionTime().isAfter(now))
             .filter(
                 host ->
                     Registries.findTldForName(InternetDomainName.from(host.getHostName()))
@@ -21,6 +21,7 @@ import static javax.servlet.http.HttpServletResponse.SC_OK;
 import com.google.appengine.api.datastore.DatastoreFailureException;
 import com.google.appengine.api.datastore.DatastoreTimeoutException;
 import com.google.common.flogger.FluentLogger;
+import com.google.common.io.CharStreams;
 import com.google.common.net.MediaType;
 import google.registry.config.RegistryConfig.Config;
 import google.registry.request.Action;
@@ -31,7 +32,12 @@ import google.registry.util.Retrier;
 import google.registry.whois.WhoisException.UncheckedWhoisException;
 import google.registry.whois.WhoisMetrics.WhoisMetric;
 import google.registry.whois.WhoisResponse.WhoisResponseResults;
+import google.registry.whois.WhoisResponseCache.CachedResponse;
+import google.registry.whois.WhoisResponseCache.QueryKey;
+import java.io.IOException;
 import java.io.Reader;
+import java.io.StringReader;
+import java.util.Optional;
 import javax.inject.Inject;
 import org.joda.time.DateTime;
 
@@ -82,9 +88,49 @@ public class WhoisAction implements Runnable {
   @Override
   public void run() {
     String responseText;
+    try {
+      String queryText = CharStreams.toString(input);
+      QueryKey cacheKey = QueryKey.create(queryText, false, PREFER_UNICODE);
+      Optional<CachedResponse> cachedResponse = WhoisResponseCache.get(cacheKey);
+      if (WhoisResponseCache.isEnabled()) {
+        whoisMetrics.recordCacheLookup(cachedResponse.isPresent());
+      }
+      CachedResponse whoisResponse;
+      if (cachedResponse.isPresent()) {
+        whoisResponse = cachedResponse.get();
+        whoisResponse.commandName().ifPresent(metricBuilder::setCommandName);
+      } else {
+        whoisResponse = runQuery(queryText);
+        WhoisResponseCache.put(cacheKey, whoisResponse);
+      }
+      responseText = whoisResponse.plainTextOutput();
+      setWhoisMetrics(metricBuilder, whoisResponse.numResults(), whoisResponse.status());
+    } catch (Throwable t) {
+      logger.atSevere().withCause(t).log("WHOIS request crashed");
+      responseText = "Internal Server Error";
+      setWhoisMetrics(metricBuilder, 0, SC_INTERNAL_SERVER_ERROR);
+    }
+    // Note that we always return 200 (OK) even if an error was hit. This is because returning an
+    // non-OK HTTP status code will cause the proxy server to silently close the connection. Since
+    // WHOIS has no way to return errors, it's better to convert any such errors into strings and
+    // return them directly.
+    response.setStatus(SC_OK);
+    response.setContentType(CONTENT_TYPE);
+    response.setPayload(responseText);
+    whoisMetrics.recordWhoisMetric(metricBuilder.build());
+  }
+
+  /**
+   * Runs the query and renders its response, including the error message if the query is invalid
+   * or has no results.
+   */
+  private CachedResponse runQuery(String queryText) throws IOException {
     final DateTime now = clock.nowUtc();
+    Optional<String> commandName = Optional.empty();
     try {
-      final WhoisCommand command = whoisReader.readCommand(input, false, now);
+      final WhoisCommand command =
+          whoisReader.readCommand(new StringReader(queryText), false, now);
+      commandName = Optional.of(WhoisMetric.getCommandName(command));
       metricBuilder.setCommand(command);
       WhoisResponseResults results =
           retrier.callWithRetry(
@@ -99,30 +145,19 @@ public class WhoisAction implements Runnable {
               },
               DatastoreTimeoutException.class,
               DatastoreFailureException.class);
-      responseText = results.plainTextOutput();
-      setWhoisMetrics(metricBuilder, results.numResults(), SC_OK);
+      return CachedResponse.create(
+          commandName, SC_OK, results.numResults(), results.plainTextOutput(), now);
     } catch (UncheckedWhoisException u) {
-      WhoisException e = (WhoisException) u.getCause();
-      WhoisResponseResults results = e.getResponse(PREFER_UNICODE, disclaimer);
-      responseText = results.plainTextOutput();
-      setWhoisMetrics(metricBuilder, 0, e.getStatus());
+      return renderError(commandName, (WhoisException) u.getCause());
     } catch (WhoisException e) {
-      WhoisResponseResults results = e.getResponse(PREFER_UNICODE, disclaimer);
-      responseText = results.plainTextOutput();
-      setWhoisMetrics(metricBuilder, 0, e.getStatus());
-    } catch (Throwable t) {
-      logger.atSevere().withCause(t).log("WHOIS request crashed");
-      responseText = "Internal Server Error";
-      setWhoisMetrics(metricBuilder, 0, SC_INTERNAL_SERVER_ERROR);
+      return renderError(commandName, e);
     }
-    // Note that we always return 200 (OK) even if an error was hit. This is because returning an
-    // non-OK HTTP status code will cause the proxy server to silently close the connection. Since
-    // WHOIS has no way to return errors, it's better to convert any such errors into strings and
-    // return them directly.
-    response.setStatus(SC_OK);
-    response.setContentType(CONTENT_TYPE);
-    response.setPayload(responseText);
-    whoisMetrics.recordWhoisMetric(metricBuilder.build());
+  }
+
+  private CachedResponse renderError(Optional<String> commandName, WhoisException e) {
+    WhoisResponseResults results = e.getResponse(PREFER_UNICODE, disclaimer);
+    return CachedResponse.create(
+        commandName, e.getStatus(), 0, results.plainTextOutput(), e.getTimestamp());
   }
 
   private static void setWhoisMetrics(
@@ -38,9 +38,13 @@ import google.registry.request.auth.Auth;
 import google.registry.util.Clock;
 import google.registry.whois.WhoisMetrics.WhoisMetric;
 import google.registry.whois.WhoisResponse.WhoisResponseResults;
+import google.registry.whois.WhoisResponseCache.CachedResponse;
+import google.registry.whois.WhoisResponseCache.QueryKey;
+import java.io.IOException;
 import java.io.StringReader;
 import java.io.UnsupportedEncodingException;
 import java.net.URLDecoder;
+import java.util.Optional;
 import javax.inject.Inject;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
@@ -132,6 +136,9 @@ public final class WhoisHttpAction implements Runnable {
   /** Joiner that turns {@link #SLASHER} tokens into a normal WHOIS query. */
   private static final Joiner JOINER = Joiner.on(' ');
 
+  /** Responses to HTTP requests are meant for humans, and prefer Unicode. */
+  private static final boolean PREFER_UNICODE = true;
+
   @Inject Clock clock;
   @Inject Response response;
   @Inject @Config("whoisDisclaimer") String disclaimer;
@@ -152,14 +159,21 @@ public final class WhoisHttpAction implements Runnable {
       // Extremely permissive parsing that turns stuff like "/hello/world/" into "hello world".
       String commandText =
           decode(JOINER.join(SLASHER.split(path.substring(PATH.length())))) + "\r\n";
-      DateTime now = clock.nowUtc();
-      WhoisCommand command = whoisReader.readCommand(new StringReader(commandText), false, now);
-      metricBuilder.setCommand(command);
-      sendResponse(SC_OK, command.executeQuery(now));
+      QueryKey cacheKey = QueryKey.create(commandText, false, PREFER_UNICODE);
+      Optional<CachedResponse> cachedResponse = WhoisResponseCache.get(cacheKey);
+      if (WhoisResponseCache.isEnabled()) {
+        whoisMetrics.recordCacheLookup(cachedResponse.isPresent());
+      }
+      if (cachedResponse.isPresent()) {
+        cachedResponse.get().commandName().ifPresent(metricBuilder::setCommandName);
+        sendResponse(cachedResponse.get());
+        return;
+      }
+      CachedResponse whoisResponse = runQuery(commandText);
+      WhoisResponseCache.put(cacheKey, whoisResponse);
+      sendResponse(whoisResponse);
     } catch (WhoisException e) {
-      metricBuilder.setStatus(e.getStatus());
-      metricBuilder.setNumResults(0);
-      sendResponse(e.getStatus(), e);
+      sendResponse(render(Optional.empty(), e.getStatus(), e));
     } catch (Throwable e) {
       metricBuilder.setStatus(SC_INTERNAL_SERVER_ERROR);
       metricBuilder.setNumResults(0);
@@ -170,18 +184,45 @@ public final class WhoisHttpAction implements Runnable {
     }
   }
 
-  private void sendResponse(int status, WhoisResponse whoisResponse) {
-    response.setStatus(status);
-    metricBuilder.setStatus(status);
-    response.setDateHeader(LAST_MODIFIED, whoisResponse.getTimestamp());
-    response.setDateHeader(EXPIRES, whoisResponse.getTimestamp().plus(expires));
+  /**
+   * Runs the query and renders its response, including the error message if the query is invalid
+   * or has no results.
+   */
+  private CachedResponse runQuery(String commandText) throws IOException {
+    DateTime now = clock.nowUtc();
+    Optional<String> commandName = Optional.empty();
+    try {
+      WhoisCommand command = whoisReader.readCommand(new StringReader(commandText), false, now);
+      commandName = Optional.of(WhoisMetric.getCommandName(command));
+      metricBuilder.setCommand(command);
+      return render(commandName, SC_OK, command.executeQuery(now));
+    } catch (WhoisException e) {
+      return render(commandName, e.getStatus(), e);
+    }
+  }
+
+  private CachedResponse render(
+      Optional<String> commandName, int status, WhoisResponse whoisResponse) {
+    WhoisResponseResults results = whoisResponse.getResponse(PREFER_UNICODE, disclaimer);
+    return CachedResponse.create(
+        commandName,
+        status,
+        (status == SC_OK) ? results.numResults() : 0,
+        results.plainTextOutput(),
+        whoisResponse.getTimestamp());
+  }
+
+  private void sendResponse(CachedResponse whoisResponse) {
+    response.setStatus(whoisResponse.status());
+    metricBuilder.setStatus(whoisResponse.status());
+    response.setDateHeader(LAST_MODIFIED, whoisResponse.timestamp());
+    response.setDateHeader(EXPIRES, whoisResponse.timestamp().plus(expires));
     response.setHeader(CACHE_CONTROL, CACHE_CONTROL_VALUE);
     response.setHeader(ACCESS_CONTROL_ALLOW_ORIGIN, CORS_ALLOW_ORIGIN);
     response.setHeader(X_CONTENT_TYPE_OPTIONS, X_CONTENT_NO_SNIFF);
     response.setContentType(PLAIN_TEXT_UTF_8);
-    WhoisResponseResults results = whoisResponse.getResponse(true, disclaimer);
-    metricBuilder.setNumResults(results.numResults());
-    response.setPayload(results.plainTextOutput());
+    metricBuilder.setNumResults(whoisResponse.numResults());
+    response.setPayload(whoisResponse.plainTextOutput());
   }
 
   /** Removes {@code %xx} escape codes from request path components. */
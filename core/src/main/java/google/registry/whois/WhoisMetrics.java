@@ -56,6 +56,15 @@ public class WhoisMetrics {
               LABEL_DESCRIPTORS,
               DEFAULT_FITTER);
 
+  private static final IncrementableMetric cacheLookups =
+      MetricRegistryImpl.getDefault()
+          .newIncrementableMetric(
+              "/whois/cache_lookups",
+              "Count of WHOIS response cache lookups",
+              "count",
+              ImmutableSet.of(
+                  LabelDescriptor.create("result", "Whether the lookup was a HIT or a MISS.")));
+
   @Inject
   public WhoisMetrics() {}
 
@@ -72,6 +81,16 @@ public class WhoisMetrics {
         Integer.toString(metric.status()));
   }
 
+  /**
+   * Records a lookup in the {@link WhoisResponseCache}.
+   *
+   * <p>The ratio of hits to lookups is the fraction of WHOIS requests that didn't need to query the
+   * database.
+   */
+  public void recordCacheLookup(boolean hit) {
+    cacheLookups.increment(hit ? "HIT" : "MISS");
+  }
+
   /** A value class for recording attributes of a WHOIS metric. */
   @AutoValue
   public abstract static class WhoisMetric {
@@ -96,6 +115,13 @@ public class WhoisMetrics {
       return WhoisMetric.builder().setStartTimestamp(clock.nowUtc()).setClock(clock);
     }
 
+    /** Returns the name under which requests running the given command are recorded. */
+    static String getCommandName(WhoisCommand command) {
+      // All WHOIS command class names share the "Command" suffix, so strip it out in order to have
+      // shorter labels.
+      return command.getClass().getSimpleName().replaceFirst("Command$", "");
+    }
+
     /** Create a {@link WhoisMetric.Builder}. */
     public static Builder builder() {
       return new AutoValue_WhoisMetrics_WhoisMetric.Builder();
@@ -111,9 +137,7 @@ public class WhoisMetrics {
       private Clock clock = null;
 
       public Builder setCommand(WhoisCommand command) {
-        // All WHOIS command class names share the "Command" suffix, so strip it out in order to
-        // have shorter labels.
-        return setCommandName(command.getClass().getSimpleName().replaceFirst("Command$", ""));
+        return setCommandName(getCommandName(command));
       }
 
       public abstract Builder setCommandName(String commandName);
@@ -0,0 +1,189 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.whois;
+
+import static google.registry.config.RegistryConfig.getWhoisResponseCachingDuration;
+import static google.registry.config.RegistryConfig.getWhoisResponseMaxCachedEntries;
+import static google.registry.model.CacheUtils.getCacheInvalidationBus;
+
+import com.google.auto.value.AutoValue;
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.base.Ascii;
+import com.google.common.base.Joiner;
+import com.google.common.base.Splitter;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import google.registry.model.CacheMetrics;
+import google.registry.util.Idn;
+import google.registry.util.NonFinalForTesting;
+import java.util.Optional;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+
+/**
+ * An in-memory cache of rendered WHOIS responses, shared by {@link WhoisAction} and {@link
+ * WhoisHttpAction}.
+ *
+ * <p>Scrapers send the same queries over and over, and each of them costs a few database reads and
+ * the formatting of the response. Responses are cached for a short time, keyed by the normalized
+ * query text and the output options. Responses to queries that failed with an internal error are
+ * never cached.
+ *
+ * <p>Flows that change a domain or host have {@link WhoisResponseCacheInvalidator} publish its name
+ * (and the new name of a renamed host) under {@link #CACHE_NAME} on the {@link
+ * google.registry.model.CacheInvalidationBus}, which drops the cached responses to queries for that
+ * name, and changes to registrars publish {@link #ALL_ENTRIES}. Other changes that show up in
+ * responses, e.g. to contacts, are only visible once the cached responses expire.
+ */
+public final class WhoisResponseCache {
+
+  /** The name under which invalidations of cached WHOIS responses are published. */
+  public static final String CACHE_NAME = "WhoisResponse";
+
+  /** The key to publish to invalidate all cached WHOIS responses. */
+  public static final String ALL_ENTRIES = "*";
+
+  /** Splits queries on whitespace the same way as {@link WhoisReader}. */
+  private static final Splitter WHITESPACE_SPLITTER = Splitter.onPattern("\\s").omitEmptyStrings();
+
+  private static final Joiner JOINER = Joiner.on(' ');
+
+  /** The cache, or absent if caching is disabled in the config. */
+  @NonFinalForTesting
+  private static Optional<Cache<QueryKey, CachedResponse>> cache =
+      createCache(getWhoisResponseCachingDuration());
+
+  static {
+    getCacheInvalidationBus().subscribe(CACHE_NAME, WhoisResponseCache::invalidate);
+  }
+
+  private WhoisResponseCache() {}
+
+  /** The normalized text of a WHOIS query, along with the options its response depends on. */
+  @AutoValue
+  abstract static class QueryKey {
+
+    /** The words of the query, lowercased and separated by single spaces. */
+    abstract String query();
+
+    abstract boolean fullOutput();
+
+    abstract boolean preferUnicode();
+
+    /**
+     * Creates the key of a query.
+     *
+     * <p>{@link WhoisReader} ignores extra whitespace between words and the case of keywords, and
+     * canonicalizes domain and host names and normalizes registrar names before looking them up, so
+     * queries that only differ in those respects have the same response.
+     */
+    static QueryKey create(String queryText, boolean fullOutput, boolean preferUnicode) {
+      return new AutoValue_WhoisResponseCache_QueryKey(
+          Ascii.toLowerCase(JOINER.join(WHITESPACE_SPLITTER.split(queryText))),
+          fullOutput,
+          preferUnicode);
+    }
+
+    /** Returns whether this query looks up the given (lowercase) domain or host name. */
+    boolean isAbout(String name) {
+      return query().equals(name) || query().endsWith(" " + name);
+    }
+  }
+
+  /** A rendered WHOIS response, along with what goes into its metrics and HTTP headers. */
+  @AutoValue
+  abstract static class CachedResponse {
+
+    /** The name of the command, as recorded in {@link WhoisMetrics}, if the query was valid. */
+    abstract Optional<String> commandName();
+
+    abstract int status();
+
+    abstract int numResults();
+
+    abstract String plainTextOutput();
+
+    abstract DateTime timestamp();
+
+    static CachedResponse create(
+        Optional<String> commandName,
+        int status,
+        int numResults,
+        String plainTextOutput,
+        DateTime timestamp) {
+      return new AutoValue_WhoisResponseCache_CachedResponse(
+          commandName, status, numResults, plainTextOutput, timestamp);
+    }
+  }
+
+  /** Returns whether responses are cached at all. */
+  static boolean isEnabled() {
+    return cache.isPresent();
+  }
+
+  /** Returns the cached response to the query, if there is one. */
+  static Optional<CachedResponse> get(QueryKey key) {
+    if (!cache.isPresent()) {
+      return Optional.empty();
+    }
+    return Optional.ofNullable(cache.get().getIfPresent(key));
+  }
+
+  /** Caches the response to the query. */
+  static void put(QueryKey key, CachedResponse response) {
+    cache.ifPresent(c -> c.put(key, response));
+  }
+
+  /**
+   * Drops the cached responses to queries for the given domain or host name, in either its ASCII or
+   * its Unicode form, or all cached responses if the name is {@link #ALL_ENTRIES}.
+   */
+  private static void invalidate(String name) {
+    if (!cache.isPresent()) {
+      return;
+    }
+    if (name.equals(ALL_ENTRIES)) {
+      cache.get().invalidateAll();
+      return;
+    }
+    // Names are published in their ASCII form, but IDNs can be queried in their Unicode form too.
+    String lowercaseName = Ascii.toLowerCase(name);
+    String unicodeName = Idn.toUnicode(lowercaseName);
+    cache
+        .get()
+        .asMap()
+        .keySet()
+        .removeIf(key -> key.isAbout(lowercaseName) || key.isAbout(unicodeName));
+  }
+
+  private static Optional<Cache<QueryKey, CachedResponse>> createCache(Duration expiry) {
+    if (!expiry.isLongerThan(Duration.ZERO)) {
+      return Optional.empty();
+    }
+    Cache<QueryKey, CachedResponse> newCache =
+        CacheBuilder.newBuilder()
+            .expireAfterWrite(java.time.Duration.ofMillis(expiry.getMillis()))
+            .maximumSize(getWhoisResponseMaxCachedEntries())
+            .recordStats()
+            .build();
+    CacheMetrics.register(CACHE_NAME, newCache);
+    return Optional.of(newCache);
+  }
+
+  @VisibleForTesting
+  public static void setCacheForTest(Optional<Duration> expiry) {
+    cache = createCache(expiry.orElse(getWhoisResponseCachingDuration()));
+  }
+}
@@ -0,0 +1,37 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.whois;
+
+import static google.registry.model.CacheUtils.getCacheInvalidationBus;
+
+import com.google.common.collect.ImmutableSet;
+import google.registry.flows.CachedResponseInvalidator;
+import javax.inject.Inject;
+
+/**
+ * Publishes the names of changed domains and hosts on the {@link
+ * google.registry.model.CacheInvalidationBus}, which drops the responses about them from the {@link
+ * WhoisResponseCache} of every instance.
+ */
+public class WhoisResponseCacheInvalidator implements CachedResponseInvalidator {
+
+  @Inject
+  WhoisResponseCacheInvalidator() {}
+
+  @Override
+  public void invalidate(ImmutableSet<String> names) {
+    names.forEach(name -> getCacheInvalidationBus().publish(WhoisResponseCache.CACHE_NAME, name));
+  }
+}
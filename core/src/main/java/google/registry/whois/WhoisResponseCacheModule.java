@@ -0,0 +1,30 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.whois;
+
+import dagger.Module;
+import dagger.Provides;
+import google.registry.flows.CachedResponseInvalidator;
+
+/** Dagger module that has EPP flows invalidate the cached WHOIS responses they make stale. */
+@Module
+public class WhoisResponseCacheModule {
+
+  @Provides
+  static CachedResponseInvalidator provideCachedResponseInvalidator(
+      WhoisResponseCacheInvalidator invalidator) {
+    return invalidator;
+  }
+}
@@ -0,0 +1,125 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.xml;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+import com.google.common.annotations.VisibleForTesting;
+import com.google.common.collect.ImmutableSet;
+import com.google.monitoring.metrics.IncrementableMetric;
+import com.google.monitoring.metrics.LabelDescriptor;
+import com.google.monitoring.metrics.MetricRegistryImpl;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import javax.annotation.concurrent.ThreadSafe;
+
+/**
+ * A bounded pool of expensive, non-thread-safe XML processing objects.
+ *
+ * <p>JAXB marshallers and unmarshallers, schema validators and DOM document builders are costly to
+ * create but can't be shared between threads. This pool hands each caller an instance for its
+ * exclusive use, and keeps up to {@code maxIdle} returned instances around for reuse. Callers that
+ * find the pool empty get a freshly created instance, so the pool never blocks.
+ *
+ * <p>Only return an instance to the pool if it is in a reusable state; an instance that was in use
+ * when an exception was thrown should simply be dropped.
+ *
+ * @param <T> type of the pooled objects
+ */
+@ThreadSafe
+public final class XmlObjectPool<T> {
+
+  /** Creates a new instance of a pooled object. */
+  @FunctionalInterface
+  public interface Factory<T, E extends Exception> {
+    T create() throws E;
+  }
+
+  private static final ImmutableSet<LabelDescriptor> LABEL_DESCRIPTORS =
+      ImmutableSet.of(
+          LabelDescriptor.create("pool", "Name of the XML object pool."),
+          LabelDescriptor.create("outcome", "Whether a pooled instance was reused (HIT or MISS)."));
+
+  /** Metric counting the number of instances requested from each pool, by outcome. */
+  @VisibleForTesting
+  static final IncrementableMetric borrowCount =
+      MetricRegistryImpl.getDefault()
+          .newIncrementableMetric(
+              "/xml/pool/borrows",
+              "Count of XML processing objects requested from a pool",
+              "count",
+              LABEL_DESCRIPTORS);
+
+  private final String name;
+  private final ArrayBlockingQueue<T> idle;
+  private final AtomicLong hits = new AtomicLong();
+  private final AtomicLong creations = new AtomicLong();
+
+  /**
+   * Creates a new pool.
+   *
+   * @param name name of the pool, used as a metric label
+   * @param maxIdle maximum number of unused instances to retain
+   */
+  public XmlObjectPool(String name, int maxIdle) {
+    checkArgument(maxIdle > 0, "maxIdle must be positive");
+    this.name = name;
+    this.idle = new ArrayBlockingQueue<>(maxIdle);
+  }
+
+  /**
+   * Returns an instance for the exclusive use of the caller, creating one with {@code factory} if
+   * none is available.
+   */
+  public <E extends Exception> T borrow(Factory<T, E> factory) throws E {
+    T instance = idle.poll();
+    if (instance != null) {
+      hits.incrementAndGet();
+      borrowCount.increment(name, "HIT");
+      return instance;
+    }
+    instance = factory.create();
+    creations.incrementAndGet();
+    borrowCount.increment(name, "MISS");
+    return instance;
+  }
+
+  /** Returns an instance to the pool, dropping it if the pool already holds enough of them. */
+  public void release(T instance) {
+    idle.offer(instance);
+  }
+
+  /** Returns the number of requests served by reusing a pooled instance. */
+  public long getHitCount() {
+    return hits.get();
+  }
+
+  /** Returns the number of instances created because the pool was empty. */
+  public long getCreationCount() {
+    return creations.get();
+  }
+
+  /** Returns the fraction of requests served by reusing a pooled instance. */
+  public double getHitRate() {
+    long hitCount = hits.get();
+    long total = hitCount + creations.get();
+    return (total == 0) ? 1.0 : ((double) hitCount / total);
+  }
+
+  @VisibleForTesting
+  int getIdleCount() {
+    return idle.size();
+  }
+}
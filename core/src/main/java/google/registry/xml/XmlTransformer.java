@@ -33,7 +33,7 @@ import java.io.Writer;
 import java.nio.charset.Charset;
 import java.util.Collection;
 import java.util.List;
-import java.util.Map;
+import java.util.function.UnaryOperator;
 import javax.annotation.Nullable;
 import javax.xml.XMLConstants;
 import javax.xml.bind.JAXBContext;
@@ -45,6 +45,7 @@ import javax.xml.bind.helpers.DefaultValidationEventHandler;
 import javax.xml.stream.FactoryConfigurationError;
 import javax.xml.stream.XMLInputFactory;
 import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
 import javax.xml.transform.OutputKeys;
 import javax.xml.transform.Result;
 import javax.xml.transform.Transformer;
@@ -54,6 +55,7 @@ import javax.xml.transform.stream.StreamResult;
 import javax.xml.transform.stream.StreamSource;
 import javax.xml.validation.Schema;
 import javax.xml.validation.SchemaFactory;
+import javax.xml.validation.Validator;
 import org.xml.sax.SAXException;
 import org.xml.sax.SAXParseException;
 
@@ -75,6 +77,23 @@ public class XmlTransformer {
   /** A {@link Schema} to validate XML. */
   private final Schema schema;
 
+  /**
+   * Maximum number of idle instances kept in each of the pools below.
+   *
+   * <p>This only needs to cover the number of threads concurrently using a transformer; any excess
+   * demand is met by creating (and later discarding) additional instances.
+   */
+  private static final int MAX_IDLE_POOLED_INSTANCES = 64;
+
+  /** Pooled {@link Unmarshaller}s, pre-configured with {@link #schema}. */
+  private final XmlObjectPool<Unmarshaller> unmarshallerPool;
+
+  /** Pooled {@link Marshaller}s, which are reconfigured on each use. */
+  private final XmlObjectPool<Marshaller> marshallerPool;
+
+  /** Pooled {@link Validator}s for {@link #schema}. */
+  private final XmlObjectPool<Validator> validatorPool;
+
   /**
    * Create a new XmlTransformer that validates using the given schemas, but uses the given classes
    * (rather than generated ones) for marshaling and unmarshaling.
@@ -89,6 +108,12 @@ public class XmlTransformer {
     } catch (JAXBException e) {
       throw new RuntimeException(e);
     }
+    String poolName =
+        (recognizedClasses.length == 0) ? "default" : recognizedClasses[0].getSimpleName();
+    this.unmarshallerPool =
+        new XmlObjectPool<>(poolName + ".unmarshaller", MAX_IDLE_POOLED_INSTANCES);
+    this.marshallerPool = new XmlObjectPool<>(poolName + ".marshaller", MAX_IDLE_POOLED_INSTANCES);
+    this.validatorPool = new XmlObjectPool<>(poolName + ".validator", MAX_IDLE_POOLED_INSTANCES);
   }
 
   /**
@@ -106,6 +131,11 @@ public class XmlTransformer {
     } catch (JAXBException e) {
       throw new RuntimeException(e);
     }
+    String poolName = pakkage.getName();
+    this.unmarshallerPool =
+        new XmlObjectPool<>(poolName + ".unmarshaller", MAX_IDLE_POOLED_INSTANCES);
+    this.marshallerPool = new XmlObjectPool<>(poolName + ".marshaller", MAX_IDLE_POOLED_INSTANCES);
+    this.validatorPool = new XmlObjectPool<>(poolName + ".validator", MAX_IDLE_POOLED_INSTANCES);
   }
 
   private static XMLInputFactory createInputFactory() throws FactoryConfigurationError {
@@ -125,11 +155,14 @@ public class XmlTransformer {
    * @throws XmlException if XML input was invalid or root element doesn't match {@code expect}.
    */
   public void validate(String xml) throws XmlException {
+    Validator validator = validatorPool.borrow(schema::newValidator);
     try {
-      schema.newValidator().validate(new StreamSource(new StringReader(xml)));
+      validator.validate(new StreamSource(new StringReader(xml)));
     } catch (SAXException | IOException e) {
       throw new XmlException(e);
     }
+    validator.reset();
+    validatorPool.release(validator);
   }
 
   /**
@@ -143,9 +176,35 @@ public class XmlTransformer {
    * @see <a href="https://errorprone.info/bugpattern/TypeParameterUnusedInFormals">TypeParameterUnusedInFormals</a>
    */
   public <T> T unmarshal(Class<T> clazz, InputStream stream) throws XmlException {
+    return unmarshal(clazz, stream, UnaryOperator.identity());
+  }
+
+  /**
+   * Turns XML text into an object, letting the caller observe the parse.
+   *
+   * <p>The {@link XMLStreamReader} used for unmarshalling is passed through {@code readerDecorator}
+   * first, so that the caller can piggyback on the same parse (e.g. to capture a copy of the
+   * document) instead of parsing the input again. Schema validation happens during this same pass.
+   *
+   * @param clazz the XML class you expect to receive as the root element
+   * @param readerDecorator wraps the reader that the unmarshaller pulls events from
+   * @throws XmlException if failed to read from {@code bytes}, XML input is invalid, or root
+   *         element doesn't match {@code expect}.
+   */
+  public <T> T unmarshal(
+      Class<T> clazz, InputStream stream, UnaryOperator<XMLStreamReader> readerDecorator)
+      throws XmlException {
     try (InputStream autoClosingStream = stream) {
-      return clazz.cast(getUnmarshaller().unmarshal(
-          XML_INPUT_FACTORY.createXMLStreamReader(new StreamSource(autoClosingStream, SYSTEM_ID))));
+      Unmarshaller unmarshaller = unmarshallerPool.borrow(this::createUnmarshaller);
+      T result =
+          clazz.cast(
+              unmarshaller.unmarshal(
+                  readerDecorator.apply(
+                      XML_INPUT_FACTORY.createXMLStreamReader(
+                          new StreamSource(autoClosingStream, SYSTEM_ID)))));
+      // Only unmarshallers that completed successfully are known to be safe to reuse.
+      unmarshallerPool.release(unmarshaller);
+      return result;
     } catch (UnmarshalException e) {
       // Plain old parsing exceptions have a SAXParseException with no further cause.
       if (e.getLinkedException() instanceof SAXParseException
@@ -190,10 +249,10 @@ public class XmlTransformer {
   public void marshal(Object root, Writer writer, ValidationMode validation) throws XmlException {
     try {
       // Omit XML declaration because character-oriented output prevents us from knowing.
-      getMarshaller(
-          STRICT.equals(validation) ? schema : null,
-          ImmutableMap.of(Marshaller.JAXB_FRAGMENT, true)).marshal(
-              checkNotNull(root, "root"), checkNotNull(writer, "writer"));
+      Marshaller marshaller =
+          borrowMarshaller(STRICT.equals(validation) ? schema : null, true, UTF_8);
+      marshaller.marshal(checkNotNull(root, "root"), checkNotNull(writer, "writer"));
+      marshallerPool.release(marshaller);
     } catch (JAXBException e) {
       throw new XmlException(e);
     }
@@ -217,10 +276,10 @@ public class XmlTransformer {
   public void marshal(Object root, OutputStream out, Charset charset, ValidationMode validation)
       throws XmlException {
     try {
-      getMarshaller(
-          STRICT.equals(validation) ? schema : null,
-          ImmutableMap.of(Marshaller.JAXB_ENCODING, charset.toString())).marshal(
-              checkNotNull(root, "root"), checkNotNull(out, "out"));
+      Marshaller marshaller =
+          borrowMarshaller(STRICT.equals(validation) ? schema : null, false, charset);
+      marshaller.marshal(checkNotNull(root, "root"), checkNotNull(out, "out"));
+      marshallerPool.release(marshaller);
     } catch (JAXBException e) {
       throw new XmlException(e);
     }
@@ -240,8 +299,9 @@ public class XmlTransformer {
    */
   public void marshalStrict(Object root, Result result) throws XmlException {
     try {
-      getMarshaller(schema, ImmutableMap.of())
-          .marshal(checkNotNull(root, "root"), checkNotNull(result, "result"));
+      Marshaller marshaller = borrowMarshaller(schema, false, UTF_8);
+      marshaller.marshal(checkNotNull(root, "root"), checkNotNull(result, "result"));
+      marshallerPool.release(marshaller);
     } catch (JAXBException e) {
       throw new XmlException(e);
     }
@@ -274,8 +334,8 @@ public class XmlTransformer {
     return JAXBContext.newInstance(prefix + Joiner.on(':' + prefix).join(schemaNames));
   }
 
-  /** Get a {@link Unmarshaller} instance with the default configuration. */
-  private Unmarshaller getUnmarshaller() throws JAXBException {
+  /** Creates a {@link Unmarshaller} instance with the default configuration. */
+  private Unmarshaller createUnmarshaller() throws JAXBException {
     Unmarshaller unmarshaller = jaxbContext.createUnmarshaller();
     unmarshaller.setSchema(schema);
     // This handler was the default in JAXB 1.0. It fails on any exception thrown while
@@ -285,18 +345,43 @@ public class XmlTransformer {
     return unmarshaller;
   }
 
-  /** Get a {@link Marshaller} instance with the given configuration. */
-  private Marshaller getMarshaller(@Nullable Schema schemaParam, Map<String, ?> properties)
-      throws JAXBException {
+  /**
+   * Gets a pooled {@link Marshaller} instance with the given configuration.
+   *
+   * <p>Every setting that differs between uses is set explicitly here, so that nothing leaks over
+   * from the previous user of the instance. Return it to {@link #marshallerPool} when done.
+   */
+  private Marshaller borrowMarshaller(
+      @Nullable Schema schemaParam, boolean fragment, Charset charset) throws JAXBException {
+    Marshaller marshaller = marshallerPool.borrow(this::createMarshaller);
+    marshaller.setProperty(Marshaller.JAXB_FRAGMENT, fragment);
+    marshaller.setProperty(Marshaller.JAXB_ENCODING, charset.toString());
+    marshaller.setSchema(schemaParam);
+    return marshaller;
+  }
+
+  /** Creates a {@link Marshaller} instance with the settings common to all uses. */
+  private Marshaller createMarshaller() throws JAXBException {
     Marshaller marshaller = jaxbContext.createMarshaller();
-    for (Map.Entry<String, ?> entry : properties.entrySet()) {
-      marshaller.setProperty(entry.getKey(), entry.getValue());
-    }
     marshaller.setProperty(Marshaller.JAXB_FORMATTED_OUTPUT, true);
-    marshaller.setSchema(schemaParam);
     return marshaller;
   }
 
+  /** Returns the pool of {@link Unmarshaller}s, for monitoring. */
+  public XmlObjectPool<Unmarshaller> getUnmarshallerPool() {
+    return unmarshallerPool;
+  }
+
+  /** Returns the pool of {@link Marshaller}s, for monitoring. */
+  public XmlObjectPool<Marshaller> getMarshallerPool() {
+    return marshallerPool;
+  }
+
+  /** Returns the pool of {@link Validator}s, for monitoring. */
+  public XmlObjectPool<Validator> getValidatorPool() {
+    return validatorPool;
+  }
+
   /** Pretty print XML. */
   public static String prettyPrint(String xmlString) {
     StringWriter prettyXml = new StringWriter();
@@ -28,9 +28,11 @@ import static google.registry.persistence.transaction.TransactionManagerFactory.
 import static google.registry.testing.DatabaseHelper.createTld;
 import static google.registry.testing.DatabaseHelper.newDomainBase;
 import static google.registry.testing.DatabaseHelper.persistActiveContact;
+import static google.registry.util.DateTimeUtils.END_OF_TIME;
 import static javax.servlet.http.HttpServletResponse.SC_NO_CONTENT;
 import static javax.servlet.http.HttpServletResponse.SC_OK;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doNothing;
 import static org.mockito.Mockito.spy;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -43,6 +45,9 @@ import com.google.common.collect.ImmutableSet;
 import com.google.common.truth.Truth8;
 import com.googlecode.objectify.Key;
 import google.registry.config.RegistryConfig;
+import google.registry.model.billing.BillingEvent;
+import google.registry.model.billing.BillingEvent.Flag;
+import google.registry.model.billing.BillingEvent.Reason;
 import google.registry.model.common.Cursor;
 import google.registry.model.common.Cursor.CursorType;
 import google.registry.model.contact.ContactResource;
@@ -54,6 +59,7 @@ import google.registry.model.ofy.CommitLogManifest;
 import google.registry.model.ofy.CommitLogMutation;
 import google.registry.model.registrar.RegistrarContact;
 import google.registry.model.registry.label.ReservedList;
+import google.registry.model.reporting.HistoryEntry;
 import google.registry.model.server.Lock;
 import google.registry.model.tmch.ClaimsListShard;
 import google.registry.model.translators.VKeyTranslatorFactory;
@@ -352,6 +358,102 @@ public class ReplayCommitLogsToSqlActionTest {
         .isEqualTo("replay@example.tld");
   }
 
+  @Test
+  void testReplay_overlappingTransactions_keepFileOrder() throws Exception {
+    DateTime now = fakeClock.nowUtc();
+    jpaTm().transact(() -> jpaTm().put(TestObject.create("existing", "a")));
+    jpaTm().transact(() -> SqlReplayCheckpoint.set(now.minusMinutes(1).minusMillis(1)));
+    Key<CommitLogManifest> manifest1Key =
+        CommitLogManifest.createKey(getBucketKey(1), now.minusMinutes(1));
+    Key<CommitLogManifest> manifest2Key =
+        CommitLogManifest.createKey(getBucketKey(1), now.minusMinutes(1).plusMillis(1));
+    Key<CommitLogManifest> manifest3Key =
+        CommitLogManifest.createKey(getBucketKey(1), now.minusMinutes(1).plusMillis(2));
+    saveDiffFile(
+        gcsService,
+        createCheckpoint(now.minusMinutes(1).plusMillis(2)),
+        CommitLogManifest.create(getBucketKey(1), now.minusMinutes(1), null),
+        CommitLogMutation.create(manifest1Key, TestObject.create("existing", "b")),
+        CommitLogMutation.create(manifest1Key, TestObject.create("new", "b")),
+        CommitLogManifest.create(getBucketKey(1), now.minusMinutes(1).plusMillis(1), null),
+        CommitLogMutation.create(manifest2Key, TestObject.create("other", "c")),
+        CommitLogManifest.create(
+            getBucketKey(1),
+            now.minusMinutes(1).plusMillis(2),
+            ImmutableSet.of(Key.create(TestObject.create("new")))),
+        CommitLogMutation.create(manifest3Key, TestObject.create("existing", "d")));
+    runAndAssertSuccess(now.minusMinutes(1).plusMillis(2));
+    assertExpectedIds("existing", "other");
+    TestObject fromDatabase =
+        jpaTm().transact(() -> jpaTm().loadByKey(VKey.createSql(TestObject.class, "existing")));
+    assertThat(fromDatabase.getField()).isEqualTo("d");
+  }
+
+  @Test
+  void testReplay_referenceToEntityOfEarlierTransaction_keepsFileOrder() throws Exception {
+    DateTime now = fakeClock.nowUtc();
+    createTld("tld");
+    DomainBase domain = newDomainBase("example.tld");
+    HistoryEntry historyEntry =
+        new HistoryEntry.Builder()
+            .setParent(domain)
+            .setModificationTime(now)
+            .setRequestedByRegistrar(false)
+            .setType(HistoryEntry.Type.DOMAIN_CREATE)
+            .setXmlBytes(new byte[0])
+            .build()
+            .toChildHistoryEntity();
+    BillingEvent.Recurring recurring =
+        new BillingEvent.Recurring.Builder()
+            .setParent(historyEntry)
+            .setClientId("TheRegistrar")
+            .setTargetId("example.tld")
+            .setFlags(ImmutableSet.of(Flag.AUTO_RENEW))
+            .setReason(Reason.RENEW)
+            .setEventTime(now.plusYears(1))
+            .setRecurrenceEndTime(END_OF_TIME)
+            .build();
+    // The cancellation references the recurring event, and sorts before it by kind.
+    BillingEvent.Cancellation cancellation =
+        new BillingEvent.Cancellation.Builder()
+            .setParent(historyEntry)
+            .setClientId("TheRegistrar")
+            .setTargetId("example.tld")
+            .setReason(Reason.RENEW)
+            .setEventTime(now.plusDays(1))
+            .setBillingTime(now.plusYears(1).plusDays(45))
+            .setRecurringEventKey(recurring.createVKey())
+            .build();
+    Key<CommitLogManifest> manifest1Key =
+        CommitLogManifest.createKey(getBucketKey(1), now.minusMinutes(1));
+    Key<CommitLogManifest> manifest2Key =
+        CommitLogManifest.createKey(getBucketKey(1), now.minusMinutes(1).plusMillis(1));
+    CommitLogMutation recurringMutation =
+        tm().transact(() -> CommitLogMutation.create(manifest1Key, recurring));
+    CommitLogMutation cancellationMutation =
+        tm().transact(() -> CommitLogMutation.create(manifest2Key, cancellation));
+    jpaTm().transact(() -> SqlReplayCheckpoint.set(now.minusMinutes(1).minusMillis(1)));
+
+    // spy the txn manager so we can see what order things were inserted
+    JpaTransactionManager spy = spy(jpaTm());
+    TransactionManagerFactory.setJpaTm(() -> spy);
+    doNothing().when(spy).put(any(BillingEvent.class));
+    // Save two commits -- the recurring event, then the cancellation that references it
+    saveDiffFile(
+        gcsService,
+        createCheckpoint(now.minusMinutes(1).plusMillis(1)),
+        CommitLogManifest.create(getBucketKey(1), now.minusMinutes(1), null),
+        recurringMutation,
+        CommitLogManifest.create(getBucketKey(1), now.minusMinutes(1).plusMillis(1), null),
+        cancellationMutation);
+    runAndAssertSuccess(now.minusMinutes(1).plusMillis(1));
+    // Both transactions are replayed in the same batch, but the recurring event must still be
+    // inserted first, since the cancellation has a foreign key on it.
+    InOrder inOrder = Mockito.inOrder(spy);
+    inOrder.verify(spy).put(any(BillingEvent.Recurring.class));
+    inOrder.verify(spy).put(any(BillingEvent.Cancellation.class));
+  }
+
   @Test
   void testSuccess_nonReplicatedEntity_isNotReplayed() {
     DateTime now = fakeClock.nowUtc();
@@ -0,0 +1,67 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.batch;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static google.registry.persistence.transaction.TransactionManagerFactory.jpaTm;
+
+import com.google.common.collect.ImmutableList;
+import google.registry.schema.server.CacheInvalidation;
+import google.registry.testing.AppEngineExtension;
+import google.registry.testing.FakeClock;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+/** Unit tests for {@link DeleteExpiredCacheInvalidationsAction}. */
+class DeleteExpiredCacheInvalidationsActionTest {
+
+  private final FakeClock clock = new FakeClock(DateTime.parse("2020-12-01T00:00:00Z"));
+
+  @RegisterExtension
+  final AppEngineExtension appEngine =
+      AppEngineExtension.builder().withDatastoreAndCloudSql().withClock(clock).build();
+
+  private final DeleteExpiredCacheInvalidationsAction action =
+      new DeleteExpiredCacheInvalidationsAction();
+
+  @Test
+  void testRun_deletesExpiredInvalidations() {
+    DateTime cutoff = clock.nowUtc().minus(DeleteExpiredCacheInvalidationsAction.RETENTION);
+    jpaTm()
+        .transact(
+            () ->
+                jpaTm()
+                    .insertAll(
+                        ImmutableList.of(
+                            CacheInvalidation.create("Registry", "old", cutoff.minusMillis(1)),
+                            CacheInvalidation.create("Registry", "cutoff", cutoff),
+                            CacheInvalidation.create("Registry", "new", clock.nowUtc()))));
+    action.run();
+    assertThat(
+            jpaTm()
+                .transact(
+                    () ->
+                        jpaTm()
+                            .getEntityManager()
+                            .createQuery("FROM CacheInvalidation", CacheInvalidation.class)
+                            .getResultList())
+                .stream()
+                .map(CacheInvalidation::getCacheKey)
+                .collect(toImmutableList()))
+        .containsExactly("cutoff", "new");
+  }
+}
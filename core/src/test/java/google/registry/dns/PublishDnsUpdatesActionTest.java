@@ -91,6 +91,7 @@ public class PublishDnsUpdatesActionTest {
     action.dnsWriter = "correctWriter";
     action.dnsWriterProxy = new DnsWriterProxy(ImmutableMap.of("correctWriter", dnsWriter));
     action.dnsMetrics = dnsMetrics;
+    action.batchSizer = DnsBatchSizer.createFixedForTesting(100);
     action.dnsQueue = dnsQueue;
     action.lockIndex = 1;
     action.numPublishLocks = 1;
@@ -52,6 +52,7 @@ import google.registry.util.Retrier;
 import google.registry.util.TaskQueueUtils;
 import java.util.Map.Entry;
 import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 import org.joda.time.DateTime;
@@ -65,6 +66,8 @@ public class ReadDnsQueueActionTest {
 
   private static final int TEST_TLD_UPDATE_BATCH_SIZE = 100;
   private DnsQueue dnsQueue;
+  private DnsBatchSizer batchSizer =
+      DnsBatchSizer.createFixedForTesting(TEST_TLD_UPDATE_BATCH_SIZE);
   // Because of a bug in the queue test environment - b/73372999 - we must set the fake date of the
   // test in the future. Set to year 3000 so it'll remain in the future for a very long time.
   private FakeClock clock = new FakeClock(DateTime.parse("3000-01-01TZ"));
@@ -117,7 +120,8 @@ public class ReadDnsQueueActionTest {
 
   private void run() {
     ReadDnsQueueAction action = new ReadDnsQueueAction();
-    action.tldUpdateBatchSize = TEST_TLD_UPDATE_BATCH_SIZE;
+    action.batchSizer = batchSizer;
+    action.dnsMetrics = new DnsMetrics();
     action.requestedMaximumDuration = Duration.standardSeconds(10);
     action.clock = clock;
     action.dnsQueue = dnsQueue;
@@ -262,6 +266,51 @@ public class ReadDnsQueueActionTest {
             "numPublishLocks", "1");
   }
 
+  @Test
+  void testSuccess_duplicateRefreshes_publishedOnceWithEarliestTime() {
+    clock.setTo(DateTime.parse("3000-02-03TZ"));
+    dnsQueue.addDomainRefreshTask("domain1.com");
+    clock.setTo(DateTime.parse("3000-02-04TZ"));
+    dnsQueue.addDomainRefreshTask("domain1.com");
+    dnsQueue.addDomainRefreshTask("domain2.com");
+    clock.setTo(DateTime.parse("3000-02-05TZ"));
+    dnsQueue.addDomainRefreshTask("domain1.com");
+
+    run();
+
+    assertNoTasksEnqueued(DNS_PULL_QUEUE_NAME);
+    assertThat(getQueuedParams(DNS_PUBLISH_PUSH_QUEUE_NAME)).hasSize(1);
+    assertThat(getQueuedParams(DNS_PUBLISH_PUSH_QUEUE_NAME).get(0))
+        .containsAtLeast(
+            "itemsCreated", "3000-02-03T00:00:00.000Z",
+            "domains", "domain1.com,domain2.com");
+  }
+
+  @Test
+  void testSuccess_batchSizeAdaptsToPublishLatency() {
+    batchSizer =
+        new DnsBatchSizer(
+            100,
+            1000,
+            Duration.standardSeconds(30),
+            Duration.standardMinutes(5),
+            new ConcurrentHashMap<>());
+    // 100ms per item, so 300 items per batch, or 600 since the backlog is an hour old.
+    batchSizer.recordPublish("com", Duration.standardSeconds(10), 100);
+    IntStream.range(0, 1000)
+        .mapToObj(i -> String.format("domain_%04d.com", i))
+        .forEach(dnsQueue::addDomainRefreshTask);
+
+    run();
+
+    assertNoTasksEnqueued(DNS_PULL_QUEUE_NAME);
+    assertThat(
+            getQueuedParams(DNS_PUBLISH_PUSH_QUEUE_NAME).stream()
+                .map(params -> params.get("domains").stream().collect(onlyElement()))
+                .map(domains -> Splitter.on(',').splitToList(domains).size()))
+        .containsExactly(600, 400);
+  }
+
   @Test
   void testSuccess_oneTldPaused_returnedToQueue() {
     persistResource(Registry.get("net").asBuilder().setDnsPaused(true).build());
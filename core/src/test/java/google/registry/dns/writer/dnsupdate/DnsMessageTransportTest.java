@@ -22,6 +22,7 @@ import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import com.google.common.base.VerifyException;
+import google.registry.testing.FakeClock;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.EOFException;
@@ -32,6 +33,7 @@ import java.net.SocketTimeoutException;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
 import javax.net.SocketFactory;
+import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -43,6 +45,7 @@ import org.xbill.DNS.Name;
 import org.xbill.DNS.Opcode;
 import org.xbill.DNS.Rcode;
 import org.xbill.DNS.Record;
+import org.xbill.DNS.TextParseException;
 import org.xbill.DNS.Type;
 import org.xbill.DNS.Update;
 
@@ -50,9 +53,12 @@ import org.xbill.DNS.Update;
 class DnsMessageTransportTest {
 
   private static final String UPDATE_HOST = "127.0.0.1";
+  private static final Duration TIMEOUT = Duration.standardSeconds(10);
 
   private final SocketFactory mockFactory = mock(SocketFactory.class);
   private final Socket mockSocket = mock(Socket.class);
+  private int nextQueryId = 1;
+  private final FakeClock clock = new FakeClock(DateTime.parse("2020-01-01T00:00:00Z"));
 
   private Message simpleQuery;
   private Message expectedResponse;
@@ -65,7 +71,7 @@ class DnsMessageTransportTest {
     expectedResponse = responseMessageWithCode(simpleQuery, Rcode.NOERROR);
     when(mockFactory.createSocket(InetAddress.getByName(UPDATE_HOST), DnsMessageTransport.DNS_PORT))
         .thenReturn(mockSocket);
-    resolver = new DnsMessageTransport(mockFactory, UPDATE_HOST, Duration.ZERO);
+    resolver = createTransport(mockFactory, Duration.ZERO);
   }
 
   @Test
@@ -117,7 +123,7 @@ class DnsMessageTransportTest {
     when(mockSocket.getOutputStream()).thenReturn(new ByteArrayOutputStream());
 
     Duration testTimeout = Duration.standardSeconds(1);
-    DnsMessageTransport resolver = new DnsMessageTransport(mockFactory, UPDATE_HOST, testTimeout);
+    DnsMessageTransport resolver = createTransport(mockFactory, testTimeout);
     Message expectedQuery = new Message();
     assertThrows(SocketTimeoutException.class, () -> resolver.send(expectedQuery));
     verify(mockSocket).setSoTimeout((int) testTimeout.getMillis());
@@ -169,6 +175,72 @@ class DnsMessageTransportTest {
         .contains("response opcode 'STATUS' does not match query opcode 'QUERY'");
   }
 
+  @Test
+  void testSend_reusesConnection() throws Exception {
+    try (FakeDnsServer server = new FakeDnsServer()) {
+      DnsMessageTransport transport = createTransport(server.getSocketFactory(), TIMEOUT);
+      for (int i = 0; i < 3; i++) {
+        Message query = createQuery("example" + i + ".tld.");
+        assertThat(transport.send(query).getHeader().getID())
+            .isEqualTo(query.getHeader().getID());
+      }
+      assertThat(server.getConnectionCount()).isEqualTo(1);
+      assertThat(server.getReceivedMessages()).hasSize(3);
+    }
+  }
+
+  @Test
+  void testSend_idleConnectionExpires_opensNewConnection() throws Exception {
+    try (FakeDnsServer server = new FakeDnsServer()) {
+      DnsMessageTransport transport = createTransport(server.getSocketFactory(), TIMEOUT);
+      transport.send(createQuery("example.tld."));
+      clock.advanceBy(Duration.standardSeconds(21));
+      transport.send(createQuery("example.tld."));
+      assertThat(server.getConnectionCount()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  void testSend_connectionClosedByServer_retriesOnNewConnection() throws Exception {
+    try (FakeDnsServer server = new FakeDnsServer().setCloseAfterResponse(true)) {
+      DnsMessageTransport transport = createTransport(server.getSocketFactory(), TIMEOUT);
+      transport.send(createQuery("example1.tld."));
+      Message query = createQuery("example2.tld.");
+      assertThat(transport.send(query).getHeader().getID()).isEqualTo(query.getHeader().getID());
+      assertThat(server.getConnectionCount()).isEqualTo(2);
+    }
+  }
+
+  @Test
+  void testSend_sharedPool_usesClockOfEachTransport() throws Exception {
+    try (FakeDnsServer server = new FakeDnsServer()) {
+      SocketFactory factory = server.getSocketFactory();
+      createTransport(factory, TIMEOUT).send(createQuery("example1.tld."));
+      // A second transport to the same server shares the pool but has its own, later clock.
+      FakeClock laterClock = new FakeClock(clock.nowUtc().plusSeconds(21));
+      new DnsMessageTransport(
+              factory, UPDATE_HOST, TIMEOUT, 2, Duration.standardSeconds(20), laterClock)
+          .send(createQuery("example2.tld."));
+      assertThat(server.getConnectionCount()).isEqualTo(2);
+    }
+  }
+
+  private DnsMessageTransport createTransport(SocketFactory factory, Duration timeout) {
+    return new DnsMessageTransport(
+        factory, UPDATE_HOST, timeout, 2, Duration.standardSeconds(20), clock);
+  }
+
+  private Message createQuery(String name) {
+    try {
+      Message query =
+          Message.newQuery(Record.newRecord(Name.fromString(name), Type.A, DClass.IN));
+      query.getHeader().setID(nextQueryId++);
+      return query;
+    } catch (TextParseException e) {
+      throw new IllegalArgumentException(e);
+    }
+  }
+
   private Message responseMessageWithCode(Message query, int responseCode) {
     Message message = new Message(query.getHeader().getID());
     message.getHeader().setOpcode(query.getHeader().getOpcode());
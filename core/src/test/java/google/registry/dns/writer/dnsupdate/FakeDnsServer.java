@@ -0,0 +1,152 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.dns.writer.dnsupdate;
+
+import com.google.common.collect.ImmutableList;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.net.SocketFactory;
+import org.xbill.DNS.Flags;
+import org.xbill.DNS.Message;
+import org.xbill.DNS.Rcode;
+
+/**
+ * A stand-in for a DNS server, listening on a local port, that answers every message with NOERROR.
+ *
+ * <p>Use {@link #getSocketFactory} to connect to it, since it doesn't listen on the standard DNS
+ * port.
+ */
+final class FakeDnsServer implements AutoCloseable {
+
+  private final ServerSocket serverSocket;
+  private final ExecutorService executor = Executors.newCachedThreadPool();
+  private final AtomicInteger connectionCount = new AtomicInteger();
+  private final List<Message> receivedMessages = new ArrayList<>();
+  private volatile boolean closeAfterResponse = false;
+
+  FakeDnsServer() throws IOException {
+    serverSocket = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+    executor.execute(this::acceptConnections);
+  }
+
+  /** Returns a factory of sockets connected to this server, whatever port they ask for. */
+  SocketFactory getSocketFactory() {
+    return new SocketFactory() {
+      @Override
+      public Socket createSocket(InetAddress host, int port) throws IOException {
+        return new Socket(host, serverSocket.getLocalPort());
+      }
+
+      @Override
+      public Socket createSocket(String host, int port) throws IOException {
+        return new Socket(host, serverSocket.getLocalPort());
+      }
+
+      @Override
+      public Socket createSocket(
+          InetAddress host, int port, InetAddress localAddress, int localPort) {
+        throw new UnsupportedOperationException();
+      }
+
+      @Override
+      public Socket createSocket(String host, int port, InetAddress localHost, int localPort) {
+        throw new UnsupportedOperationException();
+      }
+    };
+  }
+
+  /** Makes the server close each connection after answering its first message. */
+  FakeDnsServer setCloseAfterResponse(boolean closeAfterResponse) {
+    this.closeAfterResponse = closeAfterResponse;
+    return this;
+  }
+
+  /** Returns the number of connections the server has accepted. */
+  int getConnectionCount() {
+    return connectionCount.get();
+  }
+
+  /** Returns the messages received by the server, in the order they were received. */
+  ImmutableList<Message> getReceivedMessages() {
+    synchronized (receivedMessages) {
+      return ImmutableList.copyOf(receivedMessages);
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    serverSocket.close();
+    executor.shutdownNow();
+  }
+
+  private void acceptConnections() {
+    while (!serverSocket.isClosed()) {
+      try {
+        Socket socket = serverSocket.accept();
+        connectionCount.incrementAndGet();
+        executor.execute(() -> serve(socket));
+      } catch (IOException e) {
+        return;
+      }
+    }
+  }
+
+  private void serve(Socket socket) {
+    try (Socket closeable = socket) {
+      DataInputStream input = new DataInputStream(socket.getInputStream());
+      DataOutputStream output = new DataOutputStream(socket.getOutputStream());
+      while (true) {
+        byte[] messageData;
+        try {
+          messageData = new byte[input.readUnsignedShort()];
+        } catch (EOFException e) {
+          return;
+        }
+        input.readFully(messageData);
+        Message query = new Message(messageData);
+        synchronized (receivedMessages) {
+          receivedMessages.add(query);
+        }
+        byte[] responseData = createResponse(query).toWire();
+        output.writeShort(responseData.length);
+        output.write(responseData);
+        output.flush();
+        if (closeAfterResponse) {
+          return;
+        }
+      }
+    } catch (IOException e) {
+      // The client went away, nothing to do.
+    }
+  }
+
+  private static Message createResponse(Message query) {
+    Message response = new Message(query.getHeader().getID());
+    response.getHeader().setOpcode(query.getHeader().getOpcode());
+    response.getHeader().setFlag(Flags.QR);
+    response.getHeader().setRcode(Rcode.NOERROR);
+    return response;
+  }
+}
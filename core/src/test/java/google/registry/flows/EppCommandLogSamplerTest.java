@@ -0,0 +1,131 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.flows;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.ImmutableMap;
+import google.registry.flows.domain.DomainCheckFlow;
+import google.registry.flows.domain.DomainCreateFlow;
+import google.registry.flows.domain.DomainInfoFlow;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link EppCommandLogSampler}. */
+class EppCommandLogSamplerTest {
+
+  private double random = 0.5;
+
+  private final EppCommandLogSampler sampler =
+      new EppCommandLogSampler(
+          0.25,
+          ImmutableMap.of("DomainCheckFlow", 0.75, "DomainInfoFlow", 0.0),
+          ImmutableMap.of("TheRegistrar", 1.0, "NewRegistrar", 0.1),
+          () -> random);
+
+  @Test
+  void testGetSampleRate_default() {
+    assertThat(sampler.getSampleRate(DomainCreateFlow.class, "SomeRegistrar")).isEqualTo(0.25);
+    assertThat(sampler.getSampleRate(DomainCreateFlow.class, null)).isEqualTo(0.25);
+  }
+
+  @Test
+  void testGetSampleRate_flowOverride() {
+    assertThat(sampler.getSampleRate(DomainCheckFlow.class, "SomeRegistrar")).isEqualTo(0.75);
+    assertThat(sampler.getSampleRate(DomainInfoFlow.class, null)).isEqualTo(0.0);
+  }
+
+  @Test
+  void testGetSampleRate_registrarOverrideTakesPrecedence() {
+    assertThat(sampler.getSampleRate(DomainInfoFlow.class, "TheRegistrar")).isEqualTo(1.0);
+    assertThat(sampler.getSampleRate(DomainCheckFlow.class, "NewRegistrar")).isEqualTo(0.1);
+  }
+
+  @Test
+  void testDrawSample_usesRandomValue() {
+    random = 0.3;
+    assertThat(sampler.drawSample()).isEqualTo(0.3);
+  }
+
+  @Test
+  void testShouldLog_usesSample() {
+    assertThat(sampler.shouldLog(DomainCheckFlow.class, "SomeRegistrar", 0.5)).isTrue();
+    assertThat(sampler.shouldLog(DomainCreateFlow.class, "SomeRegistrar", 0.5)).isFalse();
+    assertThat(sampler.shouldLog(DomainCreateFlow.class, "SomeRegistrar", 0.1)).isTrue();
+    assertThat(sampler.shouldLog(DomainCheckFlow.class, "NewRegistrar", 0.1)).isFalse();
+  }
+
+  @Test
+  void testShouldLog_boundaryRates() {
+    assertThat(sampler.shouldLog(DomainInfoFlow.class, "SomeRegistrar", 0.0)).isFalse();
+    assertThat(sampler.shouldLog(DomainInfoFlow.class, "TheRegistrar", 0.9999)).isTrue();
+  }
+
+  @Test
+  void testMayLog_usesHighestRateOfAnyFlow() {
+    assertThat(sampler.mayLog("SomeRegistrar", 0.5)).isTrue();
+    assertThat(sampler.mayLog(null, 0.5)).isTrue();
+    assertThat(sampler.mayLog("SomeRegistrar", 0.8)).isFalse();
+  }
+
+  @Test
+  void testMayLog_registrarOverrideTakesPrecedence() {
+    assertThat(sampler.mayLog("TheRegistrar", 0.9999)).isTrue();
+    assertThat(sampler.mayLog("NewRegistrar", 0.05)).isTrue();
+    assertThat(sampler.mayLog("NewRegistrar", 0.5)).isFalse();
+    assertThat(
+            new EppCommandLogSampler(
+                    1.0, ImmutableMap.of(), ImmutableMap.of("TheRegistrar", 0.0), () -> random)
+                .mayLog("TheRegistrar", 0.0))
+        .isFalse();
+  }
+
+  @Test
+  void testMayLog_trueWheneverAnyFlowIsLogged() {
+    for (double sample : new double[] {0.0, 0.05, 0.25, 0.5, 0.75, 0.9999}) {
+      for (String clientId : new String[] {"TheRegistrar", "NewRegistrar", "SomeRegistrar"}) {
+        boolean anyFlowLogged =
+            sampler.shouldLog(DomainCheckFlow.class, clientId, sample)
+                || sampler.shouldLog(DomainCreateFlow.class, clientId, sample)
+                || sampler.shouldLog(DomainInfoFlow.class, clientId, sample);
+        if (anyFlowLogged) {
+          assertThat(sampler.mayLog(clientId, sample)).isTrue();
+        }
+      }
+    }
+  }
+
+  @Test
+  void testLogEverything() {
+    EppCommandLogSampler everything = EppCommandLogSampler.logEverything();
+    double sample = everything.drawSample();
+    assertThat(everything.mayLog("TheRegistrar", sample)).isTrue();
+    assertThat(everything.shouldLog(DomainCheckFlow.class, "TheRegistrar", sample)).isTrue();
+    assertThat(everything.shouldLog(DomainInfoFlow.class, null, sample)).isTrue();
+  }
+
+  @Test
+  void testFailure_nanSampleRate() {
+    IllegalArgumentException thrown =
+        assertThrows(
+            IllegalArgumentException.class,
+            () ->
+                new EppCommandLogSampler(
+                    1.0, ImmutableMap.of("DomainCheckFlow", Double.NaN), ImmutableMap.of()));
+    assertThat(thrown)
+        .hasMessageThat()
+        .isEqualTo("EPP command log sample rate for DomainCheckFlow must be a number");
+  }
+}
@@ -114,6 +114,7 @@ class EppControllerTest {
     eppController.flowComponentBuilder = flowComponentBuilder;
     eppController.eppMetrics = eppMetrics;
     eppController.serverTridProvider = new FakeServerTridProvider();
+    eppController.commandLogSampler = EppCommandLogSampler.logEverything();
   }
 
   @AfterEach
@@ -151,6 +152,7 @@ class EppControllerTest {
     EppMetric expectedMetric = metricBuilder.build();
     verify(eppMetrics).incrementEppRequests(eq(expectedMetric));
     verify(eppMetrics).recordProcessingTime(eq(expectedMetric));
+    verify(eppMetrics).recordBatchLoads(eq(expectedMetric));
   }
 
   @Test
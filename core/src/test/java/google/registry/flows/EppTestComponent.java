@@ -41,6 +41,7 @@ import google.registry.tmch.TmchXmlSignature;
 import google.registry.util.AppEngineServiceUtils;
 import google.registry.util.Clock;
 import google.registry.util.Sleeper;
+import google.registry.whois.WhoisResponseCacheModule;
 import javax.inject.Singleton;
 
 /** Dagger component for running EPP tests. */
@@ -48,7 +49,8 @@ import javax.inject.Singleton;
 @Component(
     modules = {
         ConfigModule.class,
-        EppTestComponent.FakesAndMocksModule.class
+        EppTestComponent.FakesAndMocksModule.class,
+        WhoisResponseCacheModule.class
     })
 interface EppTestComponent {
 
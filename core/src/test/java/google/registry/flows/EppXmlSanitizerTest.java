@@ -15,6 +15,7 @@
 package google.registry.flows;
 
 import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
 import static google.registry.flows.EppXmlSanitizer.sanitizeEppXml;
 import static google.registry.testing.TestDataHelper.loadBytes;
 import static google.registry.xml.XmlTestUtils.assertXmlEqualsIgnoreHeader;
@@ -22,9 +23,13 @@ import static java.nio.charset.StandardCharsets.UTF_16LE;
 import static java.nio.charset.StandardCharsets.UTF_8;
 
 import com.google.common.collect.ImmutableMap;
+import google.registry.model.eppcommon.EppXmlTransformer;
+import google.registry.model.eppinput.EppInput;
 import google.registry.testing.EppLoader;
 import java.util.Base64;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 /** Unit tests for {@link EppXmlSanitizer}. */
 class EppXmlSanitizerTest {
@@ -127,4 +132,58 @@ class EppXmlSanitizerTest {
 
     assertThat(sanitizedXml).isEqualTo(inputXml);
   }
+
+  @Test
+  void testStreamTee_capturesSanitizedXmlWhileUnmarshalling() throws Exception {
+    byte[] inputXmlBytes =
+        new EppLoader(
+                this,
+                "login_update_password.xml",
+                ImmutableMap.of("PW", "oldpass", "NEWPW", "newPw"))
+            .getEppXml()
+            .getBytes(UTF_8);
+    EppXmlSanitizer.StreamTee tee = EppXmlSanitizer.newStreamTee();
+    EppInput eppInput = EppXmlTransformer.unmarshal(EppInput.class, inputXmlBytes, tee::wrap);
+    assertThat(eppInput.getCommandType()).isEqualTo("login");
+    assertThat(tee.getSanitizedXml()).isPresent();
+    assertXmlEqualsIgnoreHeader(sanitizeEppXml(inputXmlBytes), tee.getSanitizedXml().get());
+  }
+
+  @ParameterizedTest
+  @ValueSource(
+      strings = {
+        "contact_create_sh8013.xml",
+        "contact_info.xml",
+        "domain_check_fee_premium.xml",
+        "domain_create_eap_fee.xml",
+        "domain_create_sunrise_encoded_mark.xml"
+      })
+  void testStreamTee_matchesSanitizeEppXml(String filename) throws Exception {
+    byte[] inputXmlBytes = loadBytes(getClass(), filename).read();
+    EppXmlSanitizer.StreamTee tee = EppXmlSanitizer.newStreamTee();
+    EppXmlTransformer.unmarshal(EppInput.class, inputXmlBytes, tee::wrap);
+    assertThat(tee.getSanitizedXml()).hasValue(sanitizeEppXml(inputXmlBytes));
+  }
+
+  @Test
+  void testStreamTee_declarationAndCdata_matchesSanitizeEppXml() throws Exception {
+    byte[] inputXmlBytes =
+        ("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n"
+                + new EppLoader(
+                        this,
+                        "login_update_password.xml",
+                        ImmutableMap.of("PW", "<![CDATA[pass<word]]>", "NEWPW", "new&amp;pass"))
+                    .getEppXml())
+            .getBytes(UTF_8);
+    EppXmlSanitizer.StreamTee tee = EppXmlSanitizer.newStreamTee();
+    EppXmlTransformer.unmarshal(EppInput.class, inputXmlBytes, tee::wrap);
+    assertThat(tee.getSanitizedXml()).hasValue(sanitizeEppXml(inputXmlBytes));
+    assertThat(tee.getSanitizedXml().get())
+        .startsWith("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>");
+  }
+
+  @Test
+  void testStreamTee_unused_isEmpty() {
+    assertThat(EppXmlSanitizer.newStreamTee().getSanitizedXml()).isEmpty();
+  }
 }
@@ -20,16 +20,21 @@ import static com.google.common.truth.Truth8.assertThat;
 import static google.registry.testing.TestDataHelper.loadFile;
 import static google.registry.testing.TestLogHandlerUtils.findFirstLogMessageByPrefix;
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
 
 import com.google.common.base.Joiner;
 import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.flogger.LoggerConfig;
 import com.google.common.testing.TestLogHandler;
+import google.registry.config.RegistryConfig.ConfigModule.EppCommandLogFormat;
 import google.registry.model.eppcommon.Trid;
+import google.registry.model.eppinput.EppInput;
 import google.registry.model.eppoutput.EppOutput.ResponseOrGreeting;
 import google.registry.model.eppoutput.EppResponse;
 import google.registry.monitoring.whitebox.EppMetric;
@@ -70,6 +75,7 @@ class FlowRunnerTest {
     flowRunner.flowProvider = TestCommandFlow::new;
     flowRunner.flowClass = TestCommandFlow.class;
     flowRunner.inputXmlBytes = "<xml/>".getBytes(UTF_8);
+    flowRunner.eppInput = Mockito.mock(EppInput.class);
     flowRunner.isDryRun = false;
     flowRunner.isSuperuser = false;
     flowRunner.isTransactional = false;
@@ -77,6 +83,11 @@ class FlowRunnerTest {
         new StatelessRequestSessionMetadata("TheRegistrar", ImmutableSet.of());
     flowRunner.trid = Trid.create("client-123", "server-456");
     flowRunner.flowReporter = Mockito.mock(FlowReporter.class);
+    flowRunner.sanitizedInputXml = Optional.empty();
+    flowRunner.commandLogSample = 0.5;
+    flowRunner.commandLogSampler = EppCommandLogSampler.logEverything();
+    flowRunner.commandLogFormat = EppCommandLogFormat.PRETTY;
+    flowRunner.cachedResponseInvalidator = mock(CachedResponseInvalidator.class);
   }
 
   @Test
@@ -105,6 +116,36 @@ class FlowRunnerTest {
     verify(flowRunner.flowReporter, never()).recordToLogs();
   }
 
+  @Test
+  void testRun_hostRename_invalidatesOldAndNewNames() throws Exception {
+    flowRunner.isTransactional = true;
+    when(flowRunner.eppInput.getResourceType()).thenReturn(Optional.of("host"));
+    when(flowRunner.eppInput.getSingleTargetId()).thenReturn(Optional.of("ns1.example.tld"));
+    when(flowRunner.eppInput.getNewHostName()).thenReturn(Optional.of("ns2.example.tld"));
+    flowRunner.run(eppMetricBuilder);
+    verify(flowRunner.cachedResponseInvalidator)
+        .invalidate(ImmutableSet.of("ns1.example.tld", "ns2.example.tld"));
+  }
+
+  @Test
+  void testRun_dryRun_doesNotInvalidateCachedResponses() throws Exception {
+    flowRunner.isTransactional = true;
+    flowRunner.isDryRun = true;
+    when(flowRunner.eppInput.getResourceType()).thenReturn(Optional.of("domain"));
+    when(flowRunner.eppInput.getSingleTargetId()).thenReturn(Optional.of("example.tld"));
+    flowRunner.run(eppMetricBuilder);
+    verify(flowRunner.cachedResponseInvalidator, never()).invalidate(any());
+  }
+
+  @Test
+  void testRun_contactCommand_doesNotInvalidateCachedResponses() throws Exception {
+    flowRunner.isTransactional = true;
+    when(flowRunner.eppInput.getResourceType()).thenReturn(Optional.of("contact"));
+    when(flowRunner.eppInput.getSingleTargetId()).thenReturn(Optional.of("sh8013"));
+    flowRunner.run(eppMetricBuilder);
+    verify(flowRunner.cachedResponseInvalidator, never()).invalidate(any());
+  }
+
   @Test
   void testRun_loggingStatement_basic() throws Exception {
     flowRunner.run(eppMetricBuilder);
@@ -173,4 +214,59 @@ class FlowRunnerTest {
     String xml = Joiner.on('\n').join(lines.subList(3, lines.size() - 4));
     assertThat(xml).isEqualTo(sanitizedDomainCreateXml);
   }
+
+  @Test
+  void testRun_loggingStatement_compact() throws Exception {
+    String domainCreateXml = loadFile(getClass(), "domain_create_prettyprinted.xml");
+    flowRunner.inputXmlBytes = domainCreateXml.getBytes(UTF_8);
+    flowRunner.commandLogFormat = EppCommandLogFormat.COMPACT;
+    flowRunner.run(eppMetricBuilder);
+    String logMessage = findFirstLogMessageByPrefix(handler, "EPP Command: ");
+    assertThat(logMessage).doesNotContain("\n");
+    assertThat(logMessage)
+        .startsWith(
+            "serverTrid=server-456 clientId=TheRegistrar flow=TestCommandFlow session=");
+    assertThat(logMessage).contains(" source=UNIT_TEST mode=LIVE privileges=NORMAL xml=<?xml");
+    assertThat(logMessage).contains("<domain:pw>*******</domain:pw>");
+    assertThat(logMessage).doesNotContain("2fooBAR");
+    assertThat(logMessage).doesNotContain("> <");
+  }
+
+  @Test
+  void testRun_loggingStatement_usesCapturedSanitizedXml() throws Exception {
+    flowRunner.inputXmlBytes = "<xml><pw>secret</pw></xml>".getBytes(UTF_8);
+    flowRunner.sanitizedInputXml = Optional.of("<xml><pw>captured</pw></xml>\n");
+    flowRunner.commandLogFormat = EppCommandLogFormat.COMPACT;
+    flowRunner.run(eppMetricBuilder);
+    assertThat(findFirstLogMessageByPrefix(handler, "EPP Command: "))
+        .endsWith(" xml=<xml><pw>captured</pw></xml>");
+  }
+
+  @Test
+  void testRun_loggingStatement_sampledOut() throws Exception {
+    flowRunner.commandLogSampler =
+        new EppCommandLogSampler(
+            1.0, ImmutableMap.of(), ImmutableMap.of("TheRegistrar", 0.0), () -> 0.5);
+    flowRunner.run(eppMetricBuilder);
+    assertThat(handler.getStoredLogRecords()).isEmpty();
+    verify(flowRunner.flowReporter).recordToLogs();
+  }
+
+  @Test
+  void testRun_loggingStatement_sampleAboveRate_notLogged() throws Exception {
+    flowRunner.commandLogSampler =
+        new EppCommandLogSampler(0.25, ImmutableMap.of(), ImmutableMap.of(), () -> 0.0);
+    flowRunner.commandLogSample = 0.5;
+    flowRunner.run(eppMetricBuilder);
+    assertThat(handler.getStoredLogRecords()).isEmpty();
+  }
+
+  @Test
+  void testRun_loggingStatement_sampleBelowRate_logged() throws Exception {
+    flowRunner.commandLogSampler =
+        new EppCommandLogSampler(0.25, ImmutableMap.of(), ImmutableMap.of(), () -> 1.0);
+    flowRunner.commandLogSample = 0.1;
+    flowRunner.run(eppMetricBuilder);
+    assertThat(findFirstLogMessageByPrefix(handler, "EPP Command")).isNotEmpty();
+  }
 }
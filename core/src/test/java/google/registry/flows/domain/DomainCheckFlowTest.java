@@ -14,6 +14,8 @@
 
 package google.registry.flows.domain;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
 import static google.registry.model.domain.token.AllocationToken.TokenType.SINGLE_USE;
 import static google.registry.model.domain.token.AllocationToken.TokenType.UNLIMITED_USE;
 import static google.registry.model.eppoutput.CheckData.DomainCheck.create;
@@ -734,6 +736,21 @@ class DomainCheckFlowTest extends ResourceCheckFlowTestCase<DomainCheckFlow, Dom
     runFlowAssertResponse(loadFile("domain_check_fee_response_thirty_domains.xml"));
   }
 
+  @Test
+  void testSuccess_restoreFees_recordsBatchLoadsOnEppMetric() throws Exception {
+    setEppInput("domain_check_fee_thirty_domains.xml");
+    for (int i = 1; i < 30; i++) {
+      persistPendingDeleteDomain(String.format("example-%02d.tld", i));
+    }
+    runFlow();
+    assertThat(
+            getEppMetric().getBatchLoads().stream()
+                .map(batchLoad -> batchLoad.getKind() + ":" + batchLoad.getSize())
+                .collect(toImmutableList()))
+        .containsExactly("ForeignKeyIndex:30", "DomainBase:29")
+        .inOrder();
+  }
+
   /**
    * Test commands for create, renew, transfer, restore and update with implicit period and
    * currency.
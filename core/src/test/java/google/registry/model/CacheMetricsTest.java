@@ -0,0 +1,101 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.model;
+
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.monitoring.metrics.contrib.LongMetricSubject.assertThat;
+import static google.registry.model.CacheMetrics.cacheStats;
+import static google.registry.model.CacheUtils.newRefreshAheadCache;
+
+import com.github.benmanes.caffeine.cache.CacheLoader;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.google.common.collect.Streams;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.joda.time.Duration;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link CacheMetrics} and {@link CacheUtils#newRefreshAheadCache}. */
+class CacheMetricsTest {
+
+  private final AtomicInteger loads = new AtomicInteger();
+
+  private final CacheLoader<String, Integer> loader =
+      new CacheLoader<String, Integer>() {
+        @Override
+        public Integer load(String key) {
+          loads.incrementAndGet();
+          return key.length();
+        }
+
+        @Override
+        public Map<String, Integer> loadAll(Iterable<? extends String> keys) {
+          return Streams.stream(keys).distinct().collect(toImmutableMap(key -> key, this::load));
+        }
+      };
+
+  @Test
+  void testRefreshAheadCache_exportsStats() {
+    LoadingCache<String, Integer> cache =
+        newRefreshAheadCache(
+            "testExportsStats",
+            Duration.standardMinutes(1),
+            Duration.standardSeconds(30),
+            1,
+            loader);
+    assertThat(cache.get("a")).isEqualTo(1);
+    assertThat(cache.get("a")).isEqualTo(1);
+    assertThat(cache.get("bb")).isEqualTo(2);
+    assertThat(loads.get()).isEqualTo(2);
+    cache.cleanUp();
+    assertThat(cacheStats)
+        .hasValueForLabels(1, "testExportsStats", "HIT")
+        .and()
+        .hasValueForLabels(2, "testExportsStats", "MISS")
+        .and()
+        .hasValueForLabels(2, "testExportsStats", "LOAD_SUCCESS")
+        .and()
+        .hasValueForLabels(0, "testExportsStats", "LOAD_FAILURE")
+        .and()
+        .hasValueForLabels(1, "testExportsStats", "EVICTION");
+  }
+
+  @Test
+  void testRefreshAheadCache_zeroExpiry_doesNotCache() {
+    LoadingCache<String, Integer> cache =
+        newRefreshAheadCache("testZeroExpiry", Duration.ZERO, Duration.ZERO, 10, loader);
+    cache.get("a");
+    cache.get("a");
+    assertThat(loads.get()).isEqualTo(2);
+  }
+
+  @Test
+  void testRegister_replacesCacheWithSameName() {
+    LoadingCache<String, Integer> first =
+        newRefreshAheadCache(
+            "testReplaced", Duration.standardMinutes(1), Duration.ZERO, 10, loader);
+    first.get("a");
+    LoadingCache<String, Integer> second =
+        newRefreshAheadCache(
+            "testReplaced", Duration.standardMinutes(1), Duration.ZERO, 10, loader);
+    second.get("a");
+    second.get("a");
+    assertThat(cacheStats)
+        .hasValueForLabels(1, "testReplaced", "HIT")
+        .and()
+        .hasValueForLabels(1, "testReplaced", "MISS");
+  }
+}
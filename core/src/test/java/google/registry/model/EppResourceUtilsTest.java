@@ -15,15 +15,23 @@
 package google.registry.model;
 
 import static com.google.common.truth.Truth.assertThat;
+import static google.registry.model.EppResourceUtils.getHostKeysByInetAddress;
 import static google.registry.model.EppResourceUtils.loadAtPointInTime;
+import static google.registry.model.EppResourceUtils.loadByForeignKeysCached;
 import static google.registry.testing.DatabaseHelper.createTld;
 import static google.registry.testing.DatabaseHelper.newHostResource;
+import static google.registry.testing.DatabaseHelper.persistActiveHost;
+import static google.registry.testing.DatabaseHelper.persistDeletedHost;
 import static google.registry.testing.DatabaseHelper.persistNewRegistrars;
 import static google.registry.testing.DatabaseHelper.persistResource;
 import static google.registry.testing.DatabaseHelper.persistResourceWithCommitLog;
 import static google.registry.util.DateTimeUtils.START_OF_TIME;
 import static org.joda.time.DateTimeZone.UTC;
 
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.net.InetAddresses;
 import google.registry.model.host.HostResource;
 import google.registry.model.ofy.Ofy;
 import google.registry.testing.AppEngineExtension;
@@ -32,6 +40,7 @@ import google.registry.testing.FakeClock;
 import google.registry.testing.InjectExtension;
 import google.registry.testing.TestOfyAndSql;
 import google.registry.testing.TestOfyOnly;
+import java.net.InetAddress;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.junit.jupiter.api.BeforeEach;
@@ -176,4 +185,63 @@ class EppResourceUtilsTest {
                 .getTimestamp())
         .isEqualTo(host.getRevisions().firstKey());
   }
+
+  @TestOfyAndSql
+  void testLoadByForeignKeysCached_skipsMissingAndDeletedResources() {
+    HostResource host1 = persistActiveHost("ns1.cat.tld");
+    HostResource host2 = persistActiveHost("ns2.cat.tld");
+    persistDeletedHost("ns3.cat.tld", clock.nowUtc().minusDays(1));
+    ImmutableMap<String, HostResource> hosts =
+        loadByForeignKeysCached(
+            HostResource.class,
+            ImmutableList.of(
+                "ns1.cat.tld", "ns2.cat.tld", "ns3.cat.tld", "ns4.cat.tld", "ns1.cat.tld"),
+            clock.nowUtc());
+    assertThat(hosts.keySet()).containsExactly("ns1.cat.tld", "ns2.cat.tld");
+    assertThat(hosts.get("ns1.cat.tld").getRepoId()).isEqualTo(host1.getRepoId());
+    assertThat(hosts.get("ns2.cat.tld").getRepoId()).isEqualTo(host2.getRepoId());
+  }
+
+  @TestOfyAndSql
+  void testLoadByForeignKeysCached_empty() {
+    assertThat(loadByForeignKeysCached(HostResource.class, ImmutableList.of(), clock.nowUtc()))
+        .isEmpty();
+  }
+
+  @TestOfyAndSql
+  void testGetHostKeysByInetAddress() {
+    InetAddress ipv4 = InetAddresses.forString("1.2.3.4");
+    InetAddress ipv6 = InetAddresses.forString("2001:db8::1");
+    HostResource host1 =
+        persistResource(
+            newHostResource("ns1.cat.tld")
+                .asBuilder()
+                .setInetAddresses(ImmutableSet.of(ipv4, ipv6))
+                .build());
+    HostResource host2 =
+        persistResource(
+            newHostResource("ns2.cat.tld")
+                .asBuilder()
+                .setInetAddresses(ImmutableSet.of(ipv4))
+                .build());
+    persistResource(
+        newHostResource("ns3.cat.tld")
+            .asBuilder()
+            .setInetAddresses(ImmutableSet.of(ipv4, ipv6))
+            .setDeletionTime(clock.nowUtc().minusDays(1))
+            .build());
+    persistResource(
+        newHostResource("ns4.cat.tld")
+            .asBuilder()
+            .setInetAddresses(ImmutableSet.of(InetAddresses.forString("1.2.3.5")))
+            .build());
+    assertThat(getHostKeysByInetAddress(ipv4, clock.nowUtc(), 10))
+        .containsExactly(host1.createVKey(), host2.createVKey());
+    assertThat(getHostKeysByInetAddress(ipv6, clock.nowUtc(), 10))
+        .containsExactly(host1.createVKey());
+    assertThat(getHostKeysByInetAddress(ipv4, clock.nowUtc(), 1)).hasSize(1);
+    assertThat(
+            getHostKeysByInetAddress(InetAddresses.forString("5.6.7.8"), clock.nowUtc(), 10))
+        .isEmpty();
+  }
 }
@@ -0,0 +1,161 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+package google.registry.model;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static google.registry.persistence.transaction.TransactionManagerFactory.jpaTm;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.google.common.collect.ImmutableList;
+import google.registry.schema.server.CacheInvalidation;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ScheduledExecutorService;
+import org.joda.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+/** Unit tests for {@link SqlCacheInvalidationBus}. */
+public class SqlCacheInvalidationBusTest extends EntityTestCase {
+
+  private static final Duration POLL_INTERVAL = Duration.standardSeconds(10);
+
+  private final List<String> publisherKeys = new ArrayList<>();
+  private final List<String> subscriberKeys = new ArrayList<>();
+  private final List<String> otherCacheKeys = new ArrayList<>();
+
+  private SqlCacheInvalidationBus publisher;
+  private SqlCacheInvalidationBus subscriber;
+
+  SqlCacheInvalidationBusTest() {
+    super(JpaEntityCoverageCheck.ENABLED);
+  }
+
+  @BeforeEach
+  void beforeEach() {
+    publisher = new SqlCacheInvalidationBus(fakeClock, POLL_INTERVAL);
+    subscriber = new SqlCacheInvalidationBus(fakeClock, POLL_INTERVAL);
+    publisher.subscribe("Registry", publisherKeys::add);
+    subscriber.subscribe("Registry", subscriberKeys::add);
+    subscriber.subscribe("ReservedList", otherCacheKeys::add);
+  }
+
+  @Test
+  void testPublish_notifiesLocalListenersImmediately() {
+    publisher.publish("Registry", "tld");
+    assertThat(publisherKeys).containsExactly("tld");
+    assertThat(subscriberKeys).isEmpty();
+  }
+
+  @Test
+  void testPoll_deliversInvalidationsFromOtherInstances() {
+    fakeClock.advanceOneMilli();
+    publisher.publish("Registry", "tld");
+    assertThat(subscriberKeys).isEmpty();
+    subscriber.poll();
+    assertThat(subscriberKeys).containsExactly("tld");
+    assertThat(otherCacheKeys).isEmpty();
+  }
+
+  @Test
+  void testPoll_looksBackOneExtraInterval() {
+    fakeClock.advanceOneMilli();
+    publisher.publish("Registry", "tld");
+    subscriber.poll();
+    fakeClock.advanceBy(POLL_INTERVAL.multipliedBy(2));
+    // Still within one interval before the previous poll, in case it had missed a late commit.
+    subscriber.poll();
+    fakeClock.advanceBy(POLL_INTERVAL);
+    subscriber.poll();
+    assertThat(subscriberKeys).containsExactly("tld", "tld");
+  }
+
+  @Test
+  void testStartPolling_pollsInTheBackground() {
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    subscriber.startPolling(executor);
+    subscriber.startPolling(executor);
+    ArgumentCaptor<Runnable> poll = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor)
+        .scheduleWithFixedDelay(
+            poll.capture(),
+            eq(POLL_INTERVAL.getMillis()),
+            eq(POLL_INTERVAL.getMillis()),
+            eq(MILLISECONDS));
+    fakeClock.advanceOneMilli();
+    publisher.publish("Registry", "tld");
+    poll.getValue().run();
+    assertThat(subscriberKeys).containsExactly("tld");
+  }
+
+  @Test
+  void testFailure_publishInTransaction() {
+    IllegalStateException thrown =
+        assertThrows(
+            IllegalStateException.class,
+            () -> jpaTm().transact(() -> publisher.publish("Registry", "tld")));
+    assertThat(thrown)
+        .hasMessageThat()
+        .isEqualTo(
+            "Invalidation of tld in cache Registry must be published after the transaction"
+                + " commits");
+    assertThat(publisherKeys).isEmpty();
+  }
+
+  @Test
+  void testPublish_afterPollingStarted_writesInBatches() {
+    ScheduledExecutorService executor = mock(ScheduledExecutorService.class);
+    publisher.startPolling(executor);
+    ArgumentCaptor<Runnable> flush = ArgumentCaptor.forClass(Runnable.class);
+    verify(executor)
+        .scheduleWithFixedDelay(
+            flush.capture(),
+            eq(SqlCacheInvalidationBus.FLUSH_INTERVAL.getMillis()),
+            eq(SqlCacheInvalidationBus.FLUSH_INTERVAL.getMillis()),
+            eq(MILLISECONDS));
+    fakeClock.advanceOneMilli();
+    publisher.publish("Registry", "tld");
+    publisher.publish("Registry", "tld");
+    publisher.publish("ReservedList", "list");
+    assertThat(publisherKeys).containsExactly("tld", "tld");
+    assertThat(loadCacheKeys()).isEmpty();
+    flush.getValue().run();
+    assertThat(loadCacheKeys()).containsExactly("tld", "list");
+    subscriber.poll();
+    assertThat(subscriberKeys).containsExactly("tld");
+    assertThat(otherCacheKeys).containsExactly("list");
+    // Nothing is left to write.
+    flush.getValue().run();
+    assertThat(loadCacheKeys()).containsExactly("tld", "list");
+  }
+
+  private static ImmutableList<String> loadCacheKeys() {
+    return jpaTm()
+        .transact(
+            () ->
+                jpaTm()
+                    .getEntityManager()
+                    .createQuery("FROM CacheInvalidation", CacheInvalidation.class)
+                    .getResultList())
+        .stream()
+        .map(CacheInvalidation::getCacheKey)
+        .collect(toImmutableList());
+  }
+}
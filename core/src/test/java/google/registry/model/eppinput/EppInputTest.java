@@ -24,6 +24,7 @@ import google.registry.model.contact.ContactResourceTest;
 import google.registry.model.domain.DomainBaseTest;
 import google.registry.model.eppinput.EppInput.InnerCommand;
 import google.registry.model.eppinput.EppInput.Login;
+import google.registry.model.host.HostResource;
 import google.registry.xml.XmlException;
 import org.junit.jupiter.api.Test;
 
@@ -39,6 +40,7 @@ class EppInputTest {
     assertThat(input.getResourceType()).hasValue("contact");
     assertThat(input.getSingleTargetId()).hasValue("sh8013");
     assertThat(input.getTargetIds()).containsExactly("sh8013");
+    assertThat(input.getNewHostName()).isEmpty();
   }
 
   @Test
@@ -52,6 +54,24 @@ class EppInputTest {
     assertThat(input.getTargetIds()).containsExactly("example.com", "example.net", "example.org");
   }
 
+  @Test
+  void testUnmarshalling_hostUpdate() throws Exception {
+    EppInput input =
+        unmarshal(EppInput.class, loadBytes(HostResource.class, "host_update.xml").read());
+    assertThat(input.getCommandType()).isEqualTo("update");
+    assertThat(input.getResourceType()).hasValue("host");
+    assertThat(input.getSingleTargetId()).hasValue("ns1.example.com");
+    assertThat(input.getNewHostName()).hasValue("ns2.example.com");
+  }
+
+  @Test
+  void testUnmarshalling_hostUpdateWithoutRename() throws Exception {
+    EppInput input =
+        unmarshal(EppInput.class, loadBytes(getClass(), "host_update_without_rename.xml").read());
+    assertThat(input.getSingleTargetId()).hasValue("ns1.example.tld");
+    assertThat(input.getNewHostName()).isEmpty();
+  }
+
   @Test
   void testUnmarshalling_login() throws Exception {
     EppInput input = unmarshal(EppInput.class, loadBytes(getClass(), "login_valid.xml").read());
@@ -0,0 +1,88 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.model.registry.label;
+
+import static com.google.common.truth.Truth.assertThat;
+import static google.registry.model.registry.label.ReservationType.ALLOWED_IN_SUNRISE;
+import static google.registry.model.registry.label.ReservationType.FULLY_BLOCKED;
+import static google.registry.model.registry.label.ReservationType.NAME_COLLISION;
+
+import com.google.common.collect.ImmutableList;
+import google.registry.model.registry.label.DomainLabelMetrics.MetricsReservedListMatch;
+import google.registry.model.registry.label.ReservedLabelIndex.LabelReservations;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link ReservedLabelIndex}. */
+class ReservedLabelIndexTest {
+
+  private final ReservedList rl1 =
+      createReservedList("reserved1", "lol,NAME_COLLISION", "cat,FULLY_BLOCKED");
+  private final ReservedList rl2 =
+      createReservedList("reserved2", "lol,ALLOWED_IN_SUNRISE", "dog,FULLY_BLOCKED");
+
+  private static ReservedList createReservedList(String name, String... lines) {
+    return new ReservedList.Builder()
+        .setName(name)
+        .setReservedListMapFromLines(ImmutableList.copyOf(lines))
+        .setLastUpdateTime(DateTime.parse("2010-01-01T10:00:00Z"))
+        .build();
+  }
+
+  @Test
+  void testGet_mergesAllLists() {
+    ReservedLabelIndex index = ReservedLabelIndex.create(ImmutableList.of(rl1, rl2));
+    assertThat(index.size()).isEqualTo(3);
+    LabelReservations lol = index.get("lol");
+    assertThat(lol.types()).containsExactly(NAME_COLLISION, ALLOWED_IN_SUNRISE);
+    assertThat(lol.matches())
+        .containsExactly(
+            MetricsReservedListMatch.create("reserved1", NAME_COLLISION),
+            MetricsReservedListMatch.create("reserved2", ALLOWED_IN_SUNRISE));
+    assertThat(index.get("cat").types()).containsExactly(FULLY_BLOCKED);
+    assertThat(index.get("dog").types()).containsExactly(FULLY_BLOCKED);
+  }
+
+  @Test
+  void testGet_unreservedLabel() {
+    ReservedLabelIndex index = ReservedLabelIndex.create(ImmutableList.of(rl1, rl2));
+    assertThat(index.get("doge")).isSameInstanceAs(LabelReservations.NONE);
+    assertThat(index.get("doge").types()).isEmpty();
+    assertThat(index.get("doge").matches()).isEmpty();
+  }
+
+  @Test
+  void testGet_noLists() {
+    ReservedLabelIndex index = ReservedLabelIndex.create(ImmutableList.of());
+    assertThat(index.size()).isEqualTo(0);
+    assertThat(index.get("lol").types()).isEmpty();
+  }
+
+  @Test
+  void testCreate_sharesIdenticalReservations() {
+    ReservedList list = createReservedList("reserved", "cat,FULLY_BLOCKED", "dog,FULLY_BLOCKED");
+    ReservedLabelIndex index = ReservedLabelIndex.create(ImmutableList.of(list));
+    assertThat(index.get("cat")).isSameInstanceAs(index.get("dog"));
+  }
+
+  @Test
+  void testIsBuiltFrom_comparesListInstances() {
+    ReservedLabelIndex index = ReservedLabelIndex.create(ImmutableList.of(rl1, rl2));
+    assertThat(index.isBuiltFrom(ImmutableList.of(rl1, rl2))).isTrue();
+    assertThat(index.isBuiltFrom(ImmutableList.of(rl1))).isFalse();
+    assertThat(index.isBuiltFrom(ImmutableList.of(rl2, rl1))).isFalse();
+    assertThat(index.isBuiltFrom(ImmutableList.of(rl1, rl2.asBuilder().build()))).isFalse();
+  }
+}
@@ -228,6 +228,17 @@ class ReservedListTest {
         .hasNoOtherValues();
   }
 
+  @Test
+  void testGetReservationTypes_reflectsNewListRevision() {
+    ReservedList rl = persistReservedList("reserved1", "lol,FULLY_BLOCKED");
+    persistResource(Registry.get("tld").asBuilder().setReservedLists(rl).build());
+    assertThat(getReservationTypes("lol", "tld")).containsExactly(FULLY_BLOCKED);
+    assertThat(getReservationTypes("cat", "tld")).isEmpty();
+    persistReservedList("reserved1", "cat,NAME_COLLISION");
+    assertThat(getReservationTypes("lol", "tld")).isEmpty();
+    assertThat(getReservationTypes("cat", "tld")).containsExactly(NAME_COLLISION);
+  }
+
   @Test
   void testSave() {
     ReservedList rl = persistReservedList("tld-reserved", "lol,FULLY_BLOCKED # yup");
@@ -70,6 +70,6 @@ class HistoryEntryTest extends EntityTestCase {
 
   @Test
   void testIndexing() throws Exception {
-    verifyIndexing(historyEntry, "modificationTime", "clientId");
+    verifyIndexing(historyEntry, "type", "modificationTime", "clientId");
   }
 }
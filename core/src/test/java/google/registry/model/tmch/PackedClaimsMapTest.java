@@ -0,0 +1,91 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.model.tmch;
+
+import static com.google.common.truth.Truth.assertThat;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.ImmutableMap;
+import java.util.HashMap;
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link PackedClaimsMap}. */
+class PackedClaimsMapTest {
+
+  @Test
+  void testEmpty() {
+    PackedClaimsMap map = new PackedClaimsMap.Builder().build();
+    assertThat(map).isEmpty();
+    assertThat(map.get("label")).isNull();
+  }
+
+  @Test
+  void testGet() {
+    PackedClaimsMap map =
+        new PackedClaimsMap.Builder()
+            .put("mango", "2013041500/2/6/9/rJ1NrDO92vDsAzf7EQzgjX4R0000000003")
+            .put("apple", "2013041500/2/6/9/rJ1NrDO92vDsAzf7EQzgjX4R0000000001")
+            .put("banana", "2013041500/2/6/9/rJ1NrDO92vDsAzf7EQzgjX4R0000000002")
+            .put("bananas", "2013041500/2/6/9/rJ1NrDO92vDsAzf7EQzgjX4R0000000004")
+            .build();
+    assertThat(map).hasSize(4);
+    assertThat(map.get("apple")).isEqualTo("2013041500/2/6/9/rJ1NrDO92vDsAzf7EQzgjX4R0000000001");
+    assertThat(map.get("bananas"))
+        .isEqualTo("2013041500/2/6/9/rJ1NrDO92vDsAzf7EQzgjX4R0000000004");
+    assertThat(map.containsKey("mango")).isTrue();
+    assertThat(map.containsKey("banan")).isFalse();
+    assertThat(map.containsKey("zebra")).isFalse();
+    assertThat(map.containsKey("")).isFalse();
+    assertThat(map.containsKey(1)).isFalse();
+  }
+
+  @Test
+  void testIteration_sortedByLabel() {
+    PackedClaimsMap map =
+        new PackedClaimsMap.Builder().put("c", "3").put("a", "1").put("b", "2").build();
+    assertThat(map).containsExactly("a", "1", "b", "2", "c", "3").inOrder();
+  }
+
+  @Test
+  void testEquals_otherMaps() {
+    Map<String, String> labelsToKeys = new HashMap<>();
+    for (int i = 0; i < 1000; i++) {
+      labelsToKeys.put("label" + i, "key" + i);
+    }
+    PackedClaimsMap map = new PackedClaimsMap.Builder().putAll(labelsToKeys).build();
+    assertThat(map).isEqualTo(labelsToKeys);
+    assertThat(ImmutableMap.copyOf(labelsToKeys)).isEqualTo(map);
+    assertThat(map.hashCode()).isEqualTo(labelsToKeys.hashCode());
+    labelsToKeys.forEach((label, key) -> assertThat(map.get(label)).isEqualTo(key));
+  }
+
+  @Test
+  void testFailure_duplicateLabel() {
+    IllegalArgumentException thrown =
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> new PackedClaimsMap.Builder().put("a", "1").put("b", "2").put("a", "3").build());
+    assertThat(thrown).hasMessageThat().isEqualTo("Multiple entries with same label: a");
+  }
+
+  @Test
+  void testFailure_immutable() {
+    PackedClaimsMap map = new PackedClaimsMap.Builder().put("a", "1").build();
+    assertThrows(UnsupportedOperationException.class, () -> map.put("b", "2"));
+    assertThrows(UnsupportedOperationException.class, () -> map.remove("a"));
+    assertThrows(UnsupportedOperationException.class, map::clear);
+  }
+}
@@ -14,13 +14,16 @@
 
 package google.registry.monitoring.whitebox;
 
+import static com.google.common.truth.Truth.assertThat;
 import static com.google.common.truth.Truth8.assertThat;
 import static google.registry.testing.DatabaseHelper.createTld;
 import static google.registry.testing.DatabaseHelper.createTlds;
 
 import com.google.common.collect.ImmutableSet;
+import google.registry.monitoring.whitebox.EppMetric.BatchLoad;
 import google.registry.testing.AppEngineExtension;
 import google.registry.testing.FakeClock;
+import org.joda.time.Duration;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.RegisterExtension;
 
@@ -64,4 +67,23 @@ class EppMetricTest {
         EppMetric.builderForRequest(new FakeClock()).setTlds(ImmutableSet.of()).build();
     assertThat(metric.getTld()).isEmpty();
   }
+
+  @Test
+  void test_batchLoads_areRecordedInOrder() {
+    EppMetric metric =
+        EppMetric.builderForRequest(new FakeClock())
+            .addBatchLoad("ForeignKeyIndex", 3, Duration.millis(5))
+            .addBatchLoad("DomainBase", 2, Duration.millis(7))
+            .build();
+    assertThat(metric.getBatchLoads())
+        .containsExactly(
+            BatchLoad.create("ForeignKeyIndex", 3, Duration.millis(5)),
+            BatchLoad.create("DomainBase", 2, Duration.millis(7)))
+        .inOrder();
+  }
+
+  @Test
+  void test_noBatchLoads_areRecordedAsEmpty() {
+    assertThat(EppMetric.builderForRequest(new FakeClock()).build().getBatchLoads()).isEmpty();
+  }
 }
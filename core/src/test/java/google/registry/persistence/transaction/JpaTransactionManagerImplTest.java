@@ -14,6 +14,7 @@
 
 package google.registry.persistence.transaction;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.truth.Truth.assertThat;
 import static google.registry.persistence.transaction.TransactionManagerFactory.jpaTm;
 import static google.registry.testing.TestDataHelper.fileClassPath;
@@ -25,6 +26,7 @@ import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import google.registry.model.ImmutableObject;
 import google.registry.persistence.VKey;
 import google.registry.persistence.transaction.JpaTestRules.JpaUnitTestExtension;
@@ -34,6 +36,8 @@ import java.math.BigInteger;
 import java.sql.SQLException;
 import java.util.NoSuchElementException;
 import java.util.function.Supplier;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
 import javax.persistence.Entity;
 import javax.persistence.EntityManager;
 import javax.persistence.Id;
@@ -431,6 +435,25 @@ class JpaTransactionManagerImplTest {
     assertThat(persisted).containsExactlyElementsIn(moreEntities);
   }
 
+  @Test
+  void loadByKeysIfPresent_moreKeysThanOneQueryHolds_loadsAll() {
+    ImmutableList<TestEntity> entities =
+        IntStream.rangeClosed(0, JpaTransactionManagerImpl.MAX_KEYS_PER_QUERY)
+            .mapToObj(i -> new TestEntity("entity" + i, "data" + i))
+            .collect(toImmutableList());
+    jpaTm().transact(() -> jpaTm().insertAll(entities));
+    ImmutableList<VKey<TestEntity>> keys =
+        Stream.concat(Stream.of("entity0", "missing"), entities.stream().map(entity -> entity.name))
+            .map(name -> VKey.createSql(TestEntity.class, name))
+            .collect(toImmutableList());
+    ImmutableMap<VKey<? extends TestEntity>, TestEntity> loaded =
+        jpaTm().transact(() -> jpaTm().loadByKeysIfPresent(keys));
+    assertThat(loaded).hasSize(entities.size());
+    assertThat(loaded.values()).containsExactlyElementsIn(entities);
+    String lastName = "entity" + JpaTransactionManagerImpl.MAX_KEYS_PER_QUERY;
+    assertThat(loaded.get(VKey.createSql(TestEntity.class, lastName)).name).isEqualTo(lastName);
+  }
+
   @Test
   void delete_succeeds() {
     jpaTm().transact(() -> jpaTm().insert(theEntity));
@@ -14,7 +14,9 @@
 
 package google.registry.rdap;
 
+import static com.google.common.collect.ImmutableList.toImmutableList;
 import static com.google.common.truth.Truth.assertThat;
+import static google.registry.persistence.transaction.TransactionManagerFactory.tm;
 import static google.registry.rdap.RdapTestHelper.assertThat;
 import static google.registry.rdap.RdapTestHelper.parseJsonObject;
 import static google.registry.request.Action.Method.POST;
@@ -34,6 +36,7 @@ import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableListMultimap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Range;
+import com.google.common.collect.Streams;
 import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
@@ -49,15 +52,18 @@ import google.registry.rdap.RdapMetrics.EndpointType;
 import google.registry.rdap.RdapMetrics.SearchType;
 import google.registry.rdap.RdapMetrics.WildcardType;
 import google.registry.rdap.RdapSearchResults.IncompletenessWarningType;
+import google.registry.testing.DualDatabaseTest;
 import google.registry.testing.FakeResponse;
+import google.registry.testing.TestOfyOnly;
+import google.registry.testing.TestSqlOnly;
 import java.net.URLDecoder;
 import java.util.HashMap;
 import java.util.Optional;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
-import org.junit.jupiter.api.Test;
 
 /** Unit tests for {@link RdapDomainSearchAction}. */
+@DualDatabaseTest
 class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSearchAction> {
 
   RdapDomainSearchActionTest() {
@@ -340,35 +346,35 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     persistResource(makeRegistrar("otherregistrar", "other", Registrar.State.ACTIVE));
 
     // history entries
-    persistResource(
+    persistHistoryEntry(
         makeHistoryEntry(
             domainCatLol,
             HistoryEntry.Type.DOMAIN_CREATE,
             Period.create(1, Period.Unit.YEARS),
             "created",
             clock.nowUtc()));
-    persistResource(
+    persistHistoryEntry(
         makeHistoryEntry(
             domainCatLol2,
             HistoryEntry.Type.DOMAIN_CREATE,
             Period.create(1, Period.Unit.YEARS),
             "created",
             clock.nowUtc()));
-    persistResource(
+    persistHistoryEntry(
         makeHistoryEntry(
             domainCatExample,
             HistoryEntry.Type.DOMAIN_CREATE,
             Period.create(1, Period.Unit.YEARS),
             "created",
             clock.nowUtc()));
-    persistResource(
+    persistHistoryEntry(
         makeHistoryEntry(
             domainIdn,
             HistoryEntry.Type.DOMAIN_CREATE,
             Period.create(1, Period.Unit.YEARS),
             "created",
             clock.nowUtc()));
-    persistResource(
+    persistHistoryEntry(
         makeHistoryEntry(
             domainMultipart,
             HistoryEntry.Type.DOMAIN_CREATE,
@@ -379,6 +385,20 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     action.requestMethod = POST;
   }
 
+  /** Returns the names of the nameservers of the only domain in the search results. */
+  private static ImmutableList<String> getNameserverNames(JsonObject results) {
+    JsonArray searchResults = results.getAsJsonArray("domainSearchResults");
+    assertThat(searchResults).hasSize(1);
+    return Streams.stream(searchResults.get(0).getAsJsonObject().getAsJsonArray("nameservers"))
+        .map(nameserver -> nameserver.getAsJsonObject().get("ldhName").getAsString())
+        .collect(toImmutableList());
+  }
+
+  /** Persists a history entry as the child entity that Cloud SQL stores, if it's in use. */
+  private static void persistHistoryEntry(HistoryEntry historyEntry) {
+    persistResource(tm().isOfy() ? historyEntry : historyEntry.toChildHistoryEntity());
+  }
+
   private JsonObject generateExpectedJsonForTwoDomainsNsReply() {
     return jsonFileBuilder()
         .addDomain("cat.example", "21-EXAMPLE")
@@ -396,7 +416,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
   private void deleteCatLol() {
     persistResource(
         domainCatLol.asBuilder().setDeletionTime(clock.nowUtc().minusMonths(6)).build());
-    persistResource(
+    persistHistoryEntry(
         makeHistoryEntry(
             domainCatLol,
             HistoryEntry.Type.DOMAIN_DELETE,
@@ -642,7 +662,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     }
   }
 
-  @Test
+  @TestOfyOnly
   void testInvalidPath_rejected() {
     action.requestPath = actionPath + "/path";
     action.run();
@@ -650,7 +670,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.NONE, Optional.empty(), 400);
   }
 
-  @Test
+  @TestOfyOnly
   void testInvalidRequest_rejected() {
     assertThat(generateActualJson(RequestType.NONE, null))
         .isEqualTo(
@@ -660,7 +680,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.NONE, Optional.empty(), 400);
   }
 
-  @Test
+  @TestOfyOnly
   void testInvalidWildcard_rejected() {
     assertThat(generateActualJson(RequestType.NAME, "exam*ple"))
         .isEqualTo(
@@ -672,7 +692,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_DOMAIN_NAME, Optional.empty(), 422);
   }
 
-  @Test
+  @TestOfyOnly
   void testMultipleWildcards_rejected() {
     assertThat(generateActualJson(RequestType.NAME, "*.*"))
         .isEqualTo(
@@ -684,7 +704,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_DOMAIN_NAME, Optional.empty(), 422);
   }
 
-  @Test
+  @TestOfyOnly
   void testNoCharactersToMatch_rejected() {
     rememberWildcardType("*");
     assertThat(generateActualJson(RequestType.NAME, "*"))
@@ -697,7 +717,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_DOMAIN_NAME, Optional.empty(), 422);
   }
 
-  @Test
+  @TestOfyOnly
   void testFewerThanTwoCharactersToMatch_rejected() {
     rememberWildcardType("a*");
     assertThat(generateActualJson(RequestType.NAME, "a*"))
@@ -710,21 +730,21 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_DOMAIN_NAME, Optional.empty(), 422);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_found() {
     login("evilregistrar");
     runSuccessfulTestWithCatLol(RequestType.NAME, "cat.lol", "rdap_domain.json");
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_foundWithUpperCase() {
     login("evilregistrar");
     runSuccessfulTestWithCatLol(RequestType.NAME, "CaT.lOl", "rdap_domain.json");
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_found_sameRegistrarRequested() {
     login("evilregistrar");
     action.registrarParam = Optional.of("evilregistrar");
@@ -732,21 +752,21 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_notFound_differentRegistrarRequested() {
     action.registrarParam = Optional.of("otherregistrar");
     runNotFoundTest(RequestType.NAME, "cat.lol", "No domains found");
     verifyErrorMetrics(SearchType.BY_DOMAIN_NAME);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_found_asAdministrator() {
     loginAsAdmin();
     runSuccessfulTestWithCatLol(RequestType.NAME, "cat.lol", "rdap_domain.json");
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_found_loggedInAsOtherRegistrar() {
     login("otherregistrar");
     runSuccessfulTestWithCatLol(
@@ -759,19 +779,19 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
    * accord. If it does, the test will pass.
    */
   @Disabled
-  @Test
+  @TestOfyOnly
   void testDomainMatchWithTrailingDot_notFound() {
     runNotFoundTest(RequestType.NAME, "cat.lol.", "No domains found");
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_cat2_lol_found() {
     login("evilregistrar");
     runSuccessfulTestWithCat2Lol(RequestType.NAME, "cat2.lol", "rdap_domain_cat2.json");
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_cat_example_found() {
     login("evilregistrar");
     runSuccessfulTest(
@@ -786,7 +806,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_cat_idn_unicode_found() {
     runSuccessfulTest(
         RequestType.NAME,
@@ -802,7 +822,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_cat_idn_punycode_found() {
     runSuccessfulTest(
         RequestType.NAME,
@@ -816,7 +836,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_cat_1_test_found() {
     runSuccessfulTest(
         RequestType.NAME,
@@ -830,7 +850,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_castar_1_test_found() {
     runSuccessfulTest(
         RequestType.NAME,
@@ -844,13 +864,13 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_castar_test_notFound() {
     runNotFoundTest(RequestType.NAME, "ca*.test", "No domains found");
     verifyErrorMetrics(SearchType.BY_DOMAIN_NAME);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_catstar_lol_found() {
     rememberWildcardType("cat*.lol");
     assertThat(generateActualJson(RequestType.NAME, "cat*.lol"))
@@ -859,7 +879,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(2L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_cstar_lol_found() {
     rememberWildcardType("c*.lol");
     assertThat(generateActualJson(RequestType.NAME, "c*.lol"))
@@ -868,13 +888,13 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(2L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_qstar_lol_notFound() {
     runNotFoundTest(RequestType.NAME, "q*.lol", "No domains found");
     verifyErrorMetrics(SearchType.BY_DOMAIN_NAME);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_star_lol_found() {
     rememberWildcardType("*.lol");
     assertThat(generateActualJson(RequestType.NAME, "*.lol"))
@@ -883,7 +903,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(2L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_star_lol_found_sameRegistrarRequested() {
     action.registrarParam = Optional.of("evilregistrar");
     rememberWildcardType("*.lol");
@@ -893,7 +913,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(2L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_star_lol_notFound_differentRegistrarRequested() {
     action.registrarParam = Optional.of("otherregistrar");
     rememberWildcardType("*.lol");
@@ -901,7 +921,30 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_DOMAIN_NAME);
   }
 
-  @Test
+  @TestSqlOnly
+  void testDomainMatch_catstar_lol_cloudSql_found() {
+    rememberWildcardType("cat*.lol");
+    assertThat(generateActualJson(RequestType.NAME, "cat*.lol"))
+        .isEqualTo(generateExpectedJsonForTwoDomainsCatStarReply());
+    assertThat(response.getStatus()).isEqualTo(200);
+  }
+
+  @TestSqlOnly
+  void testDomainMatch_cat_lstar_cloudSql_rendersNameservers() {
+    JsonObject results = generateActualJson(RequestType.NAME, "cat.l*");
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(getNameserverNames(results)).containsExactly("ns1.cat.lol", "ns2.cat.lol");
+  }
+
+  @TestSqlOnly
+  void testDomainMatch_star_lol_cloudSql_rendersNameservers() {
+    // Start after cat.lol, so that only cat2.lol is found, and is rendered in full.
+    JsonObject results = generateActualJson(RequestType.NAME, "*.lol", "Y2F0LmxvbA==");
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(getNameserverNames(results)).containsExactly("ns1.cat.example", "ns2.dog.lol");
+  }
+
+  @TestOfyOnly
   void testDomainMatch_cat_star_found() {
     rememberWildcardType("cat.*");
     assertThat(generateActualJson(RequestType.NAME, "cat.*"))
@@ -916,7 +959,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(4L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_cat_star_foundOne_sameRegistrarRequested() {
     login("evilregistrar");
     action.registrarParam = Optional.of("evilregistrar");
@@ -924,21 +967,21 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_cat_star_notFound_differentRegistrarRequested() {
     action.registrarParam = Optional.of("otherregistrar");
     runNotFoundTest(RequestType.NAME, "cat.*", "No domains found");
     verifyErrorMetrics(SearchType.BY_DOMAIN_NAME);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_cat_lstar_found() {
     login("evilregistrar");
     runSuccessfulTestWithCatLol(RequestType.NAME, "cat.l*", "rdap_domain.json");
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_catstar_found() {
     rememberWildcardType("cat*");
     assertThat(generateActualJson(RequestType.NAME, "cat*"))
@@ -954,7 +997,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(5L), IncompletenessWarningType.TRUNCATED);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatchWithWildcardAndEmptySuffix_fails() {
     // Unfortunately, we can't be sure which error is going to be returned. The version of
     // IDN.toASCII used in Eclipse drops a trailing dot, if any. But the version linked in by
@@ -964,20 +1007,20 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     assertThat(response.getStatus()).isIn(Range.closed(400, 499));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_dog_notFound() {
     runNotFoundTest(RequestType.NAME, "dog*", "No domains found");
     verifyErrorMetrics(SearchType.BY_DOMAIN_NAME);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatchDeletedDomain_notFound() {
     persistDomainAsDeleted(domainCatLol, clock.nowUtc().minusDays(1));
     runNotFoundTest(RequestType.NAME, "cat.lol", "No domains found");
     verifyErrorMetrics(SearchType.BY_DOMAIN_NAME);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatchDeletedDomain_notFound_deletedNotRequested() {
     login("evilregistrar");
     persistDomainAsDeleted(domainCatLol, clock.nowUtc().minusDays(1));
@@ -985,7 +1028,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_DOMAIN_NAME);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatchDeletedDomain_found_loggedInAsSameRegistrar() {
     login("evilregistrar");
     action.includeDeletedParam = Optional.of(true);
@@ -994,7 +1037,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatchDeletedDomain_notFound_loggedInAsOtherRegistrar() {
     login("otherregistrar");
     action.includeDeletedParam = Optional.of(true);
@@ -1003,7 +1046,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(1L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatchDeletedDomain_found_loggedInAsAdmin() {
     loginAsAdmin();
     action.includeDeletedParam = Optional.of(true);
@@ -1012,14 +1055,14 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatchDeletedDomainWithWildcard_notFound() {
     persistDomainAsDeleted(domainCatLol, clock.nowUtc().minusDays(1));
     runNotFoundTest(RequestType.NAME, "cat.lo*", "No domains found");
     verifyErrorMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(1L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatchDeletedDomainsWithWildcardAndTld_notFound() {
     persistDomainAsDeleted(domainCatLol, clock.nowUtc().minusDays(1));
     persistDomainAsDeleted(domainCatLol2, clock.nowUtc().minusDays(1));
@@ -1029,14 +1072,14 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
 
   // TODO(b/27378695): reenable or delete this test
   @Disabled
-  @Test
+  @TestOfyOnly
   void testDomainMatchDomainInTestTld_notFound() {
     persistResource(Registry.get("lol").asBuilder().setTldType(Registry.TldType.TEST).build());
     runNotFoundTest(RequestType.NAME, "cat.lol", "No domains found");
     verifyErrorMetrics(SearchType.BY_DOMAIN_NAME);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_manyDeletedDomains_fullResultSet() {
     // There are enough domains to fill a full result set; deleted domains are ignored.
     createManyDomainsAndHosts(4, 4, 2);
@@ -1047,7 +1090,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(16L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_manyDeletedDomains_partialResultSetDueToInsufficientDomains() {
     // There are not enough domains to fill a full result set.
     createManyDomainsAndHosts(3, 20, 2);
@@ -1058,7 +1101,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(60L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_manyDeletedDomains_partialResultSetDueToFetchingLimit() {
     // This is not exactly desired behavior, but expected: There are enough domains to fill a full
     // result set, but there are so many deleted domains that we run out of patience before we work
@@ -1080,7 +1123,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
         IncompletenessWarningType.MIGHT_BE_INCOMPLETE);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_nontruncatedResultsSet() {
     createManyDomainsAndHosts(4, 1, 2);
     runSuccessfulTestWithFourDomains(
@@ -1094,7 +1137,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(4L));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_truncatedResultsSet() {
     createManyDomainsAndHosts(5, 1, 2);
     runSuccessfulTestWithFourDomains(
@@ -1109,7 +1152,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(5L), IncompletenessWarningType.TRUNCATED);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_tldSearchOrderedProperly() {
     createManyDomainsAndHosts(4, 1, 2);
     rememberWildcardType("*.lol");
@@ -1125,7 +1168,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(5L), IncompletenessWarningType.TRUNCATED);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_reallyTruncatedResultsSet() {
     // Don't use 10 or more domains for this test, because domain10.lol will come before
     // domain2.lol, and you'll get the wrong domains in the result set.
@@ -1142,7 +1185,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(5L), IncompletenessWarningType.TRUNCATED);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_truncatedResultsAfterMultipleChunks() {
     createManyDomainsAndHosts(5, 6, 2);
     rememberWildcardType("domain*.lol");
@@ -1159,7 +1202,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_DOMAIN_NAME, Optional.of(27L), IncompletenessWarningType.TRUNCATED);
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_cursorNavigationWithInitialString() throws Exception {
     createManyDomainsAndHosts(11, 1, 2);
     checkCursorNavigation(
@@ -1179,7 +1222,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
             "domain9.lol"));
   }
 
-  @Test
+  @TestOfyOnly
   void testDomainMatch_cursorNavigationWithTldSuffix() throws Exception {
     createManyDomainsAndHosts(11, 1, 2);
     checkCursorNavigation(
@@ -1201,7 +1244,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
             "domain9.lol"));
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatch_foundMultiple() {
     rememberWildcardType("ns1.cat.lol");
     assertThat(generateActualJson(RequestType.NS_LDH_NAME, "ns1.cat.lol"))
@@ -1210,7 +1253,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, 2, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatch_foundMultiple_sameRegistrarRequested() {
     action.registrarParam = Optional.of("TheRegistrar");
     rememberWildcardType("ns1.cat.lol");
@@ -1220,21 +1263,21 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, 2, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatch_notFound_differentRegistrarRequested() {
     action.registrarParam = Optional.of("otherregistrar");
     runNotFoundTest(RequestType.NS_LDH_NAME, "ns1.cat.lol", "No matching nameservers found");
     verifyErrorMetrics(SearchType.BY_NAMESERVER_NAME, Optional.empty(), Optional.of(0L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchWithWildcard_found() {
     login("evilregistrar");
     runSuccessfulTestWithCatLol(RequestType.NS_LDH_NAME, "ns2.cat.l*", "rdap_domain.json");
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, 1, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchWithWildcard_found_sameRegistrarRequested() {
     login("evilregistrar");
     action.registrarParam = Optional.of("TheRegistrar");
@@ -1242,20 +1285,20 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, 1, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchWithWildcard_notFound_differentRegistrarRequested() {
     action.registrarParam = Optional.of("otherregistrar");
     runNotFoundTest(RequestType.NS_LDH_NAME, "ns2.cat.l*", "No matching nameservers found");
     verifyErrorMetrics(SearchType.BY_NAMESERVER_NAME, Optional.empty(), Optional.of(0L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchWithWildcardAndDomainSuffix_notFound() {
     runNotFoundTest(RequestType.NS_LDH_NAME, "ns5*.cat.lol", "No matching nameservers found");
     verifyErrorMetrics(SearchType.BY_NAMESERVER_NAME, Optional.empty(), Optional.of(0L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchWithNoPrefixAndDomainSuffix_found() {
     rememberWildcardType("*.cat.lol");
     assertThat(generateActualJson(RequestType.NS_LDH_NAME, "*.cat.lol"))
@@ -1264,7 +1307,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, 2, 2);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchWithOneCharacterPrefixAndDomainSuffix_found() {
     rememberWildcardType("n*.cat.lol");
     assertThat(generateActualJson(RequestType.NS_LDH_NAME, "n*.cat.lol"))
@@ -1273,7 +1316,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, 2, 2);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchWithOneCharacterPrefixAndDomainSuffix_found_sameRegistrarRequested() {
     action.registrarParam = Optional.of("TheRegistrar");
     rememberWildcardType("n*.cat.lol");
@@ -1283,14 +1326,14 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, 2, 2);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchWithPrefixAndDomainSuffix_notFound_differentRegistrarRequested() {
     action.registrarParam = Optional.of("otherregistrar");
     runNotFoundTest(RequestType.NS_LDH_NAME, "n*.cat.lol", "No matching nameservers found");
     verifyErrorMetrics(SearchType.BY_NAMESERVER_NAME, Optional.empty(), Optional.of(0L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchWithTwoCharacterPrefixAndDomainSuffix_found() {
     rememberWildcardType("ns*.cat.lol");
     assertThat(generateActualJson(RequestType.NS_LDH_NAME, "ns*.cat.lol"))
@@ -1299,7 +1342,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, 2, 2);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchWithWildcardAndEmptySuffix_unprocessable() {
     rememberWildcardTypeInvalid();
     generateActualJson(RequestType.NS_LDH_NAME, "ns*.");
@@ -1307,7 +1350,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_NAMESERVER_NAME, Optional.empty(), 422);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchWithWildcardAndInvalidSuffix_unprocessable() {
     rememberWildcardType("ns*.google.com");
     generateActualJson(RequestType.NS_LDH_NAME, "ns*.google.com");
@@ -1315,21 +1358,21 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_NAMESERVER_NAME, Optional.empty(), 422);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatch_ns2_cat_lol_found() {
     login("evilregistrar");
     runSuccessfulTestWithCatLol(RequestType.NS_LDH_NAME, "ns2.cat.lol", "rdap_domain.json");
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, 1, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatch_ns2_dog_lol_found() {
     login("evilregistrar");
     runSuccessfulTestWithCat2Lol(RequestType.NS_LDH_NAME, "ns2.dog.lol", "rdap_domain_cat2.json");
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, 1, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatch_ns1_cat_idn_unicode_badRequest() {
     // nsLdhName must use punycode.
     metricWildcardType = WildcardType.INVALID;
@@ -1339,7 +1382,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_NAMESERVER_NAME, Optional.empty(), 422);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatch_ns1_cat_idn_punycode_found() {
     runSuccessfulTest(
         RequestType.NS_LDH_NAME,
@@ -1353,7 +1396,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, 1, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatch_ns1_cat_1_test_found() {
     runSuccessfulTest(
         RequestType.NS_LDH_NAME,
@@ -1367,7 +1410,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, 1, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatch_nsstar_cat_1_test_found() {
     runSuccessfulTest(
         RequestType.NS_LDH_NAME,
@@ -1381,7 +1424,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, 1, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatch_nsstar_test_unprocessable() {
     rememberWildcardType("ns*.1.test");
     generateActualJson(RequestType.NS_LDH_NAME, "ns*.1.test");
@@ -1389,7 +1432,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_NAMESERVER_NAME, Optional.empty(), 422);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchMissing_notFound() {
     runNotFoundTest(RequestType.NS_LDH_NAME, "ns1.missing.com", "No matching nameservers found");
     verifyErrorMetrics(SearchType.BY_NAMESERVER_NAME, Optional.empty(), Optional.of(0L), 404);
@@ -1397,13 +1440,13 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
 
   // TODO(b/27378695): reenable or delete this test
   @Disabled
-  @Test
+  @TestOfyOnly
   void testNameserverMatchDomainsInTestTld_notFound() {
     persistResource(Registry.get("lol").asBuilder().setTldType(Registry.TldType.TEST).build());
     runNotFoundTest(RequestType.NS_LDH_NAME, "ns2.cat.lol", "No matching nameservers found");
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchDeletedDomain_notFound() {
     action.includeDeletedParam = Optional.of(true);
     deleteCatLol();
@@ -1411,7 +1454,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_NAMESERVER_NAME, Optional.of(0L), Optional.of(1L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchDeletedDomain_found_loggedInAsSameRegistrar() {
     login("evilregistrar");
     action.includeDeletedParam = Optional.of(true);
@@ -1420,7 +1463,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, 1, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchDeletedDomain_notFound_loggedInAsOtherRegistrar() {
     login("otherregistrar");
     action.includeDeletedParam = Optional.of(true);
@@ -1429,7 +1472,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_NAMESERVER_NAME, Optional.of(0L), Optional.of(1L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchDeletedDomain_found_loggedInAsAdmin() {
     loginAsAdmin();
     action.includeDeletedParam = Optional.of(true);
@@ -1438,7 +1481,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, 1, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchOneDeletedDomain_foundTheOther() {
     login("evilregistrar");
     persistDomainAsDeleted(domainCatExample, clock.nowUtc().minusDays(1));
@@ -1446,7 +1489,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, 1, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchTwoDeletedDomains_notFound() {
     persistDomainAsDeleted(domainCatLol, clock.nowUtc().minusDays(1));
     persistDomainAsDeleted(domainCatExample, clock.nowUtc().minusDays(1));
@@ -1454,28 +1497,28 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_NAMESERVER_NAME, Optional.of(0L), Optional.of(1L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchDeletedNameserver_notFound() {
     persistResource(hostNs1CatLol.asBuilder().setDeletionTime(clock.nowUtc().minusDays(1)).build());
     runNotFoundTest(RequestType.NS_LDH_NAME, "ns1.cat.lol", "No matching nameservers found");
     verifyErrorMetrics(SearchType.BY_NAMESERVER_NAME, Optional.empty(), Optional.of(0L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchDeletedNameserverWithWildcard_notFound() {
     persistResource(hostNs1CatLol.asBuilder().setDeletionTime(clock.nowUtc().minusDays(1)).build());
     runNotFoundTest(RequestType.NS_LDH_NAME, "ns1.cat.l*", "No matching nameservers found");
     verifyErrorMetrics(SearchType.BY_NAMESERVER_NAME, Optional.empty(), Optional.of(0L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchDeletedNameserverWithWildcardAndSuffix_notFound() {
     persistResource(hostNs1CatLol.asBuilder().setDeletionTime(clock.nowUtc().minusDays(1)).build());
     runNotFoundTest(RequestType.NS_LDH_NAME, "ns1*.cat.lol", "No matching nameservers found");
     verifyErrorMetrics(SearchType.BY_NAMESERVER_NAME, Optional.empty(), Optional.of(0L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchManyNameserversForTheSameDomains() {
     // 40 nameservers for each of 3 domains; we should get back all three undeleted domains, because
     // each one references the nameserver.
@@ -1487,7 +1530,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, Optional.of(3L), Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchManyNameserversForTheSameDomainsWithWildcard() {
     // Same as above, except with a wildcard (that still only finds one nameserver).
     createManyDomainsAndHosts(3, 1, 40);
@@ -1498,7 +1541,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, Optional.of(3L), Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatchManyNameserversForTheSameDomainsWithSuffix() {
     // Same as above, except that we find all 39 nameservers because of the wildcard. But we
     // should still only return 3 domains, because we merge duplicate domains together in a set.
@@ -1512,7 +1555,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, Optional.of(3L), Optional.of(39L));
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatch_nontruncatedResultsSet() {
     createManyDomainsAndHosts(4, 1, 2);
     runSuccessfulTestWithFourDomains(
@@ -1526,7 +1569,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, Optional.of(4L), Optional.of(1L));
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatch_truncatedResultsSet() {
     createManyDomainsAndHosts(5, 1, 2);
     runSuccessfulTestWithFourDomains(
@@ -1545,7 +1588,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
         IncompletenessWarningType.TRUNCATED);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatch_reallyTruncatedResultsSet() {
     createManyDomainsAndHosts(9, 1, 2);
     runSuccessfulTestWithFourDomains(
@@ -1564,7 +1607,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
         IncompletenessWarningType.TRUNCATED);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatch_duplicatesNotTruncated() {
     // 36 nameservers for each of 4 domains; these should translate into two fetches, which should
     // not trigger the truncation warning because all the domains will be duplicates.
@@ -1582,7 +1625,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_NAME, Optional.of(4L), Optional.of(36L));
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatch_incompleteResultsSet() {
     createManyDomainsAndHosts(2, 1, 41);
     rememberWildcardType("ns*.domain1.lol");
@@ -1600,7 +1643,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
         IncompletenessWarningType.MIGHT_BE_INCOMPLETE);
   }
 
-  @Test
+  @TestOfyOnly
   void testNameserverMatch_cursorNavigation() throws Exception {
     createManyDomainsAndHosts(8, 1, 2);
     checkCursorNavigation(
@@ -1617,7 +1660,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
             "domain8.lol"));
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatchV4Address_invalidAddress() {
     rememberWildcardType("1.2.3.4.5.6.7.8.9");
     generateActualJson(RequestType.NS_IP, "1.2.3.4.5.6.7.8.9");
@@ -1625,7 +1668,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_NAMESERVER_ADDRESS, Optional.empty(), 400);
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatchV4Address_foundMultiple() {
     rememberWildcardType("1.2.3.4");
     assertThat(generateActualJson(RequestType.NS_IP, "1.2.3.4"))
@@ -1634,7 +1677,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_ADDRESS, 2, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatchV4Address_foundMultiple_sameRegistrarRequested() {
     action.registrarParam = Optional.of("TheRegistrar");
     rememberWildcardType("1.2.3.4");
@@ -1644,14 +1687,14 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_ADDRESS, 2, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatchV4Address_notFound_differentRegistrarRequested() {
     action.registrarParam = Optional.of("otherregistrar");
     runNotFoundTest(RequestType.NS_IP, "1.2.3.4", "No domains found");
     verifyErrorMetrics(SearchType.BY_NAMESERVER_ADDRESS, Optional.empty(), Optional.of(0L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatchV6Address_foundOne() {
     runSuccessfulTestWithCatLol(
         RequestType.NS_IP,
@@ -1660,7 +1703,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_ADDRESS, 1, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatchLocalhost_notFound() {
     runNotFoundTest(RequestType.NS_IP, "127.0.0.1", "No domains found");
     verifyErrorMetrics(SearchType.BY_NAMESERVER_ADDRESS, Optional.empty(), Optional.of(0L), 404);
@@ -1668,7 +1711,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
 
   // TODO(b/27378695): reenable or delete this test
   @Disabled
-  @Test
+  @TestOfyOnly
   void testAddressMatchDomainsInTestTld_notFound() {
     persistResource(Registry.get("lol").asBuilder().setTldType(Registry.TldType.TEST).build());
     persistResource(Registry.get("example").asBuilder().setTldType(Registry.TldType.TEST).build());
@@ -1676,7 +1719,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_NAMESERVER_ADDRESS);
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatchDeletedDomain_notFound() {
     action.includeDeletedParam = Optional.of(true);
     deleteCatLol();
@@ -1684,7 +1727,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_NAMESERVER_ADDRESS, Optional.of(0L), Optional.of(1L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatchDeletedDomain_found_loggedInAsSameRegistrar() {
     login("evilregistrar");
     action.includeDeletedParam = Optional.of(true);
@@ -1694,7 +1737,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_ADDRESS, 1, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatchDeletedDomain_notFound_loggedInAsOtherRegistrar() {
     login("otherregistrar");
     action.includeDeletedParam = Optional.of(true);
@@ -1703,7 +1746,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_NAMESERVER_ADDRESS, Optional.of(0L), Optional.of(1L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatchDeletedDomain_found_loggedInAsAdmin() {
     loginAsAdmin();
     action.includeDeletedParam = Optional.of(true);
@@ -1713,7 +1756,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_ADDRESS, 1, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatchOneDeletedDomain_foundTheOther() {
     login("evilregistrar");
     persistDomainAsDeleted(domainCatExample, clock.nowUtc().minusDays(1));
@@ -1734,7 +1777,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_ADDRESS, 1, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatchTwoDeletedDomains_notFound() {
     persistDomainAsDeleted(domainCatLol, clock.nowUtc().minusDays(1));
     persistDomainAsDeleted(domainCatExample, clock.nowUtc().minusDays(1));
@@ -1742,14 +1785,14 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyErrorMetrics(SearchType.BY_NAMESERVER_ADDRESS, Optional.of(0L), Optional.of(1L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatchDeletedNameserver_notFound() {
     persistResource(hostNs1CatLol.asBuilder().setDeletionTime(clock.nowUtc().minusDays(1)).build());
     runNotFoundTest(RequestType.NS_IP, "1.2.3.4", "No domains found");
     verifyErrorMetrics(SearchType.BY_NAMESERVER_ADDRESS, Optional.empty(), Optional.of(0L), 404);
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatch_nontruncatedResultsSet() {
     createManyDomainsAndHosts(4, 1, 2);
     runSuccessfulTestWithFourDomains(
@@ -1763,7 +1806,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
     verifyMetrics(SearchType.BY_NAMESERVER_ADDRESS, 4, 1);
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatch_truncatedResultsSet() {
     createManyDomainsAndHosts(5, 1, 2);
     runSuccessfulTestWithFourDomains(
@@ -1782,7 +1825,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
         IncompletenessWarningType.TRUNCATED);
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatch_reallyTruncatedResultsSet() {
     createManyDomainsAndHosts(9, 1, 2);
     runSuccessfulTestWithFourDomains(
@@ -1801,7 +1844,7 @@ class RdapDomainSearchActionTest extends RdapSearchActionTestCase<RdapDomainSear
         IncompletenessWarningType.TRUNCATED);
   }
 
-  @Test
+  @TestOfyOnly
   void testAddressMatch_cursorNavigation() throws Exception {
     createManyDomainsAndHosts(7, 1, 2);
     checkCursorNavigation(
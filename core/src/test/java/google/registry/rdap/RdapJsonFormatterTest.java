@@ -476,6 +476,23 @@ class RdapJsonFormatterTest {
         .isEqualTo(loadJson("rdapjson_domain_full.json"));
   }
 
+  @Test
+  void testDomain_full_historyEntryTypeIndex() {
+    rdapJsonFormatter.useHistoryEntryTypeIndex = true;
+    assertThat(rdapJsonFormatter.createRdapDomain(domainBaseFull, OutputDataType.FULL).toJson())
+        .isEqualTo(loadJson("rdapjson_domain_full.json"));
+  }
+
+  @Test
+  void testDomain_noNameserversNoTransfers_historyEntryTypeIndex() {
+    rdapJsonFormatter.useHistoryEntryTypeIndex = true;
+    assertThat(
+            rdapJsonFormatter
+                .createRdapDomain(domainBaseNoNameserversNoTransfers, OutputDataType.FULL)
+                .toJson())
+        .isEqualTo(loadJson("rdapjson_domain_no_nameservers.json"));
+  }
+
   @Test
   void testDomain_summary() {
     assertThat(rdapJsonFormatter.createRdapDomain(domainBaseFull, OutputDataType.SUMMARY).toJson())
@@ -178,6 +178,7 @@ class RdapTestHelper {
                 + " suspect that you have failed to comply with these terms.",
             "We reserve the right to modify this agreement at any time.");
     rdapJsonFormatter.rdapTosStaticUrl = "https://www.registry.tld/about/rdap/tos.html";
+    rdapJsonFormatter.useHistoryEntryTypeIndex = false;
     return rdapJsonFormatter;
   }
 
@@ -30,6 +30,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
 import java.util.Base64;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.stream.Stream;
 import org.bouncycastle.openpgp.PGPException;
 import org.bouncycastle.openpgp.PGPKeyPair;
@@ -97,6 +99,25 @@ public class GhostrydeTest {
     assertThat(new String(bsOut.toByteArray(), UTF_8)).isEqualTo(content);
   }
 
+  @ParameterizedTest
+  @MethodSource("provideTestCombinations")
+  void testStreamingApi_parallelCompression(String content) throws Exception {
+    Keyring keyring = new FakeKeyringModule().get();
+    byte[] data = content.getBytes(UTF_8);
+    PGPPublicKey publicKey = keyring.getRdeStagingEncryptionKey();
+    PGPPrivateKey privateKey = keyring.getRdeStagingDecryptionKey();
+
+    ExecutorService executor = Executors.newFixedThreadPool(2);
+    ByteArrayOutputStream bsOut = new ByteArrayOutputStream();
+    try (OutputStream encoder = Ghostryde.encoder(bsOut, publicKey, null, executor)) {
+      encoder.write(data);
+    } finally {
+      executor.shutdown();
+    }
+
+    assertThat(Ghostryde.decode(bsOut.toByteArray(), privateKey)).isEqualTo(data);
+  }
+
   @ParameterizedTest
   @MethodSource("provideTestCombinations")
   void testStreamingApi_withSize(String content) throws Exception {
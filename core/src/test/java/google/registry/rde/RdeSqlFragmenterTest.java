@@ -0,0 +1,167 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.rde;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static google.registry.model.rde.RdeMode.FULL;
+import static google.registry.model.rde.RdeMode.THIN;
+import static google.registry.testing.DatabaseHelper.createTlds;
+import static google.registry.testing.DatabaseHelper.newContactResource;
+import static google.registry.testing.DatabaseHelper.persistActiveContact;
+import static google.registry.testing.DatabaseHelper.persistActiveDomain;
+import static google.registry.testing.DatabaseHelper.persistActiveHost;
+import static google.registry.testing.DatabaseHelper.persistDeletedDomain;
+import static google.registry.testing.DatabaseHelper.persistResource;
+import static java.util.stream.Collectors.joining;
+
+import com.google.common.collect.ImmutableList;
+import google.registry.model.common.Cursor.CursorType;
+import google.registry.model.domain.DomainBase;
+import google.registry.model.domain.DomainHistory;
+import google.registry.model.eppcommon.StatusValue;
+import google.registry.model.rde.RdeMode;
+import google.registry.model.reporting.HistoryEntry;
+import google.registry.testing.AppEngineExtension;
+import google.registry.testing.DualDatabaseTest;
+import google.registry.testing.FakeClock;
+import google.registry.testing.TestSqlOnly;
+import google.registry.xml.ValidationMode;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+/** Unit tests for {@link RdeSqlFragmenter}. */
+@DualDatabaseTest
+class RdeSqlFragmenterTest {
+
+  private final FakeClock clock = new FakeClock(DateTime.parse("1999-12-31TZ"));
+
+  @RegisterExtension
+  final AppEngineExtension appEngine =
+      AppEngineExtension.builder().withDatastoreAndCloudSql().withClock(clock).build();
+
+  private static final DateTime WATERMARK = DateTime.parse("2000-01-01TZ");
+  private final ExecutorService executor = Executors.newFixedThreadPool(2);
+  private final RdeSqlFragmenter fragmenter =
+      new RdeSqlFragmenter(executor, 2, ValidationMode.LENIENT);
+
+  @BeforeEach
+  void beforeEach() {
+    createTlds("soy", "lol");
+    persistActiveContact("jd1234");
+    persistResource(
+        newContactResource("prober1").asBuilder().setCreationClientId("prober-soy").build());
+    persistActiveHost("ns1.external.tld");
+    persistActiveDomain("example.soy");
+    persistActiveDomain("example.lol");
+    persistDeletedDomain("deleted.soy", clock.nowUtc());
+  }
+
+  @AfterEach
+  void afterEach() {
+    executor.shutdownNow();
+  }
+
+  @TestSqlOnly
+  void testFull_fragmentsGroupedByType() {
+    ImmutableList<DepositFragment> fragments = getFragments(FULL, WATERMARK);
+    assertThat(fragments.stream().map(DepositFragment::error).distinct().collect(toImmutableList()))
+        .containsExactly("");
+    assertThat(fragments.stream().map(DepositFragment::type).distinct().collect(toImmutableList()))
+        .containsExactly(
+            RdeResourceType.CONTACT,
+            RdeResourceType.HOST,
+            RdeResourceType.DOMAIN,
+            RdeResourceType.REGISTRAR)
+        .inOrder();
+    assertThat(xmlOfType(fragments, RdeResourceType.CONTACT)).contains("jd1234");
+    assertThat(xmlOfType(fragments, RdeResourceType.CONTACT)).doesNotContain("prober1");
+    assertThat(countFragments(fragments, RdeResourceType.HOST)).isEqualTo(1);
+    assertThat(countFragments(fragments, RdeResourceType.DOMAIN)).isEqualTo(1);
+    assertThat(xmlOfType(fragments, RdeResourceType.DOMAIN)).contains("example.soy");
+  }
+
+  @TestSqlOnly
+  void testThin_noContactsOrHosts() {
+    ImmutableList<DepositFragment> fragments = getFragments(THIN, WATERMARK);
+    assertThat(fragments.stream().map(DepositFragment::type).distinct().collect(toImmutableList()))
+        .containsExactly(RdeResourceType.DOMAIN, RdeResourceType.REGISTRAR)
+        .inOrder();
+    assertThat(countFragments(fragments, RdeResourceType.DOMAIN)).isEqualTo(1);
+  }
+
+  @TestSqlOnly
+  void testChangedAfterWatermark_stateAtWatermarkFromHistory() {
+    DomainBase domain = persistActiveDomain("changed.soy");
+    persistWithHistory(domain);
+    clock.setTo(WATERMARK.plusHours(1));
+    persistWithHistory(
+        persistResource(domain.asBuilder().addStatusValue(StatusValue.CLIENT_HOLD).build()));
+    assertThat(xmlOfType(getFragments(FULL, WATERMARK), RdeResourceType.DOMAIN))
+        .doesNotContain("clientHold");
+    assertThat(xmlOfType(getFragments(FULL, WATERMARK.plusDays(1)), RdeResourceType.DOMAIN))
+        .contains("clientHold");
+  }
+
+  @TestSqlOnly
+  void testBeforeCreation_nothingButRegistrars() {
+    ImmutableList<DepositFragment> fragments = getFragments(FULL, DateTime.parse("1999-01-01TZ"));
+    assertThat(fragments.stream().map(DepositFragment::type).distinct().collect(toImmutableList()))
+        .containsExactly(RdeResourceType.REGISTRAR);
+  }
+
+  private ImmutableList<DepositFragment> getFragments(RdeMode mode, DateTime watermark) {
+    List<DepositFragment> result = new ArrayList<>();
+    fragmenter.forEachFragment(
+        PendingDeposit.create(
+            "soy",
+            watermark,
+            mode,
+            mode == FULL ? CursorType.RDE_STAGING : CursorType.BRDA,
+            Duration.standardDays(1)),
+        result::add);
+    return ImmutableList.copyOf(result);
+  }
+
+  /** Saves a history entry with a copy of the domain, as the flow that changed it would. */
+  private void persistWithHistory(DomainBase domain) {
+    persistResource(
+        new DomainHistory.Builder()
+            .setType(HistoryEntry.Type.DOMAIN_UPDATE)
+            .setModificationTime(clock.nowUtc())
+            .setClientId(domain.getCurrentSponsorClientId())
+            .setDomainContent(domain)
+            .setDomainRepoId(domain.getRepoId())
+            .build());
+  }
+
+  private static String xmlOfType(List<DepositFragment> fragments, RdeResourceType type) {
+    return fragments.stream()
+        .filter(fragment -> fragment.type() == type)
+        .map(DepositFragment::xml)
+        .collect(joining());
+  }
+
+  private static long countFragments(List<DepositFragment> fragments, RdeResourceType type) {
+    return fragments.stream().filter(fragment -> fragment.type() == type).count();
+  }
+}
@@ -22,6 +22,8 @@ import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.OutputStream;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import org.junit.jupiter.api.Test;
 
 /** Unit tests for {@link RydeCompression} */
@@ -42,4 +44,54 @@ final class RydeCompressionTest {
       assertThat(ByteStreams.toByteArray(decompressor)).isEqualTo(expected);
     }
   }
+
+  @Test
+  void testParallelCompression_decompression() throws Exception {
+    // Several blocks, the last one partial, of data that compresses well but not trivially.
+    StringBuilder builder = new StringBuilder();
+    for (int i = 0; builder.length() < 3.5 * ParallelDeflaterOutputStream.BLOCK_SIZE; i++) {
+      builder
+          .append("<rdeDomain:name>example")
+          .append(i * 7919 % 10007)
+          .append(".tld</rdeDomain:name>\n");
+    }
+    byte[] expected = builder.toString().getBytes(UTF_8);
+
+    byte[] compressed = compressInParallel(expected);
+
+    ByteArrayInputStream input = new ByteArrayInputStream(compressed);
+    try (InputStream decompressor = RydeCompression.openDecompressor(input)) {
+      assertThat(ByteStreams.toByteArray(decompressor)).isEqualTo(expected);
+    }
+    // The blocks are primed with dictionaries, so the compression ratio doesn't suffer much.
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (OutputStream compressor = RydeCompression.openCompressor(output)) {
+      compressor.write(expected);
+    }
+    assertThat((double) compressed.length).isLessThan(1.05 * output.size());
+  }
+
+  @Test
+  void testParallelCompression_empty() throws Exception {
+    byte[] compressed = compressInParallel(new byte[0]);
+
+    ByteArrayInputStream input = new ByteArrayInputStream(compressed);
+    try (InputStream decompressor = RydeCompression.openDecompressor(input)) {
+      assertThat(ByteStreams.toByteArray(decompressor)).isEmpty();
+    }
+  }
+
+  private static byte[] compressInParallel(byte[] data) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (OutputStream compressor = RydeCompression.openParallelCompressor(output, executor)) {
+      // Written in odd-sized pieces, so that they straddle the block boundaries.
+      for (int start = 0; start < data.length; start += 10000) {
+        compressor.write(data, start, Math.min(10000, data.length - start));
+      }
+    } finally {
+      executor.shutdown();
+    }
+    return output.toByteArray();
+  }
 }
@@ -16,6 +16,7 @@ package google.registry.schema.integration;
 
 import static com.google.common.truth.Truth.assert_;
 
+import google.registry.model.SqlCacheInvalidationBusTest;
 import google.registry.model.billing.BillingEventTest;
 import google.registry.model.contact.ContactResourceTest;
 import google.registry.model.domain.DomainBaseSqlTest;
@@ -100,6 +101,7 @@ import org.junit.runner.RunWith;
   RegistryLockDaoTest.class,
   ServerSecretTest.class,
   SignedMarkRevocationListDaoTest.class,
+  SqlCacheInvalidationBusTest.class,
   Spec11ThreatMatchTest.class,
   SqlReplayCheckpointTest.class,
   TmchCrlTest.class,
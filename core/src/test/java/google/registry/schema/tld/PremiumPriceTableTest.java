@@ -0,0 +1,93 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.schema.tld;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static google.registry.schema.tld.PremiumPriceTable.NOT_PREMIUM;
+import static org.joda.money.CurrencyUnit.JPY;
+import static org.joda.money.CurrencyUnit.USD;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.collect.ImmutableMap;
+import java.math.BigDecimal;
+import org.joda.money.Money;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link PremiumPriceTable}. */
+class PremiumPriceTableTest {
+
+  private final PremiumPriceTable table =
+      PremiumPriceTable.create(
+          USD,
+          ImmutableMap.of(
+              "rich", new BigDecimal("1999.99"),
+              "richer", new BigDecimal("5000"),
+              "xn--q9jyb4c", new BigDecimal("17.5")));
+
+  @Test
+  void testGetPrice_premiumLabels() {
+    assertThat(table.getPrice("rich")).hasValue(Money.parse("USD 1999.99"));
+    assertThat(table.getPrice("richer")).hasValue(Money.parse("USD 5000.00"));
+    assertThat(table.getPrice("xn--q9jyb4c")).hasValue(Money.parse("USD 17.50"));
+    assertThat(table.getPriceInMinorUnits("rich")).isEqualTo(199999L);
+  }
+
+  @Test
+  void testGetPrice_nonPremiumLabels() {
+    assertThat(table.getPrice("poor")).isEmpty();
+    assertThat(table.getPrice("ric")).isEmpty();
+    assertThat(table.getPrice("riche")).isEmpty();
+    assertThat(table.getPrice("")).isEmpty();
+    assertThat(table.getPriceInMinorUnits("richest")).isEqualTo(NOT_PREMIUM);
+  }
+
+  @Test
+  void testGetPrice_emptyTable() {
+    PremiumPriceTable emptyTable = PremiumPriceTable.create(USD, ImmutableMap.of());
+    assertThat(emptyTable.size()).isEqualTo(0);
+    assertThat(emptyTable.getPrice("rich")).isEmpty();
+  }
+
+  @Test
+  void testGetPrice_manyLabels() {
+    ImmutableMap.Builder<String, BigDecimal> labelsToPrices = new ImmutableMap.Builder<>();
+    for (int i = 0; i < 10000; i++) {
+      labelsToPrices.put("label" + i, BigDecimal.valueOf(i));
+    }
+    PremiumPriceTable bigTable = PremiumPriceTable.create(JPY, labelsToPrices.build());
+    assertThat(bigTable.size()).isEqualTo(10000);
+    for (int i = 0; i < 10000; i++) {
+      assertThat(bigTable.getPriceInMinorUnits("label" + i)).isEqualTo(i);
+    }
+    assertThat(bigTable.getPrice("label10000")).isEmpty();
+  }
+
+  @Test
+  void testFailure_tooManyDecimalPlaces() {
+    assertThrows(
+        ArithmeticException.class,
+        () -> PremiumPriceTable.create(JPY, ImmutableMap.of("rich", new BigDecimal("1.5"))));
+  }
+
+  @Test
+  void testIndexSizeFor() {
+    assertThat(PremiumPriceTable.indexSizeFor(0)).isEqualTo(2);
+    assertThat(PremiumPriceTable.indexSizeFor(1)).isEqualTo(2);
+    assertThat(PremiumPriceTable.indexSizeFor(3)).isEqualTo(8);
+    assertThat(PremiumPriceTable.indexSizeFor(4)).isEqualTo(8);
+    assertThat(PremiumPriceTable.indexSizeFor(500000)).isEqualTo(1 << 20);
+  }
+}
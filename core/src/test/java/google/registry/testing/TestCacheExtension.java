@@ -19,6 +19,7 @@ import com.google.common.collect.Maps;
 import google.registry.model.EppResource;
 import google.registry.model.index.ForeignKeyIndex;
 import google.registry.model.registry.label.PremiumList;
+import google.registry.whois.WhoisResponseCache;
 import java.util.Map;
 import java.util.Optional;
 import org.joda.time.Duration;
@@ -82,6 +83,13 @@ public class TestCacheExtension implements BeforeEachCallback, AfterEachCallback
       return this;
     }
 
+    public Builder withWhoisResponseCache(Duration expiry) {
+      cacheHandlerMap.put(
+          "WhoisResponseCache.cache",
+          new TestCacheHandler(WhoisResponseCache::setCacheForTest, expiry));
+      return this;
+    }
+
     public TestCacheExtension build() {
       return new TestCacheExtension(ImmutableList.copyOf(cacheHandlerMap.values()));
     }
@@ -71,7 +71,9 @@ class TmchXmlSignatureTest {
       new TmchXmlSignature(new TmchCertificateAuthority(TmchCaMode.PILOT, clock));
 
   @BeforeEach
-  void beforeEach() {}
+  void beforeEach() {
+    TmchXmlSignature.VERIFIED_SIGNATURE_CACHE.invalidateAll();
+  }
 
   @Test
   void testWrongCertificateAuthority() {
@@ -97,6 +99,42 @@ class TmchXmlSignatureTest {
     assertThrows(CertificateExpiredException.class, () -> tmchXmlSignature.verify(smdData));
   }
 
+  @Test
+  void testCachedSignature_skipsSignatureValidation() throws Exception {
+    smdData = loadSmd("active/Court-Agent-Arab-Active.smd");
+    tmchXmlSignature.verify(smdData);
+    long hitCount = TmchXmlSignature.VERIFIED_SIGNATURE_CACHE.stats().hitCount();
+    tmchXmlSignature.verify(smdData);
+    assertThat(TmchXmlSignature.VERIFIED_SIGNATURE_CACHE.stats().hitCount())
+        .isEqualTo(hitCount + 1);
+  }
+
+  @Test
+  void testCachedSignature_certificateHasExpired() throws Exception {
+    smdData = loadSmd("active/Court-Agent-Arab-Active.smd");
+    tmchXmlSignature.verify(smdData);
+    clock.setTo(DateTime.parse("2023-06-01T00:00:00Z"));
+    assertThrows(CertificateExpiredException.class, () -> tmchXmlSignature.verify(smdData));
+  }
+
+  @Test
+  void testCachedSignature_wrongCertificateAuthority() throws Exception {
+    smdData = loadSmd("active/Court-Agent-Arab-Active.smd");
+    tmchXmlSignature.verify(smdData);
+    tmchXmlSignature =
+        new TmchXmlSignature(new TmchCertificateAuthority(TmchCaMode.PRODUCTION, clock));
+    CertificateSignatureException e =
+        assertThrows(CertificateSignatureException.class, () -> tmchXmlSignature.verify(smdData));
+    assertThat(e).hasMessageThat().contains("Signature does not match");
+  }
+
+  @Test
+  void testInvalidSignature_notCached() {
+    smdData = loadSmd("invalid/InvalidSignature-Court-Agent-French-Active.smd");
+    assertThrows(XMLSignatureException.class, () -> tmchXmlSignature.verify(smdData));
+    assertThat(TmchXmlSignature.VERIFIED_SIGNATURE_CACHE.size()).isEqualTo(0);
+  }
+
   @Test
   void testActiveCourtAgentArabActive() throws Exception {
     smdData = loadSmd("active/Court-Agent-Arab-Active.smd");
@@ -0,0 +1,121 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.tools.server;
+
+import static com.google.appengine.tools.cloudstorage.GcsServiceFactory.createGcsService;
+import static com.google.common.truth.Truth.assertThat;
+import static google.registry.testing.DatabaseHelper.createTlds;
+import static google.registry.testing.DatabaseHelper.newDomainBase;
+import static google.registry.testing.DatabaseHelper.newHostResource;
+import static google.registry.testing.DatabaseHelper.persistResource;
+import static google.registry.testing.GcsTestingUtils.readGcsFile;
+import static google.registry.testing.GcsTestingUtils.writeGcsFile;
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.google.appengine.tools.cloudstorage.GcsFilename;
+import com.google.appengine.tools.cloudstorage.GcsService;
+import com.google.common.collect.ImmutableSet;
+import google.registry.model.domain.secdns.DelegationSignerData;
+import google.registry.model.host.HostResource;
+import google.registry.testing.AppEngineExtension;
+import google.registry.testing.DualDatabaseTest;
+import google.registry.testing.FakeClock;
+import google.registry.testing.FakeResponse;
+import google.registry.testing.TestSqlOnly;
+import java.net.InetAddress;
+import java.util.Optional;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+/** Tests for {@link GenerateSqlZoneFileAction}. */
+@DualDatabaseTest
+class GenerateSqlZoneFileActionTest {
+
+  private final FakeClock clock = new FakeClock(DateTime.parse("1999-12-31TZ"));
+
+  @RegisterExtension
+  final AppEngineExtension appEngine =
+      AppEngineExtension.builder().withDatastoreAndCloudSql().withClock(clock).build();
+
+  private static final DateTime EXPORT_TIME = DateTime.parse("2000-01-01TZ");
+
+  private final GcsService gcsService = createGcsService();
+  private final FakeResponse response = new FakeResponse();
+  private final GenerateSqlZoneFileAction action = new GenerateSqlZoneFileAction();
+
+  @BeforeEach
+  void beforeEach() throws Exception {
+    createTlds("tld");
+    HostResource host =
+        persistResource(
+            newHostResource("ns.bar.tld")
+                .asBuilder()
+                .addInetAddresses(ImmutableSet.of(InetAddress.getByName("127.0.0.1")))
+                .build());
+    persistResource(
+        newDomainBase("bar.tld")
+            .asBuilder()
+            .addNameserver(host.createVKey())
+            .addSubordinateHost("ns.bar.tld")
+            .setDsData(ImmutableSet.of(DelegationSignerData.create(1, 2, 3, new byte[] {0, 1, 2})))
+            .build());
+    action.tld = "tld";
+    action.exportTime = EXPORT_TIME;
+    action.previousExportTime = Optional.empty();
+    action.bucket = "zonefiles-bucket";
+    action.gcsBufferSize = 123;
+    action.dnsDefaultATtl = Duration.standardSeconds(11);
+    action.dnsDefaultNsTtl = Duration.standardSeconds(222);
+    action.dnsDefaultDsTtl = Duration.standardSeconds(3333);
+    action.response = response;
+  }
+
+  @TestSqlOnly
+  void testGenerate() throws Exception {
+    action.run();
+    assertThat(response.getPayload()).isEqualTo("Wrote tld-" + EXPORT_TIME + ".zone\n");
+    assertThat(readFile("tld-" + EXPORT_TIME + ".zone"))
+        .isEqualTo(
+            "$ORIGIN\ttld.\n\n"
+                + "bar\t222\tIN\tNS\tns.bar.tld.\n"
+                + "bar\t3333\tIN\tDS\t1 2 3 000102\n\n"
+                + "ns.bar\t11\tIN\tA\t127.0.0.1\n\n");
+  }
+
+  @TestSqlOnly
+  void testGenerate_withDiff() throws Exception {
+    DateTime previousExportTime = EXPORT_TIME.minusDays(1);
+    writeGcsFile(
+        gcsService,
+        new GcsFilename("zonefiles-bucket", "tld-" + previousExportTime + ".zone"),
+        "$ORIGIN\ttld.\n\nbar\t222\tIN\tNS\tns.bar.tld.\n\nns.bar\t11\tIN\tA\t127.0.0.2\n\n"
+            .getBytes(UTF_8));
+    action.previousExportTime = Optional.of(previousExportTime);
+    action.run();
+    assertThat(readFile("tld-" + previousExportTime + "-to-" + EXPORT_TIME + ".zone.diff"))
+        .isEqualTo(
+            "$ORIGIN\ttld.\n"
+                + "; Records removed (-) and added (+) since the previous zone file\n\n"
+                + "-ns.bar\t11\tIN\tA\t127.0.0.2\n"
+                + "+bar\t3333\tIN\tDS\t1 2 3 000102\n"
+                + "+ns.bar\t11\tIN\tA\t127.0.0.1\n");
+  }
+
+  private String readFile(String name) throws Exception {
+    return new String(readGcsFile(gcsService, new GcsFilename("zonefiles-bucket", name)), UTF_8);
+  }
+}
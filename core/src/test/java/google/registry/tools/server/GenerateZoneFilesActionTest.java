@@ -24,9 +24,15 @@ import static google.registry.testing.DatabaseHelper.persistActiveDomain;
 import static google.registry.testing.DatabaseHelper.persistActiveHost;
 import static google.registry.testing.DatabaseHelper.persistResource;
 import static google.registry.testing.GcsTestingUtils.readGcsFile;
+import static google.registry.testing.GcsTestingUtils.writeGcsFile;
+import static google.registry.testing.TaskQueueHelper.assertNoTasksEnqueued;
+import static google.registry.testing.TaskQueueHelper.assertTasksEnqueued;
 import static google.registry.testing.TestDataHelper.loadFile;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.joda.time.Duration.standardDays;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
 
 import com.google.appengine.tools.cloudstorage.GcsFilename;
 import com.google.appengine.tools.cloudstorage.GcsService;
@@ -38,21 +44,30 @@ import google.registry.model.domain.secdns.DelegationSignerData;
 import google.registry.model.eppcommon.StatusValue;
 import google.registry.model.host.HostResource;
 import google.registry.persistence.VKey;
+import google.registry.request.HttpException.BadRequestException;
+import google.registry.testing.DualDatabaseTest;
 import google.registry.testing.FakeClock;
+import google.registry.testing.FakeSleeper;
+import google.registry.testing.TaskQueueHelper.TaskMatcher;
+import google.registry.testing.TestOfyOnly;
+import google.registry.testing.TestSqlOnly;
 import google.registry.testing.mapreduce.MapreduceTestCase;
+import google.registry.util.AppEngineServiceUtils;
+import google.registry.util.Retrier;
+import google.registry.util.TaskQueueUtils;
 import java.net.InetAddress;
 import java.util.Map;
 import org.joda.time.DateTime;
 import org.joda.time.DateTimeZone;
 import org.joda.time.Duration;
-import org.junit.jupiter.api.Test;
 
 /** Tests for {@link GenerateZoneFilesAction}. */
+@DualDatabaseTest
 class GenerateZoneFilesActionTest extends MapreduceTestCase<GenerateZoneFilesAction> {
 
   private final GcsService gcsService = createGcsService();
 
-  @Test
+  @TestOfyOnly
   void testGenerate() throws Exception {
     DateTime now = DateTime.now(DateTimeZone.UTC).withTimeAtStartOfDay();
     createTlds("tld", "com");
@@ -147,4 +162,108 @@ class GenerateZoneFilesActionTest extends MapreduceTestCase<GenerateZoneFilesAct
     // The remaining lines can be in any order.
     assertThat(generatedFileLines).containsExactlyElementsIn(goldenFileLines);
   }
+
+  @TestSqlOnly
+  void testGenerate_cloudSql_enqueuesTaskPerTld() {
+    DateTime now = DateTime.now(DateTimeZone.UTC).withTimeAtStartOfDay();
+    createTlds("tld", "com");
+    GenerateZoneFilesAction action = createSqlAction(now);
+
+    Map<String, Object> response =
+        action.handleJsonRequest(
+            ImmutableMap.<String, Object>of(
+                "tlds", ImmutableList.of("tld", "com"), "exportTime", now));
+    assertThat(response)
+        .containsExactly(
+            "filenames",
+            ImmutableList.of(
+                "gs://zonefiles-bucket/tld-" + now + ".zone",
+                "gs://zonefiles-bucket/com-" + now + ".zone"));
+    assertTasksEnqueued(
+        "zone-files",
+        new TaskMatcher()
+            .url(GenerateSqlZoneFileAction.PATH)
+            .method("POST")
+            .header("Host", "tools.hostname.fake")
+            .param("tld", "tld")
+            .param("exportTime", now.toString()),
+        new TaskMatcher()
+            .url(GenerateSqlZoneFileAction.PATH)
+            .method("POST")
+            .header("Host", "tools.hostname.fake")
+            .param("tld", "com")
+            .param("exportTime", now.toString()));
+  }
+
+  @TestSqlOnly
+  void testGenerate_cloudSql_withPreviousExportTime() throws Exception {
+    DateTime now = DateTime.now(DateTimeZone.UTC).withTimeAtStartOfDay();
+    DateTime previous = now.minusDays(1);
+    createTlds("tld");
+    writeGcsFile(
+        gcsService,
+        new GcsFilename("zonefiles-bucket", String.format("tld-%s.zone", previous)),
+        "$ORIGIN\ttld.\n\n".getBytes(UTF_8));
+    GenerateZoneFilesAction action = createSqlAction(now);
+
+    Map<String, Object> response =
+        action.handleJsonRequest(
+            ImmutableMap.<String, Object>of(
+                "tlds",
+                ImmutableList.of("tld"),
+                "exportTime",
+                now,
+                "previousExportTime",
+                previous));
+    assertThat(response)
+        .containsExactly(
+            "filenames",
+            ImmutableList.of("gs://zonefiles-bucket/tld-" + now + ".zone"),
+            "diffFilenames",
+            ImmutableList.of(
+                "gs://zonefiles-bucket/tld-" + previous + "-to-" + now + ".zone.diff"));
+    assertTasksEnqueued(
+        "zone-files",
+        new TaskMatcher()
+            .url(GenerateSqlZoneFileAction.PATH)
+            .param("tld", "tld")
+            .param("exportTime", now.toString())
+            .param("previousExportTime", previous.toString()));
+  }
+
+  @TestSqlOnly
+  void testFailure_cloudSql_missingPreviousZoneFile() {
+    DateTime now = DateTime.now(DateTimeZone.UTC).withTimeAtStartOfDay();
+    createTlds("tld");
+    GenerateZoneFilesAction action = createSqlAction(now);
+
+    BadRequestException thrown =
+        assertThrows(
+            BadRequestException.class,
+            () ->
+                action.handleJsonRequest(
+                    ImmutableMap.<String, Object>of(
+                        "tlds",
+                        ImmutableList.of("tld"),
+                        "exportTime",
+                        now,
+                        "previousExportTime",
+                        now.minusDays(1))));
+    assertThat(thrown).hasMessageThat().startsWith("Missing previous zone file");
+    assertNoTasksEnqueued("zone-files");
+  }
+
+  private GenerateZoneFilesAction createSqlAction(DateTime now) {
+    AppEngineServiceUtils appEngineServiceUtils = mock(AppEngineServiceUtils.class);
+    when(appEngineServiceUtils.getServiceHostname("tools")).thenReturn("tools.hostname.fake");
+    GenerateZoneFilesAction action = new GenerateZoneFilesAction();
+    action.bucket = "zonefiles-bucket";
+    action.gcsBufferSize = 123;
+    action.datastoreRetention = standardDays(29);
+    FakeClock clock = new FakeClock(now.plusMinutes(2)); // Move past the actions' 2 minute check.
+    action.clock = clock;
+    action.taskQueueUtils = new TaskQueueUtils(new Retrier(new FakeSleeper(clock), 1));
+    action.appEngineServiceUtils = appEngineServiceUtils;
+    return action;
+  }
 }
@@ -0,0 +1,270 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.tools.server;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static google.registry.persistence.transaction.TransactionManagerFactory.jpaTm;
+import static google.registry.testing.DatabaseHelper.createTlds;
+import static google.registry.testing.DatabaseHelper.newDomainBase;
+import static google.registry.testing.DatabaseHelper.newHostResource;
+import static google.registry.testing.DatabaseHelper.persistActiveDomain;
+import static google.registry.testing.DatabaseHelper.persistResource;
+import static google.registry.testing.TestDataHelper.loadFile;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.joda.time.Duration.standardSeconds;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import com.google.common.base.Splitter;
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableSet;
+import google.registry.model.domain.DomainBase;
+import google.registry.model.domain.DomainHistory;
+import google.registry.model.domain.secdns.DelegationSignerData;
+import google.registry.model.eppcommon.StatusValue;
+import google.registry.model.host.HostHistory;
+import google.registry.model.host.HostResource;
+import google.registry.model.reporting.HistoryEntry;
+import google.registry.persistence.VKey;
+import google.registry.testing.AppEngineExtension;
+import google.registry.testing.DualDatabaseTest;
+import google.registry.testing.FakeClock;
+import google.registry.testing.TestSqlOnly;
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.util.List;
+import org.joda.time.DateTime;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+/** Unit tests for {@link SqlZoneFileGenerator}. */
+@DualDatabaseTest
+class SqlZoneFileGeneratorTest {
+
+  private final FakeClock clock = new FakeClock(DateTime.parse("1999-12-31TZ"));
+
+  @RegisterExtension
+  final AppEngineExtension appEngine =
+      AppEngineExtension.builder().withDatastoreAndCloudSql().withClock(clock).build();
+
+  private static final DateTime EXPORT_TIME = DateTime.parse("2000-01-01TZ");
+
+  private final SqlZoneFileGenerator generator =
+      new SqlZoneFileGenerator(standardSeconds(11), standardSeconds(222), standardSeconds(3333));
+
+  @TestSqlOnly
+  void testWriteZoneFile() throws Exception {
+    createTlds("tld", "com");
+    ImmutableSet<InetAddress> ips =
+        ImmutableSet.of(InetAddress.getByName("127.0.0.1"), InetAddress.getByName("::1"));
+    HostResource host1 =
+        persistResource(newHostResource("ns.foo.tld").asBuilder().addInetAddresses(ips).build());
+    HostResource host2 =
+        persistResource(newHostResource("ns.bar.tld").asBuilder().addInetAddresses(ips).build());
+    ImmutableSet<VKey<HostResource>> nameservers =
+        ImmutableSet.of(host1.createVKey(), host2.createVKey());
+    persistResource(
+        newDomainBase("bar.tld")
+            .asBuilder()
+            .addNameservers(nameservers)
+            .addSubordinateHost("ns.bar.tld")
+            .build());
+    persistResource(newDomainBase("foo.tld").asBuilder().addSubordinateHost("ns.foo.tld").build());
+    persistResource(
+        newDomainBase("ns-and-ds.tld")
+            .asBuilder()
+            .addNameservers(nameservers)
+            .setDsData(ImmutableSet.of(DelegationSignerData.create(1, 2, 3, new byte[] {0, 1, 2})))
+            .build());
+    persistResource(newDomainBase("ns-only.tld").asBuilder().addNameservers(nameservers).build());
+    persistResource(
+        newDomainBase("ns-only-client-hold.tld")
+            .asBuilder()
+            .addNameservers(nameservers)
+            .setStatusValues(ImmutableSet.of(StatusValue.CLIENT_HOLD))
+            .build());
+    persistResource(
+        newDomainBase("ds-only.tld")
+            .asBuilder()
+            .setDsData(ImmutableSet.of(DelegationSignerData.create(1, 2, 3, new byte[] {0, 1, 2})))
+            .build());
+    persistActiveDomain("ignored_domain.tld");
+    persistResource(newDomainBase("ignored.com").asBuilder().addNameservers(nameservers).build());
+
+    String zoneFile = writeZoneFile("tld");
+    Splitter splitter = Splitter.on('\n').omitEmptyStrings();
+    List<String> lines = splitter.splitToList(zoneFile.replaceAll("\t", " "));
+    assertThat(lines).containsExactlyElementsIn(splitter.split(loadFile(getClass(), "tld.zone")));
+    assertThat(lines.get(0)).isEqualTo("$ORIGIN tld.");
+    // The domains are in order of their names, each followed by its glue records.
+    assertThat(
+            lines.stream()
+                .skip(1)
+                .map(line -> line.substring(0, line.indexOf(' ')))
+                .distinct()
+                .collect(toImmutableList()))
+        .containsExactly("bar", "ns.bar", "ns-and-ds", "ns-only")
+        .inOrder();
+  }
+
+  @TestSqlOnly
+  void testWriteZoneFile_changedAfterExportTime_stateAtExportTimeFromHistory() throws Exception {
+    createTlds("tld");
+    HostResource host =
+        persistWithHistory(
+            newHostResource("ns.foo.tld")
+                .asBuilder()
+                .addInetAddresses(ImmutableSet.of(InetAddress.getByName("127.0.0.1")))
+                .build());
+    DomainBase domain =
+        persistWithHistory(
+            newDomainBase("foo.tld")
+                .asBuilder()
+                .addNameserver(host.createVKey())
+                .addSubordinateHost("ns.foo.tld")
+                .build());
+    // Rename the host, change its address and add DS data to the domain after the export time.
+    clock.setTo(EXPORT_TIME.plusHours(1));
+    persistWithHistory(
+        host.asBuilder()
+            .setHostName("ns2.foo.tld")
+            .setInetAddresses(ImmutableSet.of(InetAddress.getByName("127.0.0.2")))
+            .build());
+    persistWithHistory(
+        domain
+            .asBuilder()
+            .removeSubordinateHost("ns.foo.tld")
+            .addSubordinateHost("ns2.foo.tld")
+            .setDsData(ImmutableSet.of(DelegationSignerData.create(1, 2, 3, new byte[] {0, 1, 2})))
+            .build());
+
+    assertThat(writeZoneFile("tld"))
+        .isEqualTo(
+            "$ORIGIN\ttld.\n\n"
+                + "foo\t222\tIN\tNS\tns.foo.tld.\n\n"
+                + "ns.foo\t11\tIN\tA\t127.0.0.1\n\n");
+  }
+
+  @TestSqlOnly
+  void testWriteZoneFile_empty() throws Exception {
+    createTlds("tld");
+    assertThat(writeZoneFile("tld")).isEqualTo("$ORIGIN\ttld.\n\n");
+  }
+
+  @Test
+  void testWriteDiff() throws Exception {
+    String previous =
+        "$ORIGIN\ttld.\n\n"
+            + "bar\t222\tIN\tNS\tns.bar.tld.\n\n"
+            + "ns.bar\t11\tIN\tA\t127.0.0.1\n\n"
+            + "foo-bar\t222\tIN\tNS\tns.example.\n\n"
+            + "gone\t222\tIN\tNS\tns.example.\n\n";
+    String current =
+        "$ORIGIN\ttld.\n\n"
+            + "bar\t222\tIN\tNS\tns.bar.tld.\n\n"
+            + "ns.bar\t11\tIN\tA\t127.0.0.2\n\n"
+            + "foo-bar\t222\tIN\tNS\tns.example.\n\n"
+            + "foo\t222\tIN\tNS\tns.example.\n"
+            + "foo\t3333\tIN\tDS\t1 2 3 000102\n\n";
+    assertThat(writeDiff(previous, current))
+        .isEqualTo(
+            "$ORIGIN\ttld.\n"
+                + "; Records removed (-) and added (+) since the previous zone file\n\n"
+                + "-ns.bar\t11\tIN\tA\t127.0.0.1\n"
+                + "+ns.bar\t11\tIN\tA\t127.0.0.2\n"
+                + "+foo\t222\tIN\tNS\tns.example.\n"
+                + "+foo\t3333\tIN\tDS\t1 2 3 000102\n"
+                + "-gone\t222\tIN\tNS\tns.example.\n");
+  }
+
+  @Test
+  void testWriteDiff_noChanges() throws Exception {
+    String zoneFile = "$ORIGIN\ttld.\n\nfoo\t222\tIN\tNS\tns.example.\n\n";
+    assertThat(writeDiff(zoneFile, zoneFile))
+        .isEqualTo(
+            "$ORIGIN\ttld.\n"
+                + "; Records removed (-) and added (+) since the previous zone file\n\n");
+  }
+
+  @Test
+  void testFailure_writeDiff_unorderedZoneFile() {
+    String unordered =
+        "$ORIGIN\ttld.\n\n"
+            + "foo\t222\tIN\tNS\tns.example.\n\n"
+            + "bar\t222\tIN\tNS\tns.example.\n\n";
+    IllegalStateException thrown =
+        assertThrows(IllegalStateException.class, () -> writeDiff(unordered, "$ORIGIN\ttld.\n"));
+    assertThat(thrown)
+        .hasMessageThat()
+        .isEqualTo("Zone file isn't ordered by domain name: bar comes after foo");
+  }
+
+  private String writeZoneFile(String tld) throws IOException {
+    ByteArrayOutputStream output = new ByteArrayOutputStream();
+    try (ZoneFileWriter writer = new ZoneFileWriter(output)) {
+      jpaTm()
+          .transact(
+              () -> {
+                try {
+                  generator.writeZoneFile(tld, EXPORT_TIME, writer);
+                } catch (IOException e) {
+                  throw new UncheckedIOException(e);
+                }
+              });
+    }
+    return new String(output.toByteArray(), UTF_8);
+  }
+
+  private HostResource persistWithHistory(HostResource host) {
+    host = persistResource(host);
+    persistResource(
+        new HostHistory.Builder()
+            .setType(HistoryEntry.Type.HOST_UPDATE)
+            .setModificationTime(clock.nowUtc())
+            .setClientId(host.getPersistedCurrentSponsorClientId())
+            .setHostBase(host)
+            .setHostRepoId(host.getRepoId())
+            .build());
+    return host;
+  }
+
+  private DomainBase persistWithHistory(DomainBase domain) {
+    domain = persistResource(domain);
+    persistResource(
+        new DomainHistory.Builder()
+            .setType(HistoryEntry.Type.DOMAIN_UPDATE)
+            .setModificationTime(clock.nowUtc())
+            .setClientId(domain.getCurrentSponsorClientId())
+            .setDomainContent(domain)
+            .setDomainRepoId(domain.getRepoId())
+            .build());
+    return domain;
+  }
+
+  private static String writeDiff(String previous, String current) throws IOException {
+    StringWriter diff = new StringWriter();
+    SqlZoneFileGenerator.writeDiff(
+        "tld",
+        new BufferedReader(new StringReader(previous)),
+        new BufferedReader(new StringReader(current)),
+        diff);
+    return diff.toString();
+  }
+}
@@ -38,6 +38,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import com.google.appengine.api.datastore.DatastoreFailureException;
@@ -64,6 +65,7 @@ import google.registry.whois.WhoisMetrics.WhoisMetric;
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.util.Optional;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.junit.jupiter.api.BeforeEach;
@@ -85,6 +87,7 @@ public class WhoisActionTest {
       new TestCacheExtension.Builder()
           .withEppResourceCache(Duration.standardDays(1))
           .withForeignIndexKeyCache(Duration.standardDays(1))
+          .withWhoisResponseCache(Duration.ZERO)
           .build();
 
   private final FakeResponse response = new FakeResponse();
@@ -595,6 +598,48 @@ public class WhoisActionTest {
     assertThat(response.getPayload()).isEqualTo("Internal Server Error");
   }
 
+  @Test
+  void testRun_cachedResponse_servedWithoutQuery() {
+    WhoisResponseCache.setCacheForTest(Optional.of(Duration.standardDays(1)));
+    persistResource(makeHostResource("ns1.cat.lol", "1.2.3.4"));
+    WhoisAction action = newWhoisAction("nameserver ns1.cat.lol\r\n");
+    action.whoisMetrics = mock(WhoisMetrics.class);
+    action.run();
+    verify(action.whoisMetrics).recordCacheLookup(false);
+    String payload = response.getPayload();
+    assertThat(payload).contains("ns1.cat.lol");
+
+    action = newWhoisAction("NAMESERVER  ns1.cat.lol\r\n");
+    action.whoisReader = mock(WhoisReader.class);
+    action.whoisMetrics = mock(WhoisMetrics.class);
+    action.run();
+    verifyNoInteractions(action.whoisReader);
+    verify(action.whoisMetrics).recordCacheLookup(true);
+    WhoisMetric expected =
+        WhoisMetric.builderForRequest(clock)
+            .setCommandName("NameserverLookupByHost")
+            .setNumResults(1)
+            .setStatus(SC_OK)
+            .build();
+    verify(action.whoisMetrics).recordWhoisMetric(eq(expected));
+    assertThat(response.getPayload()).isEqualTo(payload);
+  }
+
+  @Test
+  void testRun_internalServerError_notCached() throws Exception {
+    WhoisResponseCache.setCacheForTest(Optional.of(Duration.standardDays(1)));
+    persistResource(makeHostResource("ns1.cat.lol", "1.2.3.4"));
+    WhoisAction action = newWhoisAction("ns1.cat.lol");
+    action.whoisReader = mock(WhoisReader.class);
+    when(action.whoisReader.readCommand(any(Reader.class), eq(false), any(DateTime.class)))
+        .thenThrow(new IOException("missing cat interface"));
+    action.run();
+    assertThat(response.getPayload()).isEqualTo("Internal Server Error");
+
+    newWhoisAction("ns1.cat.lol").run();
+    assertThat(response.getPayload()).contains("ns1.cat.lol");
+  }
+
   @Test
   void testRun_retryOnTransientFailure() throws Exception {
     persistResource(loadRegistrar("TheRegistrar").asBuilder().setUrl("http://my.fake.url").build());
@@ -34,6 +34,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.when;
 
 import google.registry.model.contact.ContactResource;
@@ -44,9 +45,11 @@ import google.registry.testing.AppEngineExtension;
 import google.registry.testing.FakeClock;
 import google.registry.testing.FakeResponse;
 import google.registry.testing.InjectExtension;
+import google.registry.testing.TestCacheExtension;
 import google.registry.whois.WhoisMetrics.WhoisMetric;
 import java.io.IOException;
 import java.io.Reader;
+import java.util.Optional;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.junit.jupiter.api.BeforeEach;
@@ -68,6 +71,10 @@ class WhoisHttpActionTest {
 
   @RegisterExtension final InjectExtension inject = new InjectExtension();
 
+  @RegisterExtension
+  final TestCacheExtension testCacheExtension =
+      new TestCacheExtension.Builder().withWhoisResponseCache(Duration.ZERO).build();
+
   private final FakeResponse response = new FakeResponse();
   private final FakeClock clock = new FakeClock(DateTime.parse("2009-06-29T20:13:00Z"));
 
@@ -354,6 +361,29 @@ class WhoisHttpActionTest {
     verify(action.whoisMetrics).recordWhoisMetric(eq(expected));
   }
 
+  @Test
+  void testRun_cachedResponse_servedWithoutQuery() {
+    WhoisResponseCache.setCacheForTest(Optional.of(Duration.standardDays(1)));
+    persistResource(makeHostResource("ns1.cat.lol", "1.2.3.4"));
+    WhoisHttpAction action = newWhoisHttpAction("/nameserver/ns1.cat.lol");
+    action.whoisMetrics = mock(WhoisMetrics.class);
+    action.run();
+    verify(action.whoisMetrics).recordCacheLookup(false);
+    String payload = response.getPayload();
+
+    clock.advanceOneMilli();
+    action = newWhoisHttpAction("/NameServer/NS1.cat.lol/");
+    action.whoisReader = mock(WhoisReader.class);
+    action.whoisMetrics = mock(WhoisMetrics.class);
+    action.run();
+    verifyNoInteractions(action.whoisReader);
+    verify(action.whoisMetrics).recordCacheLookup(true);
+    assertThat(response.getStatus()).isEqualTo(200);
+    assertThat(response.getPayload()).isEqualTo(payload);
+    assertThat(response.getHeaders())
+        .containsEntry("Last-Modified", DateTime.parse("2009-06-29T20:13:00Z"));
+  }
+
   @Test
   void testRun_metricsLoggedForInternalServerError() throws Exception {
     persistResource(makeHostResource("ns1.cat.lol", "1.2.3.4"));
@@ -0,0 +1,133 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.whois;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth8.assertThat;
+import static google.registry.model.CacheUtils.getCacheInvalidationBus;
+import static javax.servlet.http.HttpServletResponse.SC_OK;
+
+import com.google.common.collect.ImmutableSet;
+import google.registry.testing.TestCacheExtension;
+import google.registry.whois.WhoisResponseCache.CachedResponse;
+import google.registry.whois.WhoisResponseCache.QueryKey;
+import java.util.Optional;
+import org.joda.time.DateTime;
+import org.joda.time.Duration;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.RegisterExtension;
+
+/** Unit tests for {@link WhoisResponseCache}. */
+class WhoisResponseCacheTest {
+
+  @RegisterExtension
+  final TestCacheExtension testCacheExtension =
+      new TestCacheExtension.Builder().withWhoisResponseCache(Duration.standardMinutes(1)).build();
+
+  private static CachedResponse response(String output) {
+    return CachedResponse.create(
+        Optional.of("DomainLookup"), SC_OK, 1, output, DateTime.parse("2009-06-29T20:13:00Z"));
+  }
+
+  @Test
+  void testQueryKey_normalizesWhitespaceAndCase() {
+    assertThat(QueryKey.create("  DOMAIN\tExample.TLD\r\n", false, false))
+        .isEqualTo(QueryKey.create("domain example.tld", false, false));
+  }
+
+  @Test
+  void testQueryKey_distinguishesOutputOptions() {
+    assertThat(QueryKey.create("example.tld", false, false))
+        .isNotEqualTo(QueryKey.create("example.tld", true, false));
+    assertThat(QueryKey.create("example.tld", false, false))
+        .isNotEqualTo(QueryKey.create("example.tld", false, true));
+  }
+
+  @Test
+  void testGet_returnsCachedResponse() {
+    QueryKey key = QueryKey.create("example.tld", false, false);
+    assertThat(WhoisResponseCache.get(key)).isEmpty();
+    WhoisResponseCache.put(key, response("cached"));
+    assertThat(WhoisResponseCache.get(QueryKey.create("Example.tld\r\n", false, false)))
+        .hasValue(response("cached"));
+  }
+
+  @Test
+  void testInvalidation_dropsResponsesAboutName() {
+    QueryKey domainKey = QueryKey.create("domain example.tld", false, false);
+    QueryKey bareKey = QueryKey.create("example.tld", false, true);
+    QueryKey otherKey = QueryKey.create("domain other.tld", false, false);
+    QueryKey suffixKey = QueryKey.create("domain anexample.tld", false, false);
+    WhoisResponseCache.put(domainKey, response("domain"));
+    WhoisResponseCache.put(bareKey, response("bare"));
+    WhoisResponseCache.put(otherKey, response("other"));
+    WhoisResponseCache.put(suffixKey, response("suffix"));
+    getCacheInvalidationBus().publish(WhoisResponseCache.CACHE_NAME, "EXAMPLE.tld");
+    assertThat(WhoisResponseCache.get(domainKey)).isEmpty();
+    assertThat(WhoisResponseCache.get(bareKey)).isEmpty();
+    assertThat(WhoisResponseCache.get(otherKey)).hasValue(response("other"));
+    assertThat(WhoisResponseCache.get(suffixKey)).hasValue(response("suffix"));
+  }
+
+  @Test
+  void testInvalidation_dropsResponsesAboutUnicodeFormOfName() {
+    QueryKey asciiKey = QueryKey.create("domain xn--q9jyb4c.tld", false, false);
+    QueryKey unicodeKey = QueryKey.create("domain みんな.tld", false, true);
+    QueryKey otherKey = QueryKey.create("domain example.tld", false, false);
+    WhoisResponseCache.put(asciiKey, response("ascii"));
+    WhoisResponseCache.put(unicodeKey, response("unicode"));
+    WhoisResponseCache.put(otherKey, response("other"));
+    getCacheInvalidationBus().publish(WhoisResponseCache.CACHE_NAME, "xn--q9jyb4c.tld");
+    assertThat(WhoisResponseCache.get(asciiKey)).isEmpty();
+    assertThat(WhoisResponseCache.get(unicodeKey)).isEmpty();
+    assertThat(WhoisResponseCache.get(otherKey)).hasValue(response("other"));
+  }
+
+  @Test
+  void testInvalidator_dropsResponsesAboutEachName() {
+    QueryKey oldNameKey = QueryKey.create("nameserver ns1.example.tld", false, false);
+    QueryKey newNameKey = QueryKey.create("nameserver ns2.example.tld", false, false);
+    QueryKey otherKey = QueryKey.create("nameserver ns3.example.tld", false, false);
+    WhoisResponseCache.put(oldNameKey, response("old"));
+    WhoisResponseCache.put(newNameKey, response("new"));
+    WhoisResponseCache.put(otherKey, response("other"));
+    new WhoisResponseCacheInvalidator()
+        .invalidate(ImmutableSet.of("ns1.example.tld", "ns2.example.tld"));
+    assertThat(WhoisResponseCache.get(oldNameKey)).isEmpty();
+    assertThat(WhoisResponseCache.get(newNameKey)).isEmpty();
+    assertThat(WhoisResponseCache.get(otherKey)).hasValue(response("other"));
+  }
+
+  @Test
+  void testInvalidation_allEntries() {
+    QueryKey domainKey = QueryKey.create("domain example.tld", false, false);
+    QueryKey registrarKey = QueryKey.create("registrar example registrar", false, false);
+    WhoisResponseCache.put(domainKey, response("domain"));
+    WhoisResponseCache.put(registrarKey, response("registrar"));
+    getCacheInvalidationBus()
+        .publish(WhoisResponseCache.CACHE_NAME, WhoisResponseCache.ALL_ENTRIES);
+    assertThat(WhoisResponseCache.get(domainKey)).isEmpty();
+    assertThat(WhoisResponseCache.get(registrarKey)).isEmpty();
+  }
+
+  @Test
+  void testDisabled_cachesNothing() {
+    WhoisResponseCache.setCacheForTest(Optional.of(Duration.ZERO));
+    QueryKey key = QueryKey.create("example.tld", false, false);
+    WhoisResponseCache.put(key, response("cached"));
+    assertThat(WhoisResponseCache.isEnabled()).isFalse();
+    assertThat(WhoisResponseCache.get(key)).isEmpty();
+  }
+}
@@ -0,0 +1,101 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.xml;
+
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.monitoring.metrics.contrib.LongMetricSubject.assertThat;
+import static google.registry.xml.XmlObjectPool.borrowCount;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link XmlObjectPool}. */
+class XmlObjectPoolTest {
+
+  private final XmlObjectPool<Object> pool = new XmlObjectPool<>("test", 2);
+
+  @BeforeEach
+  void beforeEach() {
+    borrowCount.reset();
+  }
+
+  @Test
+  void testBorrow_emptyPool_createsInstance() {
+    Object instance = new Object();
+    assertThat(pool.borrow(() -> instance)).isSameInstanceAs(instance);
+    assertThat(pool.getCreationCount()).isEqualTo(1);
+    assertThat(pool.getHitCount()).isEqualTo(0);
+    assertThat(pool.getHitRate()).isEqualTo(0.0);
+    assertThat(borrowCount).hasValueForLabels(1, "test", "MISS").and().hasNoOtherValues();
+  }
+
+  @Test
+  void testBorrow_releasedInstance_isReused() {
+    Object instance = pool.borrow(Object::new);
+    pool.release(instance);
+    assertThat(pool.borrow(Object::new)).isSameInstanceAs(instance);
+    assertThat(pool.getCreationCount()).isEqualTo(1);
+    assertThat(pool.getHitCount()).isEqualTo(1);
+    assertThat(pool.getHitRate()).isEqualTo(0.5);
+    assertThat(borrowCount)
+        .hasValueForLabels(1, "test", "MISS")
+        .and()
+        .hasValueForLabels(1, "test", "HIT")
+        .and()
+        .hasNoOtherValues();
+  }
+
+  @Test
+  void testBorrow_concurrentUsers_getDistinctInstances() {
+    Object first = pool.borrow(Object::new);
+    Object second = pool.borrow(Object::new);
+    assertThat(first).isNotSameInstanceAs(second);
+    assertThat(pool.getCreationCount()).isEqualTo(2);
+  }
+
+  @Test
+  void testRelease_overCapacity_dropsInstance() {
+    pool.release(new Object());
+    pool.release(new Object());
+    pool.release(new Object());
+    assertThat(pool.getIdleCount()).isEqualTo(2);
+  }
+
+  @Test
+  void testBorrow_factoryThrows_propagatesException() {
+    IOException thrown =
+        assertThrows(
+            IOException.class,
+            () ->
+                pool.borrow(
+                    () -> {
+                      throw new IOException("boom");
+                    }));
+    assertThat(thrown).hasMessageThat().isEqualTo("boom");
+    assertThat(pool.getCreationCount()).isEqualTo(0);
+  }
+
+  @Test
+  void testHitRate_unused_isOne() {
+    assertThat(pool.getHitRate()).isEqualTo(1.0);
+  }
+
+  @Test
+  void testFailure_nonPositiveMaxIdle() {
+    assertThrows(IllegalArgumentException.class, () -> new XmlObjectPool<>("test", 0));
+  }
+}
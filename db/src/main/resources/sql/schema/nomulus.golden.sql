@@ -119,6 +119,37 @@ CREATE TABLE public."BillingRecurrence" (
 );
 
 
+--
+-- Name: CacheInvalidation; Type: TABLE; Schema: public; Owner: -
+--
+
+CREATE TABLE public."CacheInvalidation" (
+    id bigint NOT NULL,
+    cache_key text NOT NULL,
+    cache_name text NOT NULL,
+    invalidation_time timestamp with time zone NOT NULL
+);
+
+
+--
+-- Name: CacheInvalidation_id_seq; Type: SEQUENCE; Schema: public; Owner: -
+--
+
+CREATE SEQUENCE public."CacheInvalidation_id_seq"
+    START WITH 1
+    INCREMENT BY 1
+    NO MINVALUE
+    NO MAXVALUE
+    CACHE 1;
+
+
+--
+-- Name: CacheInvalidation_id_seq; Type: SEQUENCE OWNED BY; Schema: public; Owner: -
+--
+
+ALTER SEQUENCE public."CacheInvalidation_id_seq" OWNED BY public."CacheInvalidation".id;
+
+
 --
 -- Name: ClaimsEntry; Type: TABLE; Schema: public; Owner: -
 --
@@ -1072,6 +1103,13 @@ CREATE SEQUENCE public."Transaction_id_seq"
 ALTER SEQUENCE public."Transaction_id_seq" OWNED BY public."Transaction".id;
 
 
+--
+-- Name: CacheInvalidation id; Type: DEFAULT; Schema: public; Owner: -
+--
+
+ALTER TABLE ONLY public."CacheInvalidation" ALTER COLUMN id SET DEFAULT nextval('public."CacheInvalidation_id_seq"'::regclass);
+
+
 --
 -- Name: ClaimsList revision_id; Type: DEFAULT; Schema: public; Owner: -
 --
@@ -1160,6 +1198,14 @@ ALTER TABLE ONLY public."BillingRecurrence"
     ADD CONSTRAINT "BillingRecurrence_pkey" PRIMARY KEY (billing_recurrence_id);
 
 
+--
+-- Name: CacheInvalidation CacheInvalidation_pkey; Type: CONSTRAINT; Schema: public; Owner: -
+--
+
+ALTER TABLE ONLY public."CacheInvalidation"
+    ADD CONSTRAINT "CacheInvalidation_pkey" PRIMARY KEY (id);
+
+
 --
 -- Name: ClaimsEntry ClaimsEntry_pkey; Type: CONSTRAINT; Schema: public; Owner: -
 --
@@ -1455,6 +1501,27 @@ ALTER TABLE ONLY public."DomainHistoryHost"
 CREATE INDEX allocation_token_domain_name_idx ON public."AllocationToken" USING btree (domain_name);
 
 
+--
+-- Name: cache_invalidation_time_idx; Type: INDEX; Schema: public; Owner: -
+--
+
+CREATE INDEX cache_invalidation_time_idx ON public."CacheInvalidation" USING btree (invalidation_time);
+
+
+--
+-- Name: domain_tld_name_deletion_time_idx; Type: INDEX; Schema: public; Owner: -
+--
+
+CREATE INDEX domain_tld_name_deletion_time_idx ON public."Domain" USING btree (tld, domain_name, deletion_time);
+
+
+--
+-- Name: host_inet_addresses_idx; Type: INDEX; Schema: public; Owner: -
+--
+
+CREATE INDEX host_inet_addresses_idx ON public."Host" USING gin (inet_addresses);
+
+
 --
 -- Name: idx1iy7njgb7wjmj9piml4l2g0qi; Type: INDEX; Schema: public; Owner: -
 --
@@ -35,7 +35,7 @@ import google.registry.proxy.quota.QuotaManager;
 import google.registry.proxy.quota.TokenStore;
 import google.registry.util.Clock;
 import io.netty.channel.ChannelHandler;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
 import io.netty.handler.codec.LengthFieldPrepender;
 import io.netty.handler.ssl.SslProvider;
@@ -44,7 +44,6 @@ import java.io.IOException;
 import java.security.PrivateKey;
 import java.security.cert.X509Certificate;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Supplier;
 import javax.inject.Named;
 import javax.inject.Provider;
@@ -83,7 +82,7 @@ public final class EppProtocolModule {
   @EppProtocol
   static ImmutableList<Provider<? extends ChannelHandler>> provideHandlerProviders(
       Provider<ProxyProtocolHandler> proxyProtocolHandlerProvider,
-      @EppProtocol Provider<SslServerInitializer<NioSocketChannel>> sslServerInitializerProvider,
+      @EppProtocol Provider<SslServerInitializer<SocketChannel>> sslServerInitializerProvider,
       @EppProtocol Provider<ReadTimeoutHandler> readTimeoutHandlerProvider,
       Provider<LengthFieldBasedFrameDecoder> lengthFieldBasedFrameDecoderProvider,
       Provider<LengthFieldPrepender> lengthFieldPrependerProvider,
@@ -158,7 +157,7 @@ public final class EppProtocolModule {
   @Singleton
   @Provides
   @EppProtocol
-  static SslServerInitializer<NioSocketChannel> provideSslServerInitializer(
+  static SslServerInitializer<SocketChannel> provideSslServerInitializer(
       SslProvider sslProvider,
       Supplier<PrivateKey> privateKeySupplier,
       Supplier<ImmutableList<X509Certificate>> certificatesSupplier) {
@@ -168,9 +167,8 @@ public final class EppProtocolModule {
 
   @Provides
   @EppProtocol
-  static TokenStore provideTokenStore(
-      ProxyConfig config, ScheduledExecutorService refreshExecutor, Clock clock) {
-    return new TokenStore(new QuotaConfig(config.epp.quota, PROTOCOL_NAME), refreshExecutor, clock);
+  static TokenStore provideTokenStore(ProxyConfig config, Clock clock) {
+    return new TokenStore(new QuotaConfig(config.epp.quota, PROTOCOL_NAME), clock);
   }
 
   @Provides
@@ -24,7 +24,7 @@ import google.registry.proxy.Protocol.BackendProtocol;
 import google.registry.proxy.handler.BackendMetricsHandler;
 import google.registry.proxy.handler.RelayHandler.FullHttpResponseRelayHandler;
 import io.netty.channel.ChannelHandler;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.socket.SocketChannel;
 import io.netty.handler.codec.http.HttpClientCodec;
 import io.netty.handler.codec.http.HttpObjectAggregator;
 import io.netty.handler.logging.LoggingHandler;
@@ -63,7 +63,7 @@ public class HttpsRelayProtocolModule {
 
   @Provides
   @HttpsRelayProtocol
-  static SslClientInitializer<NioSocketChannel> provideSslClientInitializer(
+  static SslClientInitializer<SocketChannel> provideSslClientInitializer(
       SslProvider sslProvider) {
     return createSslClientInitializerWithSystemTrustStore(
         sslProvider,
@@ -75,7 +75,7 @@ public class HttpsRelayProtocolModule {
   @HttpsRelayProtocol
   static ImmutableList<Provider<? extends ChannelHandler>> provideHandlerProviders(
       @HttpsRelayProtocol
-          Provider<SslClientInitializer<NioSocketChannel>> sslClientInitializerProvider,
+          Provider<SslClientInitializer<SocketChannel>> sslClientInitializerProvider,
       Provider<HttpClientCodec> httpClientCodecProvider,
       Provider<HttpObjectAggregator> httpObjectAggregatorProvider,
       Provider<BackendMetricsHandler> backendMetricsHandlerProvider,
@@ -48,6 +48,7 @@ public class ProxyConfig {
   public WebWhois webWhois;
   public HttpsRelay httpsRelay;
   public Metrics metrics;
+  public EventLoop eventLoop;
 
   /** Configuration options that apply to GCS. */
   public static class Gcs {
@@ -101,6 +102,9 @@ public class ProxyConfig {
   public static class HttpsRelay {
     public int port;
     public int maxMessageLengthBytes;
+    public boolean sharedPool;
+    public int maxPooledConnections;
+    public int maxPendingAcquires;
   }
 
   /** Configuration options that apply to Stackdriver monitoring metrics. */
@@ -110,6 +114,14 @@ public class ProxyConfig {
     public int writeIntervalSeconds;
   }
 
+  /** Configuration options that apply to the Netty transport and its event loops. */
+  public static class EventLoop {
+    public boolean useNativeTransport;
+    public int bossThreads;
+    public int workerThreads;
+    public int relayWorkerThreads;
+  }
+
   /** Configuration options that apply to quota management. */
   public static class Quota {
 
@@ -55,7 +55,6 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Supplier;
 import java.util.logging.ConsoleHandler;
 import java.util.logging.Handler;
@@ -316,11 +315,6 @@ public class ProxyModule {
     return Executors.newWorkStealingPool();
   }
 
-  @Provides
-  static ScheduledExecutorService provideScheduledExecutorService() {
-    return Executors.newSingleThreadScheduledExecutor();
-  }
-
   @Singleton
   @Provides
   ProxyConfig provideProxyConfig(Environment env) {
@@ -362,5 +356,7 @@ public class ProxyModule {
     Set<FrontendProtocol> protocols();
 
     MetricReporter metricReporter();
+
+    ProxyConfig proxyConfig();
   }
 }
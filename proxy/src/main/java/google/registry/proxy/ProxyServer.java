@@ -14,12 +14,16 @@
 
 package google.registry.proxy;
 
+import static com.google.common.collect.ImmutableMap.toImmutableMap;
 import static google.registry.proxy.Protocol.PROTOCOL_KEY;
 import static google.registry.proxy.handler.RelayHandler.RELAY_BUFFER_KEY;
 import static google.registry.proxy.handler.RelayHandler.RELAY_CHANNEL_KEY;
+import static google.registry.proxy.handler.RelayHandler.RELAY_POOL_KEY;
+import static google.registry.proxy.handler.RelayHandler.abortPooledRelay;
 import static google.registry.proxy.handler.RelayHandler.writeToRelayChannel;
 
 import com.google.common.collect.ImmutableList;
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.flogger.FluentLogger;
 import com.google.monitoring.metrics.MetricReporter;
@@ -36,17 +40,19 @@ import io.netty.channel.ChannelInitializer;
 import io.netty.channel.ChannelOption;
 import io.netty.channel.ChannelPipeline;
 import io.netty.channel.EventLoopGroup;
-import io.netty.channel.nio.NioEventLoopGroup;
-import io.netty.channel.socket.nio.NioServerSocketChannel;
-import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.channel.pool.AbstractChannelPoolHandler;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.channel.pool.FixedChannelPool;
+import io.netty.channel.socket.SocketChannel;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.concurrent.Future;
 import io.netty.util.internal.logging.InternalLoggerFactory;
 import io.netty.util.internal.logging.JdkLoggerFactory;
-import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.TimeoutException;
+import javax.annotation.Nullable;
 import javax.inject.Provider;
 
 /**
@@ -61,16 +67,101 @@ public class ProxyServer implements Runnable {
 
   private final ImmutableSet<FrontendProtocol> protocols;
   private final HashMap<Integer, Channel> portToChannelMap = new HashMap<>();
-  private final EventLoopGroup eventGroup = new NioEventLoopGroup();
+  private final ProxyTransport transport;
+  private final EventLoopGroup bossGroup;
+  private final EventLoopGroup workerGroup;
+
+  /** Event loops of the relay channels, or null if they share the loops of the inbound channels. */
+  @Nullable private final EventLoopGroup relayGroup;
+
+  /**
+   * Pools of backend channels shared by all inbound channels of a protocol, keyed by frontend
+   * protocol name. Empty if each inbound channel has its own relay channel.
+   */
+  private final ImmutableMap<String, ChannelPool> relayPools;
 
   ProxyServer(ProxyComponent proxyComponent) {
     this.protocols = ImmutableSet.copyOf(proxyComponent.protocols());
+    ProxyConfig.EventLoop eventLoopConfig = proxyComponent.proxyConfig().eventLoop;
+    this.transport = ProxyTransport.select(eventLoopConfig.useNativeTransport);
+    this.bossGroup = transport.createEventLoopGroup(eventLoopConfig.bossThreads);
+    this.workerGroup = transport.createEventLoopGroup(eventLoopConfig.workerThreads);
+    this.relayGroup =
+        eventLoopConfig.relayWorkerThreads > 0
+            ? transport.createEventLoopGroup(eventLoopConfig.relayWorkerThreads)
+            : null;
+    logger.atInfo().log(
+        "Using %s transport with %d boss, %d worker and %d relay worker threads.",
+        transport,
+        eventLoopConfig.bossThreads,
+        eventLoopConfig.workerThreads,
+        eventLoopConfig.relayWorkerThreads);
+    ProxyConfig.HttpsRelay httpsRelayConfig = proxyComponent.proxyConfig().httpsRelay;
+    this.relayPools =
+        httpsRelayConfig.sharedPool
+            ? protocols.stream()
+                .filter(FrontendProtocol::hasBackend)
+                .collect(
+                    toImmutableMap(
+                        FrontendProtocol::name,
+                        protocol ->
+                            createRelayPool(
+                                protocol.relayProtocol(),
+                                httpsRelayConfig.maxPooledConnections,
+                                httpsRelayConfig.maxPendingAcquires)))
+            : ImmutableMap.of();
+  }
+
+  /**
+   * Creates a pool of keep-alive connections to a backend, to be shared by all inbound channels
+   * relaying to it.
+   *
+   * <p>Session state, such as cookies, lives in the handlers of the inbound channels and is added
+   * to each request, so pooled backend channels carry nothing from one request to the next.
+   */
+  private ChannelPool createRelayPool(
+      BackendProtocol outboundProtocol, int maxConnections, int maxPendingAcquires) {
+    Bootstrap bootstrap =
+        new Bootstrap()
+            .group(relayGroup != null ? relayGroup : workerGroup)
+            .channel(transport.channelClass())
+            .option(ChannelOption.SO_KEEPALIVE, true)
+            .attr(PROTOCOL_KEY, outboundProtocol)
+            .remoteAddress(outboundProtocol.host(), outboundProtocol.port());
+    RelayPoolHandler poolHandler = new RelayPoolHandler(outboundProtocol);
+    poolHandler.pool =
+        new FixedChannelPool(bootstrap, poolHandler, maxConnections, maxPendingAcquires);
+    return poolHandler.pool;
+  }
+
+  /** Sets up the backend channels created by a relay pool. */
+  private static class RelayPoolHandler extends AbstractChannelPoolHandler {
+
+    private final BackendProtocol outboundProtocol;
+
+    /** The pool that this handler belongs to, set before the pool creates any channel. */
+    private ChannelPool pool;
+
+    RelayPoolHandler(BackendProtocol outboundProtocol) {
+      this.outboundProtocol = outboundProtocol;
+    }
+
+    @Override
+    public void channelCreated(Channel outboundChannel) {
+      outboundChannel.attr(RELAY_POOL_KEY).set(pool);
+      ServerChannelInitializer.addHandlers(
+          outboundChannel.pipeline(), outboundProtocol.handlerProviders());
+      ChannelFuture unusedFuture =
+          outboundChannel
+              .closeFuture()
+              .addListener(future -> abortPooledRelay(outboundChannel, pool));
+    }
   }
 
   /**
    * A {@link ChannelInitializer} for connections from a client of a certain protocol.
    *
-   * <p>The {@link #initChannel(NioSocketChannel)} method does the following:
+   * <p>The {@link #initChannel(SocketChannel)} method does the following:
    *
    * <ol>
    *   <li>Determine the {@link FrontendProtocol} of the inbound {@link Channel} from its parent
@@ -81,15 +172,37 @@ public class ProxyServer implements Runnable {
    *   <li>After the outbound {@link Channel} connects successfully, enable {@link
    *       ChannelOption#AUTO_READ} on the inbound {@link Channel} to start reading.
    * </ol>
+   *
+   * <p>Unless a separate relay {@link EventLoopGroup} is configured, the outbound {@link Channel}
+   * is registered with the same {@link io.netty.channel.EventLoop} as its inbound {@link Channel},
+   * so that messages are relayed without switching threads.
+   *
+   * <p>If the {@link FrontendProtocol} relays through a shared pool, no outbound {@link Channel} is
+   * established. Instead, the inbound {@link Channel} is given the pool to acquire a backend
+   * {@link Channel} from for each message, and starts reading immediately.
    */
-  private static class ServerChannelInitializer extends ChannelInitializer<NioSocketChannel> {
+  private static class ServerChannelInitializer extends ChannelInitializer<SocketChannel> {
+
+    private final ProxyTransport transport;
+    @Nullable private final EventLoopGroup relayGroup;
+    private final ImmutableMap<String, ChannelPool> relayPools;
+
+    ServerChannelInitializer(
+        ProxyTransport transport,
+        @Nullable EventLoopGroup relayGroup,
+        ImmutableMap<String, ChannelPool> relayPools) {
+      this.transport = transport;
+      this.relayGroup = relayGroup;
+      this.relayPools = relayPools;
+    }
+
     @Override
-    protected void initChannel(NioSocketChannel inboundChannel) throws Exception {
+    protected void initChannel(SocketChannel inboundChannel) throws Exception {
       // Add inbound channel handlers.
       FrontendProtocol inboundProtocol =
           (FrontendProtocol) inboundChannel.parent().attr(PROTOCOL_KEY).get();
       inboundChannel.attr(PROTOCOL_KEY).set(inboundProtocol);
-      inboundChannel.attr(RELAY_BUFFER_KEY).set(new ArrayDeque<>());
+      inboundChannel.attr(RELAY_BUFFER_KEY).set(new ConcurrentLinkedDeque<>());
       addHandlers(inboundChannel.pipeline(), inboundProtocol.handlerProviders());
 
       if (!inboundProtocol.hasBackend()) {
@@ -99,29 +212,38 @@ public class ProxyServer implements Runnable {
       } else {
         logger.atInfo().log(
             "Connection established: %s %s", inboundProtocol.name(), inboundChannel);
-        // Connect to the relay (outbound) channel specified by the BackendProtocol.
-        BackendProtocol outboundProtocol = inboundProtocol.relayProtocol();
-        Bootstrap bootstrap =
-            new Bootstrap()
-                // Use the same thread to connect to the relay channel, therefore avoiding
-                // synchronization handling due to interactions between the two channels
-                .group(inboundChannel.eventLoop())
-                .channel(NioSocketChannel.class)
-                .handler(
-                    new ChannelInitializer<NioSocketChannel>() {
-                      @Override
-                      protected void initChannel(NioSocketChannel outboundChannel)
-                          throws Exception {
-                        addHandlers(
-                            outboundChannel.pipeline(), outboundProtocol.handlerProviders());
-                      }
-                    })
-                .option(ChannelOption.SO_KEEPALIVE, true)
-                // Outbound channel relays to inbound channel.
-                .attr(RELAY_CHANNEL_KEY, inboundChannel)
-                .attr(PROTOCOL_KEY, outboundProtocol);
+        ChannelPool relayPool = relayPools.get(inboundProtocol.name());
+        if (relayPool != null) {
+          // Relay through backend channels acquired from the shared pool, start reading
+          // immediately.
+          inboundChannel.attr(RELAY_POOL_KEY).set(relayPool);
+          inboundChannel.config().setAutoRead(true);
+        } else {
+          // Connect to the relay (outbound) channel specified by the BackendProtocol.
+          BackendProtocol outboundProtocol = inboundProtocol.relayProtocol();
+          Bootstrap bootstrap =
+              new Bootstrap()
+                  // Unless relay channels have their own event loops, use the same thread to
+                  // connect to the relay channel, therefore avoiding a thread hop on every relayed
+                  // message.
+                  .group(relayGroup != null ? relayGroup : inboundChannel.eventLoop())
+                  .channel(transport.channelClass())
+                  .handler(
+                      new ChannelInitializer<SocketChannel>() {
+                        @Override
+                        protected void initChannel(SocketChannel outboundChannel)
+                            throws Exception {
+                          addHandlers(
+                              outboundChannel.pipeline(), outboundProtocol.handlerProviders());
+                        }
+                      })
+                  .option(ChannelOption.SO_KEEPALIVE, true)
+                  // Outbound channel relays to inbound channel.
+                  .attr(RELAY_CHANNEL_KEY, inboundChannel)
+                  .attr(PROTOCOL_KEY, outboundProtocol);
 
-        connectOutboundChannel(bootstrap, inboundProtocol, outboundProtocol, inboundChannel);
+          connectOutboundChannel(bootstrap, inboundProtocol, outboundProtocol, inboundChannel);
+        }
         // If the inbound connection is closed, close its outbound relay connection as well. There
         // is no way to recover from an inbound connection termination, as the connection can only
         // be initiated by the client.
@@ -168,7 +290,7 @@ public class ProxyServer implements Runnable {
         Bootstrap bootstrap,
         FrontendProtocol inboundProtocol,
         BackendProtocol outboundProtocol,
-        NioSocketChannel inboundChannel) {
+        SocketChannel inboundChannel) {
       ChannelFuture outboundChannelFuture =
           bootstrap.connect(outboundProtocol.host(), outboundProtocol.port());
       outboundChannelFuture.addListener(
@@ -186,13 +308,17 @@ public class ProxyServer implements Runnable {
                   "Relay established: %s <-> %s\nFRONTEND: %s\nBACKEND: %s",
                   inboundProtocol.name(), outboundProtocol.name(), inboundChannel, outboundChannel);
               // Now that we have a functional relay channel to the backend, if there's any
-              // buffered requests, send them off to the relay channel. We need to obtain a copy
-              // of the messages and clear the queue first, because if the relay is not successful,
-              // the message will be written back to the queue, causing an infinite loop.
+              // buffered requests, send them off to the relay channel. We only take as many
+              // messages as there are in the queue now, because if the relay is not successful,
+              // the message will be written back to the queue, causing an infinite loop. Messages
+              // are removed one by one because failed relays may add to the queue concurrently
+              // when the relay channel is on a different thread.
               Queue<Object> relayBuffer = inboundChannel.attr(RELAY_BUFFER_KEY).get();
-              Object[] messages = relayBuffer.toArray();
-              relayBuffer.clear();
-              for (Object msg : messages) {
+              for (int i = relayBuffer.size(); i > 0; i--) {
+                Object msg = relayBuffer.poll();
+                if (msg == null) {
+                  break;
+                }
                 logger.atInfo().log(
                     "Relay retried: %s <-> %s\nFRONTEND: %s\nBACKEND: %s\nHASH: %s",
                     inboundProtocol.name(),
@@ -252,9 +378,9 @@ public class ProxyServer implements Runnable {
     try {
       ServerBootstrap serverBootstrap =
           new ServerBootstrap()
-              .group(eventGroup)
-              .channel(NioServerSocketChannel.class)
-              .childHandler(new ServerChannelInitializer())
+              .group(bossGroup, workerGroup)
+              .channel(transport.serverChannelClass())
+              .childHandler(new ServerChannelInitializer(transport, relayGroup, relayPools))
               .option(ChannelOption.SO_BACKLOG, MAX_SOCKET_BACKLOG)
               .childOption(ChannelOption.SO_KEEPALIVE, true)
               // Do not read before relay channel is established.
@@ -297,7 +423,12 @@ public class ProxyServer implements Runnable {
           });
     } finally {
       logger.atInfo().log("Shutting down server...");
-      Future<?> unusedFuture = eventGroup.shutdownGracefully();
+      relayPools.values().forEach(ChannelPool::close);
+      Future<?> unusedFuture = bossGroup.shutdownGracefully();
+      Future<?> unusedFuture2 = workerGroup.shutdownGracefully();
+      if (relayGroup != null) {
+        Future<?> unusedFuture3 = relayGroup.shutdownGracefully();
+      }
     }
   }
 
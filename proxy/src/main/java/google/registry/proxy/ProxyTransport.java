@@ -0,0 +1,101 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.proxy;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.epoll.EpollEventLoopGroup;
+import io.netty.channel.epoll.EpollServerSocketChannel;
+import io.netty.channel.epoll.EpollSocketChannel;
+import io.netty.channel.nio.NioEventLoopGroup;
+import io.netty.channel.socket.ServerSocketChannel;
+import io.netty.channel.socket.SocketChannel;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+
+/**
+ * The Netty transport that the proxy uses for its sockets and event loops.
+ *
+ * <p>The native epoll transport avoids the overhead of the JDK selector and is preferred when it is
+ * available, i. e. when running on Linux with the native library loaded. The NIO transport works
+ * everywhere and is used otherwise.
+ */
+enum ProxyTransport {
+  EPOLL {
+    @Override
+    boolean isAvailable() {
+      return Epoll.isAvailable();
+    }
+
+    @Override
+    EventLoopGroup createEventLoopGroup(int numThreads) {
+      return new EpollEventLoopGroup(numThreads);
+    }
+
+    @Override
+    Class<? extends ServerSocketChannel> serverChannelClass() {
+      return EpollServerSocketChannel.class;
+    }
+
+    @Override
+    Class<? extends SocketChannel> channelClass() {
+      return EpollSocketChannel.class;
+    }
+  },
+  NIO {
+    @Override
+    boolean isAvailable() {
+      return true;
+    }
+
+    @Override
+    EventLoopGroup createEventLoopGroup(int numThreads) {
+      return new NioEventLoopGroup(numThreads);
+    }
+
+    @Override
+    Class<? extends ServerSocketChannel> serverChannelClass() {
+      return NioServerSocketChannel.class;
+    }
+
+    @Override
+    Class<? extends SocketChannel> channelClass() {
+      return NioSocketChannel.class;
+    }
+  };
+
+  /** Returns whether this transport can be used on the current platform. */
+  abstract boolean isAvailable();
+
+  /**
+   * Creates an {@link EventLoopGroup} with the given number of threads, or Netty's default number
+   * of threads (twice the number of cores) if {@code numThreads} is 0.
+   */
+  abstract EventLoopGroup createEventLoopGroup(int numThreads);
+
+  /** Returns the class of the channels that listen on local ports. */
+  abstract Class<? extends ServerSocketChannel> serverChannelClass();
+
+  /** Returns the class of the channels connected to remote peers. */
+  abstract Class<? extends SocketChannel> channelClass();
+
+  /**
+   * Returns the native transport if it is preferred and available on this platform, or NIO
+   * otherwise.
+   */
+  static ProxyTransport select(boolean preferNative) {
+    return (preferNative && EPOLL.isAvailable()) ? EPOLL : NIO;
+  }
+}
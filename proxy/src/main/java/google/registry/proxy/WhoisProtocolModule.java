@@ -35,7 +35,6 @@ import io.netty.channel.ChannelHandler;
 import io.netty.handler.codec.LineBasedFrameDecoder;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Supplier;
 import javax.inject.Named;
 import javax.inject.Provider;
@@ -110,10 +109,8 @@ public class WhoisProtocolModule {
 
   @Provides
   @WhoisProtocol
-  static TokenStore provideTokenStore(
-      ProxyConfig config, ScheduledExecutorService refreshExecutor, Clock clock) {
-    return new TokenStore(
-        new QuotaConfig(config.whois.quota, PROTOCOL_NAME), refreshExecutor, clock);
+  static TokenStore provideTokenStore(ProxyConfig config, Clock clock) {
+    return new TokenStore(new QuotaConfig(config.whois.quota, PROTOCOL_NAME), clock);
   }
 
   @Provides
@@ -46,6 +46,10 @@ import org.joda.time.Duration;
  * being handed over to HTTP related handler. {@link FullHttpResponse} inbound messages are first
  * constructed (from plain bytes) by preceding handlers and then related metrics are instrumented in
  * this handler.
+ *
+ * <p>The frontend channel that a request comes from is looked up when the request is written,
+ * because a backend channel taken from a shared pool relays requests from different frontend
+ * channels over its lifetime, one at a time.
  */
 public class BackendMetricsHandler extends ChannelDuplexHandler {
 
@@ -54,7 +58,6 @@ public class BackendMetricsHandler extends ChannelDuplexHandler {
 
   private String relayedProtocolName;
   private String clientCertHash;
-  private Channel relayedChannel;
 
   /**
    * A queue that saves the time at which a request is sent to the GAE app.
@@ -79,16 +82,6 @@ public class BackendMetricsHandler extends ChannelDuplexHandler {
     this.metrics = metrics;
   }
 
-  @Override
-  public void channelRegistered(ChannelHandlerContext ctx) throws Exception {
-    // Backend channel is always established after a frontend channel is connected, so this call
-    // should always return a non-null relay channel.
-    relayedChannel = ctx.channel().attr(RELAY_CHANNEL_KEY).get();
-    checkNotNull(relayedChannel, "No frontend channel found.");
-    relayedProtocolName = relayedChannel.attr(PROTOCOL_KEY).get().name();
-    super.channelRegistered(ctx);
-  }
-
   @Override
   public void channelRead(ChannelHandlerContext ctx, Object msg) throws Exception {
     checkArgument(msg instanceof FullHttpResponse, "Incoming response must be FullHttpResponse.");
@@ -105,15 +98,17 @@ public class BackendMetricsHandler extends ChannelDuplexHandler {
   public void write(ChannelHandlerContext ctx, Object msg, ChannelPromise promise)
       throws Exception {
     checkArgument(msg instanceof FullHttpRequest, "Outgoing request must be FullHttpRequest.");
+    // A request is always written on behalf of a frontend channel, so this call should always
+    // return a non-null relay channel.
+    Channel relayedChannel = ctx.channel().attr(RELAY_CHANNEL_KEY).get();
+    checkNotNull(relayedChannel, "No frontend channel found.");
+    relayedProtocolName = relayedChannel.attr(PROTOCOL_KEY).get().name();
     // For WHOIS, client certificate hash is always set to "none".
     // For EPP, the client hash attribute is set upon handshake completion, before the first HELLO
-    // is sent to the server. Therefore the first call to write() with HELLO payload has access to
-    // the hash in its channel attribute.
-    if (clientCertHash == null) {
-      clientCertHash =
-          Optional.ofNullable(relayedChannel.attr(CLIENT_CERTIFICATE_HASH_KEY).get())
-              .orElse("none");
-    }
+    // is sent to the server. Therefore every call to write() has access to the hash in its channel
+    // attribute.
+    clientCertHash =
+        Optional.ofNullable(relayedChannel.attr(CLIENT_CERTIFICATE_HASH_KEY).get()).orElse("none");
     FullHttpRequest request = (FullHttpRequest) msg;
 
     // Record request size now because the content would have read by the time the listener is
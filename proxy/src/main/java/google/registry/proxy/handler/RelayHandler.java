@@ -22,12 +22,14 @@ import io.netty.channel.Channel;
 import io.netty.channel.ChannelFuture;
 import io.netty.channel.ChannelHandlerContext;
 import io.netty.channel.SimpleChannelInboundHandler;
+import io.netty.channel.pool.ChannelPool;
 import io.netty.handler.codec.http.FullHttpRequest;
 import io.netty.handler.codec.http.FullHttpResponse;
 import io.netty.util.Attribute;
 import io.netty.util.AttributeKey;
 import io.netty.util.ReferenceCountUtil;
 import io.netty.util.ReferenceCounted;
+import io.netty.util.concurrent.Future;
 import java.util.Deque;
 import java.util.Queue;
 import javax.inject.Inject;
@@ -43,9 +45,13 @@ public class RelayHandler<I> extends SimpleChannelInboundHandler<I> {
    *
    * <p>This queue is null for channels that should not retry on failure, i. e. backend channels.
    *
-   * <p>This queue does not need to be synchronised because it is only accessed by the I/O thread of
-   * the channel, or its relay channel. Since both channels use the same EventLoop, their I/O
-   * activities are handled by the same thread.
+   * <p>For frontend channels that relay through a shared pool (see {@link #RELAY_POOL_KEY}), this
+   * queue instead holds the messages that have not been answered yet, the head being the one
+   * currently relayed.
+   *
+   * <p>This queue is accessed by the I/O thread of the channel and by that of its relay channel.
+   * Both channels use the same EventLoop by default, but the relay channel may be handled by a
+   * separate EventLoopGroup, so the queue must be safe for concurrent use.
    */
   public static final AttributeKey<Deque<Object>> RELAY_BUFFER_KEY =
       AttributeKey.valueOf("RELAY_BUFFER_KEY");
@@ -56,6 +62,21 @@ public class RelayHandler<I> extends SimpleChannelInboundHandler<I> {
   public static final AttributeKey<Channel> RELAY_CHANNEL_KEY =
       AttributeKey.valueOf("RELAY_CHANNEL");
 
+  /**
+   * Key used to retrieve the pool of backend channels shared by all frontend channels of a
+   * protocol.
+   *
+   * <p>A frontend channel with this attribute has no dedicated relay channel. It acquires a backend
+   * channel from the pool for each message, and the backend channel is released back to the pool
+   * as soon as it has relayed the response. While it is acquired, the {@link #RELAY_CHANNEL_KEY}
+   * attribute of the backend channel is set to the frontend channel.
+   *
+   * <p>Backend channels in the pool carry the same attribute, so that they know where to return
+   * to. Frontend channels are told apart by their {@link #RELAY_BUFFER_KEY} attribute.
+   */
+  public static final AttributeKey<ChannelPool> RELAY_POOL_KEY =
+      AttributeKey.valueOf("RELAY_POOL");
+
   public RelayHandler(Class<? extends I> clazz) {
     super(clazz, false);
   }
@@ -64,6 +85,11 @@ public class RelayHandler<I> extends SimpleChannelInboundHandler<I> {
   @Override
   protected void channelRead0(ChannelHandlerContext ctx, I msg) throws Exception {
     Channel channel = ctx.channel();
+    ChannelPool relayPool = channel.attr(RELAY_POOL_KEY).get();
+    if (relayPool != null) {
+      relayThroughPool(channel, relayPool, msg);
+      return;
+    }
     Channel relayChannel = channel.attr(RELAY_CHANNEL_KEY).get();
     if (relayChannel == null) {
       logger.atSevere().log("Relay channel not specified for channel: %s", channel);
@@ -145,6 +171,116 @@ public class RelayHandler<I> extends SimpleChannelInboundHandler<I> {
                 });
   }
 
+  private static void relayThroughPool(Channel channel, ChannelPool relayPool, Object msg) {
+    Deque<Object> relayBuffer = channel.attr(RELAY_BUFFER_KEY).get();
+    if (relayBuffer != null) {
+      // Frontend channel: messages are relayed one at a time so that responses come back in the
+      // same order as the requests. The next message is sent once this one is answered.
+      relayBuffer.add(msg);
+      if (relayBuffer.size() == 1) {
+        writeToRelayPool(channel, relayPool, msg);
+      }
+      return;
+    }
+    // Backend channel: relay the response to the frontend channel that sent the request, then
+    // return to the pool and let the frontend channel send its next message.
+    Channel relayChannel = channel.attr(RELAY_CHANNEL_KEY).getAndSet(null);
+    if (relayChannel == null) {
+      logger.atSevere().log("Unsolicited message from pooled channel: %s", channel);
+      ReferenceCountUtil.release(msg);
+      ChannelFuture unusedFuture = channel.close();
+      return;
+    }
+    writeToRelayChannel(channel, relayChannel, msg, false);
+    Future<Void> unusedFuture = relayPool.release(channel);
+    relayChannel.eventLoop().execute(() -> finishPooledRelay(relayChannel, relayPool));
+  }
+
+  /**
+   * Writes the message at the head of the relay buffer of a frontend channel to a backend channel
+   * acquired from the pool.
+   *
+   * <p>The relay buffer keeps its reference to the message until the response is relayed back.
+   * Any failure closes the frontend channel: once a request may have reached the backend, it is not
+   * safe to send it again, so the client needs to reconnect and find out what happened.
+   */
+  private static void writeToRelayPool(Channel channel, ChannelPool relayPool, Object msg) {
+    // Acquire on the frontend channel's event loop, so that the listener cannot race with the
+    // frontend channel's close listener, which releases all the buffered messages.
+    Future<Channel> unusedFuture =
+        relayPool
+            .acquire(channel.eventLoop().newPromise())
+            .addListener(
+                (Future<Channel> future) -> {
+                  if (!future.isSuccess()) {
+                    logger.atWarning().withCause(future.cause()).log(
+                        "Cannot acquire relay channel for channel %s", channel);
+                    ChannelFuture unusedFuture2 = channel.close();
+                    return;
+                  }
+                  Channel relayChannel = future.getNow();
+                  if (!channel.isActive()) {
+                    // The frontend channel was closed while waiting for a backend channel.
+                    Future<Void> unusedFuture2 = relayPool.release(relayChannel);
+                    return;
+                  }
+                  relayChannel.attr(RELAY_CHANNEL_KEY).set(channel);
+                  ReferenceCountUtil.retain(msg);
+                  ChannelFuture unusedFuture2 =
+                      relayChannel
+                          .writeAndFlush(msg)
+                          .addListener(
+                              writeFuture -> {
+                                if (!writeFuture.isSuccess()) {
+                                  logger.atWarning().withCause(writeFuture.cause()).log(
+                                      "Relay failed: %s --> %s\nINBOUND: %s\nOUTBOUND: %s",
+                                      channel.attr(PROTOCOL_KEY).get().name(),
+                                      relayChannel.attr(PROTOCOL_KEY).get().name(),
+                                      channel,
+                                      relayChannel);
+                                  // Closing the backend channel returns it to the pool and closes
+                                  // the frontend channel, see abortPooledRelay.
+                                  ChannelFuture unusedFuture3 = relayChannel.close();
+                                }
+                              });
+                });
+  }
+
+  /** Releases the message that has been answered and sends the next one, if any. */
+  private static void finishPooledRelay(Channel channel, ChannelPool relayPool) {
+    if (!channel.isActive()) {
+      // The close listener of the frontend channel has already released the buffered messages.
+      return;
+    }
+    Deque<Object> relayBuffer = channel.attr(RELAY_BUFFER_KEY).get();
+    ReferenceCountUtil.release(relayBuffer.poll());
+    Object next = relayBuffer.peek();
+    if (next != null) {
+      writeToRelayPool(channel, relayPool, next);
+    }
+  }
+
+  /**
+   * Handles the closure of a pooled backend channel.
+   *
+   * <p>If the backend channel was in the middle of relaying a message, the message is lost, so the
+   * frontend channel is closed as well, and the backend channel is returned to the pool, which
+   * discards it.
+   */
+  public static void abortPooledRelay(Channel backendChannel, ChannelPool relayPool) {
+    Channel relayChannel = backendChannel.attr(RELAY_CHANNEL_KEY).getAndSet(null);
+    if (relayChannel != null) {
+      logger.atWarning().log(
+          "Relay interrupted: %s <-> %s\nFRONTEND: %s\nBACKEND: %s",
+          relayChannel.attr(PROTOCOL_KEY).get().name(),
+          backendChannel.attr(PROTOCOL_KEY).get().name(),
+          relayChannel,
+          backendChannel);
+      Future<Void> unusedFuture = relayPool.release(backendChannel);
+      ChannelFuture unusedFuture2 = relayChannel.close();
+    }
+  }
+
   /** Specialized {@link RelayHandler} that takes a {@link FullHttpRequest} as inbound payload. */
   public static class FullHttpRequestRelayHandler extends RelayHandler<FullHttpRequest> {
     @Inject
@@ -22,7 +22,7 @@ import javax.annotation.concurrent.ThreadSafe;
 import org.joda.time.DateTime;
 
 /**
- * A thread-safe quota manager that schedules background refresh if necessary.
+ * A thread-safe quota manager.
  *
  * <p>This class abstracts away details about the {@link TokenStore}. It:
  *
@@ -31,7 +31,6 @@ import org.joda.time.DateTime;
  *       and responds with a {@link QuotaResponse}.
  *   <li>Translates a {@link QuotaRebate} to putting the token to the store asynchronously, and
  *       immediately returns.
- *   <li>Periodically refreshes the token records asynchronously to purge stale recodes.
  * </ul>
  *
  * <p>There should be one {@link QuotaManager} per protocol.
@@ -85,7 +84,6 @@ public class QuotaManager {
   public QuotaManager(TokenStore tokenStore, ExecutorService backgroundExecutor) {
     this.tokenStore = tokenStore;
     this.backgroundExecutor = backgroundExecutor;
-    tokenStore.scheduleRefresh();
   }
 
   /** Attempts to acquire requested quota, synchronously. */
@@ -14,7 +14,6 @@
 
 package google.registry.proxy.quota;
 
-import static google.registry.proxy.quota.QuotaConfig.SENTINEL_UNLIMITED_TOKENS;
 import static java.lang.StrictMath.max;
 import static java.lang.StrictMath.min;
 
@@ -23,12 +22,10 @@ import com.google.common.annotations.VisibleForTesting;
 import com.google.common.flogger.FluentLogger;
 import google.registry.util.Clock;
 import java.util.concurrent.ConcurrentHashMap;
-import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.annotation.concurrent.ThreadSafe;
 import org.joda.time.DateTime;
-import org.joda.time.Duration;
+import org.joda.time.DateTimeZone;
 
 /**
  * A thread-safe token store that supports concurrent {@link #take}, {@link #put}, and {@link
@@ -40,8 +37,14 @@ import org.joda.time.Duration;
  * tokens, see {@code config/default-config.yaml}.
  *
  * <p>The store also lazily refills tokens for a {@code userId} when a {@link #take} or a {@link
- * #put} takes place. It also exposes a {@link #refresh} method that goes through each entry in the
- * store and purges stale entries, in order to prevent the token store from growing too large.
+ * #put} takes place. Once per refresh period, the first {@link #take} after the period has elapsed
+ * also goes through each entry in the store and purges stale entries, in order to prevent the token
+ * store from growing too large.
+ *
+ * <p>Each user's tokens are kept in a single {@link AtomicLong} that packs the token count with the
+ * refill time, so that taking and putting tokens are lock-free compare-and-set loops that don't
+ * allocate once the user has an entry. Up to {@link #MAX_TOKEN_AMOUNT} tokens can be allotted to a
+ * user.
  *
  * <p>There should be one token store for each protocol.
  */
@@ -61,28 +64,62 @@ public class TokenStore {
     abstract DateTime timestamp();
   }
 
+  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
+
+  /** Number of low bits of an entry that hold the token count. */
+  private static final int TOKEN_COUNT_BITS = 24;
+
+  private static final long TOKEN_COUNT_MASK = (1L << TOKEN_COUNT_BITS) - 1;
+
+  /** The maximum number of tokens that can be allotted to a user. */
+  static final int MAX_TOKEN_AMOUNT = (int) TOKEN_COUNT_MASK;
+
+  /** Value of {@link #nextRefreshMillis} before the first refresh has been scheduled. */
+  private static final long REFRESH_NOT_SCHEDULED = Long.MIN_VALUE;
+
   /**
-   * A wrapper to get around Java lambda's closure limitation.
+   * A map of {@code userId} to available tokens, packed with the last refill time.
    *
-   * <p>Use the class to modify the value of a local variable captured by an lambda.
+   * <p>The refill time is stored in the high bits, in milliseconds since {@link #epochMillis}, and
+   * the token count in the low {@link #TOKEN_COUNT_BITS} bits.
    */
-  private static class Wrapper<T> {
-    T value;
-  }
+  private final ConcurrentHashMap<String, AtomicLong> tokensMap = new ConcurrentHashMap<>();
 
-  private static final FluentLogger logger = FluentLogger.forEnclosingClass();
-
-  /** A map of {@code userId} to available tokens, timestamped at last refill time. */
-  private final ConcurrentHashMap<String, TimestampedInteger> tokensMap = new ConcurrentHashMap<>();
+  /** Time at which the next {@link #take} refreshes the store. */
+  private final AtomicLong nextRefreshMillis = new AtomicLong(REFRESH_NOT_SCHEDULED);
 
   private final QuotaConfig config;
-  private final ScheduledExecutorService refreshExecutor;
   private final Clock clock;
 
-  public TokenStore(QuotaConfig config, ScheduledExecutorService refreshExecutor, Clock clock) {
+  /** Time relative to which refill times are stored, so that they fit in the packed entries. */
+  private final long epochMillis;
+
+  public TokenStore(QuotaConfig config, Clock clock) {
     this.config = config;
-    this.refreshExecutor = refreshExecutor;
     this.clock = clock;
+    this.epochMillis = clock.nowUtc().getMillis();
+  }
+
+  private long pack(long refillTimeMillis, int tokenCount) {
+    return (max(0, refillTimeMillis - epochMillis) << TOKEN_COUNT_BITS) | tokenCount;
+  }
+
+  private long refillTimeMillis(long entry) {
+    return (entry >>> TOKEN_COUNT_BITS) + epochMillis;
+  }
+
+  private static int tokenCount(long entry) {
+    return (int) (entry & TOKEN_COUNT_MASK);
+  }
+
+  /** Returns whether the tokens of the user need to be reset to the allotted amount. */
+  private boolean needsRefill(String userId, long refillTimeMillis, long nowMillis) {
+    long refillPeriodMillis = config.getRefillPeriod(userId).getMillis();
+    return refillPeriodMillis != 0 && nowMillis - refillTimeMillis >= refillPeriodMillis;
+  }
+
+  private static DateTime toDateTime(long millis) {
+    return new DateTime(millis, DateTimeZone.UTC);
   }
 
   /**
@@ -92,45 +129,43 @@ public class TokenStore {
    * that entry has been last refilled before the refill period. In either case it will reset the
    * token amount to the allotted to the user.
    *
-   * <p>The request can be partially fulfilled or all-or-nothing, meaning if there are fewer tokens
-   * available than requested, we can grant all available ones, or grant nothing, depending on the
-   * {@code partialGrant} parameter.
+   * <p>Users provisioned with unlimited tokens are always granted a token, and have no entry in the
+   * tokens map.
    *
    * @param userId the identifier of the user requesting the token.
    * @return the number of token granted, timestamped at refill time of the pool of tokens from
    *     which the granted one is taken.
    */
   TimestampedInteger take(String userId) {
-    Wrapper<TimestampedInteger> grantedToken = new Wrapper<>();
-    tokensMap.compute(
-        userId,
-        (user, availableTokens) -> {
-          DateTime now = clock.nowUtc();
-          int currentTokenCount;
-          DateTime refillTime;
-          // Checks if the user is provisioned with unlimited tokens.
-          if (config.hasUnlimitedTokens(user)) {
-            grantedToken.value = TimestampedInteger.create(1, now);
-            return TimestampedInteger.create(SENTINEL_UNLIMITED_TOKENS, now);
-          }
-          // Checks if the entry exists.
-          if (availableTokens == null
-              // Or if refill is enabled and the entry needs to be refilled.
-              || (!config.getRefillPeriod(user).isEqual(Duration.ZERO)
-                  && !new Duration(availableTokens.timestamp(), now)
-                      .isShorterThan(config.getRefillPeriod(user)))) {
-            currentTokenCount = config.getTokenAmount(user);
-            refillTime = now;
-          } else {
-            currentTokenCount = availableTokens.value();
-            refillTime = availableTokens.timestamp();
-          }
-          int newTokenCount = max(0, currentTokenCount - 1);
-          grantedToken.value =
-              TimestampedInteger.create(currentTokenCount - newTokenCount, refillTime);
-          return TimestampedInteger.create(newTokenCount, refillTime);
-        });
-    return grantedToken.value;
+    DateTime now = clock.nowUtc();
+    long nowMillis = now.getMillis();
+    maybeRefresh(nowMillis);
+    // Checks if the user is provisioned with unlimited tokens.
+    if (config.hasUnlimitedTokens(userId)) {
+      return TimestampedInteger.create(1, now);
+    }
+    int tokenAmount = config.getTokenAmount(userId);
+    AtomicLong tokens = tokensMap.get(userId);
+    if (tokens == null) {
+      // Create a full entry, the first token is taken from it below.
+      tokens =
+          tokensMap.computeIfAbsent(userId, user -> new AtomicLong(pack(nowMillis, tokenAmount)));
+    }
+    while (true) {
+      long entry = tokens.get();
+      long refillTimeMillis = refillTimeMillis(entry);
+      int currentTokenCount = tokenCount(entry);
+      if (needsRefill(userId, refillTimeMillis, nowMillis)) {
+        currentTokenCount = tokenAmount;
+        refillTimeMillis = nowMillis;
+      }
+      int newTokenCount = max(0, currentTokenCount - 1);
+      if (tokens.compareAndSet(entry, pack(refillTimeMillis, newTokenCount))) {
+        return TimestampedInteger.create(
+            currentTokenCount - newTokenCount,
+            refillTimeMillis == nowMillis ? now : toDateTime(refillTimeMillis));
+      }
+    }
   }
 
   /**
@@ -145,32 +180,53 @@ public class TokenStore {
    *     one is taken from.
    */
   void put(String userId, DateTime returnedTokenRefillTime) {
-    tokensMap.computeIfPresent(
-        userId,
-        (user, availableTokens) -> {
-          DateTime now = clock.nowUtc();
-          int currentTokenCount = availableTokens.value();
-          DateTime refillTime = availableTokens.timestamp();
-          int newTokenCount;
-          // Check if quota is unlimited.
-          if (!config.hasUnlimitedTokens(userId)) {
-            // Check if refill is enabled and a refill is needed.
-            if (!config.getRefillPeriod(user).isEqual(Duration.ZERO)
-                && !new Duration(availableTokens.timestamp(), now)
-                    .isShorterThan(config.getRefillPeriod(user))) {
-              currentTokenCount = config.getTokenAmount(user);
-              refillTime = now;
-            }
-            // If the returned token comes from the current pool, add it back, otherwise discard it.
-            newTokenCount =
-                returnedTokenRefillTime.equals(refillTime)
-                    ? min(currentTokenCount + 1, config.getTokenAmount(userId))
-                    : currentTokenCount;
-          } else {
-            newTokenCount = SENTINEL_UNLIMITED_TOKENS;
-          }
-          return TimestampedInteger.create(newTokenCount, refillTime);
-        });
+    AtomicLong tokens = tokensMap.get(userId);
+    // Nothing to return to if the entry has been purged, or if the user has unlimited tokens.
+    if (tokens == null) {
+      return;
+    }
+    long nowMillis = clock.nowUtc().getMillis();
+    int tokenAmount = config.getTokenAmount(userId);
+    while (true) {
+      long entry = tokens.get();
+      long refillTimeMillis = refillTimeMillis(entry);
+      int currentTokenCount = tokenCount(entry);
+      // Check if refill is enabled and a refill is needed.
+      if (needsRefill(userId, refillTimeMillis, nowMillis)) {
+        currentTokenCount = tokenAmount;
+        refillTimeMillis = nowMillis;
+      }
+      // If the returned token comes from the current pool, add it back, otherwise discard it.
+      int newTokenCount =
+          returnedTokenRefillTime.getMillis() == refillTimeMillis
+              ? min(currentTokenCount + 1, tokenAmount)
+              : currentTokenCount;
+      if (tokens.compareAndSet(entry, pack(refillTimeMillis, newTokenCount))) {
+        return;
+      }
+    }
+  }
+
+  /**
+   * Refreshes the token store if the refresh period has elapsed since the last refresh.
+   *
+   * <p>Only the caller that moves the next refresh time forward does the refresh, so concurrent
+   * callers never wait for it.
+   */
+  private void maybeRefresh(long nowMillis) {
+    long refreshPeriodMillis = config.getRefreshPeriod().getMillis();
+    // Only refresh if the refresh period is not zero.
+    if (refreshPeriodMillis == 0) {
+      return;
+    }
+    long next = nextRefreshMillis.get();
+    if (next == REFRESH_NOT_SCHEDULED) {
+      nextRefreshMillis.compareAndSet(REFRESH_NOT_SCHEDULED, nowMillis + refreshPeriodMillis);
+    } else if (nowMillis >= next
+        && nextRefreshMillis.compareAndSet(next, nowMillis + refreshPeriodMillis)) {
+      refresh();
+      logger.atInfo().log("Refreshed quota for protocol %s", config.getProtocolName());
+    }
   }
 
   /**
@@ -184,31 +240,16 @@ public class TokenStore {
    * later from the refill time, otherwise another refill would have been performed.
    */
   void refresh() {
+    long nowMillis = clock.nowUtc().getMillis();
+    long refreshPeriodMillis = config.getRefreshPeriod().getMillis();
     tokensMap.forEach(
-        (user, availableTokens) -> {
-          if (!new Duration(availableTokens.timestamp(), clock.nowUtc())
-              .isShorterThan(config.getRefreshPeriod())) {
-            tokensMap.remove(user);
+        (user, tokens) -> {
+          if (nowMillis - refillTimeMillis(tokens.get()) >= refreshPeriodMillis) {
+            tokensMap.remove(user, tokens);
           }
         });
   }
 
-  /** Schedules token store refresh if enabled. */
-  void scheduleRefresh() {
-    // Only schedule refresh if the refresh period is not zero.
-    if (!config.getRefreshPeriod().isEqual(Duration.ZERO)) {
-      Future<?> unusedFuture =
-          refreshExecutor.scheduleWithFixedDelay(
-              () -> {
-                refresh();
-                logger.atInfo().log("Refreshing quota for protocol %s", config.getProtocolName());
-              },
-              config.getRefreshPeriod().getStandardSeconds(),
-              config.getRefreshPeriod().getStandardSeconds(),
-              TimeUnit.SECONDS);
-    }
-  }
-
   /**
    * Helper method to retrieve the timestamped token value for a {@code userId} for testing.
    *
@@ -217,6 +258,11 @@ public class TokenStore {
    */
   @VisibleForTesting
   TimestampedInteger getTokenForTests(String userId) {
-    return tokensMap.get(userId);
+    AtomicLong tokens = tokensMap.get(userId);
+    if (tokens == null) {
+      return null;
+    }
+    long entry = tokens.get();
+    return TimestampedInteger.create(tokenCount(entry), toDateTime(refillTimeMillis(entry)));
   }
 }
@@ -54,8 +54,6 @@ import io.netty.handler.ssl.SslProvider;
 import io.netty.handler.timeout.ReadTimeoutHandler;
 import java.time.Duration;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.ScheduledExecutorService;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Supplier;
@@ -272,12 +270,6 @@ public abstract class ProtocolModuleTest {
       return MoreExecutors.newDirectExecutorService();
     }
 
-    @Singleton
-    @Provides
-    static ScheduledExecutorService provideScheduledExecutorService() {
-      return Executors.newSingleThreadScheduledExecutor();
-    }
-
     @Singleton
     @Provides
     static Environment provideEnvironment() {
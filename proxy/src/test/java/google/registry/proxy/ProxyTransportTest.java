@@ -0,0 +1,56 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.proxy;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import io.netty.channel.EventLoopGroup;
+import io.netty.channel.epoll.Epoll;
+import io.netty.channel.socket.nio.NioServerSocketChannel;
+import io.netty.channel.socket.nio.NioSocketChannel;
+import io.netty.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+/** Unit tests for {@link ProxyTransport}. */
+class ProxyTransportTest {
+
+  @Test
+  void testSelect_nativeNotPreferred() {
+    assertThat(ProxyTransport.select(false)).isEqualTo(ProxyTransport.NIO);
+  }
+
+  @Test
+  void testSelect_nativePreferred() {
+    assertThat(ProxyTransport.select(true))
+        .isEqualTo(Epoll.isAvailable() ? ProxyTransport.EPOLL : ProxyTransport.NIO);
+  }
+
+  @Test
+  void testNio_channelClasses() {
+    assertThat(ProxyTransport.NIO.isAvailable()).isTrue();
+    assertThat(ProxyTransport.NIO.serverChannelClass()).isEqualTo(NioServerSocketChannel.class);
+    assertThat(ProxyTransport.NIO.channelClass()).isEqualTo(NioSocketChannel.class);
+  }
+
+  @Test
+  void testCreateEventLoopGroup_numThreads() {
+    EventLoopGroup group = ProxyTransport.select(true).createEventLoopGroup(3);
+    try {
+      assertThat(group).hasSize(3);
+    } finally {
+      Future<?> unusedFuture = group.shutdownGracefully();
+    }
+  }
+}
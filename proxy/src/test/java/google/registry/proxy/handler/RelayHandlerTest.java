@@ -18,13 +18,21 @@ import static com.google.common.truth.Truth.assertThat;
 import static google.registry.proxy.Protocol.PROTOCOL_KEY;
 import static google.registry.proxy.handler.RelayHandler.RELAY_BUFFER_KEY;
 import static google.registry.proxy.handler.RelayHandler.RELAY_CHANNEL_KEY;
+import static google.registry.proxy.handler.RelayHandler.RELAY_POOL_KEY;
+import static google.registry.proxy.handler.RelayHandler.abortPooledRelay;
 
 import com.google.common.collect.ImmutableList;
 import google.registry.proxy.Protocol;
 import google.registry.proxy.Protocol.BackendProtocol;
 import google.registry.proxy.Protocol.FrontendProtocol;
+import io.netty.channel.Channel;
 import io.netty.channel.embedded.EmbeddedChannel;
+import io.netty.channel.pool.ChannelPool;
+import io.netty.util.concurrent.Future;
+import io.netty.util.concurrent.Promise;
 import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -35,6 +43,41 @@ class RelayHandlerTest {
 
   private static final class OtherType {}
 
+  /** A {@link ChannelPool} that always hands out the same channel. */
+  private static final class FakeChannelPool implements ChannelPool {
+
+    private final Channel channel;
+    private final List<Channel> releasedChannels = new ArrayList<>();
+
+    FakeChannelPool(Channel channel) {
+      this.channel = channel;
+    }
+
+    @Override
+    public Future<Channel> acquire() {
+      return acquire(channel.eventLoop().newPromise());
+    }
+
+    @Override
+    public Future<Channel> acquire(Promise<Channel> promise) {
+      return promise.setSuccess(channel);
+    }
+
+    @Override
+    public Future<Void> release(Channel releasedChannel) {
+      return release(releasedChannel, releasedChannel.eventLoop().newPromise());
+    }
+
+    @Override
+    public Future<Void> release(Channel releasedChannel, Promise<Void> promise) {
+      releasedChannels.add(releasedChannel);
+      return promise.setSuccess(null);
+    }
+
+    @Override
+    public void close() {}
+  }
+
   private final RelayHandler<ExpectedType> relayHandler = new RelayHandler<>(ExpectedType.class);
   private final EmbeddedChannel inboundChannel = new EmbeddedChannel(relayHandler);
   private final EmbeddedChannel outboundChannel = new EmbeddedChannel();
@@ -119,4 +162,73 @@ class RelayHandlerTest {
     // Inbound channel is closed.
     assertThat(inboundChannel.isActive()).isFalse();
   }
+
+  private EmbeddedChannel setUpPooledRelay() {
+    EmbeddedChannel backendChannel = new EmbeddedChannel(new RelayHandler<>(ExpectedType.class));
+    backendChannel.attr(PROTOCOL_KEY).set(backendProtocol);
+    FakeChannelPool relayPool = new FakeChannelPool(backendChannel);
+    backendChannel.attr(RELAY_POOL_KEY).set(relayPool);
+    inboundChannel.attr(RELAY_CHANNEL_KEY).set(null);
+    inboundChannel.attr(RELAY_POOL_KEY).set(relayPool);
+    return backendChannel;
+  }
+
+  @Test
+  void testSuccess_pooled_relayRequestAndResponse() {
+    EmbeddedChannel backendChannel = setUpPooledRelay();
+    ExpectedType request = new ExpectedType();
+    assertThat(inboundChannel.writeInbound(request)).isFalse();
+    assertThat((Object) backendChannel.readOutbound()).isEqualTo(request);
+    assertThat(backendChannel.attr(RELAY_CHANNEL_KEY).get()).isEqualTo(inboundChannel);
+
+    ExpectedType response = new ExpectedType();
+    assertThat(backendChannel.writeInbound(response)).isFalse();
+    assertThat((Object) inboundChannel.readOutbound()).isEqualTo(response);
+    // The backend channel is returned to the pool.
+    assertThat(backendChannel.attr(RELAY_CHANNEL_KEY).get()).isNull();
+    assertThat(((FakeChannelPool) backendChannel.attr(RELAY_POOL_KEY).get()).releasedChannels)
+        .containsExactly(backendChannel);
+    inboundChannel.runPendingTasks();
+    assertThat(inboundChannel.attr(RELAY_BUFFER_KEY).get()).isEmpty();
+    assertThat(inboundChannel.isActive()).isTrue();
+  }
+
+  @Test
+  void testSuccess_pooled_relayOneRequestAtATime() {
+    EmbeddedChannel backendChannel = setUpPooledRelay();
+    ExpectedType request1 = new ExpectedType();
+    ExpectedType request2 = new ExpectedType();
+    assertThat(inboundChannel.writeInbound(request1)).isFalse();
+    assertThat(inboundChannel.writeInbound(request2)).isFalse();
+    // Only the first request is sent until it is answered.
+    assertThat((Object) backendChannel.readOutbound()).isEqualTo(request1);
+    assertThat((Object) backendChannel.readOutbound()).isNull();
+    assertThat(inboundChannel.attr(RELAY_BUFFER_KEY).get()).containsExactly(request1, request2);
+
+    assertThat(backendChannel.writeInbound(new ExpectedType())).isFalse();
+    inboundChannel.runPendingTasks();
+    assertThat((Object) backendChannel.readOutbound()).isEqualTo(request2);
+    assertThat(inboundChannel.attr(RELAY_BUFFER_KEY).get()).containsExactly(request2);
+  }
+
+  @Test
+  void testSuccess_pooled_backendClosed_closesFrontend() {
+    EmbeddedChannel backendChannel = setUpPooledRelay();
+    assertThat(inboundChannel.writeInbound(new ExpectedType())).isFalse();
+    ChannelPool relayPool = backendChannel.attr(RELAY_POOL_KEY).get();
+    abortPooledRelay(backendChannel, relayPool);
+    assertThat(inboundChannel.isActive()).isFalse();
+    assertThat(backendChannel.attr(RELAY_CHANNEL_KEY).get()).isNull();
+    assertThat(((FakeChannelPool) relayPool).releasedChannels).containsExactly(backendChannel);
+  }
+
+  @Test
+  void testSuccess_pooled_idleBackendClosed() {
+    EmbeddedChannel backendChannel = setUpPooledRelay();
+    ChannelPool relayPool = backendChannel.attr(RELAY_POOL_KEY).get();
+    abortPooledRelay(backendChannel, relayPool);
+    // Nothing was being relayed, so the frontend channel is unaffected.
+    assertThat(inboundChannel.isActive()).isTrue();
+    assertThat(((FakeChannelPool) relayPool).releasedChannels).isEmpty();
+  }
 }
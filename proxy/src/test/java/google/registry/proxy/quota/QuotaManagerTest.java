@@ -72,7 +72,6 @@ class QuotaManagerTest {
     response = QuotaResponse.create(true, USER_ID, grantedTokenRefillTime);
     QuotaRebate rebate = QuotaRebate.create(response);
     Future<?> unusedFuture = quotaManager.releaseQuota(rebate);
-    verify(tokenStore).scheduleRefresh();
     verify(tokenStore).put(USER_ID, grantedTokenRefillTime);
     verifyNoMoreInteractions(tokenStore);
   }
@@ -16,10 +16,7 @@ package google.registry.proxy.quota;
 
 import static com.google.common.truth.Truth.assertThat;
 import static google.registry.proxy.quota.QuotaConfig.SENTINEL_UNLIMITED_TOKENS;
-import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
-import static org.mockito.Mockito.spy;
-import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 import google.registry.proxy.quota.TokenStore.TimestampedInteger;
@@ -29,21 +26,18 @@ import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
-import java.util.concurrent.ScheduledExecutorService;
-import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import org.joda.time.DateTime;
 import org.joda.time.Duration;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
-import org.mockito.ArgumentCaptor;
 
 /** Unit tests for {@link TokenStore}. */
 class TokenStoreTest {
 
   private final QuotaConfig quotaConfig = mock(QuotaConfig.class);
   private final FakeClock clock = new FakeClock();
-  private final ScheduledExecutorService refreshExecutor = mock(ScheduledExecutorService.class);
-  private final TokenStore tokenStore = spy(new TokenStore(quotaConfig, refreshExecutor, clock));
+  private final TokenStore tokenStore = new TokenStore(quotaConfig, clock);
   private final String user = "theUser";
   private final String otherUser = "theOtherUser";
 
@@ -213,17 +207,21 @@ class TokenStoreTest {
   @Test
   void testSuccess_unlimitedQuota() {
     when(quotaConfig.hasUnlimitedTokens(user)).thenReturn(true);
+    when(quotaConfig.getTokenAmount(user)).thenReturn(SENTINEL_UNLIMITED_TOKENS);
     for (int i = 0; i < 10000; ++i) {
-      assertTake(1, SENTINEL_UNLIMITED_TOKENS, clock.nowUtc());
+      assertThat(tokenStore.take(user)).isEqualTo(TimestampedInteger.create(1, clock.nowUtc()));
     }
     for (int i = 0; i < 10000; ++i) {
-      assertPut(clock.nowUtc(), SENTINEL_UNLIMITED_TOKENS, clock.nowUtc());
+      tokenStore.put(user, clock.nowUtc());
     }
+    // No entry is kept for users with unlimited tokens.
+    assertThat(tokenStore.getTokenForTests(user)).isNull();
   }
 
   @Test
   void testSuccess_noRefill() {
     when(quotaConfig.getRefillPeriod(user)).thenReturn(Duration.ZERO);
+    when(quotaConfig.getRefreshPeriod()).thenReturn(Duration.ZERO);
     DateTime refillTime = clock.nowUtc();
     assertTake(1, 2, refillTime);
     assertTake(1, 1, refillTime);
@@ -294,19 +292,58 @@ class TokenStoreTest {
   }
 
   @Test
-  void testSuccess_scheduleRefresh() throws Exception {
-    when(quotaConfig.getRefreshPeriod()).thenReturn(Duration.standardSeconds(5));
+  void testSuccess_concurrentTakes_grantAllottedAmount() {
+    ExecutorService executor = Executors.newWorkStealingPool();
+    AtomicInteger grantedTokens = new AtomicInteger();
+    Runnable[] tasks = new Runnable[100];
+    for (int i = 0; i < tasks.length; i++) {
+      tasks[i] = () -> grantedTokens.addAndGet(tokenStore.take(otherUser).value());
+    }
+    submitAndWaitForTasks(executor, tasks);
+    assertThat(grantedTokens.get()).isEqualTo(5);
+    assertThat(tokenStore.getTokenForTests(otherUser))
+        .isEqualTo(TimestampedInteger.create(0, clock.nowUtc()));
+  }
+
+  @Test
+  void testSuccess_lazyRefresh() {
+    String thirdUser = "theThirdUser";
+    when(quotaConfig.getRefillPeriod(thirdUser)).thenReturn(Duration.ZERO);
+    when(quotaConfig.getTokenAmount(thirdUser)).thenReturn(1);
+    DateTime refillTime1 = clock.nowUtc();
+    // The first take schedules a refresh one refresh period later.
+    assertTake(user, 1, 2, refillTime1);
+
+    clock.advanceBy(Duration.standardSeconds(30));
+    DateTime refillTime2 = clock.nowUtc();
+    assertTake(otherUser, 1, 4, refillTime2);
 
-    tokenStore.scheduleRefresh();
+    // Refresh period not elapsed yet, nothing is purged.
+    clock.advanceBy(Duration.standardSeconds(29));
+    tokenStore.take(thirdUser);
+    assertThat(tokenStore.getTokenForTests(user))
+        .isEqualTo(TimestampedInteger.create(2, refillTime1));
 
-    // Verify that a task is scheduled.
-    ArgumentCaptor<Runnable> argument = ArgumentCaptor.forClass(Runnable.class);
-    verify(refreshExecutor)
-        .scheduleWithFixedDelay(
-            argument.capture(), eq((long) 5), eq((long) 5), eq(TimeUnit.SECONDS));
+    // Refresh period elapsed. The entry for user is 60s old and purged, the entry for otherUser is
+    // 30s old and kept.
+    clock.advanceBy(Duration.standardSeconds(1));
+    tokenStore.take(thirdUser);
+    assertThat(tokenStore.getTokenForTests(user)).isNull();
+    assertThat(tokenStore.getTokenForTests(otherUser))
+        .isEqualTo(TimestampedInteger.create(4, refillTime2));
+  }
 
-    // Verify that the scheduled task calls TokenStore.refresh().
-    argument.getValue().run();
-    verify(tokenStore).refresh();
+  @Test
+  void testSuccess_lazyRefresh_notBeforeNextPeriod() {
+    assertTake(user, 1, 2, clock.nowUtc());
+    clock.advanceBy(Duration.standardSeconds(60));
+    DateTime refillTime = clock.nowUtc();
+    // This take triggers a refresh, which purges the entry before a new one is made.
+    assertTake(user, 1, 2, refillTime);
+    // The next refresh is one refresh period later, so the new entry is kept until then.
+    clock.advanceBy(Duration.standardSeconds(59));
+    tokenStore.take(otherUser);
+    assertThat(tokenStore.getTokenForTests(user))
+        .isEqualTo(TimestampedInteger.create(2, refillTime));
   }
 }
@@ -17,6 +17,7 @@ package google.registry.util;
 import static com.google.common.base.Preconditions.checkArgument;
 
 import com.google.common.collect.AbstractSequentialIterator;
+import com.google.common.collect.ImmutableList;
 import com.google.common.flogger.FluentLogger;
 import com.google.common.net.InetAddresses;
 import java.io.Serializable;
@@ -173,6 +174,17 @@ public class CidrAddressBlock implements Iterable<InetAddress>, Serializable {
     return new CidrAddressBlock(parseInetAddress(s), parseNetmask(s), true);
   }
 
+  /**
+   * Compiles the given CIDR blocks into a {@link CidrAddressBlockMatcher}, which tells whether an
+   * address is in any of them much faster than checking the blocks one by one.
+   *
+   * @param blocks the CIDR blocks, of either address family.
+   * @throws NullPointerException if a parameter is null.
+   */
+  public static CidrAddressBlockMatcher matcher(Iterable<CidrAddressBlock> blocks) {
+    return new CidrAddressBlockMatcher(ImmutableList.copyOf(blocks));
+  }
+
   private static final int AUTO_NETMASK = -1;
 
   /**
@@ -0,0 +1,180 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.util;
+
+import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.List;
+import javax.annotation.Nullable;
+
+/**
+ * An immutable set of {@link CidrAddressBlock}s, compiled for fast membership tests.
+ *
+ * <p>Checking an address against the blocks one by one with {@link
+ * CidrAddressBlock#contains(InetAddress)} masks and allocates a new {@link InetAddress} for every
+ * block. Here, the blocks of each address family are turned into sorted, disjoint ranges of
+ * addresses stored in primitive arrays, so that a lookup is a single binary search. Since two CIDR
+ * blocks either don't overlap at all or one contains the other, the ranges are simply the blocks
+ * that aren't contained in another block.
+ *
+ * <p>Instances are created by {@link CidrAddressBlock#matcher}.
+ */
+public final class CidrAddressBlockMatcher {
+
+  private final Ranges ipv4Ranges;
+  private final Ranges ipv6Ranges;
+
+  CidrAddressBlockMatcher(Iterable<CidrAddressBlock> blocks) {
+    List<Range> ipv4 = new ArrayList<>();
+    List<Range> ipv6 = new ArrayList<>();
+    for (CidrAddressBlock block : blocks) {
+      byte[] start = block.getInetAddress().getAddress();
+      Range range = new Range(start, block.getAllOnesAddress().getAddress());
+      (start.length == 4 ? ipv4 : ipv6).add(range);
+    }
+    this.ipv4Ranges = new Ranges(ipv4);
+    this.ipv6Ranges = new Ranges(ipv6);
+  }
+
+  /**
+   * Returns {@code true} if the supplied {@link InetAddress} is within any of the blocks, {@code
+   * false} otherwise.
+   *
+   * <p>Like {@link CidrAddressBlock#contains(InetAddress)}, IPv4 blocks never contain IPv6
+   * addresses, and vice versa.
+   */
+  public boolean contains(@Nullable InetAddress ipAddr) {
+    if (ipAddr == null) {
+      return false;
+    }
+    byte[] address = ipAddr.getAddress();
+    return (address.length == 4 ? ipv4Ranges : ipv6Ranges).contains(address);
+  }
+
+  /** Returns {@code true} if there are no blocks, so that no address matches. */
+  public boolean isEmpty() {
+    return ipv4Ranges.size() == 0 && ipv6Ranges.size() == 0;
+  }
+
+  /** Returns the high 64 bits of an address as an unsigned number, which are all zero for IPv4. */
+  private static long high(byte[] address) {
+    return toLong(address, 0, address.length - 8);
+  }
+
+  /** Returns the low 64 bits of an address as an unsigned number. */
+  private static long low(byte[] address) {
+    return toLong(address, Math.max(0, address.length - 8), address.length);
+  }
+
+  private static long toLong(byte[] bytes, int start, int end) {
+    long result = 0;
+    for (int i = start; i < end; i++) {
+      result = (result << 8) | (bytes[i] & 0xff);
+    }
+    return result;
+  }
+
+  /** Compares two addresses, given by their high and low 64 bits, as unsigned 128-bit numbers. */
+  private static int compare(long high1, long low1, long high2, long low2) {
+    int comparison = Long.compareUnsigned(high1, high2);
+    return (comparison != 0) ? comparison : Long.compareUnsigned(low1, low2);
+  }
+
+  /** The range of addresses of a single block, inclusive at both ends. */
+  private static final class Range {
+
+    final long startHigh;
+    final long startLow;
+    final long endHigh;
+    final long endLow;
+
+    Range(byte[] start, byte[] end) {
+      this.startHigh = high(start);
+      this.startLow = low(start);
+      this.endHigh = high(end);
+      this.endLow = low(end);
+    }
+
+    int compareStartTo(Range other) {
+      return compare(startHigh, startLow, other.startHigh, other.startLow);
+    }
+
+    int compareEndTo(Range other) {
+      return compare(endHigh, endLow, other.endHigh, other.endLow);
+    }
+  }
+
+  /** Sorted, disjoint ranges of addresses of one address family. */
+  private static final class Ranges {
+
+    private final long[] startHighs;
+    private final long[] startLows;
+    private final long[] endHighs;
+    private final long[] endLows;
+
+    Ranges(List<Range> ranges) {
+      // Among blocks that start at the same address, the largest one comes first, so that a block
+      // is contained in another one exactly if it starts by the end of the last one kept.
+      ranges.sort(
+          (range1, range2) -> {
+            int comparison = range1.compareStartTo(range2);
+            return (comparison != 0) ? comparison : range2.compareEndTo(range1);
+          });
+      List<Range> disjoint = new ArrayList<>(ranges.size());
+      for (Range range : ranges) {
+        Range last = disjoint.isEmpty() ? null : disjoint.get(disjoint.size() - 1);
+        if (last == null
+            || compare(range.startHigh, range.startLow, last.endHigh, last.endLow) > 0) {
+          disjoint.add(range);
+        }
+      }
+      int size = disjoint.size();
+      this.startHighs = new long[size];
+      this.startLows = new long[size];
+      this.endHighs = new long[size];
+      this.endLows = new long[size];
+      for (int i = 0; i < size; i++) {
+        Range range = disjoint.get(i);
+        startHighs[i] = range.startHigh;
+        startLows[i] = range.startLow;
+        endHighs[i] = range.endHigh;
+        endLows[i] = range.endLow;
+      }
+    }
+
+    int size() {
+      return startHighs.length;
+    }
+
+    boolean contains(byte[] address) {
+      long high = high(address);
+      long low = low(address);
+      // Find the last range that starts at or before the address.
+      int lowIndex = 0;
+      int highIndex = size() - 1;
+      int candidate = -1;
+      while (lowIndex <= highIndex) {
+        int middle = (lowIndex + highIndex) >>> 1;
+        if (compare(startHighs[middle], startLows[middle], high, low) <= 0) {
+          candidate = middle;
+          lowIndex = middle + 1;
+        } else {
+          highIndex = middle - 1;
+        }
+      }
+      return candidate >= 0 && compare(high, low, endHighs[candidate], endLows[candidate]) <= 0;
+    }
+  }
+}
@@ -0,0 +1,133 @@
+// Copyright 2020 The Nomulus Authors. All Rights Reserved.
+//
+// Licensed under the Apache License, Version 2.0 (the "License");
+// you may not use this file except in compliance with the License.
+// You may obtain a copy of the License at
+//
+//     http://www.apache.org/licenses/LICENSE-2.0
+//
+// Unless required by applicable law or agreed to in writing, software
+// distributed under the License is distributed on an "AS IS" BASIS,
+// WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+// See the License for the specific language governing permissions and
+// limitations under the License.
+
+package google.registry.util;
+
+import static com.google.common.collect.ImmutableList.toImmutableList;
+import static com.google.common.truth.Truth.assertThat;
+import static com.google.common.truth.Truth.assertWithMessage;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.net.InetAddresses;
+import java.net.InetAddress;
+import java.util.Random;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+
+/** Tests for {@link CidrAddressBlockMatcher}. */
+class CidrAddressBlockMatcherTest {
+
+  private static CidrAddressBlockMatcher matcher(String... blocks) {
+    return CidrAddressBlock.matcher(
+        Stream.of(blocks).map(CidrAddressBlock::new).collect(toImmutableList()));
+  }
+
+  private static boolean contains(CidrAddressBlockMatcher matcher, String address) {
+    return matcher.contains(InetAddresses.forString(address));
+  }
+
+  @Test
+  void testEmpty() {
+    CidrAddressBlockMatcher matcher = matcher();
+    assertThat(matcher.isEmpty()).isTrue();
+    assertThat(contains(matcher, "1.2.3.4")).isFalse();
+    assertThat(contains(matcher, "::1")).isFalse();
+    assertThat(matcher.contains(null)).isFalse();
+  }
+
+  @Test
+  void testIpv4() {
+    CidrAddressBlockMatcher matcher = matcher("10.0.0.0/8", "192.168.1.0/24", "1.2.3.4");
+    assertThat(matcher.isEmpty()).isFalse();
+    assertThat(contains(matcher, "10.0.0.0")).isTrue();
+    assertThat(contains(matcher, "10.255.255.255")).isTrue();
+    assertThat(contains(matcher, "11.0.0.0")).isFalse();
+    assertThat(contains(matcher, "9.255.255.255")).isFalse();
+    assertThat(contains(matcher, "192.168.1.77")).isTrue();
+    assertThat(contains(matcher, "192.168.2.1")).isFalse();
+    assertThat(contains(matcher, "1.2.3.4")).isTrue();
+    assertThat(contains(matcher, "1.2.3.5")).isFalse();
+  }
+
+  @Test
+  void testIpv6() {
+    CidrAddressBlockMatcher matcher = matcher("2001:db8::/32", "ffff:ffff::/32", "::1");
+    assertThat(contains(matcher, "2001:db8::1")).isTrue();
+    assertThat(contains(matcher, "2001:db8:ffff:ffff:ffff:ffff:ffff:ffff")).isTrue();
+    assertThat(contains(matcher, "2001:db9::")).isFalse();
+    assertThat(contains(matcher, "ffff:ffff:ffff:ffff:ffff:ffff:ffff:ffff")).isTrue();
+    assertThat(contains(matcher, "7fff:ffff::")).isFalse();
+    assertThat(contains(matcher, "::1")).isTrue();
+    assertThat(contains(matcher, "::2")).isFalse();
+  }
+
+  @Test
+  void testAddressFamiliesDontMix() {
+    assertThat(contains(matcher("0.0.0.0/0"), "::1")).isFalse();
+    assertThat(contains(matcher("::/0"), "1.2.3.4")).isFalse();
+    assertThat(contains(matcher("0.0.0.0/0"), "1.2.3.4")).isTrue();
+    assertThat(contains(matcher("::/0"), "::1")).isTrue();
+  }
+
+  @Test
+  void testNestedBlocks() {
+    CidrAddressBlockMatcher matcher =
+        matcher("10.1.2.0/24", "10.0.0.0/8", "10.1.0.0/16", "10.0.0.0/16", "11.0.0.0/32");
+    assertThat(contains(matcher, "10.200.0.1")).isTrue();
+    assertThat(contains(matcher, "10.1.2.3")).isTrue();
+    assertThat(contains(matcher, "11.0.0.0")).isTrue();
+    assertThat(contains(matcher, "11.0.0.1")).isFalse();
+  }
+
+  @Test
+  void testSameAsCidrAddressBlock() throws Exception {
+    Random random = new Random(1234);
+    ImmutableList.Builder<CidrAddressBlock> blocks = new ImmutableList.Builder<>();
+    for (int i = 0; i < 200; i++) {
+      blocks.add(CidrAddressBlock.create(randomIpv4Address(random), 8 + random.nextInt(25)));
+      blocks.add(CidrAddressBlock.create(randomIpv6Address(random), 32 + random.nextInt(97)));
+    }
+    ImmutableList<CidrAddressBlock> allowList = blocks.build();
+    CidrAddressBlockMatcher matcher = CidrAddressBlock.matcher(allowList);
+    ImmutableList.Builder<InetAddress> addresses = new ImmutableList.Builder<>();
+    for (CidrAddressBlock block : allowList) {
+      addresses.add(
+          block.getInetAddress(),
+          InetAddresses.decrement(block.getInetAddress()),
+          block.getAllOnesAddress(),
+          InetAddresses.increment(block.getAllOnesAddress()));
+    }
+    for (int i = 0; i < 1000; i++) {
+      addresses.add(randomIpv4Address(random), randomIpv6Address(random));
+    }
+    for (InetAddress address : addresses.build()) {
+      assertWithMessage(address.toString())
+          .that(matcher.contains(address))
+          .isEqualTo(allowList.stream().anyMatch(block -> block.contains(address)));
+    }
+  }
+
+  private static InetAddress randomIpv4Address(Random random) {
+    return InetAddresses.fromInteger(random.nextInt());
+  }
+
+  private static InetAddress randomIpv6Address(Random random) throws Exception {
+    byte[] bytes = new byte[16];
+    random.nextBytes(bytes);
+    // Keep to 2001::/16, so that the blocks overlap every now and then.
+    bytes[0] = 0x20;
+    bytes[1] = 0x01;
+    return InetAddress.getByAddress(bytes);
+  }
+}